@@ -1,41 +1,110 @@
 package com.airtribe.meditrack;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Scanner;
+import java.util.function.BiFunction;
 
+import com.airtribe.meditrack.constants.Constants;
+import com.airtribe.meditrack.entity.Appointment;
 import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.MedicalEntity;
 import com.airtribe.meditrack.entity.Patient;
 import com.airtribe.meditrack.entity.PatientProfile;
 import com.airtribe.meditrack.entity.Specialization;
+import com.airtribe.meditrack.persistence.AppointmentStatusLog;
+import com.airtribe.meditrack.persistence.DurableDataStore;
+import com.airtribe.meditrack.persistence.EntityCodecs;
+import com.airtribe.meditrack.persistence.TieredDataStore;
+import com.airtribe.meditrack.persistence.WalOptions;
 import com.airtribe.meditrack.service.AppointmentService;
 import com.airtribe.meditrack.service.DoctorService;
 import com.airtribe.meditrack.service.PatientService;
 import com.airtribe.meditrack.util.AIHelper;
 import com.airtribe.meditrack.util.DataStore;
 import com.airtribe.meditrack.util.DateUtil;
+import com.airtribe.meditrack.util.IdGenerator;
+import com.airtribe.meditrack.util.Page;
 import com.airtribe.meditrack.util.Validator;
 
 /**
  * Entry point for the MediTrack console application.
  *
  * <p>
- * Use {@code mvn -q exec:java} to run.</p>
+ * Use {@code mvn -q exec:java} to run. Pass {@code -Dmeditrack.dataDir=<dir>} to persist
+ * doctors, patients and appointments across restarts.</p>
  */
 public class Main {
 
-    public static void main(String[] args) {
-        DoctorService doctorService = new DoctorService(new DataStore<>());
-        PatientService patientService = new PatientService(new DataStore<>());
-        AppointmentService appointmentService = new AppointmentService(new DataStore<>());
+    public static void main(String[] args) throws IOException {
+        DataStore<Doctor> doctorStore = new DataStore<>();
+        DataStore<Patient> patientStore = new DataStore<>();
+        DataStore<Appointment> appointmentStore = new DataStore<>();
+        List<Closeable> openStores = new ArrayList<>();
+        AppointmentStatusLog statusLog = null;
+
+        if (Constants.DATA_DIR != null) {
+            // Recover doctors and patients first: recovered appointments link to them.
+            Path dir = Path.of(Constants.DATA_DIR);
+            Files.createDirectories(dir);
+            IdGenerator.getInstance().persistHighWaterMark(dir.resolve("ids.hwm"));
+            WalOptions options = WalOptions.defaults();
+            long start = System.nanoTime();
+            DurableDataStore<Doctor> doctors = DurableDataStore.open(dir, "doctors", EntityCodecs.DOCTOR, options);
+            DurableDataStore<Patient> patients = DurableDataStore.open(dir, "patients", EntityCodecs.PATIENT, options);
+            DurableDataStore<Appointment> appointments = DurableDataStore.open(dir, "appointments",
+                    EntityCodecs.appointment(doctors::get, patients::get), options);
+            System.out.printf("Recovered %d doctors, %d patients, %d appointments from %s in %d ms%n",
+                    doctors.size(), patients.size(), appointments.size(), dir.toAbsolutePath(),
+                    (System.nanoTime() - start) / 1_000_000);
+            doctorStore = doctors;
+            patientStore = patients;
+            appointmentStore = appointments;
+            statusLog = AppointmentStatusLog.open(dir, "appointment-status", Constants.STATUS_CHECKPOINT_EVERY, options);
+            openStores.add(statusLog);
+            openStores.add(appointments);
+            openStores.add(patients);
+            openStores.add(doctors);
+        } else if (Constants.HOT_PATIENT_CAPACITY > 0) {
+            TieredDataStore<Patient> patients = TieredDataStore.open(Files.createTempDirectory("meditrack-cold"),
+                    "patients", EntityCodecs.PATIENT, Constants.HOT_PATIENT_CAPACITY,
+                    TieredDataStore.EvictionPolicy.valueOf(Constants.HOT_EVICTION_POLICY));
+            patientStore = patients;
+            openStores.add(patients);
+        }
+
+        if (Constants.TRIAGE_RULES_FILE != null) {
+            AIHelper.triageRules().watch(Path.of(Constants.TRIAGE_RULES_FILE));
+            openStores.add(AIHelper.triageRules());
+        }
+
+        try {
+            runMenu(new DoctorService(doctorStore), new PatientService(patientStore),
+                    new AppointmentService(appointmentStore, Duration.ofMinutes(Constants.SLOT_DURATION_MINUTES), statusLog));
+        } finally {
+            for (Closeable store : openStores) {
+                store.close();
+            }
+        }
+    }
 
+    private static void runMenu(DoctorService doctorService,
+            PatientService patientService,
+            AppointmentService appointmentService) {
         // Seed a couple of doctors for quick testing.
-        doctorService.add(new Doctor("Dr. Asha", 40, "9999999999", Specialization.GENERAL_PHYSICIAN, new BigDecimal("500")));
-        doctorService.add(new Doctor("Dr. Raj", 45, "8888888888", Specialization.DERMATOLOGY, new BigDecimal("700")));
+        if (doctorService.count() == 0) {
+            doctorService.add(new Doctor("Dr. Asha", 40, "9999999999", Specialization.GENERAL_PHYSICIAN, new BigDecimal("500")));
+            doctorService.add(new Doctor("Dr. Raj", 45, "8888888888", Specialization.DERMATOLOGY, new BigDecimal("700")));
+        }
 
         try (Scanner sc = new Scanner(System.in)) {
             while (true) {
@@ -57,6 +126,7 @@ public class Main {
                 System.out.println("13) List Appointments");
 
                 System.out.println("14) AI: Recommend Doctor");
+                System.out.println("15) Complete Appointment");
                 System.out.println("0) Exit");
                 System.out.print("Choose: ");
 
@@ -78,7 +148,7 @@ public class Main {
                         case "4" ->
                             viewPatient(sc, patientService);
                         case "5" ->
-                            patientService.listAll().forEach(p -> System.out.println(p.describe()));
+                            printPaged(sc, patientService::listPage);
                         case "6" ->
                             addDoctor(sc, doctorService);
                         case "7" ->
@@ -88,15 +158,17 @@ public class Main {
                         case "9" ->
                             viewDoctor(sc, doctorService);
                         case "10" ->
-                            doctorService.listAll().forEach(d -> System.out.println(d.describe()));
+                            printPaged(sc, doctorService::listPage);
                         case "11" ->
                             createAppointment(sc, doctorService, patientService, appointmentService);
                         case "12" ->
                             cancelAppointment(sc, appointmentService);
                         case "13" ->
-                            appointmentService.listAll().forEach(a -> System.out.println(a.describe()));
+                            printPaged(sc, appointmentService::listPage);
                         case "14" ->
-                            aiRecommend(sc, doctorService);
+                            aiRecommend(sc, doctorService, appointmentService);
+                        case "15" ->
+                            completeAppointment(sc, appointmentService);
                         default ->
                             System.out.println("Invalid choice.");
                     }
@@ -107,6 +179,25 @@ public class Main {
         }
     }
 
+    /**
+     * Prints one page at a time so large lists start immediately and use constant memory.
+     */
+    private static void printPaged(Scanner sc, BiFunction<String, Integer, Page<? extends MedicalEntity>> pager) {
+        String cursor = null;
+        while (true) {
+            Page<? extends MedicalEntity> page = pager.apply(cursor, Constants.DEFAULT_PAGE_SIZE);
+            page.getItems().forEach(e -> System.out.println(e.describe()));
+            if (!page.hasNext()) {
+                return;
+            }
+            System.out.print("-- Enter for more, q to stop: ");
+            if ("q".equalsIgnoreCase(sc.nextLine().trim())) {
+                return;
+            }
+            cursor = page.getNextCursor().orElseThrow();
+        }
+    }
+
     private static void addPatient(Scanner sc, PatientService patientService) {
         System.out.print("Patient name: ");
         String name = sc.nextLine();
@@ -287,7 +378,15 @@ public class Main {
         System.out.println("Cancelled: " + appt.getId());
     }
 
-    private static void aiRecommend(Scanner sc, DoctorService doctorService) {
+    private static void completeAppointment(Scanner sc, AppointmentService appointmentService) {
+        System.out.print("Appointment ID: ");
+        String id = sc.nextLine();
+        var appt = appointmentService.complete(id);
+        System.out.println("Completed: " + appt.getId());
+        appointmentService.statusHistory(id).forEach(e -> System.out.println(" - " + e));
+    }
+
+    private static void aiRecommend(Scanner sc, DoctorService doctorService, AppointmentService appointmentService) {
         System.out.println("Enter symptoms (comma separated): ");
         String line = sc.nextLine();
         String[] parts = line.split(",");
@@ -304,9 +403,12 @@ public class Main {
         Optional<Doctor> doc = AIHelper.suggestDoctor(doctorService.listAll(), spec);
         if (doc.isPresent()) {
             System.out.println("Suggested doctor: " + doc.get().describe());
+            AIHelper.suggestEarliestSlot(doctorService.listAll(), spec, appointmentService.getAvailability(), LocalDateTime.now())
+                    .ifPresent(slot -> System.out.println("Earliest free " + spec + " slot: " + slot));
             System.out.print("Show suggested slots for which date (yyyy-MM-dd): ");
             LocalDate date = DateUtil.parseDate(sc.nextLine(), "date");
-            AIHelper.suggestSlots(date).stream().limit(8).forEach(d -> System.out.println(" - " + d));
+            AIHelper.suggestSlots(date, doc.get(), appointmentService.getAvailability()).stream().limit(8)
+                    .forEach(d -> System.out.println(" - " + d));
         } else {
             System.out.println("No doctor available for " + spec);
         }
@@ -1,6 +1,7 @@
 package com.airtribe.meditrack.constants;
 
 import java.math.BigDecimal;
+import java.time.LocalTime;
 
 /**
  * Application-wide constants and configuration defaults.
@@ -11,6 +12,58 @@ public final class Constants {
     public static final BigDecimal DEFAULT_TAX_RATE;
     public static final String DEFAULT_CURRENCY;
 
+    /**
+     * Directory for durable stores; {@code null} keeps everything in memory.
+     */
+    public static final String DATA_DIR = System.getProperty("meditrack.dataDir");
+
+    /**
+     * Patients kept on the heap when running in memory; {@code 0} keeps all of them.
+     * Evicted patients spill to a temporary file.
+     */
+    public static final int HOT_PATIENT_CAPACITY = Integer.getInteger("meditrack.hotPatients", 0);
+    public static final String HOT_EVICTION_POLICY = System.getProperty("meditrack.eviction", "W_TINY_LFU");
+
+    /**
+     * Length of one appointment slot; overlapping confirmed slots of a doctor or patient are rejected.
+     */
+    public static final int SLOT_DURATION_MINUTES = Integer.getInteger("meditrack.slotMinutes", 30);
+
+    /**
+     * Working hours covered by the availability calendar ({@code HH:mm}, end exclusive); the
+     * default grid matches the old fixed 10:00-16:00 suggestions.
+     */
+    public static final LocalTime WORKDAY_START = LocalTime.parse(System.getProperty("meditrack.workday.start", "10:00"));
+    public static final LocalTime WORKDAY_END = LocalTime.parse(System.getProperty("meditrack.workday.end", "16:30"));
+
+    /**
+     * Status events between two background checkpoints of the appointment status log.
+     */
+    public static final int STATUS_CHECKPOINT_EVERY = Integer.getInteger("meditrack.statusLog.checkpointEvery", 10_000);
+
+    /**
+     * Patients of at least this age are billed with the senior discount in batch bill runs.
+     */
+    public static final int SENIOR_AGE = Integer.getInteger("meditrack.seniorAge", 60);
+
+    /**
+     * Entries in the memo of billing pipeline totals shared by all billing plans.
+     */
+    public static final int BILLING_CACHE_SIZE = Integer.getInteger("meditrack.billing.cacheSize", 4096);
+
+    /**
+     * Triage rules file for the AI recommendation, watched and reloaded on change;
+     * {@code null} keeps the built-in rules.
+     */
+    public static final String TRIAGE_RULES_FILE = System.getProperty("meditrack.triage.rules");
+
+    public static final int DEFAULT_PAGE_SIZE = Integer.getInteger("meditrack.pageSize", 20);
+
+    /**
+     * Events a {@code DataStore} change feed retains for consumers that fall behind.
+     */
+    public static final int CHANGE_FEED_CAPACITY = Integer.getInteger("meditrack.feed.capacity", 16_384);
+
     public static final String DATE_PATTERN = "yyyy-MM-dd";
     public static final String DATE_TIME_PATTERN = "yyyy-MM-dd HH:mm";
 
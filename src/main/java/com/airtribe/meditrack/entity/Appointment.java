@@ -23,6 +23,20 @@ public class Appointment extends MedicalEntity implements Cloneable {
         this.status = Validator.requireNonNull(status, "status");
     }
 
+    public Appointment(String id,
+                       LocalDateTime createdAt,
+                       Doctor doctor,
+                       Patient patient,
+                       LocalDateTime scheduledAt,
+                       AppointmentStatus status) {
+        super(id, createdAt);
+        
+        this.doctor = Validator.requireNonNull(doctor, "doctor");
+        this.patient = Validator.requireNonNull(patient, "patient");
+        this.scheduledAt = Validator.requireNonNull(scheduledAt, "scheduledAt");
+        this.status = Validator.requireNonNull(status, "status");
+    }
+
     public Appointment(Doctor doctor, Patient patient, LocalDateTime scheduledAt) {
         super("APT", true);
         
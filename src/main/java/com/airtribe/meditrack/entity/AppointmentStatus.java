@@ -2,11 +2,24 @@ package com.airtribe.meditrack.entity;
 
 /**
  * Appointment lifecycle statuses.
+ *
+ * <p>Persisted by ordinal, so new statuses must only be appended.</p>
  */
 public enum AppointmentStatus {
     PENDING,
     CONFIRMED,
-    CANCELLED
-}
-
+    CANCELLED,
+    COMPLETED;
 
+    /**
+     * Allowed lifecycle moves: {@code PENDING -> CONFIRMED -> COMPLETED}, and cancellation
+     * from {@code PENDING} or {@code CONFIRMED}.
+     */
+    public boolean canTransitionTo(AppointmentStatus next) {
+        return switch (this) {
+            case PENDING -> next == CONFIRMED || next == CANCELLED;
+            case CONFIRMED -> next == COMPLETED || next == CANCELLED;
+            case CANCELLED, COMPLETED -> false;
+        };
+    }
+}
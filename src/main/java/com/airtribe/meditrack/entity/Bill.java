@@ -2,19 +2,30 @@ package com.airtribe.meditrack.entity;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDateTime;
 import java.util.Objects;
 
 import com.airtribe.meditrack.constants.Constants;
+import com.airtribe.meditrack.exception.InvalidDataException;
 import com.airtribe.meditrack.interfaces.Payable;
 import com.airtribe.meditrack.util.Validator;
 
 /**
  * Bill for an appointment or medical service.
+ *
+ * <p>Amounts are kept as given ({@code BigDecimal}) and, when the base amount is a whole number
+ * of paise, also as {@link Money}/{@link Rate}; tax and totals are then computed in fixed point
+ * and only converted back at the {@code BigDecimal} getters, with identical results.</p>
  */
 public class Bill extends MedicalEntity implements Payable {
     private final String appointmentId;
     private BigDecimal baseAmount;
     private BigDecimal taxRate;
+    /**
+     * Fixed-point copies, or {@code null} when the base has sub-paise precision.
+     */
+    private Money base;
+    private Rate rate;
 
     public Bill(String id, String appointmentId, BigDecimal baseAmount, BigDecimal taxRate) {
         super(id);
@@ -22,6 +33,25 @@ public class Bill extends MedicalEntity implements Payable {
         
         this.baseAmount = Validator.requireNonNegative(baseAmount, "baseAmount");
         this.taxRate = Validator.requireNonNegative(taxRate, "taxRate");
+        fixedPoint();
+    }
+
+    public Bill(String id, LocalDateTime createdAt, String appointmentId, BigDecimal baseAmount, BigDecimal taxRate) {
+        super(id, createdAt);
+        this.appointmentId = Validator.requireNonBlank(appointmentId, "appointmentId");
+        
+        this.baseAmount = Validator.requireNonNegative(baseAmount, "baseAmount");
+        this.taxRate = Validator.requireNonNegative(taxRate, "taxRate");
+        fixedPoint();
+    }
+
+    public Bill(String id, String appointmentId, Money baseAmount, BigDecimal taxRate) {
+        super(id);
+        this.appointmentId = Validator.requireNonBlank(appointmentId, "appointmentId");
+        this.base = Validator.requireNonNegative(baseAmount, "baseAmount");
+        this.baseAmount = base.toBigDecimal();
+        this.taxRate = Validator.requireNonNegative(taxRate, "taxRate");
+        this.rate = Rate.of(taxRate);
     }
 
     public Bill(String appointmentId, BigDecimal baseAmount) {
@@ -30,6 +60,7 @@ public class Bill extends MedicalEntity implements Payable {
         
         this.baseAmount = Validator.requireNonNegative(baseAmount, "baseAmount");
         this.taxRate = Validator.requireNonNegative(Constants.DEFAULT_TAX_RATE, "taxRate");
+        fixedPoint();
     }
 
     public String getAppointmentId() {
@@ -42,6 +73,7 @@ public class Bill extends MedicalEntity implements Payable {
 
     public void setBaseAmount(BigDecimal baseAmount) {
         this.baseAmount = Validator.requireNonNegative(baseAmount, "baseAmount");
+        fixedPoint();
     }
 
     public BigDecimal getTaxRate() {
@@ -50,21 +82,50 @@ public class Bill extends MedicalEntity implements Payable {
 
     public void setTaxRate(BigDecimal taxRate) {
         this.taxRate = Validator.requireNonNegative(taxRate, "taxRate");
+        fixedPoint();
     }
 
     public BigDecimal taxAmount() {
+        if (base != null) return tax().toBigDecimal();
         return baseAmount.multiply(taxRate).setScale(2, RoundingMode.HALF_UP);
     }
 
     @Override
     public BigDecimal amountDue() {
+        if (base != null) return totalDue().toBigDecimal();
         return baseAmount.add(taxAmount()).setScale(2, RoundingMode.HALF_UP);
     }
 
+    /**
+     * {@link #taxAmount()} as {@link Money}.
+     */
+    public Money tax() {
+        return base != null ? base.times(rate) : Money.of(taxAmount());
+    }
+
+    @Override
+    public Money totalDue() {
+        return base != null ? base.plus(tax()) : Money.of(amountDue());
+    }
+
     public BillSummary toSummary() {
+        if (base != null) {
+            Money tax = tax();
+            return new BillSummary(getId(), appointmentId, base, tax, base.plus(tax), Constants.DEFAULT_CURRENCY);
+        }
         return new BillSummary(getId(), appointmentId, baseAmount, taxAmount(), amountDue(), Constants.DEFAULT_CURRENCY);
     }
 
+    private void fixedPoint() {
+        try {
+            base = Money.of(baseAmount);
+            rate = Rate.of(taxRate);
+        } catch (InvalidDataException e) {
+            base = null;
+            rate = null;
+        }
+    }
+
     @Override
     protected String details() {
         return "appointmentId=" + appointmentId + ", baseAmount=" + baseAmount + ", taxRate=" + taxRate;
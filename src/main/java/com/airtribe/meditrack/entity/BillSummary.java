@@ -30,6 +30,18 @@ public final class BillSummary {
         this.currency = Validator.requireNonBlank(currency, "currency");
     }
 
+    /**
+     * Builds the summary from fixed-point amounts (as {@link Bill#toSummary()} does).
+     */
+    public BillSummary(String billId, String appointmentId, Money baseAmount, Money taxAmount,
+                       Money totalAmount, String currency) {
+        this(billId, appointmentId,
+                Validator.requireNonNull(baseAmount, "baseAmount").toBigDecimal(),
+                Validator.requireNonNull(taxAmount, "taxAmount").toBigDecimal(),
+                Validator.requireNonNull(totalAmount, "totalAmount").toBigDecimal(),
+                currency);
+    }
+
     public String getBillId() {
         return billId;
     }
@@ -50,6 +62,20 @@ public final class BillSummary {
         return totalAmount;
     }
 
+    /**
+     * {@link #getTaxAmount()} as {@link Money}.
+     */
+    public Money getTax() {
+        return Money.of(taxAmount);
+    }
+
+    /**
+     * {@link #getTotalAmount()} as {@link Money}.
+     */
+    public Money getTotal() {
+        return Money.of(totalAmount);
+    }
+
     public String getCurrency() {
         return currency;
     }
@@ -1,6 +1,7 @@
 package com.airtribe.meditrack.entity;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 import com.airtribe.meditrack.util.Validator;
 
@@ -23,6 +24,19 @@ public class Doctor extends Person {
         this.consultationFee = Validator.requireNonNegative(consultationFee, "consultationFee");
     }
 
+    public Doctor(String id,
+                  LocalDateTime createdAt,
+                  String name,
+                  int age,
+                  String phone,
+                  Specialization specialization,
+                  BigDecimal consultationFee) {
+        super(id, createdAt, name, age, phone);
+        
+        this.specialization = Validator.requireNonNull(specialization, "specialization");
+        this.consultationFee = Validator.requireNonNegative(consultationFee, "consultationFee");
+    }
+
     public Doctor(String name,
                   int age,
                   String phone,
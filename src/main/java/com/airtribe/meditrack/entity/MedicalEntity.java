@@ -17,8 +17,15 @@ public abstract class MedicalEntity {
     private final LocalDateTime createdAt;
 
     protected MedicalEntity(String id) {
+        this(id, LocalDateTime.now());
+    }
+
+    /**
+     * Restores an entity with its original creation time (e.g. when loading persisted state).
+     */
+    protected MedicalEntity(String id, LocalDateTime createdAt) {
         this.id = Validator.requireNonBlank(id, "id");
-        this.createdAt = LocalDateTime.now();
+        this.createdAt = Validator.requireNonNull(createdAt, "createdAt");
     }
 
     protected MedicalEntity(String prefix, boolean autoId) {
@@ -0,0 +1,108 @@
+package com.airtribe.meditrack.entity;
+
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.util.Validator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Immutable amount of money as a {@code long} count of minor units (paise for INR).
+ *
+ * <p>Arithmetic is plain long arithmetic (overflow throws {@link ArithmeticException}).
+ * {@link #times} computes the exact product with a {@link Rate} and rounds it once, HALF_UP to
+ * the minor unit, which is what {@code setScale(2, RoundingMode.HALF_UP)} does on the
+ * {@code BigDecimal} path, so both give identical results for amounts with at most two
+ * decimals.</p>
+ */
+public final class Money implements Comparable<Money> {
+    public static final Money ZERO = new Money(0);
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * @throws InvalidDataException if {@code amount} has more than two decimals or is out of range
+     */
+    public static Money of(BigDecimal amount) {
+        Validator.requireNonNull(amount, "amount");
+        try {
+            return ofMinor(amount.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+        } catch (ArithmeticException e) {
+            throw new InvalidDataException("Amount is not a whole number of minor units: " + amount);
+        }
+    }
+
+    /**
+     * {@code amount} rounded HALF_UP to the minor unit.
+     */
+    public static Money round(BigDecimal amount) {
+        return of(Validator.requireNonNull(amount, "amount").setScale(2, RoundingMode.HALF_UP));
+    }
+
+    public long minorUnits() {
+        return minorUnits;
+    }
+
+    /**
+     * The amount with scale 2, equal (including scale) to the {@code BigDecimal} path's result.
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, 2);
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    /**
+     * {@code this * rate}, rounded HALF_UP (ties away from zero) to the minor unit.
+     */
+    public Money times(Rate rate) {
+        long product = Math.multiplyExact(minorUnits, rate.unscaled());
+        long divisor = rate.divisor();
+        long quotient = product / divisor;
+        long remainder = Math.abs(product % divisor);
+        if (remainder >= divisor - remainder) {
+            quotient += Long.signum(product);
+        }
+        return ofMinor(quotient);
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    @Override
+    public int compareTo(Money o) {
+        return Long.compare(minorUnits, o.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Money other && minorUnits == other.minorUnits);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        long abs = Math.abs(minorUnits);
+        long fraction = abs % 100;
+        return (minorUnits < 0 ? "-" : "") + abs / 100 + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
@@ -1,5 +1,7 @@
 package com.airtribe.meditrack.entity;
 
+import java.time.LocalDateTime;
+
 import com.airtribe.meditrack.util.Validator;
 
 /**
@@ -16,6 +18,12 @@ public class Patient extends Person implements Cloneable {
         this.profile = Validator.requireNonNull(profile, "profile");
     }
 
+    public Patient(String id, LocalDateTime createdAt, String name, int age, String phone, PatientProfile profile) {
+        super(id, createdAt, name, age, phone);
+        
+        this.profile = Validator.requireNonNull(profile, "profile");
+    }
+
     public Patient(String name, int age, String phone, PatientProfile profile) {
         super("PAT", true, name, age, phone);
         
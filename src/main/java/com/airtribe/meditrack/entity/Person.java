@@ -1,5 +1,7 @@
 package com.airtribe.meditrack.entity;
 
+import java.time.LocalDateTime;
+
 import com.airtribe.meditrack.interfaces.Searchable;
 import com.airtribe.meditrack.util.Validator;
 
@@ -19,6 +21,14 @@ public class Person extends MedicalEntity implements Searchable {
         this.phone = Validator.requireNonBlank(phone, "phone");
     }
 
+    public Person(String id, LocalDateTime createdAt, String name, int age, String phone) {
+        super(id, createdAt);
+        
+        this.name = Validator.requireNonBlank(name, "name");
+        this.age = Validator.requireRangeInclusive(age, 0, 130, "age");
+        this.phone = Validator.requireNonBlank(phone, "phone");
+    }
+
     public Person(String prefix, boolean autoId, String name, int age, String phone) {
         super(prefix, autoId);
         
@@ -0,0 +1,116 @@
+package com.airtribe.meditrack.entity;
+
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.util.Validator;
+
+import java.math.BigDecimal;
+
+/**
+ * Exact decimal multiplier for {@link Money} (a tax or discount rate, or a product of such
+ * factors): {@code unscaled / 10^scale}, with {@code scale <= 18} so everything fits a long.
+ *
+ * <p>Rates are combined exactly ({@link #plus}, {@link #minus}, {@link #times}), so a chain
+ * such as "discount, then tax" can be applied to an amount with a single rounding at the end,
+ * as the {@code BigDecimal} strategies do.</p>
+ */
+public final class Rate {
+    static final int MAX_SCALE = 18;
+    private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    public static final Rate ZERO = new Rate(0, 0);
+    public static final Rate ONE = new Rate(1, 0);
+
+    private final long unscaled;
+    private final int scale;
+
+    private Rate(long unscaled, int scale) {
+        this.unscaled = unscaled;
+        this.scale = scale;
+    }
+
+    /**
+     * @throws InvalidDataException if the rate needs more than 18 decimal places or 18 digits
+     */
+    public static Rate of(BigDecimal rate) {
+        BigDecimal r = Validator.requireNonNull(rate, "rate").stripTrailingZeros();
+        if (r.scale() < 0) {
+            r = r.setScale(0);
+        }
+        if (r.scale() > MAX_SCALE || r.unscaledValue().bitLength() > 63) {
+            throw new InvalidDataException("Rate out of fixed-point range: " + rate);
+        }
+        return new Rate(r.unscaledValue().longValue(), r.scale());
+    }
+
+    public static Rate of(String rate) {
+        try {
+            return of(new BigDecimal(Validator.requireNonBlank(rate, "rate")));
+        } catch (NumberFormatException e) {
+            throw new InvalidDataException("Invalid rate: " + rate);
+        }
+    }
+
+    public Rate plus(Rate other) {
+        int s = Math.max(scale, other.scale);
+        return new Rate(Math.addExact(rescale(s), other.rescale(s)), s);
+    }
+
+    public Rate minus(Rate other) {
+        int s = Math.max(scale, other.scale);
+        return new Rate(Math.subtractExact(rescale(s), other.rescale(s)), s);
+    }
+
+    /**
+     * @throws ArithmeticException if the exact product no longer fits
+     */
+    public Rate times(Rate other) {
+        int s = scale + other.scale;
+        if (s > MAX_SCALE) {
+            throw new ArithmeticException("Rate scale overflow: " + this + " * " + other);
+        }
+        return new Rate(Math.multiplyExact(unscaled, other.unscaled), s);
+    }
+
+    public boolean isNegative() {
+        return unscaled < 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    long unscaled() {
+        return unscaled;
+    }
+
+    long divisor() {
+        return POWERS_OF_TEN[scale];
+    }
+
+    private long rescale(int toScale) {
+        return Math.multiplyExact(unscaled, POWERS_OF_TEN[toScale - scale]);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        return o instanceof Rate other && toBigDecimal().compareTo(other.toBigDecimal()) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return toBigDecimal().stripTrailingZeros().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
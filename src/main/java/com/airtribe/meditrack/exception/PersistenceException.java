@@ -0,0 +1,14 @@
+package com.airtribe.meditrack.exception;
+
+/**
+ * Thrown when durable storage (log, snapshot) cannot be read or written.
+ */
+public class PersistenceException extends RuntimeException {
+    public PersistenceException(String message) {
+        super(message);
+    }
+
+    public PersistenceException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
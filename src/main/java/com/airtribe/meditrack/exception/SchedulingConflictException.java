@@ -0,0 +1,17 @@
+package com.airtribe.meditrack.exception;
+
+/**
+ * Thrown when a booking overlaps an existing confirmed appointment of the same doctor or patient.
+ */
+public class SchedulingConflictException extends RuntimeException {
+    private final String conflictingAppointmentId;
+
+    public SchedulingConflictException(String message, String conflictingAppointmentId) {
+        super(message);
+        this.conflictingAppointmentId = conflictingAppointmentId;
+    }
+
+    public String getConflictingAppointmentId() {
+        return conflictingAppointmentId;
+    }
+}
@@ -1,5 +1,7 @@
 package com.airtribe.meditrack.interfaces;
 
+import com.airtribe.meditrack.entity.Money;
+
 import java.math.BigDecimal;
 
 /**
@@ -7,6 +9,14 @@ import java.math.BigDecimal;
  */
 public interface Payable {
     BigDecimal amountDue();
+
+    /**
+     * {@link #amountDue()} as fixed-point {@link Money}; implementations on a hot path should
+     * compute it directly instead of going through {@code BigDecimal}.
+     */
+    default Money totalDue() {
+        return Money.round(amountDue());
+    }
 }
 
 
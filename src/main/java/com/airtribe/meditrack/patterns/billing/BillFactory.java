@@ -1,14 +1,41 @@
 package com.airtribe.meditrack.patterns.billing;
 
+import com.airtribe.meditrack.constants.Constants;
 import com.airtribe.meditrack.entity.Bill;
+import com.airtribe.meditrack.entity.Money;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.exception.PersistenceException;
 import com.airtribe.meditrack.util.Validator;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * Factory pattern for bill creation.
+ *
+ * <p>Also builds {@link BillingPlan}s from configuration: a {@code version} and one
+ * {@code pipeline.<CLASS>} entry per {@link PatientClass}, each a comma-separated list of
+ * {@code discount:<rate>}, {@code copay:<share>}, {@code tax:<rate>} and
+ * {@code surcharge:<amount>} stages, e.g. {@code pipeline.SENIOR=discount:0.10,tax:0.18}.</p>
  */
 public final class BillFactory {
+    /**
+     * One memo for every plan; entries are keyed by plan generation, so reloads never see stale totals.
+     */
+    private static final TotalsCache TOTALS_CACHE = new TotalsCache(Constants.BILLING_CACHE_SIZE);
+    private static final AtomicInteger PLAN_GENERATIONS = new AtomicInteger();
+
     private BillFactory() {}
 
     public static Bill createConsultationBill(String appointmentId, BigDecimal baseAmount) {
@@ -24,6 +51,112 @@ public final class BillFactory {
         bill.setTaxRate(BigDecimal.ZERO);
         return bill;
     }
-}
 
+    /**
+     * Same as {@link #createBillWithStrategy(String, BigDecimal, BillingStrategy)} with a
+     * pre-allocated bill id (e.g. one of a batch from {@code IdGenerator.nextIds}).
+     */
+    public static Bill createBillWithStrategy(String billId, String appointmentId, BigDecimal baseAmount,
+                                              BillingStrategy strategy) {
+        Validator.requireNonNull(strategy, "strategy");
+        BigDecimal total = strategy.computeTotal(baseAmount);
+        return new Bill(billId, appointmentId, total, BigDecimal.ZERO);
+    }
+
+    /**
+     * Fixed-point variant: the total is computed with {@link BillingStrategy#computeTotal(Money)}.
+     */
+    public static Bill createBillWithStrategy(String billId, String appointmentId, Money baseAmount,
+                                              BillingStrategy strategy) {
+        Validator.requireNonNull(strategy, "strategy");
+        Money total = strategy.computeTotal(Validator.requireNonNegative(baseAmount, "baseAmount"));
+        return new Bill(billId, appointmentId, total, BigDecimal.ZERO);
+    }
+
+    /**
+     * Version 1: STANDARD pays the flat tax, SENIOR (age {@link Constants#SENIOR_AGE}+) gets 10%
+     * off and then the tax; the same totals as {@link FlatTaxStrategy} and
+     * {@link SeniorDiscountThenTaxStrategy}.
+     */
+    public static BillingPlan defaultPlan() {
+        Properties config = new Properties();
+        config.setProperty("version", "1");
+        config.setProperty("pipeline.STANDARD", "tax:" + Constants.DEFAULT_TAX_RATE);
+        config.setProperty("pipeline.SENIOR", "discount:0.10,tax:" + Constants.DEFAULT_TAX_RATE);
+        return createPlan(config);
+    }
+
+    /**
+     * Plan whose classifier puts patients aged {@link Constants#SENIOR_AGE} or more in SENIOR.
+     */
+    public static BillingPlan createPlan(Properties config) {
+        return createPlan(config, classifyByAge(Constants.SENIOR_AGE));
+    }
+
+    public static BillingPlan createPlan(Properties config, Function<Patient, PatientClass> classifier) {
+        Validator.requireNonNull(config, "config");
+        int version;
+        try {
+            version = Integer.parseInt(Validator.requireNonBlank(config.getProperty("version"), "version").trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidDataException("Invalid billing plan version: " + config.getProperty("version"));
+        }
+        Map<PatientClass, BillingPipeline> pipelines = new EnumMap<>(PatientClass.class);
+        for (PatientClass c : PatientClass.values()) {
+            String spec = config.getProperty("pipeline." + c.name());
+            if (spec != null) {
+                pipelines.put(c, createPipeline(c.name() + "@v" + version, spec));
+            }
+        }
+        return new BillingPlan(version, PLAN_GENERATIONS.incrementAndGet(), pipelines, classifier, TOTALS_CACHE);
+    }
+
+    /**
+     * Reads a plan from a properties file (see the class comment for the format).
+     */
+    public static BillingPlan loadPlan(Path file) {
+        Validator.requireNonNull(file, "file");
+        Properties config = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            config.load(reader);
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to read billing plan " + file, e);
+        }
+        return createPlan(config);
+    }
+
+    /**
+     * Parses {@code stage:value[,stage:value...]} into a pipeline; an empty spec bills the fee as is.
+     */
+    public static BillingPipeline createPipeline(String name, String spec) {
+        Validator.requireNonNull(spec, "spec");
+        List<BillingStage> stages = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String token = part.trim();
+            if (token.isEmpty()) continue;
+            int colon = token.indexOf(':');
+            if (colon < 0) {
+                throw new InvalidDataException("Billing stage needs a value: " + token);
+            }
+            String kind = token.substring(0, colon).trim();
+            BigDecimal value;
+            try {
+                value = new BigDecimal(token.substring(colon + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new InvalidDataException("Invalid number in billing stage: " + token);
+            }
+            stages.add(switch (kind) {
+                case "discount" -> BillingStage.discount(value);
+                case "copay" -> BillingStage.copay(value);
+                case "tax" -> BillingStage.tax(value);
+                case "surcharge" -> BillingStage.surcharge(Money.of(value));
+                default -> throw new InvalidDataException("Unknown billing stage: " + kind);
+            });
+        }
+        return new BillingPipeline(name, stages);
+    }
 
+    public static Function<Patient, PatientClass> classifyByAge(int seniorAge) {
+        return patient -> patient != null && patient.getAge() >= seniorAge ? PatientClass.SENIOR : PatientClass.STANDARD;
+    }
+}
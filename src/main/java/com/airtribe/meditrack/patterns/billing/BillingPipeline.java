@@ -0,0 +1,112 @@
+package com.airtribe.meditrack.patterns.billing;
+
+import com.airtribe.meditrack.entity.Money;
+import com.airtribe.meditrack.entity.Rate;
+import com.airtribe.meditrack.util.Validator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link BillingStrategy} made of {@link BillingStage}s, applied in order.
+ *
+ * <p>The stages are compiled once: each run of consecutive rate stages is multiplied into a
+ * single exact {@link Rate}, so the amount is rounded (HALF_UP to the paisa) once per run
+ * rather than once per stage. That makes {@code discount, tax} give exactly the same totals as
+ * {@link SeniorDiscountThenTaxStrategy}. A surcharge ends a run: the amount is rounded and the
+ * surcharge added. If a run's exact factor would exceed {@link Rate}'s precision, it is split.</p>
+ */
+public final class BillingPipeline implements BillingStrategy {
+    private final String name;
+    private final List<BillingStage> stages;
+    /**
+     * Compiled form: step {@code i} multiplies by {@code factors[i]} (if not {@code null}) and
+     * then adds {@code surcharges[i]}.
+     */
+    private final Rate[] factors;
+    private final Money[] surcharges;
+
+    public BillingPipeline(String name, List<BillingStage> stages) {
+        this.name = Validator.requireNonBlank(name, "name");
+        this.stages = List.copyOf(Validator.requireNonNull(stages, "stages"));
+        List<Rate> f = new ArrayList<>();
+        List<Money> s = new ArrayList<>();
+        Rate pending = null;
+        for (BillingStage stage : this.stages) {
+            if (stage instanceof RateStage r) {
+                if (pending == null) {
+                    pending = r.factor();
+                } else {
+                    try {
+                        pending = pending.times(r.factor());
+                    } catch (ArithmeticException e) {
+                        f.add(pending);
+                        s.add(Money.ZERO);
+                        pending = r.factor();
+                    }
+                }
+            } else if (stage instanceof SurchargeStage c) {
+                f.add(pending);
+                s.add(c.amount());
+                pending = null;
+            } else {
+                throw new IllegalArgumentException("Unsupported stage: " + stage.describe());
+            }
+        }
+        if (pending != null) {
+            f.add(pending);
+            s.add(Money.ZERO);
+        }
+        this.factors = f.toArray(new Rate[0]);
+        this.surcharges = s.toArray(new Money[0]);
+    }
+
+    public static BillingPipeline of(String name, BillingStage... stages) {
+        return new BillingPipeline(name, List.of(stages));
+    }
+
+    public List<BillingStage> getStages() {
+        return stages;
+    }
+
+    @Override
+    public Money computeTotal(Money baseAmount) {
+        Money amount = Validator.requireNonNegative(baseAmount, "baseAmount");
+        for (int i = 0; i < factors.length; i++) {
+            if (factors[i] != null) {
+                amount = amount.times(factors[i]);
+            }
+            amount = amount.plus(surcharges[i]);
+        }
+        return amount;
+    }
+
+    /**
+     * Same steps on {@code BigDecimal}, so bases with sub-paise precision are rounded exactly as
+     * the classic strategies round them.
+     */
+    @Override
+    public BigDecimal computeTotal(BigDecimal baseAmount) {
+        BigDecimal amount = Validator.requireNonNegative(baseAmount, "baseAmount");
+        for (int i = 0; i < factors.length; i++) {
+            if (factors[i] != null) {
+                amount = amount.multiply(factors[i].toBigDecimal());
+            }
+            amount = amount.setScale(2, RoundingMode.HALF_UP).add(surcharges[i].toBigDecimal());
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name + stages.stream().map(BillingStage::describe).collect(Collectors.joining(", ", "[", "]"));
+    }
+}
@@ -0,0 +1,125 @@
+package com.airtribe.meditrack.patterns.billing;
+
+import com.airtribe.meditrack.entity.Money;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.util.Validator;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A versioned set of {@link BillingPipeline}s, one per {@link PatientClass}, plus the rule that
+ * puts a patient in a class. Usually built by {@link BillFactory#createPlan}.
+ *
+ * <p>Totals are memoized in a bounded cache keyed by (fee, patient class, plan version), so a
+ * batch run over a repeated fee schedule does the pipeline arithmetic once per distinct fee
+ * and class. The key uses the plan's cache generation, unique per plan built, rather than the
+ * configured version number alone, so plans can share one cache even when two configurations
+ * reuse a version number.</p>
+ */
+public final class BillingPlan {
+    private final int version;
+    private final int generation;
+    private final Map<PatientClass, BillingPipeline> pipelines;
+    private final Function<Patient, PatientClass> classifier;
+    private final TotalsCache cache;
+    private final Map<PatientClass, BillingStrategy> memoized = new EnumMap<>(PatientClass.class);
+
+    BillingPlan(int version, int generation, Map<PatientClass, BillingPipeline> pipelines,
+                Function<Patient, PatientClass> classifier, TotalsCache cache) {
+        this.version = version;
+        this.generation = generation;
+        this.pipelines = new EnumMap<>(Validator.requireNonNull(pipelines, "pipelines"));
+        this.classifier = Validator.requireNonNull(classifier, "classifier");
+        this.cache = Validator.requireNonNull(cache, "cache");
+        if (!this.pipelines.containsKey(PatientClass.STANDARD)) {
+            throw new InvalidDataException("A billing plan needs a STANDARD pipeline");
+        }
+        for (PatientClass c : PatientClass.values()) {
+            BillingPipeline pipeline = this.pipelines.getOrDefault(c, this.pipelines.get(PatientClass.STANDARD));
+            memoized.put(c, new Memoized(c, pipeline));
+        }
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public PatientClass classify(Patient patient) {
+        return classifier.apply(patient);
+    }
+
+    /**
+     * The pipeline for {@code patientClass}; classes without their own pipeline use STANDARD's.
+     */
+    public BillingPipeline pipeline(PatientClass patientClass) {
+        Validator.requireNonNull(patientClass, "patientClass");
+        return pipelines.getOrDefault(patientClass, pipelines.get(PatientClass.STANDARD));
+    }
+
+    /**
+     * Memoizing strategy for the patient's class; usable wherever a {@link BillingStrategy} is
+     * expected (e.g. as the per-patient choice of a batch bill run).
+     */
+    public BillingStrategy strategyFor(Patient patient) {
+        return memoized.get(classify(patient));
+    }
+
+    public Money total(Patient patient, Money fee) {
+        return strategyFor(patient).computeTotal(fee);
+    }
+
+    /**
+     * Hits of the totals cache, which {@link BillFactory} shares between all plans.
+     */
+    public long cacheHits() {
+        return cache.hits();
+    }
+
+    public long cacheMisses() {
+        return cache.misses();
+    }
+
+    @Override
+    public String toString() {
+        return "BillingPlan{version=" + version + ", pipelines=" + pipelines.values() + "}";
+    }
+
+    /**
+     * The pipeline with memoized fixed-point totals; the {@code BigDecimal} path is not cached.
+     */
+    private final class Memoized implements BillingStrategy {
+        private final int patientClass;
+        private final BillingPipeline pipeline;
+
+        Memoized(PatientClass patientClass, BillingPipeline pipeline) {
+            this.patientClass = patientClass.ordinal();
+            this.pipeline = pipeline;
+        }
+
+        @Override
+        public Money computeTotal(Money baseAmount) {
+            long fee = Validator.requireNonNegative(baseAmount, "baseAmount").minorUnits();
+            long cached = cache.get(fee, patientClass, generation);
+            if (cached != Long.MIN_VALUE) {
+                return Money.ofMinor(cached);
+            }
+            Money total = pipeline.computeTotal(baseAmount);
+            cache.put(fee, patientClass, generation, total.minorUnits());
+            return total;
+        }
+
+        @Override
+        public BigDecimal computeTotal(BigDecimal baseAmount) {
+            return pipeline.computeTotal(baseAmount);
+        }
+
+        @Override
+        public String name() {
+            return pipeline.name();
+        }
+    }
+}
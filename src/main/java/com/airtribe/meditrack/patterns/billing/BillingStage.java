@@ -0,0 +1,54 @@
+package com.airtribe.meditrack.patterns.billing;
+
+import com.airtribe.meditrack.entity.Money;
+import com.airtribe.meditrack.entity.Rate;
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.util.Validator;
+
+import java.math.BigDecimal;
+
+/**
+ * One step of a {@link BillingPipeline}: a multiplicative rate (discount, copay share, tax) or
+ * a fixed surcharge. Pipelines fuse consecutive rate stages into one exact factor.
+ */
+public interface BillingStage {
+    Money apply(Money amount);
+
+    String describe();
+
+    /**
+     * Pays {@code 1 - rate} of the amount.
+     */
+    static BillingStage discount(BigDecimal rate) {
+        return new RateStage("discount:" + rate, Rate.ONE.minus(Rate.of(requireFraction(rate, "discount"))));
+    }
+
+    /**
+     * Adds {@code rate} of the amount.
+     */
+    static BillingStage tax(BigDecimal rate) {
+        return new RateStage("tax:" + rate, Rate.ONE.plus(Rate.of(Validator.requireNonNegative(rate, "tax"))));
+    }
+
+    /**
+     * The patient's share of the amount after insurance, e.g. 0.20 for a 20% copay.
+     */
+    static BillingStage copay(BigDecimal share) {
+        return new RateStage("copay:" + share, Rate.of(requireFraction(share, "copay")));
+    }
+
+    /**
+     * Adds a fixed amount.
+     */
+    static BillingStage surcharge(Money amount) {
+        return new SurchargeStage(Validator.requireNonNegative(amount, "surcharge"));
+    }
+
+    private static BigDecimal requireFraction(BigDecimal rate, String fieldName) {
+        Validator.requireNonNegative(rate, fieldName);
+        if (rate.compareTo(BigDecimal.ONE) > 0) {
+            throw new InvalidDataException(fieldName + " must be <= 1");
+        }
+        return rate;
+    }
+}
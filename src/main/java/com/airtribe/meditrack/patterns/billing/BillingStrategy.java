@@ -1,6 +1,9 @@
 package com.airtribe.meditrack.patterns.billing;
 
+import com.airtribe.meditrack.entity.Money;
+
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 /**
  * Strategy pattern for billing computations.
@@ -8,6 +11,14 @@ import java.math.BigDecimal;
 public interface BillingStrategy {
     BigDecimal computeTotal(BigDecimal baseAmount);
 
+    /**
+     * Same total as {@link #computeTotal(BigDecimal)}, in fixed point. The built-in strategies
+     * override this without touching {@code BigDecimal}.
+     */
+    default Money computeTotal(Money baseAmount) {
+        return Money.of(computeTotal(baseAmount.toBigDecimal()).setScale(2, RoundingMode.HALF_UP));
+    }
+
     default String name() {
         return getClass().getSimpleName();
     }
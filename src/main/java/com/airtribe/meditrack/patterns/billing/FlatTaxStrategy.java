@@ -1,6 +1,8 @@
 package com.airtribe.meditrack.patterns.billing;
 
 import com.airtribe.meditrack.constants.Constants;
+import com.airtribe.meditrack.entity.Money;
+import com.airtribe.meditrack.entity.Rate;
 import com.airtribe.meditrack.util.Validator;
 
 import java.math.BigDecimal;
@@ -11,6 +13,7 @@ import java.math.RoundingMode;
  */
 public class FlatTaxStrategy implements BillingStrategy {
     private final BigDecimal taxRate;
+    private final Rate totalFactor;
 
     public FlatTaxStrategy() {
         this(Constants.DEFAULT_TAX_RATE);
@@ -18,6 +21,7 @@ public class FlatTaxStrategy implements BillingStrategy {
 
     public FlatTaxStrategy(BigDecimal taxRate) {
         this.taxRate = Validator.requireNonNegative(taxRate, "taxRate");
+        this.totalFactor = Rate.ONE.plus(Rate.of(taxRate));
     }
 
     @Override
@@ -26,6 +30,11 @@ public class FlatTaxStrategy implements BillingStrategy {
         BigDecimal tax = base.multiply(taxRate);
         return base.add(tax).setScale(2, RoundingMode.HALF_UP);
     }
+
+    @Override
+    public Money computeTotal(Money baseAmount) {
+        return Validator.requireNonNegative(baseAmount, "baseAmount").times(totalFactor);
+    }
 }
 
 
@@ -0,0 +1,10 @@
+package com.airtribe.meditrack.patterns.billing;
+
+/**
+ * Billing category of a patient; a {@link BillingPlan} has one pipeline per class.
+ */
+public enum PatientClass {
+    STANDARD,
+    SENIOR,
+    INSURED
+}
@@ -0,0 +1,31 @@
+package com.airtribe.meditrack.patterns.billing;
+
+import com.airtribe.meditrack.entity.Money;
+import com.airtribe.meditrack.entity.Rate;
+
+/**
+ * Multiplies the amount by an exact factor; {@link BillingPipeline} fuses runs of these.
+ */
+final class RateStage implements BillingStage {
+    private final String description;
+    private final Rate factor;
+
+    RateStage(String description, Rate factor) {
+        this.description = description;
+        this.factor = factor;
+    }
+
+    Rate factor() {
+        return factor;
+    }
+
+    @Override
+    public Money apply(Money amount) {
+        return amount.times(factor);
+    }
+
+    @Override
+    public String describe() {
+        return description;
+    }
+}
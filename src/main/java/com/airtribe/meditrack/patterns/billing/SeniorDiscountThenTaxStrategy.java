@@ -1,6 +1,8 @@
 package com.airtribe.meditrack.patterns.billing;
 
 import com.airtribe.meditrack.constants.Constants;
+import com.airtribe.meditrack.entity.Money;
+import com.airtribe.meditrack.entity.Rate;
 import com.airtribe.meditrack.util.Validator;
 
 import java.math.BigDecimal;
@@ -12,6 +14,7 @@ import java.math.RoundingMode;
 public class SeniorDiscountThenTaxStrategy implements BillingStrategy {
     private final BigDecimal discountRate;
     private final BigDecimal taxRate;
+    private final Rate totalFactor;
 
     public SeniorDiscountThenTaxStrategy() {
         this(new BigDecimal("0.10"), Constants.DEFAULT_TAX_RATE);
@@ -20,6 +23,8 @@ public class SeniorDiscountThenTaxStrategy implements BillingStrategy {
     public SeniorDiscountThenTaxStrategy(BigDecimal discountRate, BigDecimal taxRate) {
         this.discountRate = Validator.requireNonNegative(discountRate, "discountRate");
         this.taxRate = Validator.requireNonNegative(taxRate, "taxRate");
+        // (1 - discount) * (1 + tax), exact, so the total is rounded once as below.
+        this.totalFactor = Rate.ONE.minus(Rate.of(discountRate)).times(Rate.ONE.plus(Rate.of(taxRate)));
     }
 
     @Override
@@ -29,6 +34,11 @@ public class SeniorDiscountThenTaxStrategy implements BillingStrategy {
         BigDecimal tax = discounted.multiply(taxRate);
         return discounted.add(tax).setScale(2, RoundingMode.HALF_UP);
     }
+
+    @Override
+    public Money computeTotal(Money baseAmount) {
+        return Validator.requireNonNegative(baseAmount, "baseAmount").times(totalFactor);
+    }
 }
 
 
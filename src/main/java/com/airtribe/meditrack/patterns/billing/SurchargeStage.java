@@ -0,0 +1,28 @@
+package com.airtribe.meditrack.patterns.billing;
+
+import com.airtribe.meditrack.entity.Money;
+
+/**
+ * Adds a fixed amount.
+ */
+final class SurchargeStage implements BillingStage {
+    private final Money amount;
+
+    SurchargeStage(Money amount) {
+        this.amount = amount;
+    }
+
+    Money amount() {
+        return amount;
+    }
+
+    @Override
+    public Money apply(Money base) {
+        return base.plus(amount);
+    }
+
+    @Override
+    public String describe() {
+        return "surcharge:" + amount;
+    }
+}
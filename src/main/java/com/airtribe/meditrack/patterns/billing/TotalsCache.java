@@ -0,0 +1,81 @@
+package com.airtribe.meditrack.patterns.billing;
+
+import com.airtribe.meditrack.util.Validator;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded memo of pipeline totals keyed by (fee, patient class, plan generation).
+ *
+ * <p>Direct-mapped, like a hardware cache: a key hashes to exactly one slot, which holds one
+ * immutable entry and is overwritten on a miss. Lookups and stores are a single array read or
+ * write with no locking, memory is fixed at {@code capacity} entries, and a collision only
+ * costs a recomputation. Fee schedules repeat a small set of amounts, so the hit rate is high
+ * well before the capacity is reached.</p>
+ */
+final class TotalsCache {
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity entries; rounded up to a power of two
+     */
+    TotalsCache(int capacity) {
+        Validator.requirePositive(capacity, "capacity");
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Cached total in minor units, or {@link Long#MIN_VALUE} on a miss.
+     */
+    long get(long feeMinor, int patientClass, int generation) {
+        Entry e = slots.getPlain(slot(feeMinor, patientClass, generation));
+        if (e != null && e.feeMinor == feeMinor && e.patientClass == patientClass && e.generation == generation) {
+            hits.increment();
+            return e.totalMinor;
+        }
+        misses.increment();
+        return Long.MIN_VALUE;
+    }
+
+    void put(long feeMinor, int patientClass, int generation, long totalMinor) {
+        // Entries are immutable with final fields, so a plain store publishes them safely.
+        slots.setPlain(slot(feeMinor, patientClass, generation), new Entry(feeMinor, patientClass, generation, totalMinor));
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    private int slot(long feeMinor, int patientClass, int generation) {
+        long h = feeMinor * 0x9E3779B97F4A7C15L + (patientClass * 31L + generation) * 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static final class Entry {
+        final long feeMinor;
+        final int patientClass;
+        final int generation;
+        final long totalMinor;
+
+        Entry(long feeMinor, int patientClass, int generation, long totalMinor) {
+            this.feeMinor = feeMinor;
+            this.patientClass = patientClass;
+            this.generation = generation;
+            this.totalMinor = totalMinor;
+        }
+    }
+}
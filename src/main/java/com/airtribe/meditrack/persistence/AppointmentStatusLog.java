@@ -0,0 +1,543 @@
+package com.airtribe.meditrack.persistence;
+
+import com.airtribe.meditrack.entity.AppointmentStatus;
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.exception.PersistenceException;
+import com.airtribe.meditrack.util.IdGenerator;
+import com.airtribe.meditrack.util.Validator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+/**
+ * Event-sourced appointment lifecycle: every status transition is appended to a log of
+ * fixed-size events and the current status of an appointment is the fold of its events.
+ *
+ * <p>Event layout ({@value #EVENT_BYTES} bytes): {@code [long numericId][long epochMillis]
+ * [byte from][byte to][short 0][int crc32c]}, ids encoded with {@link IdGenerator#toNumeric}
+ * and statuses by ordinal. A short or mismatching last record is a torn write and is cut off
+ * on open.</p>
+ *
+ * <p>Every {@code checkpointEvery} events a background thread compacts the folded state into
+ * {@code <name>.ckpt}: the latest status of each appointment, sorted by id, plus the number of
+ * events it covers. Opening reads the checkpoint and replays only later events, and
+ * {@link #replay(String)} rebuilds one appointment from disk with a binary search of the
+ * checkpoint plus a scan of those later events, so neither grows with total history. The log
+ * itself is kept as the audit trail ({@link #history(String)}).</p>
+ *
+ * <p>Appends reach the OS immediately and are fsynced on the group-commit schedule of
+ * {@link WalOptions}, like {@link WriteAheadLog}: once {@code syncEveryRecords} events are
+ * pending and every {@code syncIntervalMillis} in the background, as well as before each
+ * checkpoint, on {@link #sync()} and on {@link #close()}. Thread-safe.</p>
+ *
+ * <p>The log records what the appointment store has already accepted, so it may fall behind
+ * the store (a crash between the two writes); {@link #reconcile} brings an appointment back
+ * in line on recovery.</p>
+ */
+public final class AppointmentStatusLog implements Closeable {
+    static final int EVENT_BYTES = 24;
+    private static final int CKPT_MAGIC = 0x4D545343; // "MTSC"
+    private static final int CKPT_HEADER_BYTES = 24;   // magic, count, covered, crc
+    private static final int CKPT_ENTRY_BYTES = 9;
+    private static final int SCAN_EVENTS = 4096;
+    private static final AppointmentStatus[] STATUSES = AppointmentStatus.values();
+
+    private final Path eventsFile;
+    private final Path checkpointFile;
+    private final FileChannel events;
+    private final int checkpointEvery;
+    private final int syncEvery;
+    /** Runs compactions and the periodic fsync. */
+    private final ScheduledExecutorService background;
+    private final Object checkpointLock = new Object();
+    private final ByteBuffer record = ByteBuffer.allocate(EVENT_BYTES);
+    private final CRC32C crc = new CRC32C();
+
+    // Guarded by this.
+    private final Map<Long, AppointmentStatus> current = new HashMap<>();
+    private long eventCount;
+    private long checkpointedEvents;
+    private boolean compactionQueued;
+    private final LongAdder backgroundFailures = new LongAdder();
+    private int unsynced;
+
+    private AppointmentStatusLog(Path eventsFile, Path checkpointFile, FileChannel events, int checkpointEvery,
+                                 WalOptions options) {
+        this.eventsFile = eventsFile;
+        this.checkpointFile = checkpointFile;
+        this.events = events;
+        this.checkpointEvery = checkpointEvery;
+        this.syncEvery = options.getSyncEveryRecords();
+        this.background = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "status-log-background-" + eventsFile.getFileName());
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = options.getSyncIntervalMillis();
+        if (interval > 0) {
+            background.scheduleWithFixedDelay(this::backgroundSync, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * {@link #open(Path, String, int, WalOptions)} with {@link WalOptions#defaults()}.
+     */
+    public static AppointmentStatusLog open(Path dir, String name, int checkpointEvery) throws IOException {
+        return open(dir, name, checkpointEvery, WalOptions.defaults());
+    }
+
+    /**
+     * Opens (or creates) {@code <name>.events} and {@code <name>.ckpt} in {@code dir} and
+     * rebuilds the current statuses from the checkpoint and the events after it. Events are
+     * fsynced on the schedule of {@code options}; its checkpoint setting is not used.
+     */
+    public static AppointmentStatusLog open(Path dir, String name, int checkpointEvery, WalOptions options)
+            throws IOException {
+        Validator.requireNonNull(dir, "dir");
+        Validator.requireNonBlank(name, "name");
+        Validator.requirePositive(checkpointEvery, "checkpointEvery");
+        Validator.requireNonNull(options, "options");
+        Files.createDirectories(dir);
+        Path eventsFile = dir.resolve(name + ".events");
+        FileChannel channel = FileChannel.open(eventsFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        AppointmentStatusLog log = new AppointmentStatusLog(eventsFile, dir.resolve(name + ".ckpt"), channel,
+                checkpointEvery, options);
+        try {
+            log.recover();
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+        return log;
+    }
+
+    /**
+     * Records {@code from -> to} for the appointment and returns the event.
+     *
+     * @throws InvalidDataException if the appointment is not currently in {@code from} (an
+     *                              appointment without events is {@code PENDING}) or the move is not allowed
+     */
+    public StatusEvent append(String appointmentId, AppointmentStatus from, AppointmentStatus to) {
+        Validator.requireNonNull(from, "from");
+        Validator.requireNonNull(to, "to");
+        long id = IdGenerator.toNumeric(Validator.requireNonBlank(appointmentId, "appointmentId"));
+        Instant at = Instant.now();
+        boolean compact;
+        synchronized (this) {
+            AppointmentStatus status = current.getOrDefault(id, AppointmentStatus.PENDING);
+            if (status != from) {
+                throw new InvalidDataException("Appointment " + appointmentId + " is " + status + ", not " + from);
+            }
+            if (!from.canTransitionTo(to)) {
+                throw new InvalidDataException("Cannot move appointment " + appointmentId + " from " + from + " to " + to);
+            }
+            compact = write(id, at, from, to);
+        }
+        if (compact) {
+            background.execute(this::backgroundCheckpoint);
+        }
+        return new StatusEvent(appointmentId, from, to, at);
+    }
+
+    /**
+     * Records the appointment as being in {@code status} if the log last saw it in another
+     * status, e.g. because the process stopped between the store write and the append. The
+     * event goes from the logged status straight to {@code status}, so transition rules are
+     * not checked.
+     *
+     * @return the event written, or empty if the log already agreed
+     */
+    public Optional<StatusEvent> reconcile(String appointmentId, AppointmentStatus status) {
+        Validator.requireNonNull(status, "status");
+        long id = IdGenerator.toNumeric(Validator.requireNonBlank(appointmentId, "appointmentId"));
+        Instant at = Instant.now();
+        AppointmentStatus logged;
+        boolean compact;
+        synchronized (this) {
+            logged = current.getOrDefault(id, AppointmentStatus.PENDING);
+            if (logged == status) {
+                return Optional.empty();
+            }
+            compact = write(id, at, logged, status);
+        }
+        if (compact) {
+            background.execute(this::backgroundCheckpoint);
+        }
+        return Optional.of(new StatusEvent(appointmentId, logged, status, at));
+    }
+
+    /**
+     * Current status from the in-memory fold; empty if the appointment has no events.
+     */
+    public synchronized Optional<AppointmentStatus> currentStatus(String appointmentId) {
+        return Optional.ofNullable(current.get(numericOrZero(appointmentId)));
+    }
+
+    /**
+     * Rebuilds one appointment's status from disk alone: checkpoint lookup plus the events
+     * recorded after it. Agrees with {@link #currentStatus} once appends have been written.
+     */
+    public Optional<AppointmentStatus> replay(String appointmentId) throws IOException {
+        long id = numericOrZero(appointmentId);
+        if (id == 0) return Optional.empty();
+        long[] lookup;
+        long end;
+        synchronized (checkpointLock) {
+            lookup = lookupCheckpoint(id);
+            synchronized (this) {
+                end = eventCount;
+            }
+        }
+        long covered = lookup[0];
+        AppointmentStatus[] folded = {lookup[1] < 0 ? null : STATUSES[(int) lookup[1]]};
+        scan(covered, end, (eventId, at, from, to) -> {
+            if (eventId == id) folded[0] = to;
+        });
+        return Optional.ofNullable(folded[0]);
+    }
+
+    /**
+     * Every recorded transition of the appointment, oldest first (a full scan of the log).
+     */
+    public List<StatusEvent> history(String appointmentId) throws IOException {
+        long id = numericOrZero(appointmentId);
+        List<StatusEvent> out = new ArrayList<>();
+        if (id == 0) return out;
+        long end;
+        synchronized (this) {
+            end = eventCount;
+        }
+        scan(0, end, (eventId, at, from, to) -> {
+            if (eventId == id) {
+                out.add(new StatusEvent(appointmentId, from, to, Instant.ofEpochMilli(at)));
+            }
+        });
+        return out;
+    }
+
+    public synchronized long eventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Events covered by the latest checkpoint.
+     */
+    public synchronized long checkpointedEvents() {
+        return checkpointedEvents;
+    }
+
+    /**
+     * Background syncs and checkpoints that failed; the next sync, checkpoint or close retries them.
+     */
+    public long backgroundFailures() {
+        return backgroundFailures.sum();
+    }
+
+    public synchronized void sync() throws IOException {
+        events.force(false);
+        unsynced = 0;
+    }
+
+    /**
+     * Compacts the current state into a new checkpoint now (normally done in the background).
+     */
+    public void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            long[] ids;
+            byte[] statuses;
+            long covered;
+            synchronized (this) {
+                if (!events.isOpen() || eventCount == checkpointedEvents && Files.exists(checkpointFile)) return;
+                sync();
+                covered = eventCount;
+                ids = new long[current.size()];
+                int n = 0;
+                for (Long id : current.keySet()) {
+                    ids[n++] = id;
+                }
+                Arrays.sort(ids);
+                statuses = new byte[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    statuses[i] = (byte) current.get(ids[i]).ordinal();
+                }
+            }
+            writeCheckpoint(ids, statuses, covered);
+            synchronized (this) {
+                checkpointedEvents = covered;
+            }
+        }
+    }
+
+    /**
+     * Stops background work, writes a final checkpoint and closes the log.
+     */
+    @Override
+    public void close() throws IOException {
+        // Not shutdownNow: interrupting a running fsync would close the channel.
+        background.shutdown();
+        if (!events.isOpen()) return;
+        try {
+            if (eventCount() > 0) {
+                checkpoint();
+            }
+        } finally {
+            synchronized (this) {
+                if (unsynced > 0) {
+                    sync();
+                }
+                events.close();
+            }
+        }
+    }
+
+    // ---- internals ----
+
+    @FunctionalInterface
+    private interface EventHandler {
+        void accept(long id, long epochMillis, AppointmentStatus from, AppointmentStatus to);
+    }
+
+    /**
+     * Writes one event at the end of the log and folds it in; the caller holds the monitor.
+     *
+     * @return whether a background checkpoint should be started
+     */
+    private boolean write(long id, Instant at, AppointmentStatus from, AppointmentStatus to) {
+        encode(id, at.toEpochMilli(), from, to);
+        try {
+            while (record.hasRemaining()) {
+                events.write(record, eventCount * EVENT_BYTES + record.position());
+            }
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to append status event to " + eventsFile, e);
+        }
+        eventCount++;
+        current.put(id, to);
+        if (++unsynced >= syncEvery) {
+            try {
+                sync();
+            } catch (IOException e) {
+                throw new PersistenceException("Failed to sync status events in " + eventsFile, e);
+            }
+        }
+        boolean compact = !compactionQueued && eventCount - checkpointedEvents >= checkpointEvery;
+        compactionQueued |= compact;
+        return compact;
+    }
+
+    private void recover() throws IOException {
+        long size = events.size();
+        Checkpoint ckpt = readCheckpoint();
+        if (ckpt != null && ckpt.covered * EVENT_BYTES > size) {
+            ckpt = null; // checkpoint of a log that has since been lost; fall back to a full replay
+        }
+        long start = 0;
+        if (ckpt != null) {
+            ckpt.loadInto(current);
+            start = ckpt.covered;
+        }
+        long[] valid = {start};
+        scan(start, size / EVENT_BYTES, (id, at, from, to) -> {
+            current.put(id, to);
+            valid[0]++;
+        });
+        eventCount = valid[0];
+        checkpointedEvents = start;
+        if (size > eventCount * EVENT_BYTES) {
+            events.truncate(eventCount * EVENT_BYTES);
+            events.force(true);
+        }
+    }
+
+    /**
+     * Decodes events {@code [from, to)}; stops at the first record that fails its checksum.
+     */
+    private void scan(long from, long to, EventHandler handler) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(SCAN_EVENTS * EVENT_BYTES);
+        CRC32C check = new CRC32C();
+        for (long next = from; next < to; ) {
+            int batch = (int) Math.min(SCAN_EVENTS, to - next);
+            buf.clear().limit(batch * EVENT_BYTES);
+            long position = next * EVENT_BYTES;
+            while (buf.hasRemaining()) {
+                if (events.read(buf, position + buf.position()) < 0) break;
+            }
+            int read = buf.position() / EVENT_BYTES;
+            for (int i = 0; i < read; i++) {
+                int base = i * EVENT_BYTES;
+                check.reset();
+                check.update(buf.array(), base, EVENT_BYTES - Integer.BYTES);
+                if ((int) check.getValue() != buf.getInt(base + EVENT_BYTES - Integer.BYTES)) return;
+                int fromCode = buf.get(base + 16);
+                int toCode = buf.get(base + 17);
+                if (fromCode < 0 || fromCode >= STATUSES.length || toCode < 0 || toCode >= STATUSES.length) return;
+                handler.accept(buf.getLong(base), buf.getLong(base + 8), STATUSES[fromCode], STATUSES[toCode]);
+            }
+            if (read < batch) return;
+            next += batch;
+        }
+    }
+
+    private void encode(long id, long epochMillis, AppointmentStatus from, AppointmentStatus to) {
+        record.clear();
+        record.putLong(id).putLong(epochMillis).put((byte) from.ordinal()).put((byte) to.ordinal()).putShort((short) 0);
+        crc.reset();
+        crc.update(record.array(), 0, EVENT_BYTES - Integer.BYTES);
+        record.putInt((int) crc.getValue()).flip();
+    }
+
+    private void writeCheckpoint(long[] ids, byte[] statuses, long covered) throws IOException {
+        ByteBuffer body = ByteBuffer.allocate(ids.length * CKPT_ENTRY_BYTES);
+        for (int i = 0; i < ids.length; i++) {
+            body.putLong(ids[i]).put(statuses[i]);
+        }
+        CRC32C check = new CRC32C();
+        check.update(body.array());
+        ByteBuffer header = ByteBuffer.allocate(CKPT_HEADER_BYTES)
+                .putInt(CKPT_MAGIC).putInt(ids.length).putLong(covered).putInt((int) check.getValue()).putInt(0);
+        header.flip();
+        body.flip();
+        Path tmp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] parts = {header, body};
+            while (body.hasRemaining() || header.hasRemaining()) {
+                out.write(parts);
+            }
+            out.force(true);
+        }
+        Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * {@code {eventsCovered, statusOrdinal or -1}} for one id, by binary search over the
+     * checkpoint's sorted entries with O(log n) positional reads.
+     */
+    private long[] lookupCheckpoint(long id) throws IOException {
+        if (!Files.exists(checkpointFile)) return new long[]{0, -1};
+        try (FileChannel in = FileChannel.open(checkpointFile, StandardOpenOption.READ)) {
+            ByteBuffer header = readAt(in, 0, CKPT_HEADER_BYTES);
+            if (header == null || header.getInt(0) != CKPT_MAGIC) return new long[]{0, -1};
+            int count = header.getInt(4);
+            long covered = header.getLong(8);
+            int lo = 0;
+            int hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                ByteBuffer entry = readAt(in, CKPT_HEADER_BYTES + (long) mid * CKPT_ENTRY_BYTES, CKPT_ENTRY_BYTES);
+                if (entry == null) break;
+                long midId = entry.getLong(0);
+                if (midId < id) {
+                    lo = mid + 1;
+                } else if (midId > id) {
+                    hi = mid - 1;
+                } else {
+                    return new long[]{covered, entry.get(Long.BYTES)};
+                }
+            }
+            return new long[]{covered, -1};
+        }
+    }
+
+    private static ByteBuffer readAt(FileChannel in, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (in.read(buf, position + buf.position()) < 0) return null;
+        }
+        return buf.flip();
+    }
+
+    /**
+     * The current checkpoint, fully verified, or {@code null} if there is none or it does not verify.
+     */
+    private Checkpoint readCheckpoint() throws IOException {
+        if (!Files.exists(checkpointFile)) return null;
+        try (FileChannel in = FileChannel.open(checkpointFile, StandardOpenOption.READ)) {
+            if (in.size() < CKPT_HEADER_BYTES) return null;
+            ByteBuffer header = readAt(in, 0, CKPT_HEADER_BYTES);
+            if (header == null || header.getInt() != CKPT_MAGIC) return null;
+            int count = header.getInt();
+            long covered = header.getLong();
+            int expectedCrc = header.getInt();
+            if (count < 0 || in.size() != CKPT_HEADER_BYTES + (long) count * CKPT_ENTRY_BYTES) return null;
+            ByteBuffer body = readAt(in, CKPT_HEADER_BYTES, count * CKPT_ENTRY_BYTES);
+            if (body == null) return null;
+            CRC32C check = new CRC32C();
+            check.update(body.array());
+            if ((int) check.getValue() != expectedCrc) return null;
+            return new Checkpoint(body, count, covered);
+        }
+    }
+
+    private void backgroundSync() {
+        try {
+            synchronized (this) {
+                if (events.isOpen() && unsynced > 0) {
+                    sync();
+                }
+            }
+        } catch (IOException e) {
+            backgroundFailures.increment();
+        }
+    }
+
+    private void backgroundCheckpoint() {
+        try {
+            checkpoint();
+        } catch (IOException | RuntimeException e) {
+            backgroundFailures.increment();
+        } finally {
+            synchronized (this) {
+                compactionQueued = false;
+            }
+        }
+    }
+
+    private static long numericOrZero(String appointmentId) {
+        try {
+            return IdGenerator.toNumeric(Validator.requireNonBlank(appointmentId, "appointmentId"));
+        } catch (InvalidDataException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * A verified checkpoint: {@code count} entries of {@code [long id][byte status]} sorted by id.
+     */
+    private static final class Checkpoint {
+        private final ByteBuffer entries;
+        private final int count;
+        private final long covered;
+
+        Checkpoint(ByteBuffer entries, int count, long covered) {
+            this.entries = entries;
+            this.count = count;
+            this.covered = covered;
+        }
+
+        void loadInto(Map<Long, AppointmentStatus> state) {
+            for (int i = 0; i < count; i++) {
+                state.put(entries.getLong(i * CKPT_ENTRY_BYTES), STATUSES[entries.get(i * CKPT_ENTRY_BYTES + Long.BYTES)]);
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.airtribe.meditrack.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Spill file for entries evicted from a {@link HotTier}: records of
+ * {@code [int length][payload]} appended to {@code <name>.cold}, plus an in-memory
+ * id-to-offset index. Only the index stays on the heap.
+ *
+ * <p>Overwritten and taken records become garbage; the file is compacted once garbage
+ * outweighs live data. Scratch space only - the file is recreated on open and deleted on
+ * close. Not thread-safe.</p>
+ */
+final class ColdTier<T> implements Closeable {
+    private static final long MIN_COMPACT_BYTES = 1L << 20;
+
+    private final Path file;
+    private final EntityCodec<T> codec;
+    private final Map<String, Long> offsets = new HashMap<>();
+    private final WriteAheadLog.ExposedBuffer scratch = new WriteAheadLog.ExposedBuffer();
+    private final DataOutputStream scratchOut = new DataOutputStream(scratch);
+    private final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+    private FileChannel channel;
+    private long end;
+    private long garbageBytes;
+
+    ColdTier(Path file, EntityCodec<T> codec) throws IOException {
+        this.file = file;
+        this.codec = codec;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    int size() {
+        return offsets.size();
+    }
+
+    long fileBytes() {
+        return end;
+    }
+
+    boolean contains(String id) {
+        return offsets.containsKey(id);
+    }
+
+    void write(String id, T value) throws IOException {
+        scratch.reset();
+        scratchOut.writeInt(0);
+        codec.write(scratchOut, value);
+        ByteBuffer record = ByteBuffer.wrap(scratch.array(), 0, scratch.size());
+        record.putInt(0, scratch.size() - Integer.BYTES);
+        long position = end;
+        while (record.hasRemaining()) {
+            channel.write(record, position + record.position());
+        }
+        end += scratch.size();
+        Long old = offsets.put(id, position);
+        if (old != null) {
+            garbageBytes += recordLength(old);
+        }
+        maybeCompact();
+    }
+
+    T read(String id) throws IOException {
+        Long position = offsets.get(id);
+        return position == null ? null : decode(readPayload(position));
+    }
+
+    /**
+     * Reads and forgets the entry, e.g. when it is promoted back to the hot tier.
+     */
+    T take(String id) throws IOException {
+        Long position = offsets.remove(id);
+        if (position == null) return null;
+        byte[] payload = readPayload(position);
+        garbageBytes += Integer.BYTES + payload.length;
+        return decode(payload);
+    }
+
+    List<String> ids() {
+        return new ArrayList<>(offsets.keySet());
+    }
+
+    void forEach(BiConsumer<String, T> action) throws IOException {
+        for (Map.Entry<String, Long> e : offsets.entrySet()) {
+            action.accept(e.getKey(), decode(readPayload(e.getValue())));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    private void maybeCompact() throws IOException {
+        if (end < MIN_COMPACT_BYTES || garbageBytes * 2 < end) {
+            return;
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".compact");
+        long position = 0;
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Map.Entry<String, Long> e : offsets.entrySet()) {
+                long length = recordLength(e.getValue());
+                long copied = 0;
+                while (copied < length) {
+                    copied += channel.transferTo(e.getValue() + copied, length - copied, out);
+                }
+                e.setValue(position);
+                position += length;
+            }
+        }
+        channel.close();
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        end = position;
+        garbageBytes = 0;
+    }
+
+    private long recordLength(long position) throws IOException {
+        return Integer.BYTES + readLength(position);
+    }
+
+    private int readLength(long position) throws IOException {
+        header.clear();
+        readFully(header, position);
+        return header.getInt(0);
+    }
+
+    private byte[] readPayload(long position) throws IOException {
+        byte[] payload = new byte[readLength(position)];
+        readFully(ByteBuffer.wrap(payload), position + Integer.BYTES);
+        return payload;
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Unexpected end of " + file + " at " + position);
+            }
+        }
+    }
+
+    private T decode(byte[] payload) throws IOException {
+        return codec.read(new DataInputStream(new ByteArrayInputStream(payload)));
+    }
+}
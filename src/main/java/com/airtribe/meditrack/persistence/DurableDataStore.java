@@ -0,0 +1,258 @@
+package com.airtribe.meditrack.persistence;
+
+import com.airtribe.meditrack.exception.PersistenceException;
+import com.airtribe.meditrack.util.DataStore;
+import com.airtribe.meditrack.util.IdGenerator;
+import com.airtribe.meditrack.util.Page;
+import com.airtribe.meditrack.util.Validator;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link DataStore} whose mutations survive a JVM restart.
+ *
+ * <p>Every upsert/remove is first appended to a {@link WriteAheadLog} ({@code <name>.wal})
+ * and only then applied in memory. Every {@link WalOptions#getCheckpointEveryRecords()}
+ * records the full state is written to a {@link MappedSnapshot} ({@code <name>.snapshot})
+ * and the log is truncated. {@link #open} maps the snapshot and replays the log records
+ * newer than the snapshot's sequence number.</p>
+ *
+ * <p>Snapshot entries are hydrated lazily: an entity is decoded on its first {@link #get}
+ * (or when the store is iterated), so opening costs the same for ten or ten million
+ * entities. Entries that were hydrated, overwritten or removed are "detached" from the
+ * snapshot and served from memory from then on.</p>
+ *
+ * <p>Writes are serialized on the store; like {@link DataStore}, reads are not synchronized
+ * with concurrent writes.</p>
+ */
+public class DurableDataStore<T> extends DataStore<T> implements Closeable {
+    private final Path snapshotFile;
+    private final EntityCodec<T> codec;
+    private final WriteAheadLog.ExposedBuffer scratch = new WriteAheadLog.ExposedBuffer();
+    private final DataOutputStream scratchOut = new DataOutputStream(scratch);
+    private final Set<String> detached = new HashSet<>();
+    private MappedSnapshot<T> snapshot;
+    private WriteAheadLog wal;
+
+    private DurableDataStore(Path snapshotFile, EntityCodec<T> codec) {
+        this.snapshotFile = snapshotFile;
+        this.codec = codec;
+    }
+
+    /**
+     * Opens the store {@code name} under {@code dir}, recovering any existing state.
+     */
+    public static <T> DurableDataStore<T> open(Path dir, String name, EntityCodec<T> codec, WalOptions options)
+            throws IOException {
+        Validator.requireNonNull(dir, "dir");
+        String n = Validator.requireNonBlank(name, "name");
+        Validator.requireNonNull(codec, "codec");
+        Validator.requireNonNull(options, "options");
+
+        Files.createDirectories(dir);
+        DurableDataStore<T> store = new DurableDataStore<>(dir.resolve(n + ".snapshot"), codec);
+        long snapshotLsn = 0L;
+        if (Files.exists(store.snapshotFile)) {
+            store.snapshot = MappedSnapshot.open(store.snapshotFile, codec);
+            snapshotLsn = store.snapshot.lsn();
+            // Snapshot ids must never be handed out again by this JVM.
+            IdGenerator.getInstance().advancePast(store.snapshot.maxIdSuffix());
+        }
+        store.wal = WriteAheadLog.open(dir.resolve(n + ".wal"), options, snapshotLsn, store::replay);
+        return store;
+    }
+
+    /**
+     * Writes a snapshot of the current state and truncates the log.
+     *
+     * <p>Entries still held only by the previous snapshot are copied as raw bytes without
+     * being decoded.</p>
+     */
+    public synchronized void checkpoint() throws IOException {
+        try (MappedSnapshot.Writer<T> writer = new MappedSnapshot.Writer<>(snapshotFile, codec)) {
+            IOException[] failure = new IOException[1];
+            super.forEachEntry((id, value) -> {
+                if (failure[0] != null) return;
+                try {
+                    writer.add(id, value);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (snapshot != null) {
+                snapshot.forEachRaw((id, payload) -> {
+                    if (failure[0] != null || detached.contains(id)) return;
+                    try {
+                        writer.addRaw(id, payload);
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+            }
+            if (failure[0] != null) throw failure[0];
+            writer.commit(wal.lastLsn());
+        }
+        wal.reset();
+        snapshot = MappedSnapshot.open(snapshotFile, codec);
+        // Everything in memory is now also in the new snapshot; memory stays authoritative.
+        detached.clear();
+        super.forEachEntry((id, value) -> detached.add(id));
+    }
+
+    /**
+     * Forces pending log records to disk.
+     */
+    public void sync() throws IOException {
+        wal.sync();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        wal.close();
+    }
+
+    @Override
+    protected T getValue(String key) {
+        T value = super.getValue(key);
+        if (value != null || snapshot == null) {
+            return value;
+        }
+        synchronized (this) {
+            return hydrate(key);
+        }
+    }
+
+    @Override
+    protected synchronized T putValue(String key, T value) {
+        try {
+            byte[] payload = encode(value);
+            wal.append(WriteAheadLog.OP_UPSERT, key, payload, scratch.size());
+            T previous = super.putValue(key, value);
+            if (previous == null && isInSnapshot(key)) {
+                previous = snapshot.read(key);
+                detached.add(key);
+            }
+            maybeCheckpoint();
+            return previous;
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to log upsert of " + key, e);
+        }
+    }
+
+    @Override
+    protected synchronized T removeValue(String key) {
+        if (hydrate(key) == null) {
+            return null;
+        }
+        try {
+            wal.append(WriteAheadLog.OP_REMOVE, key, scratch.array(), 0);
+            T removed = super.removeValue(key);
+            maybeCheckpoint();
+            return removed;
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to log removal of " + key, e);
+        }
+    }
+
+    @Override
+    protected synchronized void forEachEntry(BiConsumer<String, T> action) {
+        hydrateAll();
+        super.forEachEntry(action);
+    }
+
+    @Override
+    protected int count() {
+        int inSnapshotOnly = snapshot == null ? 0 : snapshot.size() - detached.size();
+        return super.count() + inSnapshotOnly;
+    }
+
+    /**
+     * Loads any entries still only in the snapshot (once), then resumes after the cursor's id.
+     */
+    @Override
+    protected Page<T> pageFrom(Page.Cursor cursor, int pageSize) {
+        synchronized (this) {
+            hydrateAll();
+        }
+        return super.pageFrom(cursor, pageSize);
+    }
+
+    @Override
+    protected Collection<T> values() {
+        if (snapshot != null && detached.size() < snapshot.size()) {
+            synchronized (this) {
+                hydrateAll();
+            }
+        }
+        return super.values();
+    }
+
+    private T hydrate(String key) {
+        T value = super.getValue(key);
+        if (value == null && isInSnapshot(key)) {
+            value = snapshot.read(key);
+            super.putValue(key, value);
+            detached.add(key);
+        }
+        return value;
+    }
+
+    private void hydrateAll() {
+        if (snapshot == null || detached.size() == snapshot.size()) {
+            return;
+        }
+        snapshot.forEachRaw((id, payload) -> {
+            if (detached.add(id)) {
+                super.putValue(id, snapshot.decode(payload));
+            }
+        });
+    }
+
+    private boolean isInSnapshot(String key) {
+        return snapshot != null && !detached.contains(key) && snapshot.contains(key);
+    }
+
+    private void maybeCheckpoint() throws IOException {
+        long every = wal.options().getCheckpointEveryRecords();
+        if (every > 0 && wal.recordsSinceReset() >= every) {
+            checkpoint();
+        }
+    }
+
+    private byte[] encode(T value) throws IOException {
+        scratch.reset();
+        codec.write(scratchOut, value);
+        return scratch.array();
+    }
+
+    private void replay(long lsn, byte op, String id, DataInput payload) throws IOException {
+        switch (op) {
+            case WriteAheadLog.OP_UPSERT -> {
+                detachFromSnapshot(id);
+                super.putValue(id, codec.read(payload));
+            }
+            case WriteAheadLog.OP_REMOVE -> {
+                detachFromSnapshot(id);
+                super.removeValue(id);
+            }
+            default -> throw new PersistenceException("Unknown log op " + op + " at lsn " + lsn);
+        }
+        // Recovered ids must never be handed out again by this JVM.
+        IdGenerator.getInstance().advancePast(id);
+    }
+
+    private void detachFromSnapshot(String id) {
+        if (isInSnapshot(id)) {
+            detached.add(id);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.airtribe.meditrack.persistence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Binary encoder/decoder for one entity type, used by the write-ahead log and snapshots.
+ */
+public interface EntityCodec<T> {
+    void write(DataOutput out, T entity) throws IOException;
+
+    T read(DataInput in) throws IOException;
+}
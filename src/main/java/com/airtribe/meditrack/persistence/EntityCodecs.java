@@ -0,0 +1,171 @@
+package com.airtribe.meditrack.persistence;
+
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.AppointmentStatus;
+import com.airtribe.meditrack.entity.Bill;
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.entity.PatientProfile;
+import com.airtribe.meditrack.entity.Specialization;
+import com.airtribe.meditrack.util.Validator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Binary codecs for the persisted entities.
+ *
+ * <p>Enums are stored by ordinal, so new constants must only be appended.</p>
+ */
+public final class EntityCodecs {
+    private EntityCodecs() {}
+
+    public static final EntityCodec<Patient> PATIENT = new EntityCodec<>() {
+        @Override
+        public void write(DataOutput out, Patient p) throws IOException {
+            out.writeUTF(p.getId());
+            writeDateTime(out, p.getCreatedAt());
+            out.writeUTF(p.getName());
+            out.writeByte(p.getAge());
+            out.writeUTF(p.getPhone());
+            PatientProfile profile = p.getProfile();
+            out.writeUTF(profile.getAddress());
+            List<String> allergies = profile.getAllergies();
+            out.writeShort(allergies.size());
+            for (String allergy : allergies) {
+                out.writeUTF(allergy);
+            }
+        }
+
+        @Override
+        public Patient read(DataInput in) throws IOException {
+            String id = in.readUTF();
+            LocalDateTime createdAt = readDateTime(in);
+            String name = in.readUTF();
+            int age = in.readUnsignedByte();
+            String phone = in.readUTF();
+            String address = in.readUTF();
+            int allergyCount = in.readUnsignedShort();
+            List<String> allergies = new ArrayList<>(allergyCount);
+            for (int i = 0; i < allergyCount; i++) {
+                allergies.add(in.readUTF());
+            }
+            return new Patient(id, createdAt, name, age, phone, new PatientProfile(address, allergies));
+        }
+    };
+
+    public static final EntityCodec<Doctor> DOCTOR = new EntityCodec<>() {
+        @Override
+        public void write(DataOutput out, Doctor d) throws IOException {
+            out.writeUTF(d.getId());
+            writeDateTime(out, d.getCreatedAt());
+            out.writeUTF(d.getName());
+            out.writeByte(d.getAge());
+            out.writeUTF(d.getPhone());
+            out.writeByte(d.getSpecialization().ordinal());
+            writeDecimal(out, d.getConsultationFee());
+        }
+
+        @Override
+        public Doctor read(DataInput in) throws IOException {
+            String id = in.readUTF();
+            LocalDateTime createdAt = readDateTime(in);
+            String name = in.readUTF();
+            int age = in.readUnsignedByte();
+            String phone = in.readUTF();
+            Specialization specialization = Specialization.values()[in.readUnsignedByte()];
+            BigDecimal fee = readDecimal(in);
+            return new Doctor(id, createdAt, name, age, phone, specialization, fee);
+        }
+    };
+
+    public static final EntityCodec<Bill> BILL = new EntityCodec<>() {
+        @Override
+        public void write(DataOutput out, Bill b) throws IOException {
+            out.writeUTF(b.getId());
+            writeDateTime(out, b.getCreatedAt());
+            out.writeUTF(b.getAppointmentId());
+            writeDecimal(out, b.getBaseAmount());
+            writeDecimal(out, b.getTaxRate());
+        }
+
+        @Override
+        public Bill read(DataInput in) throws IOException {
+            String id = in.readUTF();
+            LocalDateTime createdAt = readDateTime(in);
+            String appointmentId = in.readUTF();
+            BigDecimal baseAmount = readDecimal(in);
+            BigDecimal taxRate = readDecimal(in);
+            return new Bill(id, createdAt, appointmentId, baseAmount, taxRate);
+        }
+    };
+
+    /**
+     * Appointment codec. Doctor and patient are embedded so an appointment survives the
+     * deletion of either; on read the live instance from the given lookups is preferred so
+     * recovered appointments share objects with the recovered doctor/patient stores.
+     */
+    public static EntityCodec<Appointment> appointment(Function<String, Optional<Doctor>> doctors,
+                                                       Function<String, Optional<Patient>> patients) {
+        Validator.requireNonNull(doctors, "doctors");
+        Validator.requireNonNull(patients, "patients");
+        return new EntityCodec<>() {
+            @Override
+            public void write(DataOutput out, Appointment a) throws IOException {
+                out.writeUTF(a.getId());
+                writeDateTime(out, a.getCreatedAt());
+                DOCTOR.write(out, a.getDoctor());
+                PATIENT.write(out, a.getPatient());
+                writeDateTime(out, a.getScheduledAt());
+                out.writeByte(a.getStatus().ordinal());
+            }
+
+            @Override
+            public Appointment read(DataInput in) throws IOException {
+                String id = in.readUTF();
+                LocalDateTime createdAt = readDateTime(in);
+                Doctor embeddedDoctor = DOCTOR.read(in);
+                Patient embeddedPatient = PATIENT.read(in);
+                LocalDateTime scheduledAt = readDateTime(in);
+                AppointmentStatus status = AppointmentStatus.values()[in.readUnsignedByte()];
+                Doctor doctor = doctors.apply(embeddedDoctor.getId()).orElse(embeddedDoctor);
+                Patient patient = patients.apply(embeddedPatient.getId()).orElse(embeddedPatient);
+                return new Appointment(id, createdAt, doctor, patient, scheduledAt, status);
+            }
+        };
+    }
+
+    static void writeDateTime(DataOutput out, LocalDateTime t) throws IOException {
+        out.writeLong(t.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(t.getNano());
+    }
+
+    static LocalDateTime readDateTime(DataInput in) throws IOException {
+        long seconds = in.readLong();
+        int nanos = in.readInt();
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    static void writeDecimal(DataOutput out, BigDecimal value) throws IOException {
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeShort(value.scale());
+        out.writeByte(unscaled.length);
+        out.write(unscaled);
+    }
+
+    static BigDecimal readDecimal(DataInput in) throws IOException {
+        int scale = in.readShort();
+        byte[] unscaled = new byte[in.readUnsignedByte()];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
@@ -0,0 +1,202 @@
+package com.airtribe.meditrack.persistence;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Bounded in-memory tier of a {@link TieredDataStore}. Entries pushed out by the eviction
+ * policy are handed to the eviction sink. Not thread-safe; the store synchronizes.
+ */
+abstract class HotTier<T> {
+    protected final int capacity;
+    protected final BiConsumer<String, T> evictionSink;
+
+    protected HotTier(int capacity, BiConsumer<String, T> evictionSink) {
+        this.capacity = capacity;
+        this.evictionSink = evictionSink;
+    }
+
+    static <T> HotTier<T> create(TieredDataStore.EvictionPolicy policy, int capacity,
+                                 BiConsumer<String, T> evictionSink) {
+        return switch (policy) {
+            case LRU -> new Lru<>(capacity, evictionSink);
+            case W_TINY_LFU -> new WindowTinyLfu<>(capacity, evictionSink);
+        };
+    }
+
+    /**
+     * Value for {@code key}, recording the access; {@code null} when not resident.
+     */
+    abstract T get(String key);
+
+    /**
+     * Stores the value and returns the previous resident one; may evict other entries.
+     */
+    abstract T put(String key, T value);
+
+    /**
+     * Re-admits a value just read from the cold tier; the read itself was already recorded by
+     * {@link #get}, so this must not count as a second access.
+     */
+    void promote(String key, T value) {
+        put(key, value);
+    }
+
+    abstract T remove(String key);
+
+    abstract int size();
+
+    abstract void forEach(BiConsumer<String, T> action);
+
+    /**
+     * Copy of the resident values, so callers can iterate without holding the store lock.
+     */
+    List<T> valuesCopy() {
+        List<T> out = new ArrayList<>(size());
+        forEach((id, value) -> out.add(value));
+        return out;
+    }
+
+    private static <T> LinkedHashMap<String, T> accessOrdered(int expected) {
+        return new LinkedHashMap<>(Math.max(16, expected * 4 / 3 + 1), 0.75f, true);
+    }
+
+    private static <T> Map.Entry<String, T> removeEldest(LinkedHashMap<String, T> map) {
+        Iterator<Map.Entry<String, T>> it = map.entrySet().iterator();
+        Map.Entry<String, T> eldest = it.next();
+        it.remove();
+        return eldest;
+    }
+
+    /**
+     * Classic least-recently-used eviction.
+     */
+    static final class Lru<T> extends HotTier<T> {
+        private final LinkedHashMap<String, T> entries;
+
+        Lru(int capacity, BiConsumer<String, T> evictionSink) {
+            super(capacity, evictionSink);
+            this.entries = accessOrdered(capacity);
+        }
+
+        @Override
+        T get(String key) {
+            return entries.get(key);
+        }
+
+        @Override
+        T put(String key, T value) {
+            T previous = entries.put(key, value);
+            if (entries.size() > capacity) {
+                Map.Entry<String, T> eldest = removeEldest(entries);
+                evictionSink.accept(eldest.getKey(), eldest.getValue());
+            }
+            return previous;
+        }
+
+        @Override
+        T remove(String key) {
+            return entries.remove(key);
+        }
+
+        @Override
+        int size() {
+            return entries.size();
+        }
+
+        @Override
+        void forEach(BiConsumer<String, T> action) {
+            entries.forEach(action);
+        }
+    }
+
+    /**
+     * W-TinyLFU: new entries land in a small LRU window (1% of capacity); an entry leaving
+     * the window only displaces the main region's LRU victim if the {@link FrequencySketch}
+     * has seen it more often. One-off scans therefore churn the window, not the working set.
+     *
+     * <p>The main region is a single LRU rather than the segmented LRU of the original paper.</p>
+     */
+    static final class WindowTinyLfu<T> extends HotTier<T> {
+        private final int windowCapacity;
+        private final int mainCapacity;
+        private final LinkedHashMap<String, T> window;
+        private final LinkedHashMap<String, T> main;
+        private final FrequencySketch sketch;
+
+        WindowTinyLfu(int capacity, BiConsumer<String, T> evictionSink) {
+            super(capacity, evictionSink);
+            this.windowCapacity = Math.max(1, capacity / 100);
+            this.mainCapacity = capacity - windowCapacity;
+            this.window = accessOrdered(windowCapacity);
+            this.main = accessOrdered(mainCapacity);
+            this.sketch = new FrequencySketch(capacity);
+        }
+
+        @Override
+        T get(String key) {
+            sketch.increment(key);
+            T value = window.get(key);
+            return value != null ? value : main.get(key);
+        }
+
+        @Override
+        T put(String key, T value) {
+            sketch.increment(key);
+            return store(key, value);
+        }
+
+        @Override
+        void promote(String key, T value) {
+            store(key, value);
+        }
+
+        private T store(String key, T value) {
+            if (main.containsKey(key)) {
+                return main.put(key, value);
+            }
+            T previous = window.put(key, value);
+            if (window.size() > windowCapacity) {
+                admit(removeEldest(window));
+            }
+            return previous;
+        }
+
+        private void admit(Map.Entry<String, T> candidate) {
+            if (main.size() < mainCapacity) {
+                main.put(candidate.getKey(), candidate.getValue());
+                return;
+            }
+            if (mainCapacity > 0) {
+                String victim = main.keySet().iterator().next();
+                if (sketch.frequency(candidate.getKey()) > sketch.frequency(victim)) {
+                    evictionSink.accept(victim, main.remove(victim));
+                    main.put(candidate.getKey(), candidate.getValue());
+                    return;
+                }
+            }
+            evictionSink.accept(candidate.getKey(), candidate.getValue());
+        }
+
+        @Override
+        T remove(String key) {
+            T removed = window.remove(key);
+            return removed != null ? removed : main.remove(key);
+        }
+
+        @Override
+        int size() {
+            return window.size() + main.size();
+        }
+
+        @Override
+        void forEach(BiConsumer<String, T> action) {
+            window.forEach(action);
+            main.forEach(action);
+        }
+    }
+}
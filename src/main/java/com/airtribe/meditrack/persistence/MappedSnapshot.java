@@ -0,0 +1,312 @@
+package com.airtribe.meditrack.persistence;
+
+import com.airtribe.meditrack.exception.PersistenceException;
+import com.airtribe.meditrack.util.IdGenerator;
+import com.airtribe.meditrack.util.Validator;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Read-only, memory-mapped binary snapshot of one store.
+ *
+ * <p>Layout (big-endian):</p>
+ * <pre>
+ * header  [int magic][int version][long lsn][int count][long maxIdSuffix][int slots][long tableOffset]
+ * data    count x [int payloadLength][int crc32c(id + payload)][short idLength][id UTF-8][payload]
+ * table   slots x [int idHash][long recordOffset]   (open addressing, recordOffset 0 = empty)
+ * </pre>
+ *
+ * <p>{@link #open} only maps the file and reads the header, so opening is O(1) regardless of
+ * size. {@link #read} probes the hash table and decodes a single record on demand.
+ * A single mapping limits a snapshot to 2 GB; the mapping is released once the instance
+ * becomes unreachable.</p>
+ */
+public final class MappedSnapshot<T> {
+    private static final int MAGIC = 0x4D544D53; // "MTMS"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 40;
+    private static final int SLOT_BYTES = 12;
+    private static final int RECORD_HEADER_BYTES = 10;
+
+    private final Path file;
+    private final EntityCodec<T> codec;
+    private final MappedByteBuffer buffer;
+    private final long lsn;
+    private final int count;
+    private final long maxIdSuffix;
+    private final int slots;
+    private final int tableOffset;
+
+    private MappedSnapshot(Path file, EntityCodec<T> codec, MappedByteBuffer buffer) {
+        this.file = file;
+        this.codec = codec;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new PersistenceException("Not a snapshot file: " + file);
+        }
+        this.lsn = buffer.getLong(8);
+        this.count = buffer.getInt(16);
+        this.maxIdSuffix = buffer.getLong(20);
+        this.slots = buffer.getInt(28);
+        this.tableOffset = Math.toIntExact(buffer.getLong(32));
+        if ((long) tableOffset + (long) slots * SLOT_BYTES != buffer.capacity()) {
+            throw new PersistenceException("Truncated snapshot file: " + file);
+        }
+    }
+
+    public static <T> MappedSnapshot<T> open(Path file, EntityCodec<T> codec) throws IOException {
+        Validator.requireNonNull(file, "file");
+        Validator.requireNonNull(codec, "codec");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new PersistenceException("Unsupported snapshot size " + size + ": " + file);
+            }
+            return new MappedSnapshot<>(file, codec, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Log sequence number covered by this snapshot.
+     */
+    public long lsn() {
+        return lsn;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Largest numeric {@code PREFIX-n} id suffix in the snapshot, or {@code -1}.
+     */
+    public long maxIdSuffix() {
+        return maxIdSuffix;
+    }
+
+    public boolean contains(String id) {
+        return find(id) >= 0;
+    }
+
+    /**
+     * Decodes the entity stored under {@code id}, or returns {@code null} when absent.
+     */
+    public T read(String id) {
+        int offset = find(id);
+        return offset < 0 ? null : decode(offset);
+    }
+
+    /**
+     * Visits every record in write order with its raw payload (a read-only slice).
+     */
+    public void forEachRaw(BiConsumer<String, ByteBuffer> action) {
+        int offset = HEADER_BYTES;
+        for (int i = 0; i < count; i++) {
+            int payloadLength = buffer.getInt(offset);
+            int idLength = buffer.getShort(offset + 8) & 0xFFFF;
+            String id = readId(offset + RECORD_HEADER_BYTES, idLength);
+            int payloadOffset = offset + RECORD_HEADER_BYTES + idLength;
+            action.accept(id, buffer.slice(payloadOffset, payloadLength).asReadOnlyBuffer());
+            offset = payloadOffset + payloadLength;
+        }
+    }
+
+    /**
+     * Decodes {@code payload} as handed out by {@link #forEachRaw}.
+     */
+    public T decode(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        try {
+            return codec.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (IOException e) {
+            throw new PersistenceException("Corrupt snapshot record in " + file, e);
+        }
+    }
+
+    private int find(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int hash = spread(id.hashCode());
+        int mask = slots - 1;
+        for (int probe = 0, slot = hash & mask; probe < slots; probe++, slot = (slot + 1) & mask) {
+            int slotOffset = tableOffset + slot * SLOT_BYTES;
+            int recordOffset = (int) buffer.getLong(slotOffset + 4);
+            if (recordOffset == 0) return -1;
+            if (buffer.getInt(slotOffset) == hash && idEquals(recordOffset, key)) return recordOffset;
+        }
+        return -1;
+    }
+
+    private boolean idEquals(int recordOffset, byte[] key) {
+        if ((buffer.getShort(recordOffset + 8) & 0xFFFF) != key.length) return false;
+        int base = recordOffset + RECORD_HEADER_BYTES;
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(base + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    private T decode(int recordOffset) {
+        int payloadLength = buffer.getInt(recordOffset);
+        int expectedCrc = buffer.getInt(recordOffset + 4);
+        int idLength = buffer.getShort(recordOffset + 8) & 0xFFFF;
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(recordOffset + RECORD_HEADER_BYTES, idLength + payloadLength));
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new PersistenceException("Checksum mismatch at offset " + recordOffset + " in " + file);
+        }
+        return decode(buffer.slice(recordOffset + RECORD_HEADER_BYTES + idLength, payloadLength));
+    }
+
+    private String readId(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Streams records into a new snapshot through a {@link FileChannel}; {@link #commit(long)}
+     * appends the hash table, writes the header and atomically replaces the target file.
+     */
+    public static final class Writer<T> implements Closeable {
+        private final Path target;
+        private final Path tmp;
+        private final EntityCodec<T> codec;
+        private final FileChannel channel;
+        private final ByteBuffer out = ByteBuffer.allocateDirect(1 << 20);
+        private final WriteAheadLog.ExposedBuffer scratch = new WriteAheadLog.ExposedBuffer();
+        private final DataOutputStream scratchOut = new DataOutputStream(scratch);
+        private final CRC32C crc = new CRC32C();
+
+        private int[] hashes = new int[1024];
+        private long[] offsets = new long[1024];
+        private int count;
+        private long maxIdSuffix = -1;
+        private long position = HEADER_BYTES;
+        private boolean committed;
+
+        public Writer(Path target, EntityCodec<T> codec) throws IOException {
+            this.target = Validator.requireNonNull(target, "target");
+            this.codec = Validator.requireNonNull(codec, "codec");
+            this.tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            this.channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            channel.position(HEADER_BYTES);
+        }
+
+        public void add(String id, T entity) throws IOException {
+            scratch.reset();
+            codec.write(scratchOut, entity);
+            addRaw(id, ByteBuffer.wrap(scratch.array(), 0, scratch.size()));
+        }
+
+        /**
+         * Copies an already-encoded payload (e.g. from {@link MappedSnapshot#forEachRaw}).
+         */
+        public void addRaw(String id, ByteBuffer payload) throws IOException {
+            byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+            int payloadLength = payload.remaining();
+            crc.reset();
+            crc.update(idBytes);
+            crc.update(payload.duplicate());
+
+            int recordLength = RECORD_HEADER_BYTES + idBytes.length + payloadLength;
+            if (recordLength > out.remaining()) {
+                flush();
+            }
+            if (recordLength > out.capacity()) {
+                ByteBuffer big = ByteBuffer.allocate(recordLength);
+                writeRecord(big, idBytes, payload, payloadLength);
+                big.flip();
+                while (big.hasRemaining()) channel.write(big);
+            } else {
+                writeRecord(out, idBytes, payload, payloadLength);
+            }
+
+            if (count == hashes.length) {
+                hashes = Arrays.copyOf(hashes, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            hashes[count] = spread(id.hashCode());
+            offsets[count] = position;
+            count++;
+            position += recordLength;
+            maxIdSuffix = Math.max(maxIdSuffix, IdGenerator.numericSuffix(id));
+        }
+
+        /**
+         * Finishes the file and atomically moves it over the target.
+         */
+        public void commit(long lsn) throws IOException {
+            flush();
+            if (position > Integer.MAX_VALUE) {
+                throw new PersistenceException("Snapshot exceeds 2 GB: " + target);
+            }
+            int slots = Integer.highestOneBit(Math.max(2, count) * 2 - 1) << 1;
+            ByteBuffer table = ByteBuffer.allocate(slots * SLOT_BYTES);
+            int mask = slots - 1;
+            for (int i = 0; i < count; i++) {
+                int slot = hashes[i] & mask;
+                while (table.getLong(slot * SLOT_BYTES + 4) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table.putInt(slot * SLOT_BYTES, hashes[i]);
+                table.putLong(slot * SLOT_BYTES + 4, offsets[i]);
+            }
+            long tableOffset = position;
+            channel.position(tableOffset);
+            while (table.hasRemaining()) channel.write(table);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(lsn).putInt(count).putLong(maxIdSuffix)
+                    .putInt(slots).putLong(tableOffset).flip();
+            channel.position(0);
+            while (header.hasRemaining()) channel.write(header);
+            channel.force(true);
+            channel.close();
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel.isOpen()) {
+                channel.close();
+            }
+            if (!committed) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+
+        private void writeRecord(ByteBuffer dst, byte[] idBytes, ByteBuffer payload, int payloadLength) {
+            dst.putInt(payloadLength).putInt((int) crc.getValue()).putShort((short) idBytes.length)
+                    .put(idBytes).put(payload.duplicate());
+        }
+
+        private void flush() throws IOException {
+            out.flip();
+            while (out.hasRemaining()) channel.write(out);
+            out.clear();
+        }
+
+    }
+}
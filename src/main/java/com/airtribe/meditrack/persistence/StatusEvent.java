@@ -0,0 +1,44 @@
+package com.airtribe.meditrack.persistence;
+
+import com.airtribe.meditrack.entity.AppointmentStatus;
+import com.airtribe.meditrack.util.Validator;
+
+import java.time.Instant;
+
+/**
+ * One appointment status transition recorded in an {@link AppointmentStatusLog}.
+ */
+public final class StatusEvent {
+    private final String appointmentId;
+    private final AppointmentStatus from;
+    private final AppointmentStatus to;
+    private final Instant at;
+
+    public StatusEvent(String appointmentId, AppointmentStatus from, AppointmentStatus to, Instant at) {
+        this.appointmentId = Validator.requireNonBlank(appointmentId, "appointmentId");
+        this.from = Validator.requireNonNull(from, "from");
+        this.to = Validator.requireNonNull(to, "to");
+        this.at = Validator.requireNonNull(at, "at");
+    }
+
+    public String getAppointmentId() {
+        return appointmentId;
+    }
+
+    public AppointmentStatus getFrom() {
+        return from;
+    }
+
+    public AppointmentStatus getTo() {
+        return to;
+    }
+
+    public Instant getAt() {
+        return at;
+    }
+
+    @Override
+    public String toString() {
+        return appointmentId + ": " + from + " -> " + to + " at " + at;
+    }
+}
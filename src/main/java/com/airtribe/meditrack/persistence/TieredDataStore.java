@@ -0,0 +1,277 @@
+package com.airtribe.meditrack.persistence;
+
+import com.airtribe.meditrack.exception.PersistenceException;
+import com.airtribe.meditrack.util.DataStore;
+import com.airtribe.meditrack.util.LinkedIdMap;
+import com.airtribe.meditrack.util.Page;
+import com.airtribe.meditrack.util.Validator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link DataStore} that keeps at most {@code hotCapacity} entities on the heap.
+ *
+ * <p>The hot tier evicts by {@link EvictionPolicy}; evicted entities are encoded with the
+ * {@link EntityCodec} into a local cold file ({@code <name>.cold}) and read back, and promoted
+ * to the hot tier again, on {@link #get}. Only the cold tier's id-to-offset index grows with
+ * the number of entities.</p>
+ *
+ * <p>The cold file is spill space, not durability: it is discarded on {@link #close()} (use
+ * {@link DurableDataStore} to survive restarts). An entity read back from the cold tier is a
+ * new instance, so other objects may still reference the pre-eviction copy.</p>
+ *
+ * <p>Storage primitives are synchronized; iteration reads hot entities from a copy and cold
+ * entities one by one without promoting them. Ids are also kept in first-insertion order,
+ * whichever tier holds them, so {@link #page} resumes after the cursor's id in O(1).</p>
+ */
+public class TieredDataStore<T> extends DataStore<T> implements Closeable {
+
+    public enum EvictionPolicy {
+        /** Least recently used. */
+        LRU,
+        /** Small LRU admission window in front of a frequency-filtered main region; scan resistant. */
+        W_TINY_LFU
+    }
+
+    private final HotTier<T> hot;
+    private final ColdTier<T> cold;
+    private final LinkedIdMap<Boolean> order = new LinkedIdMap<>();
+    private long hits;
+    private long misses;
+    private long coldReads;
+    private long evictions;
+
+    private TieredDataStore(ColdTier<T> cold, int hotCapacity, EvictionPolicy policy) {
+        this.cold = cold;
+        this.hot = HotTier.create(policy, hotCapacity, this::spill);
+    }
+
+    /**
+     * Opens an empty store spilling to {@code <dir>/<name>.cold}.
+     */
+    public static <T> TieredDataStore<T> open(Path dir, String name, EntityCodec<T> codec,
+                                              int hotCapacity, EvictionPolicy policy) throws IOException {
+        Validator.requireNonNull(dir, "dir");
+        String n = Validator.requireNonBlank(name, "name");
+        Validator.requireNonNull(codec, "codec");
+        Validator.requirePositive(hotCapacity, "hotCapacity");
+        Validator.requireNonNull(policy, "policy");
+        Files.createDirectories(dir);
+        return new TieredDataStore<>(new ColdTier<>(dir.resolve(n + ".cold"), codec), hotCapacity, policy);
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, coldReads, evictions, hot.size(), cold.size(), cold.fileBytes());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        cold.close();
+    }
+
+    @Override
+    protected synchronized T getValue(String key) {
+        T value = hot.get(key);
+        if (value != null) {
+            hits++;
+            return value;
+        }
+        misses++;
+        try {
+            value = cold.take(key);
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to read " + key + " from cold tier", e);
+        }
+        if (value != null) {
+            coldReads++;
+            hot.promote(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    protected synchronized T putValue(String key, T value) {
+        order.put(key, Boolean.TRUE);
+        T previous = hot.put(key, value);
+        return previous != null ? previous : takeCold(key);
+    }
+
+    @Override
+    protected synchronized T removeValue(String key) {
+        order.remove(key);
+        T removed = hot.remove(key);
+        return removed != null ? removed : takeCold(key);
+    }
+
+    @Override
+    protected synchronized void forEachEntry(BiConsumer<String, T> action) {
+        hot.forEach(action);
+        try {
+            cold.forEach(action);
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to scan cold tier", e);
+        }
+    }
+
+    @Override
+    protected synchronized int count() {
+        return hot.size() + cold.size();
+    }
+
+    /**
+     * Hot entities are read as accesses; cold ones are read without promotion, as when iterating.
+     */
+    @Override
+    protected synchronized Page<T> pageFrom(Page.Cursor cursor, int pageSize) {
+        return order.page(cursor, pageSize, (id, ignored) -> {
+            T value = hot.get(id);
+            return value != null ? value : readCold(id);
+        });
+    }
+
+    @Override
+    protected Collection<T> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<T> iterator() {
+                List<T> hotValues;
+                List<String> coldIds;
+                synchronized (TieredDataStore.this) {
+                    hotValues = hot.valuesCopy();
+                    coldIds = cold.ids();
+                }
+                return new Iterator<>() {
+                    private final Iterator<T> hotIt = hotValues.iterator();
+                    private final Iterator<String> coldIt = coldIds.iterator();
+                    private T next = advance();
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public T next() {
+                        if (next == null) throw new NoSuchElementException();
+                        T value = next;
+                        next = advance();
+                        return value;
+                    }
+
+                    private T advance() {
+                        if (hotIt.hasNext()) return hotIt.next();
+                        while (coldIt.hasNext()) {
+                            T value = readCold(coldIt.next());
+                            if (value != null) return value;
+                        }
+                        return null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return count();
+            }
+        };
+    }
+
+    private synchronized T readCold(String key) {
+        try {
+            return cold.read(key);
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to read " + key + " from cold tier", e);
+        }
+    }
+
+    private T takeCold(String key) {
+        try {
+            return cold.take(key);
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to read " + key + " from cold tier", e);
+        }
+    }
+
+    private void spill(String key, T value) {
+        evictions++;
+        try {
+            cold.write(key, value);
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to spill " + key + " to cold tier", e);
+        }
+    }
+
+    /**
+     * Point-in-time counters of a {@link TieredDataStore}.
+     */
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long coldReads;
+        private final long evictions;
+        private final int hotSize;
+        private final int coldSize;
+        private final long coldFileBytes;
+
+        Stats(long hits, long misses, long coldReads, long evictions, int hotSize, int coldSize, long coldFileBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.coldReads = coldReads;
+            this.evictions = evictions;
+            this.hotSize = hotSize;
+            this.coldSize = coldSize;
+            this.coldFileBytes = coldFileBytes;
+        }
+
+        /** Lookups answered by the hot tier. */
+        public long getHits() {
+            return hits;
+        }
+
+        /** Lookups not answered by the hot tier (found cold or absent). */
+        public long getMisses() {
+            return misses;
+        }
+
+        /** Misses answered by the cold tier. */
+        public long getColdReads() {
+            return coldReads;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public int getHotSize() {
+            return hotSize;
+        }
+
+        public int getColdSize() {
+            return coldSize;
+        }
+
+        public long getColdFileBytes() {
+            return coldFileBytes;
+        }
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d coldReads=%d evictions=%d hot=%d cold=%d (%d bytes) hitRate=%.1f%%",
+                    hits, misses, coldReads, evictions, hotSize, coldSize, coldFileBytes, hitRate() * 100);
+        }
+    }
+}
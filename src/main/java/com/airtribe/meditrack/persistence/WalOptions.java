@@ -0,0 +1,53 @@
+package com.airtribe.meditrack.persistence;
+
+import com.airtribe.meditrack.util.Validator;
+
+/**
+ * Durability knobs for {@link WriteAheadLog} and {@link DurableDataStore}.
+ *
+ * <ul>
+ *   <li>{@code syncEveryRecords}: group-commit batch size; the log is fsynced once this many
+ *       records are pending ({@code 1} = fsync on every write).</li>
+ *   <li>{@code syncIntervalMillis}: upper bound on how long a record may stay unsynced
+ *       ({@code 0} disables the background flusher).</li>
+ *   <li>{@code checkpointEveryRecords}: write a snapshot and truncate the log after this many
+ *       records ({@code 0} disables automatic checkpoints).</li>
+ * </ul>
+ */
+public final class WalOptions {
+    private final int syncEveryRecords;
+    private final long syncIntervalMillis;
+    private final long checkpointEveryRecords;
+
+    public WalOptions(int syncEveryRecords, long syncIntervalMillis, long checkpointEveryRecords) {
+        this.syncEveryRecords = Validator.requirePositive(syncEveryRecords, "syncEveryRecords");
+        if (syncIntervalMillis < 0 || checkpointEveryRecords < 0) {
+            throw new IllegalArgumentException("syncIntervalMillis and checkpointEveryRecords must be >= 0");
+        }
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.checkpointEveryRecords = checkpointEveryRecords;
+    }
+
+    /**
+     * Defaults, overridable via {@code meditrack.wal.syncEvery}, {@code meditrack.wal.syncIntervalMs}
+     * and {@code meditrack.wal.checkpointEvery}.
+     */
+    public static WalOptions defaults() {
+        return new WalOptions(
+                Integer.getInteger("meditrack.wal.syncEvery", 64),
+                Long.getLong("meditrack.wal.syncIntervalMs", 50L),
+                Long.getLong("meditrack.wal.checkpointEvery", 100_000L));
+    }
+
+    public int getSyncEveryRecords() {
+        return syncEveryRecords;
+    }
+
+    public long getSyncIntervalMillis() {
+        return syncIntervalMillis;
+    }
+
+    public long getCheckpointEveryRecords() {
+        return checkpointEveryRecords;
+    }
+}
@@ -0,0 +1,258 @@
+package com.airtribe.meditrack.persistence;
+
+import com.airtribe.meditrack.util.Validator;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, checksummed operation log.
+ *
+ * <p>Record layout: {@code [int bodyLength][int crc32c(body)][body]}, where the body is
+ * {@code [long lsn][byte op][UTF id][payload]}. A record whose length or checksum does not
+ * verify marks a torn tail (crash mid-write); recovery stops there and truncates the file.</p>
+ *
+ * <p>Group commit: appends go straight to the OS, but {@code fsync} only happens once
+ * {@link WalOptions#getSyncEveryRecords()} records are pending or the background flusher
+ * fires, so concurrent writers share one fsync.</p>
+ */
+public final class WriteAheadLog implements Closeable {
+    public static final byte OP_UPSERT = 1;
+    public static final byte OP_REMOVE = 2;
+
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_BODY_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * Receives recovered records; {@code payload} is positioned after the id.
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void apply(long lsn, byte op, String id, DataInput payload) throws IOException;
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final WalOptions options;
+    private final ScheduledExecutorService flusher;
+    private final LongAdder backgroundSyncFailures = new LongAdder();
+
+    private final ExposedBuffer body = new ExposedBuffer();
+    private final DataOutputStream bodyOut = new DataOutputStream(body);
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    private final CRC32C crc = new CRC32C();
+
+    private long nextLsn;
+    private int unsynced;
+    private long recordsSinceReset;
+
+    private WriteAheadLog(Path file, FileChannel channel, WalOptions options, long nextLsn, long recordsSinceReset) {
+        this.file = file;
+        this.channel = channel;
+        this.options = options;
+        this.nextLsn = nextLsn;
+        this.recordsSinceReset = recordsSinceReset;
+        if (options.getSyncIntervalMillis() > 0) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "wal-flusher-" + file.getFileName());
+                t.setDaemon(true);
+                return t;
+            });
+            long interval = options.getSyncIntervalMillis();
+            flusher.scheduleWithFixedDelay(this::backgroundSync, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * Opens (or creates) the log, replays every valid record with {@code lsn > afterLsn}
+     * into {@code handler} and truncates any torn tail before accepting new appends.
+     */
+    public static WriteAheadLog open(Path file, WalOptions options, long afterLsn, RecordHandler handler)
+            throws IOException {
+        Validator.requireNonNull(file, "file");
+        Validator.requireNonNull(options, "options");
+        Validator.requireNonNull(handler, "handler");
+
+        long validEnd = 0;
+        long lastLsn = afterLsn;
+        long records = 0;
+        if (Files.exists(file)) {
+            try (InputStream raw = new BufferedInputStream(Files.newInputStream(file), 1 << 20);
+                 DataInputStream in = new DataInputStream(raw)) {
+                CRC32C check = new CRC32C();
+                byte[] buf = new byte[256];
+                while (true) {
+                    int length;
+                    int expectedCrc;
+                    try {
+                        length = in.readInt();
+                        expectedCrc = in.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    if (length <= 0 || length > MAX_BODY_BYTES) break;
+                    if (buf.length < length) buf = new byte[Math.max(length, buf.length * 2)];
+                    try {
+                        in.readFully(buf, 0, length);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    check.reset();
+                    check.update(buf, 0, length);
+                    if ((int) check.getValue() != expectedCrc) break;
+
+                    DataInputStream rec = new DataInputStream(new ByteArrayInputStream(buf, 0, length));
+                    long lsn = rec.readLong();
+                    byte op = rec.readByte();
+                    String id = rec.readUTF();
+                    if (lsn > afterLsn) {
+                        handler.apply(lsn, op, id, rec);
+                    }
+                    lastLsn = Math.max(lastLsn, lsn);
+                    validEnd += HEADER_BYTES + length;
+                    records++;
+                }
+            }
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (channel.size() > validEnd) {
+            channel.truncate(validEnd);
+            channel.force(true);
+        }
+        channel.position(validEnd);
+        return new WriteAheadLog(file, channel, options, lastLsn + 1, records);
+    }
+
+    /**
+     * Appends one record and returns its log sequence number.
+     *
+     * <p>The record is durable once the current group commit fsyncs (see class docs) or
+     * after an explicit {@link #sync()}.</p>
+     */
+    public synchronized long append(byte op, String id, byte[] payload, int payloadLength) throws IOException {
+        long lsn = nextLsn;
+        body.reset();
+        bodyOut.writeLong(lsn);
+        bodyOut.writeByte(op);
+        bodyOut.writeUTF(id);
+        bodyOut.write(payload, 0, payloadLength);
+
+        crc.reset();
+        crc.update(body.array(), 0, body.size());
+        header.clear();
+        header.putInt(body.size()).putInt((int) crc.getValue()).flip();
+        ByteBuffer[] record = {header, ByteBuffer.wrap(body.array(), 0, body.size())};
+        while (record[1].hasRemaining()) {
+            channel.write(record);
+        }
+
+        nextLsn++;
+        recordsSinceReset++;
+        if (++unsynced >= options.getSyncEveryRecords()) {
+            sync();
+        }
+        return lsn;
+    }
+
+    public synchronized void sync() throws IOException {
+        if (unsynced > 0) {
+            channel.force(false);
+            unsynced = 0;
+        }
+    }
+
+    /**
+     * Drops every record; callers must have captured them in a snapshot first.
+     * Sequence numbers keep increasing across resets.
+     */
+    public synchronized void reset() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+        unsynced = 0;
+        recordsSinceReset = 0;
+    }
+
+    /**
+     * Sequence number of the most recently appended (or recovered) record.
+     */
+    public synchronized long lastLsn() {
+        return nextLsn - 1;
+    }
+
+    public synchronized long recordsSinceReset() {
+        return recordsSinceReset;
+    }
+
+    /**
+     * Background flushes that failed; records they should have synced stay pending for the
+     * next sync.
+     */
+    public long backgroundSyncFailures() {
+        return backgroundSyncFailures.sum();
+    }
+
+    public WalOptions options() {
+        return options;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        synchronized (this) {
+            if (channel.isOpen()) {
+                sync();
+                channel.close();
+            }
+        }
+    }
+
+    private void backgroundSync() {
+        try {
+            synchronized (this) {
+                if (channel.isOpen()) {
+                    sync();
+                }
+            }
+        } catch (IOException e) {
+            backgroundSyncFailures.increment();
+        }
+    }
+
+    /**
+     * {@link ByteArrayOutputStream} that exposes its buffer to avoid a copy per append.
+     */
+    static final class ExposedBuffer extends ByteArrayOutputStream {
+        ExposedBuffer() {
+            super(256);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.airtribe.meditrack.scheduling;
+
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.util.Validator;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-doctor, per-day availability bitmaps over a fixed grid of working-hour slots.
+ *
+ * <p>The working day {@code [dayStart, dayEnd)} is cut into slots of {@code slotLength}; bit
+ * {@code i} of a doctor's day is set while any confirmed appointment overlaps slot {@code i}.
+ * Days without bookings have no bitmap at all. Free-slot queries are word operations:
+ * {@code ~busy} gives the free slots, {@link Long#numberOfTrailingZeros} the earliest one,
+ * and AND-ing the busy words of several doctors gives the slots where all of them are busy.</p>
+ *
+ * <p>Each day's words are copied on write and swapped in atomically, so readers never see a
+ * half-applied update; writers for one doctor are expected to be serialized by the caller
+ * (see {@code AppointmentService}).</p>
+ */
+public class AvailabilityCalendar {
+    private final LocalTime dayStart;
+    private final Duration slotLength;
+    private final int slotsPerDay;
+    private final int words;
+    private final ConcurrentMap<DayKey, long[]> busy = new ConcurrentHashMap<>();
+
+    public AvailabilityCalendar(LocalTime dayStart, LocalTime dayEnd, Duration slotLength) {
+        this.dayStart = Validator.requireNonNull(dayStart, "dayStart");
+        Validator.requireNonNull(dayEnd, "dayEnd");
+        this.slotLength = Validator.requireNonNull(slotLength, "slotLength");
+        if (slotLength.isNegative() || slotLength.isZero()) {
+            throw new IllegalArgumentException("slotLength must be positive");
+        }
+        if (!dayEnd.isAfter(dayStart)) {
+            throw new IllegalArgumentException("dayEnd must be after dayStart");
+        }
+        long slots = Duration.between(dayStart, dayEnd).toNanos() / slotLength.toNanos();
+        if (slots < 1) {
+            throw new IllegalArgumentException("Working day is shorter than one slot");
+        }
+        this.slotsPerDay = (int) slots;
+        this.words = (slotsPerDay + 63) >>> 6;
+    }
+
+    public LocalTime getDayStart() {
+        return dayStart;
+    }
+
+    public Duration getSlotLength() {
+        return slotLength;
+    }
+
+    public int getSlotsPerDay() {
+        return slotsPerDay;
+    }
+
+    /**
+     * Marks every grid slot overlapping {@code [start, start + duration)} as busy.
+     */
+    public void occupy(String doctorId, LocalDateTime start, Duration duration) {
+        String id = Validator.requireNonBlank(doctorId, "doctorId");
+        LocalDateTime end = Validator.requireNonNull(start, "start").plus(Validator.requireNonNull(duration, "duration"));
+        for (LocalDate date = start.toLocalDate(); date.atStartOfDay().isBefore(end); date = date.plusDays(1)) {
+            int from = firstSlotEndingAfter(date, start);
+            int to = firstSlotStartingAtOrAfter(date, end);
+            if (from < to) {
+                int first = from;
+                busy.compute(new DayKey(id, date), (k, old) -> {
+                    long[] next = old == null ? new long[words] : old.clone();
+                    setRange(next, first, to);
+                    return next;
+                });
+            }
+        }
+    }
+
+    /**
+     * Recomputes one doctor's day from the bookings that still hold a slot (e.g. after a
+     * cancellation, since neighbouring bookings may share a grid slot with the cancelled one).
+     */
+    public void rebuildDay(String doctorId, LocalDate date, Collection<LocalDateTime> starts, Duration duration) {
+        String id = Validator.requireNonBlank(doctorId, "doctorId");
+        Validator.requireNonNull(date, "date");
+        long[] next = new long[words];
+        boolean any = false;
+        for (LocalDateTime start : starts) {
+            LocalDateTime end = start.plus(duration);
+            int from = firstSlotEndingAfter(date, start);
+            int to = firstSlotStartingAtOrAfter(date, end);
+            if (from < to) {
+                setRange(next, from, to);
+                any = true;
+            }
+        }
+        if (any) {
+            busy.put(new DayKey(id, date), next);
+        } else {
+            busy.remove(new DayKey(id, date));
+        }
+    }
+
+    /**
+     * Start times of the doctor's free slots on {@code date}, in order.
+     */
+    public List<LocalDateTime> freeSlots(String doctorId, LocalDate date) {
+        long[] day = busyWords(Validator.requireNonBlank(doctorId, "doctorId"), Validator.requireNonNull(date, "date"));
+        List<LocalDateTime> out = new ArrayList<>();
+        for (int w = 0; w < words; w++) {
+            long free = ~day[w] & validMask(w);
+            while (free != 0) {
+                out.add(slotStart(date, (w << 6) + Long.numberOfTrailingZeros(free)));
+                free &= free - 1;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Whether the grid slot containing {@code time} is free; times outside working hours never are.
+     */
+    public boolean isFree(String doctorId, LocalDateTime time) {
+        LocalDate date = Validator.requireNonNull(time, "time").toLocalDate();
+        if (time.toLocalTime().isBefore(dayStart)) return false;
+        int slot = firstSlotEndingAfter(date, time);
+        if (slot >= slotsPerDay) return false;
+        long[] day = busyWords(Validator.requireNonBlank(doctorId, "doctorId"), date);
+        return (day[slot >>> 6] & (1L << slot)) == 0;
+    }
+
+    /**
+     * Earliest grid slot starting at or after {@code from}, within {@code days} days, in which
+     * at least one of {@code doctors} is free; ties go to the first such doctor in the collection.
+     *
+     * <p>Per word, the doctors' busy words are AND-ed: a zero bit there is a slot someone is free
+     * in, so only that one slot is then checked doctor by doctor.</p>
+     */
+    public Optional<AvailableSlot> earliestFree(Collection<Doctor> doctors, LocalDateTime from, int days) {
+        Validator.requireNonNull(doctors, "doctors");
+        Validator.requireNonNull(from, "from");
+        Validator.requirePositive(days, "days");
+        if (doctors.isEmpty()) return Optional.empty();
+        List<Doctor> candidates = new ArrayList<>(doctors);
+        long[][] dayWords = new long[candidates.size()][];
+        LocalDate date = from.toLocalDate();
+        for (int d = 0; d < days; d++, date = date.plusDays(1)) {
+            int firstSlot = d == 0 ? firstSlotStartingAtOrAfter(date, from) : 0;
+            for (int i = 0; i < dayWords.length; i++) {
+                dayWords[i] = busyWords(candidates.get(i).getId(), date);
+            }
+            for (int w = firstSlot >>> 6; w < words; w++) {
+                long allBusy = -1L;
+                for (long[] day : dayWords) {
+                    allBusy &= day[w];
+                }
+                long someoneFree = ~allBusy & validMask(w);
+                if (w == firstSlot >>> 6) {
+                    someoneFree &= -1L << (firstSlot & 63);
+                }
+                if (someoneFree != 0) {
+                    int bit = Long.numberOfTrailingZeros(someoneFree);
+                    for (int i = 0; i < dayWords.length; i++) {
+                        if ((dayWords[i][w] & (1L << bit)) == 0) {
+                            return Optional.of(new AvailableSlot(candidates.get(i), slotStart(date, (w << 6) + bit)));
+                        }
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private long[] busyWords(String doctorId, LocalDate date) {
+        long[] day = busy.get(new DayKey(doctorId, date));
+        return day != null ? day : new long[words];
+    }
+
+    private long validMask(int word) {
+        int bitsInWord = Math.min(64, slotsPerDay - (word << 6));
+        return bitsInWord == 64 ? -1L : (1L << bitsInWord) - 1;
+    }
+
+    private LocalDateTime slotStart(LocalDate date, int slot) {
+        return LocalDateTime.of(date, dayStart).plus(slotLength.multipliedBy(slot));
+    }
+
+    /**
+     * Index of the first slot that ends after {@code t} (clamped to {@code [0, slotsPerDay]}).
+     */
+    private int firstSlotEndingAfter(LocalDate date, LocalDateTime t) {
+        long offset = Duration.between(LocalDateTime.of(date, dayStart), t).toNanos();
+        if (offset < 0) return 0;
+        return (int) Math.min(slotsPerDay, offset / slotLength.toNanos());
+    }
+
+    /**
+     * Index of the first slot that starts at or after {@code t} (clamped to {@code [0, slotsPerDay]}).
+     */
+    private int firstSlotStartingAtOrAfter(LocalDate date, LocalDateTime t) {
+        long offset = Duration.between(LocalDateTime.of(date, dayStart), t).toNanos();
+        if (offset <= 0) return 0;
+        long length = slotLength.toNanos();
+        return (int) Math.min(slotsPerDay, (offset + length - 1) / length);
+    }
+
+    /**
+     * Sets bits {@code [from, to)}.
+     */
+    private static void setRange(long[] words, int from, int to) {
+        for (int w = from >>> 6; w <= (to - 1) >>> 6; w++) {
+            long mask = -1L;
+            if (w == from >>> 6) mask &= -1L << (from & 63);
+            if (w == (to - 1) >>> 6) mask &= -1L >>> (63 - ((to - 1) & 63));
+            words[w] |= mask;
+        }
+    }
+
+    private record DayKey(String doctorId, LocalDate date) {
+    }
+}
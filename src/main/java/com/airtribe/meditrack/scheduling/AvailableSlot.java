@@ -0,0 +1,32 @@
+package com.airtribe.meditrack.scheduling;
+
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.util.Validator;
+
+import java.time.LocalDateTime;
+
+/**
+ * A free slot found by {@link AvailabilityCalendar#earliestFree}.
+ */
+public final class AvailableSlot {
+    private final Doctor doctor;
+    private final LocalDateTime start;
+
+    public AvailableSlot(Doctor doctor, LocalDateTime start) {
+        this.doctor = Validator.requireNonNull(doctor, "doctor");
+        this.start = Validator.requireNonNull(start, "start");
+    }
+
+    public Doctor getDoctor() {
+        return doctor;
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    @Override
+    public String toString() {
+        return start + " with " + doctor.getName() + " (" + doctor.getId() + ")";
+    }
+}
@@ -0,0 +1,234 @@
+package com.airtribe.meditrack.scheduling;
+
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.exception.SchedulingConflictException;
+import com.airtribe.meditrack.util.Validator;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Interval index over confirmed appointments: one timeline per doctor and one per patient,
+ * each a sorted map from slot start to slot end.
+ *
+ * <p>Every appointment occupies {@code [scheduledAt, scheduledAt + slotDuration)}. Reserved
+ * slots on a timeline never overlap, so a new slot only has to be compared with the one slot
+ * that starts latest before it ends: one {@link TreeMap#lowerEntry} lookup, O(log n) in the
+ * owner's bookings. Cancelled appointments are released and stop blocking their slot.</p>
+ *
+ * <p>{@link #reserve} and {@link #release} lock the doctor's and the patient's timeline (always
+ * in the same order) around the check, the index update and the caller's store write, so
+ * concurrent bookings for the same doctor or patient cannot both succeed. {@link #withLocks}
+ * takes the same locks for status changes that keep the slot. Doctor keys sort before patient
+ * keys, so every caller takes a doctor lock before a patient lock.</p>
+ */
+public class ScheduleIndex {
+    private final Duration slotDuration;
+    private final ConcurrentMap<String, Timeline> timelines = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LocalDateTime> reservedStarts = new ConcurrentHashMap<>();
+
+    public ScheduleIndex(Duration slotDuration) {
+        Validator.requireNonNull(slotDuration, "slotDuration");
+        if (slotDuration.isNegative() || slotDuration.isZero()) {
+            throw new IllegalArgumentException("slotDuration must be positive");
+        }
+        this.slotDuration = slotDuration;
+    }
+
+    public Duration getSlotDuration() {
+        return slotDuration;
+    }
+
+    /**
+     * Reserves the appointment's slot for its doctor and patient, then runs {@code commit}
+     * while both timelines are still locked. If {@code commit} throws, the reservation is undone.
+     *
+     * @throws SchedulingConflictException if either timeline has an overlapping slot; nothing is reserved
+     */
+    public void reserve(Appointment appointment, Runnable commit) {
+        Validator.requireNonNull(commit, "commit");
+        String id = appointment.getId();
+        LocalDateTime start = Validator.requireNonNull(appointment.getScheduledAt(), "scheduledAt");
+        LocalDateTime end = start.plus(slotDuration);
+        Timeline doctor = doctorTimeline(appointment);
+        Timeline patient = patientTimeline(appointment);
+        withBoth(doctor, patient, () -> {
+            String clash = doctor.conflict(start, end);
+            if (clash != null) {
+                throw new SchedulingConflictException("Doctor " + appointment.getDoctor().getId()
+                        + " is already booked at " + start + " (" + clash + ")", clash);
+            }
+            clash = patient.conflict(start, end);
+            if (clash != null) {
+                throw new SchedulingConflictException("Patient " + appointment.getPatient().getId()
+                        + " is already booked at " + start + " (" + clash + ")", clash);
+            }
+            doctor.add(start, id, end);
+            patient.add(start, id, end);
+            reservedStarts.put(id, start);
+            try {
+                commit.run();
+            } catch (RuntimeException | Error e) {
+                doctor.remove(start, id);
+                patient.remove(start, id);
+                reservedStarts.remove(id);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Frees the appointment's slot (if reserved) and runs {@code commit} under the same locks.
+     * If {@code commit} throws, the slot is reserved again.
+     */
+    public void release(Appointment appointment, Runnable commit) {
+        Validator.requireNonNull(commit, "commit");
+        String id = appointment.getId();
+        Timeline doctor = doctorTimeline(appointment);
+        Timeline patient = patientTimeline(appointment);
+        withBoth(doctor, patient, () -> {
+            LocalDateTime start = reservedStarts.remove(id);
+            if (start != null) {
+                doctor.remove(start, id);
+                patient.remove(start, id);
+            }
+            try {
+                commit.run();
+            } catch (RuntimeException | Error e) {
+                if (start != null) {
+                    LocalDateTime end = start.plus(slotDuration);
+                    doctor.add(start, id, end);
+                    patient.add(start, id, end);
+                    reservedStarts.put(id, start);
+                }
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Runs {@code action} while holding the appointment's doctor and patient timeline locks (the
+     * ones {@link #reserve} and {@link #release} take), e.g. to change its status without racing
+     * a cancellation.
+     */
+    public void withLocks(Appointment appointment, Runnable action) {
+        Validator.requireNonNull(action, "action");
+        withBoth(doctorTimeline(appointment), patientTimeline(appointment), action);
+    }
+
+    /**
+     * Indexes an appointment that is already stored, without a conflict check (e.g. when
+     * loading existing bookings).
+     */
+    public void load(Appointment appointment) {
+        if (appointment.getDoctor() == null || appointment.getPatient() == null
+                || appointment.getScheduledAt() == null) {
+            return;
+        }
+        LocalDateTime start = appointment.getScheduledAt();
+        LocalDateTime end = start.plus(slotDuration);
+        Timeline doctor = doctorTimeline(appointment);
+        Timeline patient = patientTimeline(appointment);
+        withBoth(doctor, patient, () -> {
+            doctor.add(start, appointment.getId(), end);
+            patient.add(start, appointment.getId(), end);
+            reservedStarts.put(appointment.getId(), start);
+        });
+    }
+
+    /**
+     * Id of a confirmed appointment of the doctor overlapping {@code [start, start + slotDuration)}, or {@code null}.
+     */
+    public String doctorConflict(String doctorId, LocalDateTime start) {
+        Timeline timeline = timelines.get(doctorKey(Validator.requireNonBlank(doctorId, "doctorId")));
+        if (timeline == null) return null;
+        timeline.lock.lock();
+        try {
+            return timeline.conflict(start, start.plus(slotDuration));
+        } finally {
+            timeline.lock.unlock();
+        }
+    }
+
+    private Timeline doctorTimeline(Appointment appointment) {
+        return timelines.computeIfAbsent(doctorKey(Validator.requireNonNull(appointment.getDoctor(), "doctor").getId()),
+                Timeline::new);
+    }
+
+    private Timeline patientTimeline(Appointment appointment) {
+        return timelines.computeIfAbsent(patientKey(Validator.requireNonNull(appointment.getPatient(), "patient").getId()),
+                Timeline::new);
+    }
+
+    private static String doctorKey(String doctorId) {
+        return "D:" + doctorId;
+    }
+
+    private static String patientKey(String patientId) {
+        return "P:" + patientId;
+    }
+
+    private static void withBoth(Timeline a, Timeline b, Runnable action) {
+        Timeline first = a.key.compareTo(b.key) <= 0 ? a : b;
+        Timeline second = first == a ? b : a;
+        first.lock.lock();
+        try {
+            second.lock.lock();
+            try {
+                action.run();
+            } finally {
+                second.lock.unlock();
+            }
+        } finally {
+            first.lock.unlock();
+        }
+    }
+
+    /**
+     * Slot key; the appointment id keeps keys unique if legacy data has two bookings at one time.
+     */
+    private record SlotKey(LocalDateTime start, String appointmentId) implements Comparable<SlotKey> {
+        @Override
+        public int compareTo(SlotKey o) {
+            int c = start.compareTo(o.start);
+            return c != 0 ? c : appointmentId.compareTo(o.appointmentId);
+        }
+    }
+
+    /**
+     * Reserved slots of one doctor or patient; guarded by {@link #lock}. A {@link ReentrantLock}
+     * rather than a monitor, so a virtual thread blocked in the caller's store write does not
+     * pin its carrier thread.
+     */
+    private static final class Timeline {
+        private final String key;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final TreeMap<SlotKey, LocalDateTime> slots = new TreeMap<>();
+
+        Timeline(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Latest slot starting before {@code end}; since slots do not overlap, it is the only
+         * candidate that can still be running at {@code start}.
+         */
+        String conflict(LocalDateTime start, LocalDateTime end) {
+            Map.Entry<SlotKey, LocalDateTime> latest = slots.lowerEntry(new SlotKey(end, ""));
+            return latest != null && latest.getValue().isAfter(start) ? latest.getKey().appointmentId() : null;
+        }
+
+        void add(LocalDateTime start, String appointmentId, LocalDateTime end) {
+            slots.put(new SlotKey(start, appointmentId), end);
+        }
+
+        void remove(LocalDateTime start, String appointmentId) {
+            slots.remove(new SlotKey(start, appointmentId));
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.airtribe.meditrack.scheduling;
+
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.entity.Specialization;
+import com.airtribe.meditrack.exception.SchedulingConflictException;
+import com.airtribe.meditrack.util.Validator;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Patients waiting for a slot, in one priority queue per doctor and one per specialization,
+ * each ordered by urgency (highest first), then request time, then arrival.
+ *
+ * <p>When a doctor's slot frees up, {@link #offer} compares only the heads of that doctor's
+ * queue and of the doctor's specialization queue, so picking the best waiting patient is
+ * O(log n) however many patients wait. The lock is held just for that pick; booking the slot
+ * happens outside it, and a patient who cannot take the slot (e.g. already booked at that
+ * time) is put back with their original place in line.</p>
+ */
+public class Waitlist {
+    /**
+     * Patients tried per freed slot before giving up on it.
+     */
+    static final int MAX_OFFER_ATTEMPTS = 8;
+
+    private static final Comparator<WaitlistEntry> ORDER = Comparator
+            .comparingInt(WaitlistEntry::getUrgency).reversed()
+            .thenComparing(WaitlistEntry::getRequestedAt)
+            .thenComparingLong(WaitlistEntry::getSequence);
+
+    private final Clock clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, PriorityQueue<WaitlistEntry>> byDoctor = new HashMap<>();
+    private final Map<Specialization, PriorityQueue<WaitlistEntry>> bySpecialization = new EnumMap<>(Specialization.class);
+    private long nextSequence;
+    private int size;
+
+    public Waitlist() {
+        this(Clock.systemUTC());
+    }
+
+    public Waitlist(Clock clock) {
+        this.clock = Validator.requireNonNull(clock, "clock");
+    }
+
+    /**
+     * Queues the patient for the next freed slot of this doctor.
+     */
+    public WaitlistEntry add(Patient patient, Doctor doctor, int urgency) {
+        Validator.requireNonNull(doctor, "doctor");
+        Validator.requireNonBlank(doctor.getId(), "doctorId");
+        return enqueue(patient, doctor, doctor.getSpecialization(), urgency);
+    }
+
+    /**
+     * Queues the patient for the next freed slot of any doctor with this specialization.
+     */
+    public WaitlistEntry add(Patient patient, Specialization specialization, int urgency) {
+        Validator.requireNonNull(specialization, "specialization");
+        return enqueue(patient, null, specialization, urgency);
+    }
+
+    /**
+     * Takes the entry off the waitlist and cancels its booking future. An entry that is being
+     * offered a slot at this very moment may still end up booked.
+     *
+     * @return {@code false} if it was already booked or withdrawn
+     */
+    public boolean remove(WaitlistEntry entry) {
+        Validator.requireNonNull(entry, "entry");
+        lock.lock();
+        try {
+            if (!entry.withdraw()) return false;
+            PriorityQueue<WaitlistEntry> queue = queueOf(entry, false);
+            if (queue != null && queue.remove(entry)) {
+                size--;
+                dropIfEmpty(entry, queue);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of patients waiting.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Offers a freed slot of {@code doctor} to the best waiting patient: whoever ranks higher
+     * of the doctor's own queue and the doctor's specialization queue. {@code book} books the
+     * slot for a patient; if it throws {@link SchedulingConflictException} the next patient is
+     * tried, up to {@link #MAX_OFFER_ATTEMPTS}, and skipped patients keep their place.
+     *
+     * @return the booked appointment, or empty if nobody waiting could take the slot
+     */
+    public Optional<Appointment> offer(Doctor doctor, Function<Patient, Appointment> book) {
+        Validator.requireNonNull(doctor, "doctor");
+        Validator.requireNonNull(book, "book");
+        List<WaitlistEntry> skipped = new ArrayList<>();
+        try {
+            for (int attempt = 0; attempt < MAX_OFFER_ATTEMPTS; attempt++) {
+                WaitlistEntry best = pollBest(doctor);
+                if (best == null) break;
+                try {
+                    Appointment appt = book.apply(best.getPatient());
+                    best.fulfil(appt);
+                    return Optional.of(appt);
+                } catch (SchedulingConflictException e) {
+                    skipped.add(best);
+                } catch (RuntimeException | Error e) {
+                    skipped.add(best);
+                    throw e;
+                }
+            }
+            return Optional.empty();
+        } finally {
+            requeue(skipped);
+        }
+    }
+
+    private WaitlistEntry enqueue(Patient patient, Doctor doctor, Specialization specialization, int urgency) {
+        Validator.requireNonNull(patient, "patient");
+        lock.lock();
+        try {
+            WaitlistEntry entry = new WaitlistEntry(nextSequence++, patient, doctor, specialization,
+                    urgency, Instant.now(clock));
+            queueOf(entry, true).add(entry);
+            size++;
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private WaitlistEntry pollBest(Doctor doctor) {
+        lock.lock();
+        try {
+            PriorityQueue<WaitlistEntry> own = byDoctor.get(doctor.getId());
+            PriorityQueue<WaitlistEntry> shared = doctor.getSpecialization() == null
+                    ? null : bySpecialization.get(doctor.getSpecialization());
+            WaitlistEntry a = own == null ? null : own.peek();
+            WaitlistEntry b = shared == null ? null : shared.peek();
+            if (a == null && b == null) return null;
+            PriorityQueue<WaitlistEntry> from = b == null || (a != null && ORDER.compare(a, b) <= 0) ? own : shared;
+            WaitlistEntry best = from.poll();
+            size--;
+            dropIfEmpty(best, from);
+            return best;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void requeue(List<WaitlistEntry> entries) {
+        if (entries.isEmpty()) return;
+        lock.lock();
+        try {
+            for (WaitlistEntry entry : entries) {
+                // Withdrawn while it was being offered the slot.
+                if (!entry.isWaiting()) continue;
+                queueOf(entry, true).add(entry);
+                size++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PriorityQueue<WaitlistEntry> queueOf(WaitlistEntry entry, boolean create) {
+        if (entry.getDoctor() != null) {
+            String doctorId = entry.getDoctor().getId();
+            return create ? byDoctor.computeIfAbsent(doctorId, k -> new PriorityQueue<>(ORDER)) : byDoctor.get(doctorId);
+        }
+        Specialization s = entry.getSpecialization();
+        return create ? bySpecialization.computeIfAbsent(s, k -> new PriorityQueue<>(ORDER)) : bySpecialization.get(s);
+    }
+
+    private void dropIfEmpty(WaitlistEntry entry, PriorityQueue<WaitlistEntry> queue) {
+        if (queue.isEmpty() && entry.getDoctor() != null) {
+            byDoctor.remove(entry.getDoctor().getId());
+        }
+    }
+}
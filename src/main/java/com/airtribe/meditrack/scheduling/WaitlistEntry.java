@@ -0,0 +1,92 @@
+package com.airtribe.meditrack.scheduling;
+
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.entity.Specialization;
+import com.airtribe.meditrack.util.Validator;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A patient waiting on a {@link Waitlist} for either one doctor or any doctor of a
+ * specialization. Higher {@code urgency} is served first, then earlier requests.
+ */
+public final class WaitlistEntry {
+    public static final int MIN_URGENCY = 1;
+    public static final int MAX_URGENCY = 5;
+
+    private final long sequence;
+    private final Patient patient;
+    private final Doctor doctor;
+    private final Specialization specialization;
+    private final int urgency;
+    private final Instant requestedAt;
+    private final CompletableFuture<Appointment> booking = new CompletableFuture<>();
+
+    WaitlistEntry(long sequence, Patient patient, Doctor doctor, Specialization specialization,
+                  int urgency, Instant requestedAt) {
+        this.sequence = sequence;
+        this.patient = Validator.requireNonNull(patient, "patient");
+        this.doctor = doctor;
+        this.specialization = specialization;
+        this.urgency = Validator.requireRangeInclusive(urgency, MIN_URGENCY, MAX_URGENCY, "urgency");
+        this.requestedAt = Validator.requireNonNull(requestedAt, "requestedAt");
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Patient getPatient() {
+        return patient;
+    }
+
+    /**
+     * The doctor asked for, or {@code null} when any doctor of {@link #getSpecialization()} will do.
+     */
+    public Doctor getDoctor() {
+        return doctor;
+    }
+
+    public Specialization getSpecialization() {
+        return specialization;
+    }
+
+    public int getUrgency() {
+        return urgency;
+    }
+
+    public Instant getRequestedAt() {
+        return requestedAt;
+    }
+
+    /**
+     * Completes with the appointment once a freed slot is booked for this patient, or
+     * fails with a {@link java.util.concurrent.CancellationException} when the entry is withdrawn.
+     * A copy, so callers cannot complete it themselves.
+     */
+    public CompletableFuture<Appointment> getBooking() {
+        return booking.copy();
+    }
+
+    public boolean isWaiting() {
+        return !booking.isDone();
+    }
+
+    boolean fulfil(Appointment appointment) {
+        return booking.complete(appointment);
+    }
+
+    boolean withdraw() {
+        return !booking.isDone() && booking.cancel(false);
+    }
+
+    @Override
+    public String toString() {
+        return "WaitlistEntry{" + sequence + ", patient=" + patient.getId()
+                + (doctor != null ? ", doctor=" + doctor.getId() : ", specialization=" + specialization)
+                + ", urgency=" + urgency + ", requestedAt=" + requestedAt + "}";
+    }
+}
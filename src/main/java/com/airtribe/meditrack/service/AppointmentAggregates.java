@@ -0,0 +1,104 @@
+package com.airtribe.meditrack.service;
+
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.AppointmentStatus;
+import com.airtribe.meditrack.util.Validator;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live appointment counts by status, by doctor and by day (each optionally per status),
+ * kept up to date by {@link AppointmentService} on every booking and status change.
+ *
+ * <p>Each counter is a {@link LongAdder} per status, so concurrent bookings for different
+ * doctors or days rarely touch the same cell, and a read sums a handful of cells: O(1)
+ * however many appointments exist. Counts are exact once writers are quiescent; while they
+ * run, a read may miss the latest changes. Writes that bypass the service (direct store
+ * writes) are not counted.</p>
+ */
+public final class AppointmentAggregates {
+    private static final AppointmentStatus[] STATUSES = AppointmentStatus.values();
+
+    private final LongAdder[] byStatus = newCounters();
+    private final ConcurrentMap<String, LongAdder[]> byDoctor = new ConcurrentHashMap<>();
+    private final ConcurrentMap<LocalDate, LongAdder[]> byDay = new ConcurrentHashMap<>();
+
+    AppointmentAggregates() {
+    }
+
+    /**
+     * Number of appointments in {@code status}.
+     */
+    public long count(AppointmentStatus status) {
+        return byStatus[Validator.requireNonNull(status, "status").ordinal()].sum();
+    }
+
+    /**
+     * Number of appointments in any status.
+     */
+    public long total() {
+        return sum(byStatus, null);
+    }
+
+    /**
+     * Number of the doctor's appointments, optionally in one status ({@code null} = any).
+     */
+    public long countByDoctor(String doctorId, AppointmentStatus status) {
+        return sum(byDoctor.get(Validator.requireNonBlank(doctorId, "doctorId")), status);
+    }
+
+    /**
+     * Number of appointments scheduled on {@code date}, optionally in one status ({@code null} = any).
+     */
+    public long countByDay(LocalDate date, AppointmentStatus status) {
+        return sum(byDay.get(Validator.requireNonNull(date, "date")), status);
+    }
+
+    /**
+     * Counts a newly stored appointment under its current status.
+     */
+    void add(Appointment appt) {
+        adjust(appt, appt.getStatus(), 1);
+    }
+
+    /**
+     * Moves an already counted appointment from one status to another.
+     */
+    void move(Appointment appt, AppointmentStatus from, AppointmentStatus to) {
+        if (from == to) return;
+        adjust(appt, from, -1);
+        adjust(appt, to, 1);
+    }
+
+    private void adjust(Appointment appt, AppointmentStatus status, int delta) {
+        int s = status.ordinal();
+        byStatus[s].add(delta);
+        if (appt.getDoctor() != null) {
+            byDoctor.computeIfAbsent(appt.getDoctor().getId(), k -> newCounters())[s].add(delta);
+        }
+        if (appt.getScheduledAt() != null) {
+            byDay.computeIfAbsent(appt.getScheduledAt().toLocalDate(), k -> newCounters())[s].add(delta);
+        }
+    }
+
+    private static long sum(LongAdder[] counters, AppointmentStatus status) {
+        if (counters == null) return 0;
+        if (status != null) return counters[status.ordinal()].sum();
+        long n = 0;
+        for (LongAdder c : counters) {
+            n += c.sum();
+        }
+        return n;
+    }
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[STATUSES.length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+}
@@ -1,40 +1,142 @@
 package com.airtribe.meditrack.service;
 
+import com.airtribe.meditrack.constants.Constants;
 import com.airtribe.meditrack.entity.Appointment;
 import com.airtribe.meditrack.entity.AppointmentStatus;
 import com.airtribe.meditrack.entity.Bill;
 import com.airtribe.meditrack.entity.Doctor;
 import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.entity.Specialization;
 import com.airtribe.meditrack.exception.AppointmentNotFoundException;
-import com.airtribe.meditrack.patterns.billing.BillFactory;
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.exception.PersistenceException;
+import com.airtribe.meditrack.exception.SchedulingConflictException;
 import com.airtribe.meditrack.patterns.billing.BillingStrategy;
 import com.airtribe.meditrack.patterns.billing.FlatTaxStrategy;
+import com.airtribe.meditrack.persistence.AppointmentStatusLog;
+import com.airtribe.meditrack.persistence.StatusEvent;
+import com.airtribe.meditrack.scheduling.AvailabilityCalendar;
+import com.airtribe.meditrack.scheduling.AvailableSlot;
+import com.airtribe.meditrack.scheduling.ScheduleIndex;
+import com.airtribe.meditrack.scheduling.Waitlist;
+import com.airtribe.meditrack.scheduling.WaitlistEntry;
+import com.airtribe.meditrack.util.ColumnarAppointmentStore;
 import com.airtribe.meditrack.util.DataStore;
+import com.airtribe.meditrack.util.Page;
 import com.airtribe.meditrack.util.Validator;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Appointment operations: create, view, cancel.
+ *
+ * <p>Bookings go through a {@link ScheduleIndex}: a doctor or patient cannot hold two
+ * overlapping confirmed appointments. Safe for concurrent create/cancel when the store is
+ * thread-safe (e.g. {@link com.airtribe.meditrack.util.ConcurrentDataStore}).</p>
+ *
+ * <p>Time-window queries ({@link #listBetween} and friends) use sorted store indexes on
+ * {@code scheduledAt}, alone and prefixed by doctor or status, so they cost O(log n) plus
+ * the number of matches and stream results in time order.</p>
+ *
+ * <p>An {@link AvailabilityCalendar} (working hours from {@link Constants#WORKDAY_START} to
+ * {@link Constants#WORKDAY_END}, one grid slot per booking slot) is updated with every
+ * booking and cancellation and answers free-slot queries.</p>
+ *
+ * <p>Status changes follow {@link AppointmentStatus#canTransitionTo}; with an
+ * {@link AppointmentStatusLog} each one is also recorded as an event once the store has taken
+ * it. The log can therefore only fall behind the store, never run ahead of it; it is
+ * reconciled with the store when the schedule is first loaded.</p>
+ *
+ * <p>Patients can join a {@link Waitlist} for a doctor or a specialization; a cancellation
+ * offers the freed (future) slot to the best of them straight away.</p>
+ *
+ * <p>Counts by status, doctor and day come from {@link AppointmentAggregates}, updated with
+ * every booking and status change instead of recounted from the store.</p>
  */
 public class AppointmentService {
+    public static final String DOCTOR_INDEX = "appointment.doctorId";
+    public static final String PATIENT_INDEX = "appointment.patientId";
+    public static final String TIME_INDEX = "appointment.scheduledAt";
+    public static final String DOCTOR_TIME_INDEX = "appointment.doctorId+scheduledAt";
+    public static final String STATUS_TIME_INDEX = "appointment.status+scheduledAt";
+
+    /**
+     * Strategies are stateless, so one instance serves every bill.
+     */
+    private static final BillingStrategy FLAT_TAX = new FlatTaxStrategy();
+
     private final DataStore<Appointment> store;
+    private final ScheduleIndex schedule;
+    private final AvailabilityCalendar calendar;
+    private final AppointmentStatusLog statusLog;
+    private final Waitlist waitlist = new Waitlist();
+    private final LongAdder backfillFailures = new LongAdder();
+    private final LongAdder statusLogFailures = new LongAdder();
+    private final AppointmentAggregates aggregates = new AppointmentAggregates();
+    private final BillRepository bills;
+    private final RevenueAnalytics revenue = new RevenueAnalytics();
+    private volatile Function<Patient, BillingStrategy> billingStrategy = patient -> FLAT_TAX;
+    private volatile boolean scheduleLoaded;
 
     public AppointmentService(DataStore<Appointment> store) {
+        this(store, Duration.ofMinutes(Constants.SLOT_DURATION_MINUTES));
+    }
+
+    public AppointmentService(DataStore<Appointment> store, Duration slotDuration) {
+        this(store, slotDuration, null);
+    }
+
+    /**
+     * @param statusLog event log for status transitions, or {@code null} to keep only the current status
+     */
+    public AppointmentService(DataStore<Appointment> store, Duration slotDuration, AppointmentStatusLog statusLog) {
+        this(store, slotDuration, statusLog, new BillRepository());
+    }
+
+    /**
+     * @param bills where generated bills are kept, e.g. backed by a durable store
+     */
+    public AppointmentService(DataStore<Appointment> store, Duration slotDuration, AppointmentStatusLog statusLog,
+                              BillRepository bills) {
         this.store = Validator.requireNonNull(store, "store");
+        this.bills = Validator.requireNonNull(bills, "bills");
+        this.statusLog = statusLog;
+        this.schedule = new ScheduleIndex(slotDuration);
+        this.calendar = new AvailabilityCalendar(Constants.WORKDAY_START, Constants.WORKDAY_END, slotDuration);
+        this.store.addIndex(DOCTOR_INDEX, a -> a.getDoctor() == null ? null : a.getDoctor().getId());
+        this.store.addIndex(PATIENT_INDEX, a -> a.getPatient() == null ? null : a.getPatient().getId());
+        this.store.addSortedIndex(TIME_INDEX, Appointment::getScheduledAt);
+        this.store.addSortedIndex(DOCTOR_TIME_INDEX, a -> a.getDoctor() == null || a.getScheduledAt() == null
+                ? null : new DoctorTime(a.getDoctor().getId(), a.getScheduledAt()));
+        this.store.addSortedIndex(STATUS_TIME_INDEX, a -> a.getStatus() == null || a.getScheduledAt() == null
+                ? null : new StatusTime(a.getStatus(), a.getScheduledAt()));
     }
 
+    /**
+     * Books a confirmed appointment.
+     *
+     * @throws SchedulingConflictException if the doctor or patient already has a confirmed
+     *                                     appointment overlapping this slot
+     */
     public Appointment create(Doctor doctor, Patient patient, LocalDateTime scheduledAt) {
         Validator.requireNonNull(doctor, "doctor");
         Validator.requireNonNull(patient, "patient");
         Validator.requireNonNull(scheduledAt, "scheduledAt");
 
         Appointment appt = new Appointment(doctor, patient, scheduledAt);
-        appt.setStatus(AppointmentStatus.CONFIRMED);
-        store.upsert(appt.getId(), appt);
+        schedule().reserve(appt, () -> {
+            transition(appt, AppointmentStatus.CONFIRMED, true);
+            occupy(appt);
+        });
         return appt;
     }
 
@@ -46,30 +148,396 @@ public class AppointmentService {
         return store.listAll();
     }
 
+    /**
+     * One page of appointments; pass the previous page's cursor ({@code null} for the first page).
+     */
+    public Page<Appointment> listPage(String cursor, int pageSize) {
+        return store.page(cursor, pageSize);
+    }
+
+    /**
+     * Read-only live view over all appointments, without copying.
+     */
+    public Collection<Appointment> view() {
+        return store.view();
+    }
+
     public List<Appointment> listByDoctorId(String doctorId) {
         String did = Validator.requireNonBlank(doctorId, "doctorId");
-        return store.stream()
-                .filter(a -> a.getDoctor() != null && did.equals(a.getDoctor().getId()))
-                .collect(Collectors.toList());
+        return store.findByIndex(DOCTOR_INDEX, did);
     }
 
     public List<Appointment> listByPatientId(String patientId) {
         String pid = Validator.requireNonBlank(patientId, "patientId");
-        return store.stream()
-                .filter(a -> a.getPatient() != null && pid.equals(a.getPatient().getId()))
-                .collect(Collectors.toList());
+        return store.findByIndex(PATIENT_INDEX, pid);
+    }
+
+    /**
+     * Appointments scheduled in {@code [from, to)}, in time order.
+     */
+    public Stream<Appointment> listBetween(LocalDateTime from, LocalDateTime to) {
+        requireWindow(from, to);
+        return store.rangeByIndex(TIME_INDEX, from, to);
+    }
+
+    /**
+     * A doctor's appointments scheduled in {@code [from, to)}, in time order.
+     */
+    public Stream<Appointment> listByDoctorBetween(String doctorId, LocalDateTime from, LocalDateTime to) {
+        String did = Validator.requireNonBlank(doctorId, "doctorId");
+        requireWindow(from, to);
+        return store.rangeByIndex(DOCTOR_TIME_INDEX, new DoctorTime(did, from), new DoctorTime(did, to));
+    }
+
+    /**
+     * Appointments in {@code status} scheduled in {@code [from, to)}, in time order.
+     */
+    public Stream<Appointment> listByStatusBetween(AppointmentStatus status, LocalDateTime from, LocalDateTime to) {
+        Validator.requireNonNull(status, "status");
+        requireWindow(from, to);
+        return store.rangeByIndex(STATUS_TIME_INDEX, new StatusTime(status, from), new StatusTime(status, to));
     }
 
+    /**
+     * Number of appointments in {@code status} ({@code null} = any) scheduled in {@code [from, to)}.
+     * A {@link ColumnarAppointmentStore} answers with one pass over its time and status columns,
+     * materializing nothing; other stores count the matches of the sorted time index.
+     */
+    public long countBetween(AppointmentStatus status, LocalDateTime from, LocalDateTime to) {
+        requireWindow(from, to);
+        if (store instanceof ColumnarAppointmentStore columns) {
+            return columns.countScheduledBetween(status, from, to);
+        }
+        if (status != null) {
+            return store.rangeByIndex(STATUS_TIME_INDEX, new StatusTime(status, from), new StatusTime(status, to)).count();
+        }
+        return store.rangeByIndex(TIME_INDEX, from, to).count();
+    }
+
+    /**
+     * Number of appointments in {@code status}, from the live aggregates.
+     */
+    public int countByStatus(AppointmentStatus status) {
+        return (int) getAggregates().count(status);
+    }
+
+    /**
+     * Number of appointments of a doctor, optionally in one status ({@code null} = any).
+     */
+    public int countByDoctorId(String doctorId, AppointmentStatus status) {
+        return (int) getAggregates().countByDoctor(doctorId, status);
+    }
+
+    /**
+     * Live counts by status, doctor and day; read-only.
+     */
+    public AppointmentAggregates getAggregates() {
+        schedule();
+        return aggregates;
+    }
+
+    /**
+     * Cancels the appointment and frees its slot; cancelling twice (even concurrently) is a
+     * no-op. If the slot is still in the future it is offered to the waitlist (see
+     * {@link #joinWaitlist}). The status is checked and changed under the doctor's and
+     * patient's timeline locks, which {@link #complete} takes too.
+     *
+     * @throws InvalidDataException if the appointment is already completed
+     */
     public Appointment cancel(String appointmentId) {
         String id = Validator.requireNonBlank(appointmentId, "appointmentId");
         Appointment appt = store.get(id)
                 .orElseThrow(() -> new AppointmentNotFoundException("Appointment not found: " + id));
-        appt.setStatus(AppointmentStatus.CANCELLED);
-        return appt;
+        if (appt.getStatus() == AppointmentStatus.CANCELLED) {
+            return appt;
+        }
+        if (!appt.getStatus().canTransitionTo(AppointmentStatus.CANCELLED)) {
+            throw new InvalidDataException("Cannot move appointment " + id + " from " + appt.getStatus()
+                    + " to " + AppointmentStatus.CANCELLED);
+        }
+        Appointment[] current = {appt};
+        boolean[] cancelled = new boolean[1];
+        schedule().release(appt, () -> {
+            // Re-read under the timeline locks: a concurrent cancel or complete may have won.
+            current[0] = store.get(id).orElse(appt);
+            if (current[0].getStatus() == AppointmentStatus.CANCELLED) return;
+            current[0] = transition(current[0], AppointmentStatus.CANCELLED, false);
+            refreshAvailability(current[0]);
+            cancelled[0] = true;
+        });
+        if (cancelled[0]) {
+            backfill(current[0]);
+        }
+        return current[0];
+    }
+
+    /**
+     * Puts the patient on the doctor's waitlist; the entry's booking future completes when a
+     * cancelled slot of that doctor is booked for them.
+     *
+     * @param urgency {@link WaitlistEntry#MIN_URGENCY} to {@link WaitlistEntry#MAX_URGENCY}, most urgent served first
+     */
+    public WaitlistEntry joinWaitlist(Patient patient, Doctor doctor, int urgency) {
+        return waitlist.add(patient, doctor, urgency);
+    }
+
+    /**
+     * Puts the patient on the waitlist for any doctor of the specialization.
+     */
+    public WaitlistEntry joinWaitlist(Patient patient, Specialization specialization, int urgency) {
+        return waitlist.add(patient, specialization, urgency);
+    }
+
+    /**
+     * @return {@code false} if the entry was already booked or withdrawn
+     */
+    public boolean leaveWaitlist(WaitlistEntry entry) {
+        return waitlist.remove(entry);
+    }
+
+    public Waitlist getWaitlist() {
+        return waitlist;
+    }
+
+    /**
+     * Cancelled slots whose waitlist booking failed with something other than a scheduling
+     * conflict; the patients concerned stay on the waitlist.
+     */
+    public long backfillFailures() {
+        return backfillFailures.sum();
+    }
+
+    /**
+     * Status changes that were stored but could not be written to the status log; the log
+     * catches up with the store when it is next reconciled.
+     */
+    public long statusLogFailures() {
+        return statusLogFailures.sum();
     }
 
     /**
-     * Basic billing hook (will be replaced/extended by Factory + Strategy in the next phase).
+     * Marks a confirmed appointment as completed; its slot stays taken.
+     *
+     * @throws InvalidDataException if the appointment is not confirmed
+     */
+    public Appointment complete(String appointmentId) {
+        String id = Validator.requireNonBlank(appointmentId, "appointmentId");
+        Appointment appt = store.get(id)
+                .orElseThrow(() -> new AppointmentNotFoundException("Appointment not found: " + id));
+        Appointment[] current = {appt};
+        // Same locks as cancel, so a concurrent cancel and complete cannot both pass the check.
+        schedule().withLocks(appt, () -> {
+            current[0] = store.get(id).orElse(appt);
+            current[0] = transition(current[0], AppointmentStatus.COMPLETED, false);
+        });
+        return current[0];
+    }
+
+    /**
+     * Recorded status transitions of the appointment, oldest first; empty without a status log.
+     */
+    public List<StatusEvent> statusHistory(String appointmentId) {
+        String id = Validator.requireNonBlank(appointmentId, "appointmentId");
+        if (statusLog == null) return List.of();
+        try {
+            return statusLog.history(id);
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to read status history of " + id, e);
+        }
+    }
+
+    /**
+     * Start times of the doctor's free slots on {@code date}, in time order.
+     */
+    public List<LocalDateTime> freeSlots(String doctorId, LocalDate date) {
+        schedule();
+        return calendar.freeSlots(doctorId, date);
+    }
+
+    /**
+     * Earliest free slot at or after {@code from} with any of {@code doctors} (e.g. all doctors of
+     * one specialization), looking {@code days} days ahead.
+     */
+    public Optional<AvailableSlot> earliestFreeSlot(Collection<Doctor> doctors, LocalDateTime from, int days) {
+        schedule();
+        return calendar.earliestFree(doctors, from, days);
+    }
+
+    /**
+     * Availability bitmaps kept in step with this service's bookings.
+     */
+    public AvailabilityCalendar getAvailability() {
+        schedule();
+        return calendar;
+    }
+
+    private static void requireWindow(LocalDateTime from, LocalDateTime to) {
+        Validator.requireNonNull(from, "from");
+        Validator.requireNonNull(to, "to");
+        if (to.isBefore(from)) {
+            throw new InvalidDataException("Window end " + to + " is before its start " + from);
+        }
+    }
+
+    /**
+     * Slot length used for double-booking checks.
+     */
+    public Duration getSlotDuration() {
+        return schedule.getSlotDuration();
+    }
+
+    /**
+     * Schedule index, loaded from the confirmed and completed appointments already in the store
+     * on first use so that opening a lazily hydrated store stays cheap. The same pass counts
+     * every stored appointment into the aggregates and reconciles the status log with it.
+     */
+    private ScheduleIndex schedule() {
+        if (!scheduleLoaded) {
+            synchronized (schedule) {
+                if (!scheduleLoaded) {
+                    for (Appointment a : store) {
+                        aggregates.add(a);
+                        if (statusLog != null) {
+                            logStatus(a.getId(), null, a.getStatus());
+                        }
+                        if (holdsSlot(a.getStatus())) {
+                            schedule.load(a);
+                            occupy(a);
+                        }
+                    }
+                    scheduleLoaded = true;
+                }
+            }
+        }
+        return schedule;
+    }
+
+    /**
+     * Validates the move, stores the new status, updates the aggregates ({@code isNew}: the
+     * appointment was not stored or counted before) and then records it in the status log (if any).
+     *
+     * <p>A stored appointment is never changed in place: the new status is written as a copy,
+     * so snapshots and change events taken earlier keep the old one.</p>
+     *
+     * @return the appointment as stored
+     */
+    private Appointment transition(Appointment appt, AppointmentStatus to, boolean isNew) {
+        AppointmentStatus from = appt.getStatus();
+        if (!from.canTransitionTo(to)) {
+            throw new InvalidDataException("Cannot move appointment " + appt.getId() + " from " + from + " to " + to);
+        }
+        Appointment next;
+        if (isNew) {
+            next = appt;
+            next.setStatus(to);
+        } else {
+            next = new Appointment(appt.getId(), appt.getCreatedAt(), appt.getDoctor(), appt.getPatient(),
+                    appt.getScheduledAt(), to);
+        }
+        try {
+            store.upsert(next.getId(), next);
+        } catch (RuntimeException e) {
+            if (isNew) next.setStatus(from);
+            throw e;
+        }
+        if (isNew) {
+            aggregates.add(next);
+        } else {
+            aggregates.move(next, from, to);
+        }
+        if (statusLog != null) {
+            logStatus(next.getId(), from, to);
+        }
+        return next;
+    }
+
+    /**
+     * Brings the status log to {@code to}: as a regular {@code from -> to} event when the log is
+     * at {@code from} (a {@code null} {@code from} only reconciles), otherwise as a
+     * reconciliation event. The store already holds {@code to}, so a log failure is counted
+     * (see {@link #statusLogFailures}) rather than thrown.
+     */
+    private void logStatus(String appointmentId, AppointmentStatus from, AppointmentStatus to) {
+        try {
+            if (from == null) {
+                statusLog.reconcile(appointmentId, to);
+            } else {
+                try {
+                    statusLog.append(appointmentId, from, to);
+                } catch (InvalidDataException behind) {
+                    statusLog.reconcile(appointmentId, to);
+                }
+            }
+        } catch (RuntimeException e) {
+            statusLogFailures.increment();
+        }
+    }
+
+    private static boolean holdsSlot(AppointmentStatus status) {
+        return status == AppointmentStatus.CONFIRMED || status == AppointmentStatus.COMPLETED;
+    }
+
+    private void occupy(Appointment appt) {
+        if (appt.getDoctor() != null && appt.getScheduledAt() != null) {
+            calendar.occupy(appt.getDoctor().getId(), appt.getScheduledAt(), schedule.getSlotDuration());
+        }
+    }
+
+    /**
+     * Rebuilds the days a released booking touched from the doctor's remaining confirmed
+     * bookings, which may share a grid slot with it.
+     */
+    private void refreshAvailability(Appointment appt) {
+        if (appt.getDoctor() == null || appt.getScheduledAt() == null) return;
+        String doctorId = appt.getDoctor().getId();
+        Duration slot = schedule.getSlotDuration();
+        LocalDateTime end = appt.getScheduledAt().plus(slot);
+        for (LocalDate date = appt.getScheduledAt().toLocalDate(); date.atStartOfDay().isBefore(end); date = date.plusDays(1)) {
+            LocalDateTime dayStart = date.atStartOfDay();
+            List<LocalDateTime> starts = store.rangeByIndex(DOCTOR_TIME_INDEX,
+                            new DoctorTime(doctorId, dayStart.minus(slot)), new DoctorTime(doctorId, dayStart.plusDays(1)))
+                    .filter(a -> holdsSlot(a.getStatus()))
+                    .map(Appointment::getScheduledAt)
+                    .toList();
+            calendar.rebuildDay(doctorId, date, starts, slot);
+        }
+    }
+
+    /**
+     * Offers a cancelled appointment's slot to the waitlist, unless it has already started. The
+     * cancellation is already committed, so a failed booking is counted (see
+     * {@link #backfillFailures}), not thrown.
+     */
+    private void backfill(Appointment cancelled) {
+        Doctor doctor = cancelled.getDoctor();
+        LocalDateTime at = cancelled.getScheduledAt();
+        if (doctor == null || at == null || !at.isAfter(LocalDateTime.now())) return;
+        try {
+            waitlist.offer(doctor, patient -> create(doctor, patient, at));
+        } catch (RuntimeException e) {
+            backfillFailures.increment();
+        }
+    }
+
+    private record DoctorTime(String doctorId, LocalDateTime at) implements Comparable<DoctorTime> {
+        @Override
+        public int compareTo(DoctorTime o) {
+            int c = doctorId.compareTo(o.doctorId);
+            return c != 0 ? c : at.compareTo(o.at);
+        }
+    }
+
+    private record StatusTime(AppointmentStatus status, LocalDateTime at) implements Comparable<StatusTime> {
+        @Override
+        public int compareTo(StatusTime o) {
+            int c = status.compareTo(o.status);
+            return c != 0 ? c : at.compareTo(o.at);
+        }
+    }
+
+    /**
+     * The appointment's bill. Idempotent: repeated calls return the same stored bill until the
+     * doctor's consultation fee or the patient's billing strategy changes (see {@link BillRepository}).
      */
     public Bill generateBill(String appointmentId) {
         String id = Validator.requireNonBlank(appointmentId, "appointmentId");
@@ -78,8 +546,59 @@ public class AppointmentService {
         if (appt.getDoctor() == null) {
             throw new IllegalStateException("Appointment has no doctor: " + id);
         }
-        BillingStrategy strategy = new FlatTaxStrategy();
-        return BillFactory.createBillWithStrategy(id, appt.getDoctor().getConsultationFee(), strategy);
+        Bill bill = bills.getOrCompute(id, appt.getDoctor().getConsultationFee(), billingStrategy.apply(appt.getPatient()));
+        revenue.refresh(appt, () -> bills.findByAppointmentId(id));
+        return bill;
+    }
+
+    /**
+     * Voids the appointment's bill, if any, and takes it out of the revenue figures.
+     *
+     * @return whether there was a bill
+     */
+    public boolean voidBill(String appointmentId) {
+        String id = Validator.requireNonBlank(appointmentId, "appointmentId");
+        Appointment appt = store.get(id)
+                .orElseThrow(() -> new AppointmentNotFoundException("Appointment not found: " + id));
+        boolean voided = bills.invalidate(id);
+        revenue.refresh(appt, () -> bills.findByAppointmentId(id));
+        return voided;
+    }
+
+    /**
+     * Revenue per doctor, specialization and period, updated by {@link #generateBill} and
+     * {@link #voidBill}. Bills that were stored but not generated through this service (e.g.
+     * loaded from disk) are counted after {@link #reconcileRevenue}.
+     */
+    public RevenueAnalytics getRevenue() {
+        return revenue;
+    }
+
+    /**
+     * Recounts revenue from scratch from the stored bills of all appointments, for reconciliation.
+     */
+    public RevenueAnalytics reconcileRevenue() {
+        revenue.clear();
+        for (Appointment appt : store.listAll()) {
+            if (appt.getDoctor() != null) {
+                revenue.refresh(appt, () -> bills.findByAppointmentId(appt.getId()));
+            }
+        }
+        revenue.rebuild();
+        return revenue;
+    }
+
+    /**
+     * Chooses the strategy {@link #generateBill} uses per patient (default: flat tax for
+     * everyone), e.g. {@code BillFactory.defaultPlan()::strategyFor}. Existing bills are
+     * recomputed on their next request if their patient's strategy changed.
+     */
+    public void setBillingStrategy(Function<Patient, BillingStrategy> billingStrategy) {
+        this.billingStrategy = Validator.requireNonNull(billingStrategy, "billingStrategy");
+    }
+
+    public BillRepository getBillRepository() {
+        return bills;
     }
 }
 
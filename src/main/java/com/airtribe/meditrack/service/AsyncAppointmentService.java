@@ -0,0 +1,118 @@
+package com.airtribe.meditrack.service;
+
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.Bill;
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.exception.AppointmentNotFoundException;
+import com.airtribe.meditrack.util.Validator;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous facade over {@link AppointmentService}: every call returns at once with a
+ * {@link CompletableFuture} and the work runs on a virtual thread.
+ *
+ * <p>Work is serialized per doctor through a mailbox: each doctor has a chain of futures and
+ * a new operation is appended to the tail, so operations on one doctor run one at a time in
+ * submission order while different doctors run in parallel. Nothing blocks while waiting its
+ * turn (the next operation is only scheduled once the previous one completes), and a doctor's
+ * mailbox is dropped as soon as it drains, so idle doctors cost nothing.</p>
+ *
+ * <p>The wrapped service should use a thread-safe store such as
+ * {@link com.airtribe.meditrack.util.ConcurrentDataStore}. Patient-side conflicts between
+ * different doctors are still caught by the service's own schedule index.</p>
+ */
+public class AsyncAppointmentService implements AutoCloseable {
+    private static final CompletableFuture<Void> IDLE = CompletableFuture.completedFuture(null);
+
+    private final AppointmentService delegate;
+    private final ExecutorService executor;
+    private final ConcurrentMap<String, CompletableFuture<Void>> mailboxes = new ConcurrentHashMap<>();
+
+    public AsyncAppointmentService(AppointmentService delegate) {
+        this.delegate = Validator.requireNonNull(delegate, "delegate");
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    public CompletableFuture<Appointment> create(Doctor doctor, Patient patient, LocalDateTime scheduledAt) {
+        Validator.requireNonNull(doctor, "doctor");
+        return submit(doctor.getId(), () -> delegate.create(doctor, patient, scheduledAt));
+    }
+
+    public CompletableFuture<Appointment> cancel(String appointmentId) {
+        return withDoctorOf(appointmentId, () -> delegate.cancel(appointmentId));
+    }
+
+    public CompletableFuture<Bill> generateBill(String appointmentId) {
+        return withDoctorOf(appointmentId, () -> delegate.generateBill(appointmentId));
+    }
+
+    /**
+     * The wrapped synchronous service, e.g. for queries.
+     */
+    public AppointmentService getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Number of doctors with queued or running work.
+     */
+    public int activeDoctors() {
+        return mailboxes.size();
+    }
+
+    /**
+     * Stops accepting work and waits for everything already submitted to finish.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private <R> CompletableFuture<R> withDoctorOf(String appointmentId, Supplier<R> operation) {
+        String id = Validator.requireNonBlank(appointmentId, "appointmentId");
+        Appointment appt = delegate.getById(id).orElse(null);
+        if (appt == null || appt.getDoctor() == null) {
+            return CompletableFuture.failedFuture(new AppointmentNotFoundException("Appointment not found: " + id));
+        }
+        return submit(appt.getDoctor().getId(), operation);
+    }
+
+    /**
+     * Appends {@code operation} to the doctor's mailbox.
+     */
+    private <R> CompletableFuture<R> submit(String doctorId, Supplier<R> operation) {
+        String key = Validator.requireNonBlank(doctorId, "doctorId");
+        CompletableFuture<R> result = new CompletableFuture<>();
+        Object[] tail = new Object[1];
+        mailboxes.compute(key, (k, previous) -> {
+            CompletableFuture<Void> next = (previous == null ? IDLE : previous).handleAsync((ignored, failure) -> {
+                try {
+                    result.complete(operation.get());
+                } catch (RuntimeException | Error e) {
+                    result.completeExceptionally(e);
+                }
+                return null;
+            }, executor);
+            tail[0] = next;
+            return next;
+        });
+        @SuppressWarnings("unchecked")
+        CompletableFuture<Void> next = (CompletableFuture<Void>) tail[0];
+        next.whenComplete((ignored, failure) -> {
+            mailboxes.remove(key, next);
+            if (failure != null) {
+                // Only when the executor rejected the task (e.g. after close()).
+                result.completeExceptionally(failure);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,218 @@
+package com.airtribe.meditrack.service;
+
+import com.airtribe.meditrack.constants.Constants;
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.AppointmentStatus;
+import com.airtribe.meditrack.entity.Bill;
+import com.airtribe.meditrack.entity.Money;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.patterns.billing.BillFactory;
+import com.airtribe.meditrack.patterns.billing.BillingStrategy;
+import com.airtribe.meditrack.patterns.billing.FlatTaxStrategy;
+import com.airtribe.meditrack.patterns.billing.SeniorDiscountThenTaxStrategy;
+import com.airtribe.meditrack.util.IdGenerator;
+import com.airtribe.meditrack.util.Validator;
+
+import java.io.Serial;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * End-of-day bill runs: bills many appointments at once on a {@link ForkJoinPool}.
+ *
+ * <p>Input is read in chunks of {@link #CHUNK_SIZE}; each chunk gets its bill ids from one
+ * {@link IdGenerator#nextIds} block, is split recursively across the pool (lookup, strategy
+ * choice and amount computation run in parallel) and is then handed to the caller's sink in
+ * input order on the calling thread. Only one chunk is held at a time, so a run over millions
+ * of appointments needs no more memory than a single chunk, and the sink need not be
+ * thread-safe.</p>
+ *
+ * <p>The {@link BillingStrategy} is chosen per patient; strategies are stateless and shared
+ * across the whole run. Amounts are computed in fixed point ({@link Money}) wherever the fee
+ * is a whole number of paise.</p>
+ */
+public class BatchBillingEngine {
+    /**
+     * Appointments held in memory at a time.
+     */
+    static final int CHUNK_SIZE = 8_192;
+    private static final int LEAF_SIZE = 256;
+    private static final int MAX_FAILED_SAMPLES = 20;
+
+    private final AppointmentService appointments;
+    private final ForkJoinPool pool;
+    private final Function<Patient, BillingStrategy> strategyFor;
+
+    /**
+     * Uses the common pool and {@link #seniorDiscount} at {@link Constants#SENIOR_AGE}.
+     */
+    public BatchBillingEngine(AppointmentService appointments) {
+        this(appointments, ForkJoinPool.commonPool(), seniorDiscount(Constants.SENIOR_AGE));
+    }
+
+    public BatchBillingEngine(AppointmentService appointments, ForkJoinPool pool,
+                              Function<Patient, BillingStrategy> strategyFor) {
+        this.appointments = Validator.requireNonNull(appointments, "appointments");
+        this.pool = Validator.requireNonNull(pool, "pool");
+        this.strategyFor = Validator.requireNonNull(strategyFor, "strategyFor");
+    }
+
+    /**
+     * {@link SeniorDiscountThenTaxStrategy} for patients aged {@code seniorAge} or more,
+     * {@link FlatTaxStrategy} otherwise.
+     */
+    public static Function<Patient, BillingStrategy> seniorDiscount(int seniorAge) {
+        BillingStrategy senior = new SeniorDiscountThenTaxStrategy();
+        BillingStrategy flat = new FlatTaxStrategy();
+        return patient -> patient != null && patient.getAge() >= seniorAge ? senior : flat;
+    }
+
+    /**
+     * Bills the given appointments, whatever their status; unknown ids and appointments
+     * without a doctor are counted as failed.
+     */
+    public BillingRunReport billAll(Iterable<String> appointmentIds, Consumer<? super Bill> sink) {
+        Validator.requireNonNull(appointmentIds, "appointmentIds");
+        Iterator<String> ids = appointmentIds.iterator();
+        return run(sink, chunk -> {
+            int n = 0;
+            while (n < chunk.length && ids.hasNext()) {
+                chunk[n++] = ids.next();
+            }
+            return n;
+        });
+    }
+
+    /**
+     * Bills every completed appointment scheduled in {@code [from, to)}, in time order.
+     */
+    public BillingRunReport billCompletedBetween(LocalDateTime from, LocalDateTime to, Consumer<? super Bill> sink) {
+        Iterator<Appointment> completed = appointments.listByStatusBetween(AppointmentStatus.COMPLETED, from, to)
+                .iterator();
+        return run(sink, chunk -> {
+            int n = 0;
+            while (n < chunk.length && completed.hasNext()) {
+                chunk[n++] = completed.next();
+            }
+            return n;
+        });
+    }
+
+    /**
+     * @param fill puts the next appointments (or appointment ids) into the chunk and returns how many
+     */
+    private BillingRunReport run(Consumer<? super Bill> sink, Function<Object[], Integer> fill) {
+        Validator.requireNonNull(sink, "sink");
+        long started = System.nanoTime();
+        Object[] input = new Object[CHUNK_SIZE];
+        Bill[] bills = new Bill[CHUNK_SIZE];
+        String[] errors = new String[CHUNK_SIZE];
+        long billed = 0;
+        long failed = 0;
+        long totalMinor = 0;
+        Map<String, Long> byStrategy = new HashMap<>();
+        List<String> failedSamples = new ArrayList<>();
+
+        int n;
+        while ((n = fill.apply(input)) > 0) {
+            String[] billIds = IdGenerator.getInstance().nextIds("BILL", n);
+            String[] strategies = new String[n];
+            pool.invoke(new BillChunk(input, billIds, bills, strategies, errors, 0, n));
+            for (int i = 0; i < n; i++) {
+                if (bills[i] != null) {
+                    billed++;
+                    totalMinor = Math.addExact(totalMinor, bills[i].totalDue().minorUnits());
+                    byStrategy.merge(strategies[i], 1L, Long::sum);
+                    sink.accept(bills[i]);
+                } else {
+                    failed++;
+                    if (failedSamples.size() < MAX_FAILED_SAMPLES) {
+                        failedSamples.add(errors[i]);
+                    }
+                }
+                input[i] = null;
+                bills[i] = null;
+                errors[i] = null;
+            }
+        }
+        return new BillingRunReport(billed, failed, Money.ofMinor(totalMinor).toBigDecimal(), byStrategy, failedSamples,
+                Duration.ofNanos(System.nanoTime() - started));
+    }
+
+    private static Bill bill(String billId, String appointmentId, BigDecimal fee, BillingStrategy strategy) {
+        Money base;
+        try {
+            base = Money.of(fee);
+        } catch (InvalidDataException e) {
+            // Sub-paise fee: keep the exact BigDecimal path.
+            return BillFactory.createBillWithStrategy(billId, appointmentId, fee, strategy);
+        }
+        return BillFactory.createBillWithStrategy(billId, appointmentId, base, strategy);
+    }
+
+    /**
+     * Bills {@code input[lo, hi)} into {@code bills}, splitting in halves down to {@link #LEAF_SIZE}.
+     */
+    private final class BillChunk extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        // Never serialized: tasks only live for one run on the pool.
+        private final transient Object[] input;
+        private final transient String[] billIds;
+        private final transient Bill[] bills;
+        private final transient String[] strategies;
+        private final transient String[] errors;
+        private final int lo;
+        private final int hi;
+
+        BillChunk(Object[] input, String[] billIds, Bill[] bills, String[] strategies, String[] errors, int lo, int hi) {
+            this.input = input;
+            this.billIds = billIds;
+            this.bills = bills;
+            this.strategies = strategies;
+            this.errors = errors;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > LEAF_SIZE) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new BillChunk(input, billIds, bills, strategies, errors, lo, mid),
+                        new BillChunk(input, billIds, bills, strategies, errors, mid, hi));
+                return;
+            }
+            for (int i = lo; i < hi; i++) {
+                Object item = input[i];
+                String appointmentId = item instanceof Appointment a ? a.getId() : (String) item;
+                try {
+                    Appointment appt = item instanceof Appointment a ? a : appointments.getById(appointmentId).orElse(null);
+                    if (appt == null) {
+                        errors[i] = appointmentId + ": not found";
+                    } else if (appt.getDoctor() == null) {
+                        errors[i] = appointmentId + ": no doctor";
+                    } else {
+                        BillingStrategy strategy = strategyFor.apply(appt.getPatient());
+                        bills[i] = bill(billIds[i], appointmentId, appt.getDoctor().getConsultationFee(), strategy);
+                        strategies[i] = strategy.name();
+                    }
+                } catch (RuntimeException e) {
+                    errors[i] = appointmentId + ": " + e.getMessage();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.airtribe.meditrack.service;
+
+import com.airtribe.meditrack.entity.Bill;
+import com.airtribe.meditrack.patterns.billing.BillFactory;
+import com.airtribe.meditrack.patterns.billing.BillingStrategy;
+import com.airtribe.meditrack.util.ConcurrentDataStore;
+import com.airtribe.meditrack.util.DataStore;
+import com.airtribe.meditrack.util.IdGenerator;
+import com.airtribe.meditrack.util.Validator;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * At most one bill per appointment, in a {@link DataStore} with a unique index on the
+ * appointment id, so that {@link #getOrCompute} is idempotent.
+ *
+ * <p>Next to each bill the repository remembers what it was computed from: the consultation
+ * fee and the strategy instance. A repeated request with the same inputs returns the stored
+ * bill after one map lookup. If the fee or the strategy changed, the bill is recomputed and
+ * replaces the old one under the same bill id. Bills found in the store without that record
+ * (e.g. loaded from disk) are recomputed once and kept if the amount still matches.</p>
+ *
+ * <p>Requests for one appointment are serialized; different appointments proceed in parallel.</p>
+ */
+public class BillRepository {
+    public static final String APPOINTMENT_INDEX = "bill.appointmentId";
+
+    private final DataStore<Bill> store;
+    private final ConcurrentMap<String, Computed> computed = new ConcurrentHashMap<>();
+    private final LongAdder computations = new LongAdder();
+
+    public BillRepository() {
+        this(new ConcurrentDataStore<>());
+    }
+
+    /**
+     * @param store bill store keyed by bill id, e.g. a durable one
+     */
+    public BillRepository(DataStore<Bill> store) {
+        this.store = Validator.requireNonNull(store, "store");
+        this.store.addUniqueIndex(APPOINTMENT_INDEX, Bill::getAppointmentId);
+    }
+
+    /**
+     * The appointment's bill for {@code fee} under {@code strategy}: the stored one if it was
+     * computed from the same inputs, otherwise a freshly computed one that replaces it.
+     */
+    public Bill getOrCompute(String appointmentId, BigDecimal fee, BillingStrategy strategy) {
+        String id = Validator.requireNonBlank(appointmentId, "appointmentId");
+        Validator.requireNonNegative(fee, "fee");
+        Validator.requireNonNull(strategy, "strategy");
+        return computed.compute(id, (k, known) -> {
+            if (known != null && known.matches(fee, strategy) && store.contains(known.bill.getId())) {
+                return known;
+            }
+            Bill stored = known != null ? store.get(known.bill.getId()).orElse(null)
+                    : store.findUniqueByIndex(APPOINTMENT_INDEX, k).orElse(null);
+            String billId = stored != null ? stored.getId() : IdGenerator.getInstance().nextId("BILL");
+            Bill bill = BillFactory.createBillWithStrategy(billId, k, fee, strategy);
+            computations.increment();
+            if (stored != null && known == null && stored.amountDue().compareTo(bill.amountDue()) == 0) {
+                // Loaded without a record of its inputs, but still correct.
+                return new Computed(stored, fee, strategy);
+            }
+            store.upsert(billId, bill);
+            return new Computed(bill, fee, strategy);
+        }).bill;
+    }
+
+    /**
+     * The appointment's current bill, if any; O(1).
+     */
+    public Optional<Bill> findByAppointmentId(String appointmentId) {
+        String id = Validator.requireNonBlank(appointmentId, "appointmentId");
+        Computed known = computed.get(id);
+        if (known != null) return Optional.of(known.bill);
+        return store.findUniqueByIndex(APPOINTMENT_INDEX, id);
+    }
+
+    /**
+     * Drops the appointment's bill, e.g. when the appointment is cancelled.
+     *
+     * @return whether there was one
+     */
+    public boolean invalidate(String appointmentId) {
+        String id = Validator.requireNonBlank(appointmentId, "appointmentId");
+        boolean[] removed = new boolean[1];
+        computed.compute(id, (k, known) -> {
+            Optional<Bill> bill = known != null ? Optional.of(known.bill) : store.findUniqueByIndex(APPOINTMENT_INDEX, k);
+            bill.ifPresent(b -> removed[0] = store.remove(b.getId()).isPresent());
+            return null;
+        });
+        return removed[0];
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * Bills computed so far (first computations and recomputations), for monitoring.
+     */
+    public long computations() {
+        return computations.sum();
+    }
+
+    /**
+     * A bill and the inputs it was computed from; the strategy is compared by identity, since
+     * strategies are configured instances rather than values.
+     */
+    private record Computed(Bill bill, BigDecimal fee, BillingStrategy strategy) {
+        boolean matches(BigDecimal fee, BillingStrategy strategy) {
+            return this.strategy == strategy && this.fee.compareTo(fee) == 0;
+        }
+    }
+}
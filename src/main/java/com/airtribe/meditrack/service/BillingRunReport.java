@@ -0,0 +1,75 @@
+package com.airtribe.meditrack.service;
+
+import com.airtribe.meditrack.util.Validator;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of one {@link BatchBillingEngine} run.
+ */
+public final class BillingRunReport {
+    private final long billed;
+    private final long failed;
+    private final BigDecimal totalAmount;
+    private final Map<String, Long> billsByStrategy;
+    private final List<String> failedSamples;
+    private final Duration elapsed;
+
+    BillingRunReport(long billed, long failed, BigDecimal totalAmount, Map<String, Long> billsByStrategy,
+                     List<String> failedSamples, Duration elapsed) {
+        this.billed = billed;
+        this.failed = failed;
+        this.totalAmount = Validator.requireNonNull(totalAmount, "totalAmount");
+        this.billsByStrategy = Map.copyOf(billsByStrategy);
+        this.failedSamples = List.copyOf(failedSamples);
+        this.elapsed = Validator.requireNonNull(elapsed, "elapsed");
+    }
+
+    public long getBilled() {
+        return billed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Sum of the amounts due of every bill produced.
+     */
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    /**
+     * Bills produced per {@link com.airtribe.meditrack.patterns.billing.BillingStrategy#name()}.
+     */
+    public Map<String, Long> getBillsByStrategy() {
+        return billsByStrategy;
+    }
+
+    /**
+     * The first few appointment ids that could not be billed, with the reason.
+     */
+    public List<String> getFailedSamples() {
+        return failedSamples;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public double billsPerSecond() {
+        long nanos = Math.max(1, elapsed.toNanos());
+        return billed * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Billed " + billed + " appointments (" + failed + " failed) for " + totalAmount
+                + " in " + elapsed.toMillis() + " ms, " + Math.round(billsPerSecond()) + " bills/s, by strategy "
+                + billsByStrategy;
+    }
+}
@@ -3,9 +3,11 @@ package com.airtribe.meditrack.service;
 import com.airtribe.meditrack.entity.Doctor;
 import com.airtribe.meditrack.entity.Specialization;
 import com.airtribe.meditrack.util.DataStore;
+import com.airtribe.meditrack.util.Page;
 import com.airtribe.meditrack.util.Validator;
 
 import java.util.Comparator;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -14,10 +16,13 @@ import java.util.stream.Collectors;
  * CRUD and search operations for doctors.
  */
 public class DoctorService {
+    public static final String SPECIALIZATION_INDEX = "doctor.specialization";
+
     private final DataStore<Doctor> store;
 
     public DoctorService(DataStore<Doctor> store) {
         this.store = Validator.requireNonNull(store, "store");
+        this.store.addIndex(SPECIALIZATION_INDEX, Doctor::getSpecialization);
     }
 
     public void add(Doctor doctor) {
@@ -33,15 +38,31 @@ public class DoctorService {
         return store.listAll();
     }
 
+    /**
+     * One page of doctors; pass the previous page's cursor ({@code null} for the first page).
+     */
+    public Page<Doctor> listPage(String cursor, int pageSize) {
+        return store.page(cursor, pageSize);
+    }
+
+    /**
+     * Read-only live view over all doctors, without copying.
+     */
+    public Collection<Doctor> view() {
+        return store.view();
+    }
+
+    public int count() {
+        return store.size();
+    }
+
     public Optional<Doctor> removeById(String id) {
         return store.remove(id);
     }
 
     public List<Doctor> findBySpecialization(Specialization specialization) {
         Validator.requireNonNull(specialization, "specialization");
-        return store.stream()
-                .filter(d -> d.getSpecialization() == specialization)
-                .collect(Collectors.toList());
+        return store.findByIndex(SPECIALIZATION_INDEX, specialization);
     }
 
     public List<Doctor> searchByNameContains(String query) {
@@ -2,8 +2,10 @@ package com.airtribe.meditrack.service;
 
 import com.airtribe.meditrack.entity.Patient;
 import com.airtribe.meditrack.util.DataStore;
+import com.airtribe.meditrack.util.Page;
 import com.airtribe.meditrack.util.Validator;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -14,10 +16,13 @@ import java.util.stream.Collectors;
  * <p>Demonstrates overloading via {@code searchPatient(...)} methods.</p>
  */
 public class PatientService {
+    public static final String AGE_INDEX = "patient.age";
+
     private final DataStore<Patient> store;
 
     public PatientService(DataStore<Patient> store) {
         this.store = Validator.requireNonNull(store, "store");
+        this.store.addIndex(AGE_INDEX, Patient::getAge);
     }
 
     public void add(Patient patient) {
@@ -33,6 +38,20 @@ public class PatientService {
         return store.listAll();
     }
 
+    /**
+     * One page of patients; pass the previous page's cursor ({@code null} for the first page).
+     */
+    public Page<Patient> listPage(String cursor, int pageSize) {
+        return store.page(cursor, pageSize);
+    }
+
+    /**
+     * Read-only live view over all patients, without copying.
+     */
+    public Collection<Patient> view() {
+        return store.view();
+    }
+
     public Optional<Patient> removeById(String id) {
         return store.remove(id);
     }
@@ -60,9 +79,7 @@ public class PatientService {
 
     public List<Patient> searchPatient(int age) {
         Validator.requireRangeInclusive(age, 0, 130, "age");
-        return store.stream()
-                .filter(p -> p.getAge() == age)
-                .collect(Collectors.toList());
+        return store.findByIndex(AGE_INDEX, age);
     }
 }
 
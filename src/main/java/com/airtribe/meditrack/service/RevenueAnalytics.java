@@ -0,0 +1,287 @@
+package com.airtribe.meditrack.service;
+
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.Bill;
+import com.airtribe.meditrack.entity.Money;
+import com.airtribe.meditrack.entity.Specialization;
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.util.Validator;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Revenue totals per day, overall and per doctor and specialization, kept up to date as bills
+ * are generated, repriced or voided.
+ *
+ * <p>Each series is a Fenwick tree (binary indexed tree) over days, so adding a bill and
+ * summing any date range are both O(log n) in the number of days covered; weekly and monthly
+ * figures are just ranges. A ledger of the bill amount counted per appointment makes updates
+ * idempotent (a repriced bill moves only the difference) and lets {@link #rebuild} recompute
+ * every tree exactly, in linear time, for reconciliation. Revenue is a bill's total due, dated
+ * by the appointment's scheduled day.</p>
+ *
+ * <p>Writers are serialized by a lock and readers share it; queries never see a half-applied bill.</p>
+ */
+public final class RevenueAnalytics {
+    private static final String ALL = "*";
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Line> ledger = new HashMap<>();
+    private final Map<String, DaySeries> series = new HashMap<>();
+
+    RevenueAnalytics() {
+    }
+
+    /**
+     * Revenue of bills for appointments on {@code [from, to]} (both inclusive).
+     */
+    public Money total(LocalDate from, LocalDate to) {
+        return sum(ALL, from, to);
+    }
+
+    public Money doctorTotal(String doctorId, LocalDate from, LocalDate to) {
+        return sum(doctorKey(Validator.requireNonBlank(doctorId, "doctorId")), from, to);
+    }
+
+    public Money specializationTotal(Specialization specialization, LocalDate from, LocalDate to) {
+        return sum(specializationKey(Validator.requireNonNull(specialization, "specialization")), from, to);
+    }
+
+    /**
+     * Overall revenue per period ({@link ChronoUnit#DAYS}, {@link ChronoUnit#WEEKS} starting on
+     * Monday, or {@link ChronoUnit#MONTHS}) for the periods overlapping {@code [from, to]},
+     * keyed by the first day of each period.
+     */
+    public SortedMap<LocalDate, Money> periodTotals(ChronoUnit period, LocalDate from, LocalDate to) {
+        requireRange(from, to);
+        LocalDate start = switch (Validator.requireNonNull(period, "period")) {
+            case DAYS -> from;
+            case WEEKS -> from.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTHS -> from.withDayOfMonth(1);
+            default -> throw new InvalidDataException("Unsupported period: " + period);
+        };
+        SortedMap<LocalDate, Money> out = new TreeMap<>();
+        for (LocalDate p = start; !p.isAfter(to); p = p.plus(1, period)) {
+            out.put(p, total(p, p.plus(1, period).minusDays(1)));
+        }
+        return out;
+    }
+
+    /**
+     * Number of appointments whose bill is counted.
+     */
+    public int billsCounted() {
+        lock.readLock().lock();
+        try {
+            return ledger.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Recomputes every series from the ledger from scratch (exact; O(days + bills)).
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            series.clear();
+            Map<String, Map<Long, Long>> daily = new HashMap<>();
+            for (Line line : ledger.values()) {
+                for (String key : line.keys()) {
+                    daily.computeIfAbsent(key, k -> new HashMap<>()).merge(line.epochDay, line.amount, Long::sum);
+                }
+            }
+            daily.forEach((key, days) -> series.put(key, DaySeries.of(days)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the appointment's current bill, replacing whatever was counted for it before, or
+     * stops counting it if it has none (it was voided). The bill is read under the lock, so
+     * concurrent refreshes of one appointment always leave its latest bill counted.
+     */
+    void refresh(Appointment appt, Supplier<Optional<Bill>> currentBill) {
+        lock.writeLock().lock();
+        try {
+            Optional<Bill> bill = currentBill.get();
+            Line line = bill.map(b -> new Line(appt.getDoctor().getId(), appt.getDoctor().getSpecialization(),
+                    appt.getScheduledAt().toLocalDate().toEpochDay(), b.totalDue().minorUnits())).orElse(null);
+            Line old = line != null ? ledger.put(appt.getId(), line) : ledger.remove(appt.getId());
+            if (Objects.equals(line, old)) return;
+            if (old != null) {
+                apply(old, -1);
+            }
+            if (line != null) {
+                apply(line, 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forgets everything, before recounting from the bills themselves.
+     */
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            ledger.clear();
+            series.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Line line, int sign) {
+        for (String key : line.keys()) {
+            series.computeIfAbsent(key, k -> new DaySeries(line.epochDay - DaySeries.INITIAL_DAYS / 2, DaySeries.INITIAL_DAYS)).add(line.epochDay, sign * line.amount);
+        }
+    }
+
+    private Money sum(String key, LocalDate from, LocalDate to) {
+        requireRange(from, to);
+        lock.readLock().lock();
+        try {
+            DaySeries s = series.get(key);
+            return s == null ? Money.ZERO : Money.ofMinor(s.sum(from.toEpochDay(), to.toEpochDay()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void requireRange(LocalDate from, LocalDate to) {
+        Validator.requireNonNull(from, "from");
+        Validator.requireNonNull(to, "to");
+        if (to.isBefore(from)) {
+            throw new InvalidDataException("Range end " + to + " is before its start " + from);
+        }
+    }
+
+    private static String doctorKey(String doctorId) {
+        return "D:" + doctorId;
+    }
+
+    private static String specializationKey(Specialization specialization) {
+        return "S:" + specialization.name();
+    }
+
+    /**
+     * What was counted for one appointment.
+     */
+    private record Line(String doctorId, Specialization specialization, long epochDay, long amount) {
+        String[] keys() {
+            if (specialization == null) {
+                return new String[]{ALL, doctorKey(doctorId)};
+            }
+            return new String[]{ALL, doctorKey(doctorId), specializationKey(specialization)};
+        }
+    }
+
+    /**
+     * Fenwick tree of daily amounts over {@code [firstDay, firstDay + capacity)}; grows (by
+     * doubling, towards whichever side is needed) when a day outside that window is added.
+     */
+    private static final class DaySeries {
+        private static final int INITIAL_DAYS = 64;
+
+        private long firstDay;
+        private long[] daily;
+        private long[] tree;
+
+        DaySeries(long firstDay, int capacity) {
+            this.firstDay = firstDay;
+            this.daily = new long[capacity];
+            this.tree = new long[capacity + 1];
+        }
+
+        static DaySeries of(Map<Long, Long> days) {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (long d : days.keySet()) {
+                min = Math.min(min, d);
+                max = Math.max(max, d);
+            }
+            DaySeries s = new DaySeries(min, Math.max(INITIAL_DAYS, Integer.highestOneBit((int) (max - min + 1)) << 1));
+            long first = min;
+            days.forEach((d, amount) -> s.daily[(int) (d - first)] += amount);
+            s.build();
+            return s;
+        }
+
+        void add(long day, long amount) {
+            if (day < firstDay || day >= firstDay + daily.length) {
+                grow(day);
+            }
+            int i = (int) (day - firstDay);
+            daily[i] += amount;
+            for (int j = i + 1; j < tree.length; j += j & -j) {
+                tree[j] += amount;
+            }
+        }
+
+        /**
+         * Sum over days {@code [from, to]}.
+         */
+        long sum(long from, long to) {
+            return prefix(to) - prefix(from - 1);
+        }
+
+        /**
+         * Sum over all days up to and including {@code day}.
+         */
+        private long prefix(long day) {
+            long i = Math.min(day - firstDay + 1, daily.length);
+            long total = 0;
+            for (int j = (int) Math.max(0, i); j > 0; j -= j & -j) {
+                total += tree[j];
+            }
+            return total;
+        }
+
+        private void grow(long day) {
+            long lo = Math.min(firstDay, day);
+            long hi = Math.max(firstDay + daily.length, day + 1);
+            int size = daily.length;
+            while (size < hi - lo) {
+                size <<= 1;
+            }
+            if (size == daily.length) {
+                size <<= 1;
+            }
+            long newFirst = day < firstDay ? hi - size : lo;
+            long[] next = new long[size];
+            System.arraycopy(daily, 0, next, (int) (firstDay - newFirst), daily.length);
+            firstDay = newFirst;
+            daily = next;
+            build();
+        }
+
+        /**
+         * Linear-time Fenwick construction from {@link #daily}.
+         */
+        private void build() {
+            tree = new long[daily.length + 1];
+            for (int i = 1; i <= daily.length; i++) {
+                tree[i] += daily[i - 1];
+                int parent = i + (i & -i);
+                if (parent <= daily.length) {
+                    tree[parent] += tree[i];
+                }
+            }
+        }
+    }
+}
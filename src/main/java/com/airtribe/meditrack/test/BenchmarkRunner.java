@@ -0,0 +1,492 @@
+package com.airtribe.meditrack.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.LockSupport;
+
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.AppointmentStatus;
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Money;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.entity.PatientProfile;
+import com.airtribe.meditrack.entity.Specialization;
+import com.airtribe.meditrack.patterns.billing.BillFactory;
+import com.airtribe.meditrack.patterns.billing.BillingPlan;
+import com.airtribe.meditrack.patterns.billing.BillingStrategy;
+import com.airtribe.meditrack.patterns.billing.FlatTaxStrategy;
+import com.airtribe.meditrack.patterns.billing.SeniorDiscountThenTaxStrategy;
+import com.airtribe.meditrack.persistence.DurableDataStore;
+import com.airtribe.meditrack.persistence.EntityCodecs;
+import com.airtribe.meditrack.persistence.TieredDataStore;
+import com.airtribe.meditrack.persistence.WalOptions;
+import com.airtribe.meditrack.scheduling.Waitlist;
+import com.airtribe.meditrack.service.AppointmentService;
+import com.airtribe.meditrack.service.AsyncAppointmentService;
+import com.airtribe.meditrack.service.BatchBillingEngine;
+import com.airtribe.meditrack.service.BillingRunReport;
+import com.airtribe.meditrack.util.ConcurrentDataStore;
+import com.airtribe.meditrack.util.AIHelper;
+import com.airtribe.meditrack.util.ColumnarAppointmentStore;
+import com.airtribe.meditrack.util.DataStore;
+import com.airtribe.meditrack.util.SymptomMatcher;
+import com.airtribe.meditrack.util.TriageRule;
+import com.airtribe.meditrack.util.TriageRules;
+import com.airtribe.meditrack.util.TriageStats;
+
+/**
+ * Manual benchmark runner (no JMH); complements {@link TestRunner}.
+ *
+ * <p>Dataset size defaults to 200k and can be changed with {@code -Dmeditrack.bench.size=N}.
+ * Numbers are single-shot wall-clock timings, good for spotting order-of-magnitude changes.</p>
+ */
+public class BenchmarkRunner {
+    private static final int SIZE = Integer.getInteger("meditrack.bench.size", 200_000);
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Benchmark size: " + SIZE);
+        benchColdStartTimeToFirstQuery();
+        benchTieredHeapFootprint();
+        benchAsyncBookingScaling();
+        benchWaitlistOffer();
+        benchBatchBilling();
+        benchMoneyVersusBigDecimal();
+        benchRevenueRangeQueries();
+        benchSymptomMatcher();
+        benchTriageExperiment();
+        benchColumnarWindowCount();
+    }
+
+    /**
+     * Time from {@code open} to the first successful {@code get}: replaying the whole log
+     * (every entity constructed and validated) versus mapping a snapshot and hydrating one entry.
+     */
+    private static void benchColdStartTimeToFirstQuery() throws IOException {
+        WalOptions options = new WalOptions(4096, 0, 0);
+        Path replayDir = Files.createTempDirectory("meditrack-bench-replay");
+        Path snapshotDir = Files.createTempDirectory("meditrack-bench-snapshot");
+
+        String probeId = null;
+        try (DurableDataStore<Patient> logOnly = DurableDataStore.open(replayDir, "patients", EntityCodecs.PATIENT, options);
+             DurableDataStore<Patient> snapshotted = DurableDataStore.open(snapshotDir, "patients", EntityCodecs.PATIENT, options)) {
+            for (int i = 0; i < SIZE; i++) {
+                Patient p = new Patient("Patient " + i, 20 + i % 60, "9" + i, new PatientProfile("Street " + i));
+                logOnly.upsert(p.getId(), p);
+                snapshotted.upsert(p.getId(), p);
+                if (i == SIZE / 2) probeId = p.getId();
+            }
+            snapshotted.checkpoint();
+        }
+
+        long replayNanos = timeToFirstQuery(replayDir, probeId);
+        long snapshotNanos = timeToFirstQuery(snapshotDir, probeId);
+        System.out.printf("Cold start, time to first query: full log replay %.1f ms, mapped snapshot %.1f ms (%.0fx)%n",
+                replayNanos / 1e6, snapshotNanos / 1e6, (double) replayNanos / snapshotNanos);
+    }
+
+    /**
+     * Retained heap after loading every patient into a plain store versus a tiered store
+     * with a 10k hot tier; the tiered store also reports its hit rate on a skewed read mix.
+     */
+    private static void benchTieredHeapFootprint() throws IOException {
+        int hotCapacity = Math.min(10_000, SIZE);
+        long baseline = usedHeap();
+        DataStore<Patient> plain = new DataStore<>();
+        fillPatients(plain);
+        long plainBytes = usedHeap() - baseline;
+        System.out.println("Plain store holds " + plain.size() + " patients");
+        plain = null;
+
+        Path dir = Files.createTempDirectory("meditrack-bench-tiered");
+        baseline = usedHeap();
+        try (TieredDataStore<Patient> tiered = TieredDataStore.open(dir, "patients", EntityCodecs.PATIENT,
+                hotCapacity, TieredDataStore.EvictionPolicy.W_TINY_LFU)) {
+            List<String> ids = fillPatients(tiered);
+            long tieredBytes = usedHeap() - baseline;
+            // 90% of reads go to 1% of the patients.
+            java.util.Random random = new java.util.Random(42);
+            int hotIds = Math.max(1, ids.size() / 100);
+            for (int i = 0; i < SIZE; i++) {
+                int index = random.nextInt(10) < 9 ? random.nextInt(hotIds) : random.nextInt(ids.size());
+                tiered.get(ids.get(index));
+            }
+            System.out.printf("Heap retained for %d patients: plain %.1f MB, tiered (hot=%d) %.1f MB; %s%n",
+                    SIZE, plainBytes / 1e6, hotCapacity, tieredBytes / 1e6, tiered.stats());
+        }
+    }
+
+    /**
+     * Throughput of {@link AsyncAppointmentService} as the number of doctors grows. Each store
+     * write waits 1 ms (standing in for a remote or durable write), so one doctor is capped at
+     * about 1000 bookings/s by its mailbox, and throughput should grow linearly with doctors.
+     */
+    private static void benchAsyncBookingScaling() throws Exception {
+        int perDoctor = 200;
+        for (int doctorCount = 1; doctorCount <= 64; doctorCount *= 4) {
+            DataStore<Appointment> slowStore = new ConcurrentDataStore<>() {
+                @Override
+                protected Appointment putValue(String key, Appointment value) {
+                    LockSupport.parkNanos(1_000_000);
+                    return super.putValue(key, value);
+                }
+            };
+            List<CompletableFuture<Appointment>> futures = new ArrayList<>(doctorCount * perDoctor);
+            LocalDateTime start = LocalDateTime.of(2031, 1, 1, 8, 0);
+            long t0 = System.nanoTime();
+            try (AsyncAppointmentService async = new AsyncAppointmentService(new AppointmentService(slowStore))) {
+                for (int d = 0; d < doctorCount; d++) {
+                    Doctor doctor = new Doctor("Doctor " + d, 40, "8" + d, Specialization.ENT, new BigDecimal("500"));
+                    for (int i = 0; i < perDoctor; i++) {
+                        Patient p = new Patient("Patient " + i, 30, "9" + i, new PatientProfile("Street"));
+                        futures.add(async.create(doctor, p, start.plusMinutes(30L * i)));
+                    }
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            }
+            double seconds = (System.nanoTime() - t0) / 1e9;
+            System.out.printf("Async booking, %2d doctors: %d bookings in %.2f s, %.0f bookings/s%n",
+                    doctorCount, futures.size(), seconds, futures.size() / seconds);
+        }
+    }
+
+    /**
+     * Cost of handing a freed slot to the best waiting patient with 50k patients waiting,
+     * spread over 500 doctors and all specializations; booking itself is stubbed out.
+     */
+    private static void benchWaitlistOffer() {
+        int waiting = 50_000;
+        Doctor[] doctors = new Doctor[500];
+        Specialization[] specs = Specialization.values();
+        for (int i = 0; i < doctors.length; i++) {
+            doctors[i] = new Doctor("Doctor " + i, 40, "8" + i, specs[i % specs.length], new BigDecimal("500"));
+        }
+        Waitlist waitlist = new Waitlist();
+        for (int i = 0; i < waiting; i++) {
+            Patient p = new Patient("Patient " + i, 30, "9" + i, new PatientProfile("Street"));
+            int urgency = 1 + i % 5;
+            if (i % 2 == 0) {
+                waitlist.add(p, doctors[i % doctors.length], urgency);
+            } else {
+                waitlist.add(p, specs[i % specs.length], urgency);
+            }
+        }
+        LocalDateTime slot = LocalDateTime.of(2031, 1, 1, 8, 0);
+        int offers = waiting / 2;
+        int booked = 0;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < offers; i++) {
+            Doctor doctor = doctors[i % doctors.length];
+            if (waitlist.offer(doctor, p -> new Appointment(doctor, p, slot)).isPresent()) {
+                booked++;
+            }
+        }
+        long elapsed = System.nanoTime() - t0;
+        System.out.printf("Waitlist offer with %d waiting: %d slots, %d booked, %.2f us/offer%n",
+                waiting, offers, booked, elapsed / 1e3 / offers);
+    }
+
+    /**
+     * Nightly bill run over SIZE completed appointments: one worker versus the common pool.
+     * The sink only counts, so the run's memory stays at one chunk.
+     */
+    private static void benchBatchBilling() {
+        DataStore<Appointment> store = new ConcurrentDataStore<>();
+        Doctor doctor = new Doctor("Doctor", 40, "8", Specialization.ENT, new BigDecimal("750"));
+        LocalDateTime start = LocalDateTime.of(2031, 1, 1, 8, 0);
+        for (int i = 0; i < SIZE; i++) {
+            Patient p = new Patient("Patient " + i, 20 + i % 60, "9" + i, new PatientProfile("Street"));
+            Appointment a = new Appointment("APT-B" + i, doctor, p, start.plusMinutes(i), AppointmentStatus.COMPLETED);
+            store.upsert(a.getId(), a);
+        }
+        AppointmentService service = new AppointmentService(store);
+        long[] sunk = new long[1];
+        try (ForkJoinPool single = new ForkJoinPool(1)) {
+            for (ForkJoinPool pool : new ForkJoinPool[]{single, ForkJoinPool.commonPool()}) {
+                BatchBillingEngine engine = new BatchBillingEngine(service, pool, BatchBillingEngine.seniorDiscount(60));
+                BillingRunReport report = null;
+                for (int round = 0; round < 3; round++) {
+                    report = engine.billCompletedBetween(start, start.plusYears(10), b -> sunk[0]++);
+                }
+                System.out.printf("Batch billing, parallelism %d: %s%n", pool.getParallelism(), report);
+            }
+            BillingPlan plan = BillFactory.defaultPlan();
+            BatchBillingEngine memoized = new BatchBillingEngine(service, single, plan::strategyFor);
+            BillingRunReport report = null;
+            for (int round = 0; round < 3; round++) {
+                report = memoized.billCompletedBetween(start, start.plusYears(10), b -> sunk[0]++);
+            }
+            System.out.printf("Batch billing, memoized plan v%d, parallelism 1: %s (cache hits %d, misses %d)%n",
+                    plan.getVersion(), report, plan.cacheHits(), plan.cacheMisses());
+        }
+    }
+
+    /**
+     * Strategy totals over SIZE amounts, {@code BigDecimal} versus {@link Money}; every pair of
+     * results is compared (value and scale) and any mismatch fails the run.
+     */
+    private static void benchMoneyVersusBigDecimal() {
+        long[] paise = new long[SIZE];
+        BigDecimal[] amounts = new BigDecimal[SIZE];
+        java.util.Random random = new java.util.Random(42);
+        for (int i = 0; i < SIZE; i++) {
+            paise[i] = random.nextLong(100_000_000L);
+            amounts[i] = BigDecimal.valueOf(paise[i], 2);
+        }
+        for (BillingStrategy strategy : new BillingStrategy[]{new FlatTaxStrategy(), new SeniorDiscountThenTaxStrategy()}) {
+            long bigDecimal = Long.MAX_VALUE;
+            long money = Long.MAX_VALUE;
+            BigDecimal[] expected = new BigDecimal[SIZE];
+            long[] actual = new long[SIZE];
+            for (int round = 0; round < 5; round++) {
+                long t0 = System.nanoTime();
+                for (int i = 0; i < SIZE; i++) {
+                    expected[i] = strategy.computeTotal(amounts[i]);
+                }
+                bigDecimal = Math.min(bigDecimal, System.nanoTime() - t0);
+                t0 = System.nanoTime();
+                for (int i = 0; i < SIZE; i++) {
+                    actual[i] = strategy.computeTotal(Money.ofMinor(paise[i])).minorUnits();
+                }
+                money = Math.min(money, System.nanoTime() - t0);
+            }
+            for (int i = 0; i < SIZE; i++) {
+                if (!expected[i].equals(BigDecimal.valueOf(actual[i], 2))) {
+                    throw new AssertionError(strategy.name() + " differs on " + amounts[i]);
+                }
+            }
+            System.out.printf("%s on %d amounts: BigDecimal %.1f ms, Money %.1f ms (%.1fx), all totals identical%n",
+                    strategy.name(), SIZE, bigDecimal / 1e6, money / 1e6, (double) bigDecimal / money);
+        }
+    }
+
+    /**
+     * Monthly revenue per doctor over SIZE billed appointments spread across three years:
+     * summing every bill (what reporting did before) versus range queries on the analytics.
+     */
+    private static void benchRevenueRangeQueries() {
+        DataStore<Appointment> store = new ConcurrentDataStore<>();
+        Doctor[] doctors = new Doctor[20];
+        Specialization[] specs = Specialization.values();
+        for (int i = 0; i < doctors.length; i++) {
+            doctors[i] = new Doctor("Doctor " + i, 40, "8" + i, specs[i % specs.length], BigDecimal.valueOf(500 + 50L * i));
+        }
+        Patient p = new Patient("Patient", 30, "9", new PatientProfile("Street"));
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 8, 0);
+        for (int i = 0; i < SIZE; i++) {
+            Appointment a = new Appointment("APT-R" + i, doctors[i % doctors.length], p,
+                    start.plusMinutes(7L * i % (3 * 365 * 24 * 60)), AppointmentStatus.COMPLETED);
+            store.upsert(a.getId(), a);
+        }
+        AppointmentService service = new AppointmentService(store);
+        long t0 = System.nanoTime();
+        store.listAll().forEach(a -> service.generateBill(a.getId()));
+        long billing = System.nanoTime() - t0;
+
+        LocalDate month = LocalDate.of(2031, 6, 1);
+        LocalDate monthEnd = month.plusMonths(1).minusDays(1);
+        t0 = System.nanoTime();
+        java.util.Map<String, Long> scanned = new java.util.HashMap<>();
+        for (Appointment a : store.listAll()) {
+            LocalDate day = a.getScheduledAt().toLocalDate();
+            if (!day.isBefore(month) && !day.isAfter(monthEnd)) {
+                scanned.merge(a.getDoctor().getId(), service.generateBill(a.getId()).totalDue().minorUnits(), Long::sum);
+            }
+        }
+        long scan = System.nanoTime() - t0;
+        t0 = System.nanoTime();
+        for (int d = 0; d < doctors.length; d++) {
+            long expected = scanned.getOrDefault(doctors[d].getId(), 0L);
+            if (service.getRevenue().doctorTotal(doctors[d].getId(), month, monthEnd).minorUnits() != expected) {
+                throw new AssertionError("Revenue differs for " + doctors[d].getName());
+            }
+        }
+        long query = System.nanoTime() - t0;
+        System.out.printf("Revenue over %d bills (%.1f ms to bill): one month per doctor by scan %.2f ms, "
+                        + "by range query %.3f ms, identical%n",
+                SIZE, billing / 1e6, scan / 1e6, query / 1e6);
+    }
+
+    /**
+     * Triage on long free-text symptom descriptions: one {@code String.contains} per keyword
+     * with a fresh score map (the original algorithm) versus the compiled automaton.
+     */
+    private static void benchSymptomMatcher() {
+        String[] words = {"patient", "reports", "a", "mild", "fever", "since", "monday", "with", "occasional",
+                "headache", "and", "some", "back", "pain", "after", "lifting", "no", "history", "of", "rash",
+                "sleeping", "poorly", "ear", "discomfort", "Appetite", "normal"};
+        java.util.Random random = new java.util.Random(42);
+        int inputs = Math.max(1, SIZE / 20);
+        List<List<String>> symptoms = new ArrayList<>(inputs);
+        for (int i = 0; i < inputs; i++) {
+            List<String> list = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                StringBuilder text = new StringBuilder();
+                while (text.length() < 200) {
+                    text.append(words[random.nextInt(words.length)]).append(' ');
+                }
+                list.add(text.toString());
+            }
+            symptoms.add(list);
+        }
+        List<TriageRule> rules = AIHelper.defaultRules();
+        long scan = Long.MAX_VALUE;
+        long automaton = Long.MAX_VALUE;
+        Specialization[] expected = new Specialization[inputs];
+        Specialization[] actual = new Specialization[inputs];
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < inputs; i++) {
+                expected[i] = containsRecommendation(rules, symptoms.get(i));
+            }
+            scan = Math.min(scan, System.nanoTime() - t0);
+            t0 = System.nanoTime();
+            for (int i = 0; i < inputs; i++) {
+                actual[i] = AIHelper.recommendSpecialization(symptoms.get(i));
+            }
+            automaton = Math.min(automaton, System.nanoTime() - t0);
+        }
+        if (!java.util.Arrays.equals(expected, actual)) {
+            throw new AssertionError("Automaton and substring search disagree");
+        }
+        System.out.printf("Triage of %d x 3 symptoms of ~200 chars: contains %.1f ms, automaton %.1f ms (%.1fx), "
+                + "identical%n", inputs, scan / 1e6, automaton / 1e6, (double) scan / automaton);
+    }
+
+    /**
+     * A/B experiment, 50/50: the built-in rules versus a candidate with ten times the keywords,
+     * reporting throughput and outcomes per rules version.
+     */
+    private static void benchTriageExperiment() {
+        List<TriageRule> extended = new ArrayList<>(AIHelper.defaultRules());
+        Specialization[] specs = Specialization.values();
+        for (int i = 0; i < 300; i++) {
+            extended.add(TriageRule.of(specs[i % specs.length], 1, "term" + i, "symptom" + i));
+        }
+        java.util.Random random = new java.util.Random(42);
+        String[] words = {"fever", "headache", "rash", "knee", "ear", "term17", "symptom250", "since", "monday",
+                "and", "mild", "persistent", "after", "exercise"};
+        List<List<String>> inputs = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            StringBuilder text = new StringBuilder();
+            while (text.length() < 200) {
+                text.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            inputs.add(List.of(text.toString()));
+        }
+        try (TriageRules rules = new TriageRules(new SymptomMatcher(AIHelper.defaultRules()))) {
+            rules.startExperiment(new SymptomMatcher(1, extended), 50);
+            for (int i = 0; i < Math.max(1, SIZE / 2); i++) {
+                rules.recommend(inputs.get(i % inputs.size()));
+            }
+            for (TriageStats stats : rules.stats()) {
+                System.out.printf("Triage rules v%d (%d rules): %d calls, %.0f calls/s, outcomes %s%n",
+                        stats.getVersion(), stats.getVersion() == 0 ? AIHelper.defaultRules().size() : extended.size(),
+                        stats.getCalls(), stats.getCallsPerSecond(), stats.getOutcomes());
+            }
+        } catch (IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    private static Specialization containsRecommendation(List<TriageRule> rules, List<String> symptoms) {
+        java.util.Map<Specialization, Integer> score = new java.util.EnumMap<>(Specialization.class);
+        for (Specialization s : Specialization.values()) {
+            score.put(s, 0);
+        }
+        for (String raw : symptoms) {
+            String s = raw.trim().toLowerCase(java.util.Locale.ROOT);
+            for (TriageRule rule : rules) {
+                for (String keyword : rule.getKeywords()) {
+                    if (s.contains(keyword)) {
+                        score.merge(rule.getSpecialization(), rule.getWeight(), Integer::sum);
+                        break;
+                    }
+                }
+            }
+        }
+        return score.entrySet().stream().max(java.util.Map.Entry.comparingByValue()).orElseThrow().getKey();
+    }
+
+    private static List<String> fillPatients(DataStore<Patient> store) {
+        List<String> ids = new ArrayList<>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            Patient p = new Patient("Patient " + i, 20 + i % 60, "9" + i,
+                    new PatientProfile("Street " + i, List.of("Pollen", "Penicillin")));
+            store.upsert(p.getId(), p);
+            ids.add(p.getId());
+        }
+        return ids;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long timeToFirstQuery(Path dir, String id) throws IOException {
+        long start = System.nanoTime();
+        try (DurableDataStore<Patient> store = DurableDataStore.open(dir, "patients", EntityCodecs.PATIENT,
+                new WalOptions(4096, 0, 0))) {
+            if (store.get(id).isEmpty()) {
+                throw new AssertionError("Benchmark probe not found: " + id);
+            }
+            return System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Appointments per status in a one-year window: the sorted status/time index of a plain
+     * store (built on first use) versus one pass over the columns of a columnar store.
+     */
+    private static void benchColumnarWindowCount() {
+        Doctor doctor = new Doctor("Doctor", 40, "8", Specialization.ENT, new BigDecimal("500"));
+        Patient p = new Patient("Patient", 30, "9", new PatientProfile("Street"));
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 8, 0);
+        AppointmentStatus[] statuses = AppointmentStatus.values();
+        DataStore<Appointment> plain = new DataStore<>();
+        ColumnarAppointmentStore columns = new ColumnarAppointmentStore();
+        for (int i = 0; i < SIZE; i++) {
+            Appointment a = new Appointment("APT-W" + i, doctor, p,
+                    start.plusMinutes(7L * i % (3 * 365 * 24 * 60)), statuses[i % statuses.length]);
+            plain.upsert(a.getId(), a);
+            columns.upsert(a.getId(), a);
+        }
+        AppointmentService indexed = new AppointmentService(plain);
+        AppointmentService columnar = new AppointmentService(columns);
+        LocalDateTime from = LocalDateTime.of(2031, 1, 1, 0, 0);
+        LocalDateTime to = from.plusYears(1);
+
+        long t0 = System.nanoTime();
+        long[] byIndex = new long[statuses.length];
+        for (AppointmentStatus st : statuses) {
+            byIndex[st.ordinal()] = indexed.countBetween(st, from, to);
+        }
+        long firstIndex = System.nanoTime() - t0;
+        t0 = System.nanoTime();
+        for (AppointmentStatus st : statuses) {
+            byIndex[st.ordinal()] = indexed.countBetween(st, from, to);
+        }
+        long index = System.nanoTime() - t0;
+        t0 = System.nanoTime();
+        for (AppointmentStatus st : statuses) {
+            if (columnar.countBetween(st, from, to) != byIndex[st.ordinal()]) {
+                throw new AssertionError("Window count differs for " + st);
+            }
+        }
+        long column = System.nanoTime() - t0;
+        System.out.printf("Window count per status over %d appointments: index %.1f ms (first call, with build %.1f ms), "
+                        + "columns %.1f ms, identical%n",
+                SIZE, index / 1e6, firstIndex / 1e6, column / 1e6);
+    }
+}
@@ -1,33 +1,77 @@
 package com.airtribe.meditrack.test;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
+import com.airtribe.meditrack.constants.Constants;
 import com.airtribe.meditrack.entity.Appointment;
 import com.airtribe.meditrack.entity.AppointmentStatus;
 import com.airtribe.meditrack.entity.Bill;
+import com.airtribe.meditrack.entity.BillSummary;
 import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Money;
+import com.airtribe.meditrack.entity.Rate;
 import com.airtribe.meditrack.entity.Patient;
 import com.airtribe.meditrack.entity.PatientProfile;
 import com.airtribe.meditrack.entity.Specialization;
 import com.airtribe.meditrack.exception.AppointmentNotFoundException;
 import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.exception.SchedulingConflictException;
 import com.airtribe.meditrack.patterns.billing.BillFactory;
+import com.airtribe.meditrack.persistence.AppointmentStatusLog;
+import com.airtribe.meditrack.persistence.DurableDataStore;
+import com.airtribe.meditrack.persistence.EntityCodecs;
+import com.airtribe.meditrack.persistence.TieredDataStore;
+import com.airtribe.meditrack.persistence.StatusEvent;
+import com.airtribe.meditrack.persistence.WalOptions;
+import com.airtribe.meditrack.scheduling.AvailableSlot;
+import com.airtribe.meditrack.scheduling.WaitlistEntry;
+import com.airtribe.meditrack.patterns.billing.BillingPipeline;
+import com.airtribe.meditrack.patterns.billing.BillingPlan;
+import com.airtribe.meditrack.patterns.billing.BillingStrategy;
+import com.airtribe.meditrack.patterns.billing.PatientClass;
 import com.airtribe.meditrack.patterns.billing.FlatTaxStrategy;
+import com.airtribe.meditrack.patterns.billing.SeniorDiscountThenTaxStrategy;
+import com.airtribe.meditrack.service.AppointmentAggregates;
 import com.airtribe.meditrack.service.AppointmentService;
+import com.airtribe.meditrack.service.AsyncAppointmentService;
+import com.airtribe.meditrack.service.BatchBillingEngine;
+import com.airtribe.meditrack.service.BillRepository;
+import com.airtribe.meditrack.service.BillingRunReport;
 import com.airtribe.meditrack.service.DoctorService;
 import com.airtribe.meditrack.service.PatientService;
+import com.airtribe.meditrack.service.RevenueAnalytics;
 import com.airtribe.meditrack.util.AIHelper;
+import com.airtribe.meditrack.util.SymptomMatcher;
+import com.airtribe.meditrack.util.TriageRule;
+import com.airtribe.meditrack.util.TriageRules;
+import com.airtribe.meditrack.util.TriageStats;
+import com.airtribe.meditrack.util.ChangeEvent;
+import com.airtribe.meditrack.util.ChangeFeed;
+import com.airtribe.meditrack.util.ColumnarAppointmentStore;
+import com.airtribe.meditrack.util.ConcurrentDataStore;
 import com.airtribe.meditrack.util.DataStore;
+import com.airtribe.meditrack.util.IdGenerator;
+import com.airtribe.meditrack.util.IdType;
+import com.airtribe.meditrack.util.NumericKeyDataStore;
+import com.airtribe.meditrack.util.Page;
+import com.airtribe.meditrack.util.StoreSnapshot;
+import com.airtribe.meditrack.util.VersionedDataStore;
 
 /**
  * Manual test runner (no JUnit).
  */
 public class TestRunner {
-    public static void main(String[] args) throws CloneNotSupportedException {
+    public static void main(String[] args) throws Exception {
         testValidation();
         testDeepClone();
         testPatientCrudActions();
@@ -38,6 +82,30 @@ public class TestRunner {
         testGenerateBillFromAppointmentService();
         testAIRecommendation();
         testPatientSearchOverloads();
+        testConcurrentDataStore();
+        testSecondaryIndexes();
+        testDurableDataStoreRecovery();
+        testMappedSnapshotLazyHydration();
+        testColumnarAppointmentStore();
+        testPaging();
+        testVersionedSnapshots();
+        testChangeFeed();
+        testTieredDataStore();
+        testNumericIds();
+        testDoubleBookingDetection();
+        testTimeRangeQueries();
+        testAsyncAppointmentService();
+        testAvailabilityCalendar();
+        testAppointmentStatusLog();
+        testWaitlistBackfill();
+        testAppointmentAggregates();
+        testBatchBilling();
+        testMoneyMatchesBigDecimal();
+        testBillingPipelines();
+        testIdempotentBills();
+        testRevenueAnalytics();
+        testSymptomMatcher();
+        testTriageRuleReload();
         System.out.println("\nALL TESTS PASSED");
     }
 
@@ -188,6 +256,1593 @@ public class TestRunner {
         assertEquals(1, patientService.searchPatient("neh".toCharArray()).size(), "Expected search by name");
     }
 
+    private static void testConcurrentDataStore() throws InterruptedException {
+        ConcurrentDataStore<String> store = new ConcurrentDataStore<>(true);
+        int threads = 4;
+        int perThread = 1_000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int offset = t * perThread;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    store.upsert("K-" + (offset + i), "v" + (offset + i));
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        assertEquals(threads * perThread, store.size(), "Concurrent upserts should not lose writes");
+
+        ConcurrentDataStore<String> ordered = new ConcurrentDataStore<>(true);
+        ordered.upsert("B", "b");
+        ordered.upsert("A", "a");
+        ordered.upsert("C", "c");
+        ordered.upsert("B", "b2");
+        ordered.remove("A");
+        assertEquals(List.of("b2", "c"), ordered.listAll(), "Insertion order should be preserved across re-upserts");
+
+        // Iterating while writing must not throw ConcurrentModificationException.
+        for (String ignored : ordered) {
+            ordered.upsert("D", "d");
+        }
+        assertTrue(ordered.contains("D"), "Write during iteration should be visible");
+    }
+
+    private static void testSecondaryIndexes() {
+        DataStore<Doctor> doctors = new DataStore<>();
+        DoctorService doctorService = new DoctorService(doctors);
+        Doctor d1 = new Doctor("Doc1", 40, "111", Specialization.DERMATOLOGY, new BigDecimal("500"));
+        Doctor d2 = new Doctor("Doc2", 40, "222", Specialization.DERMATOLOGY, new BigDecimal("600"));
+        doctorService.add(d1);
+        doctorService.add(d2);
+        assertEquals(2, doctorService.findBySpecialization(Specialization.DERMATOLOGY).size(), "Index lookup by specialization");
+
+        // In-place mutation followed by upsert must move the entity between buckets.
+        d1.setSpecialization(Specialization.CARDIOLOGY);
+        doctorService.add(d1);
+        assertEquals(1, doctorService.findBySpecialization(Specialization.DERMATOLOGY).size(), "Old bucket should shrink");
+        assertEquals(d1, doctorService.findBySpecialization(Specialization.CARDIOLOGY).get(0), "New bucket should contain moved doctor");
+
+        doctorService.removeById(d2.getId());
+        assertTrue(doctorService.findBySpecialization(Specialization.DERMATOLOGY).isEmpty(), "Remove should unindex");
+
+        DataStore<Patient> patients = new DataStore<>();
+        patients.addUniqueIndex("phone", Patient::getPhone);
+        Patient p1 = new Patient("A", 30, "555", new PatientProfile("Addr"));
+        Patient p2 = new Patient("B", 31, "555", new PatientProfile("Addr"));
+        patients.upsert(p1.getId(), p1);
+        boolean threw = false;
+        try {
+            patients.upsert(p2.getId(), p2);
+        } catch (InvalidDataException e) {
+            threw = true;
+        }
+        assertTrue(threw, "Unique index should reject duplicate phone");
+        assertTrue(!patients.contains(p2.getId()), "Rejected upsert must not modify the store");
+        assertEquals(p1, patients.findUniqueByIndex("phone", "555").orElseThrow(), "Unique lookup by phone");
+
+        // Lookups list entities in store order, like a scan, also for entries back-filled when
+        // the index was built after later writes, and for entities that moved between keys.
+        DataStore<Doctor> ordered = new DataStore<>();
+        List<Doctor> expected = new java.util.ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Doctor d = new Doctor("O" + i, 40, "3" + i, i % 2 == 0 ? Specialization.ENT : Specialization.ORTHOPEDICS,
+                    new BigDecimal("500"));
+            ordered.upsert(d.getId(), d);
+            if (i == 20) {
+                ordered.addIndex("spec", Doctor::getSpecialization);
+            }
+        }
+        Doctor mover = ordered.listAll().get(1);
+        mover.setSpecialization(Specialization.ENT);
+        ordered.upsert(mover.getId(), mover);
+        for (Doctor d : ordered) {
+            if (d.getSpecialization() == Specialization.ENT) expected.add(d);
+        }
+        assertEquals(expected, ordered.findByIndex("spec", Specialization.ENT), "Index lookups follow store order");
+
+        // The same for an insertion-ordered concurrent store, whose hash order differs.
+        ConcurrentDataStore<Doctor> concurrentOrdered = new ConcurrentDataStore<>(true);
+        List<Doctor> inserted = new java.util.ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Doctor d = new Doctor("C" + i, 40, "4" + i, Specialization.ENT, new BigDecimal("500"));
+            concurrentOrdered.upsert("Z" + (i * 7919 % 1000), d);
+            inserted.add(d);
+        }
+        concurrentOrdered.addIndex("spec", Doctor::getSpecialization);
+        assertEquals(inserted, concurrentOrdered.findByIndex("spec", Specialization.ENT),
+                "Index built after inserts follows insertion order");
+        assertEquals(inserted, concurrentOrdered.snapshot().listAll(), "Snapshots follow insertion order");
+
+        // Concurrent writers cannot both claim a unique key.
+        for (int round = 0; round < 200; round++) {
+            ConcurrentDataStore<Patient> shared = new ConcurrentDataStore<>();
+            shared.addUniqueIndex("phone", Patient::getPhone);
+            Patient a = new Patient("A", 30, "600", new PatientProfile("Addr"));
+            Patient b = new Patient("B", 30, "600", new PatientProfile("Addr"));
+            java.util.concurrent.CountDownLatch go = new java.util.concurrent.CountDownLatch(1);
+            Thread ta = new Thread(() -> {
+                try {
+                    go.await();
+                    shared.upsert(a.getId(), a);
+                } catch (InvalidDataException | InterruptedException ignored) {
+                    // the other writer won
+                }
+            });
+            ta.start();
+            go.countDown();
+            try {
+                shared.upsert(b.getId(), b);
+            } catch (InvalidDataException ignored) {
+                // the other writer won
+            }
+            try {
+                ta.join();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            assertEquals(1, shared.size(), "Exactly one writer takes a unique key");
+        }
+
+        // A failed store write gives the claimed key back.
+        boolean[] failWrites = {true};
+        DataStore<Patient> flaky = new DataStore<>() {
+            @Override
+            protected Patient putValue(String key, Patient value) {
+                if (failWrites[0]) throw new IllegalStateException("disk full");
+                return super.putValue(key, value);
+            }
+        };
+        flaky.addUniqueIndex("phone", Patient::getPhone);
+        Patient first = new Patient("F", 30, "700", new PatientProfile("Addr"));
+        try {
+            flaky.upsert(first.getId(), first);
+            throw new AssertionError("Store write should fail");
+        } catch (IllegalStateException expectedFailure) {
+            // ok
+        }
+        failWrites[0] = false;
+        Patient second = new Patient("S", 30, "700", new PatientProfile("Addr"));
+        flaky.upsert(second.getId(), second);
+        assertEquals(second, flaky.findUniqueByIndex("phone", "700").orElseThrow(), "Claim released after failed write");
+    }
+
+    private static void testDurableDataStoreRecovery() throws IOException {
+        Path dir = Files.createTempDirectory("meditrack-wal");
+        WalOptions options = new WalOptions(1, 0, 0);
+
+        Doctor doctor = new Doctor("Doc1", 40, "111", Specialization.CARDIOLOGY, new BigDecimal("650.50"));
+        Patient p1 = new Patient("Neha", 22, "999", new PatientProfile("Addr", List.of("dust")));
+        Patient p2 = new Patient("Rahul", 30, "888", new PatientProfile("Addr2"));
+        try (DurableDataStore<Doctor> doctors = DurableDataStore.open(dir, "doctors", EntityCodecs.DOCTOR, options);
+             DurableDataStore<Patient> patients = DurableDataStore.open(dir, "patients", EntityCodecs.PATIENT, options)) {
+            doctors.upsert(doctor.getId(), doctor);
+            patients.upsert(p1.getId(), p1);
+            patients.upsert(p2.getId(), p2);
+            patients.checkpoint();
+            p1.setPhone("777");
+            patients.upsert(p1.getId(), p1);
+            patients.remove(p2.getId());
+        }
+
+        // Simulate a crash mid-append: a torn record at the end of the log must be dropped.
+        Files.write(dir.resolve("patients.wal"), new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        try (DurableDataStore<Doctor> doctors = DurableDataStore.open(dir, "doctors", EntityCodecs.DOCTOR, options);
+             DurableDataStore<Patient> patients = DurableDataStore.open(dir, "patients", EntityCodecs.PATIENT, options);
+             DurableDataStore<Appointment> appointments = DurableDataStore.open(dir, "appointments",
+                     EntityCodecs.appointment(doctors::get, patients::get), options)) {
+            Doctor recoveredDoctor = doctors.get(doctor.getId()).orElseThrow();
+            assertEquals(new BigDecimal("650.50"), recoveredDoctor.getConsultationFee(), "Fee should survive restart");
+            assertEquals(doctor.getCreatedAt(), recoveredDoctor.getCreatedAt(), "createdAt should survive restart");
+
+            Patient recovered = patients.get(p1.getId()).orElseThrow();
+            assertEquals("777", recovered.getPhone(), "Log tail after snapshot should be replayed");
+            assertEquals(List.of("dust"), recovered.getProfile().getAllergies(), "Nested profile should survive restart");
+            assertTrue(patients.get(p2.getId()).isEmpty(), "Logged removal should be replayed");
+
+            Appointment appt = new Appointment(recoveredDoctor, recovered, LocalDateTime.of(2030, 1, 1, 10, 0));
+            appointments.upsert(appt.getId(), appt);
+        }
+
+        try (DurableDataStore<Doctor> doctors = DurableDataStore.open(dir, "doctors", EntityCodecs.DOCTOR, options);
+             DurableDataStore<Patient> patients = DurableDataStore.open(dir, "patients", EntityCodecs.PATIENT, options);
+             DurableDataStore<Appointment> appointments = DurableDataStore.open(dir, "appointments",
+                     EntityCodecs.appointment(doctors::get, patients::get), options)) {
+            Appointment appt = appointments.stream().findFirst().orElseThrow();
+            assertTrue(appt.getDoctor() == doctors.get(doctor.getId()).orElseThrow(),
+                    "Recovered appointment should link to the recovered doctor instance");
+        }
+    }
+
+    private static void testMappedSnapshotLazyHydration() throws IOException {
+        Path dir = Files.createTempDirectory("meditrack-snapshot");
+        WalOptions options = new WalOptions(1, 0, 0);
+        Bill bill = new Bill("APT-1", new BigDecimal("1180.00"));
+        Bill other = new Bill("APT-2", new BigDecimal("500.00"));
+        try (DurableDataStore<Bill> bills = DurableDataStore.open(dir, "bills", EntityCodecs.BILL, options)) {
+            bills.upsert(bill.getId(), bill);
+            bills.upsert(other.getId(), other);
+            bills.checkpoint();
+            bills.remove(other.getId());
+        }
+
+        try (DurableDataStore<Bill> bills = DurableDataStore.open(dir, "bills", EntityCodecs.BILL, options)) {
+            assertEquals(1, bills.size(), "Size should combine snapshot and log tail without hydrating");
+            Bill loaded = bills.get(bill.getId()).orElseThrow();
+            assertEquals(bill.amountDue(), loaded.amountDue(), "Lazily hydrated bill should match");
+            assertTrue(bills.get(bill.getId()).orElseThrow() == loaded, "Second get should return the hydrated instance");
+            assertTrue(bills.get(other.getId()).isEmpty(), "Removal after snapshot should hide the snapshot entry");
+
+            Bill third = new Bill("APT-3", new BigDecimal("10.00"));
+            bills.upsert(third.getId(), third);
+            bills.checkpoint();
+            assertEquals(2, bills.listAll().size(), "Checkpoint should carry raw and hydrated entries");
+        }
+
+        try (DurableDataStore<Bill> bills = DurableDataStore.open(dir, "bills", EntityCodecs.BILL, options)) {
+            assertEquals(2, bills.size(), "Reopened snapshot should hold both bills");
+            assertEquals(2, bills.listAll().size(), "Iteration should hydrate every snapshot entry");
+        }
+    }
+
+    private static void testColumnarAppointmentStore() {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            ColumnarAppointmentStore store = new ColumnarAppointmentStore(offHeap);
+            AppointmentService service = new AppointmentService(store);
+            Doctor d1 = new Doctor("Doc1", 40, "111", Specialization.ENT, new BigDecimal("500"));
+            Doctor d2 = new Doctor("Doc2", 40, "222", Specialization.ENT, new BigDecimal("500"));
+            Patient patient = new Patient("Neha", 22, "999", new PatientProfile("Addr"));
+            LocalDateTime at = LocalDateTime.of(2030, 5, 1, 10, 30);
+
+            List<Appointment> created = new java.util.ArrayList<>();
+            for (int i = 0; i < 2_000; i++) {
+                created.add(service.create(i % 2 == 0 ? d1 : d2, patient, at.plusMinutes(30L * i)));
+            }
+            service.cancel(created.get(0).getId());
+            store.remove(created.get(1).getId());
+
+            assertEquals(1_999, store.size(), "Columnar store size after remove");
+            Appointment view = service.getById(created.get(0).getId()).orElseThrow();
+            assertEquals(AppointmentStatus.CANCELLED, view.getStatus(), "Materialized view should reflect upserted status");
+            assertEquals(at, view.getScheduledAt(), "Scheduled time should round-trip through epoch minutes");
+            assertTrue(view.getDoctor() == d1, "Materialized view should reference the registered doctor");
+            assertEquals(1, service.countByStatus(AppointmentStatus.CANCELLED), "Column count by status");
+            assertEquals(1_000, service.countByDoctorId(d1.getId(), null), "Column count by doctor");
+            assertEquals(999, service.countByDoctorId(d1.getId(), AppointmentStatus.CONFIRMED), "Column count by doctor and status");
+            assertEquals(1_000, service.listByDoctorId(d1.getId()).size(), "Index lookups should work over columns");
+            assertEquals(1_999, store.listAll().size(), "Iteration should materialize every row");
+
+            // Window counts come from the columns and agree with the time index of a plain store.
+            DataStore<Appointment> plain = copyOf(service);
+            AppointmentService reference = new AppointmentService(plain);
+            LocalDateTime from = at.plusMinutes(30L * 10).plusSeconds(1);
+            LocalDateTime to = at.plusDays(3);
+            assertEquals(reference.countBetween(null, from, to), service.countBetween(null, from, to),
+                    "Column window count matches the index");
+            assertEquals(reference.countBetween(AppointmentStatus.CONFIRMED, at, to),
+                    service.countBetween(AppointmentStatus.CONFIRMED, at, to), "Column window count by status");
+            assertEquals(1L, service.countBetween(AppointmentStatus.CANCELLED, at, to), "Cancelled row is counted");
+
+            // Every read is a copy: changes only reach the store through upsert.
+            Appointment copy = service.getById(created.get(2).getId()).orElseThrow();
+            copy.setStatus(AppointmentStatus.CANCELLED);
+            assertEquals(AppointmentStatus.CONFIRMED, store.get(copy.getId()).orElseThrow().getStatus(),
+                    "Mutating a copy must not change the store");
+        }
+    }
+
+    private static void testPaging() throws IOException {
+        List<DataStore<String>> stores = List.of(new DataStore<>(), new ConcurrentDataStore<>(true));
+        for (DataStore<String> store : stores) {
+            for (int i = 0; i < 25; i++) {
+                store.upsert("K" + i, "V" + i);
+            }
+            List<String> seen = new java.util.ArrayList<>();
+            String cursor = null;
+            int pages = 0;
+            do {
+                Page<String> page = store.page(cursor, 10);
+                seen.addAll(page.getItems());
+                cursor = page.getNextCursor().orElse(null);
+                pages++;
+                if (pages == 1) store.remove("K0");
+            } while (cursor != null);
+            assertEquals(3, pages, "25 entries in pages of 10");
+            assertEquals(25, seen.size(), "Removing a seen entry must not shift later pages");
+            assertEquals("V24", seen.get(seen.size() - 1), "Paging should preserve iteration order");
+            assertEquals(24, store.view().size(), "View should be live");
+            assertTrue(!store.page(null, 100).hasNext(), "Single page should have no cursor");
+        }
+
+        // Hash-ordered stores page by offset over their own entries.
+        VersionedDataStore<String> versioned = new VersionedDataStore<>();
+        for (int i = 0; i < 25; i++) {
+            versioned.upsert("K" + i, "V" + i);
+        }
+        java.util.Set<String> hashPaged = new java.util.HashSet<>();
+        String hashCursor = null;
+        do {
+            Page<String> page = versioned.page(hashCursor, 10);
+            hashPaged.addAll(page.getItems());
+            hashCursor = page.getNextCursor().orElse(null);
+        } while (hashCursor != null);
+        assertEquals(25, hashPaged.size(), "Versioned store pages cover every entry");
+
+        // Cursors name the last entry returned: removing that very entry, or paging a
+        // tiered or durable store, still neither skips nor repeats the remaining entries.
+        Path dir = Files.createTempDirectory("meditrack-paging");
+        try (TieredDataStore<Patient> tiered = TieredDataStore.open(dir, "tiered", EntityCodecs.PATIENT, 5,
+                TieredDataStore.EvictionPolicy.LRU);
+             DurableDataStore<Patient> durable = DurableDataStore.open(dir, "durable", EntityCodecs.PATIENT,
+                     new WalOptions(1, 0, 0))) {
+            List<String> ids = new java.util.ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                Patient p = new Patient("Pg" + i, 30, "8" + i, new PatientProfile("Addr"));
+                tiered.upsert(p.getId(), p);
+                durable.upsert(p.getId(), p);
+                ids.add(p.getId());
+            }
+            durable.checkpoint();
+            for (DataStore<Patient> store : List.<DataStore<Patient>>of(tiered, durable)) {
+                List<String> seen = new java.util.ArrayList<>();
+                String cursor = null;
+                do {
+                    Page<Patient> page = store.page(cursor, 7);
+                    page.getItems().forEach(p -> seen.add(p.getId()));
+                    cursor = page.getNextCursor().orElse(null);
+                    if (seen.size() == 14) store.remove(seen.get(13));
+                } while (cursor != null);
+                assertEquals(ids, seen, store.getClass().getSimpleName() + " pages follow insertion order exactly");
+            }
+        }
+
+        ColumnarAppointmentStore columns = new ColumnarAppointmentStore();
+        AppointmentService service = new AppointmentService(columns);
+        Doctor d = new Doctor("Doc", 40, "111", Specialization.ENT, new BigDecimal("500"));
+        Patient p = new Patient("Neha", 22, "999", new PatientProfile("Addr"));
+        for (int i = 0; i < 5; i++) {
+            service.create(d, p, LocalDateTime.of(2030, 5, 1, 10, 0).plusHours(i));
+        }
+        Page<Appointment> first = service.listPage(null, 3);
+        Page<Appointment> second = service.listPage(first.getNextCursor().orElseThrow(), 3);
+        assertEquals(3, first.getItems().size(), "Columnar first page");
+        assertEquals(2, second.getItems().size(), "Columnar last page");
+        assertTrue(!second.hasNext(), "Columnar last page should have no cursor");
+
+        // Removals close up in order, so paging a columnar store is exact too, whether the
+        // removal leaves a hole or compacts the rows.
+        ColumnarAppointmentStore paged = new ColumnarAppointmentStore();
+        List<String> bookedIds = new java.util.ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Appointment a = new Appointment(d, p, LocalDateTime.of(2030, 6, 1, 9, 0).plusHours(i));
+            paged.upsert(a.getId(), a);
+            bookedIds.add(a.getId());
+        }
+        List<String> pagedIds = new java.util.ArrayList<>();
+        String columnCursor = null;
+        do {
+            Page<Appointment> page = paged.page(columnCursor, 4);
+            page.getItems().forEach(a -> pagedIds.add(a.getId()));
+            columnCursor = page.getNextCursor().orElse(null);
+            if (pagedIds.size() == 4) {
+                paged.remove(pagedIds.get(0));
+                paged.remove(pagedIds.get(3));
+            } else if (pagedIds.size() == 12) {
+                pagedIds.subList(4, 12).forEach(paged::remove);
+            }
+        } while (columnCursor != null);
+        assertEquals(bookedIds, pagedIds, "Columnar pages neither skip nor repeat rows around removals");
+        assertEquals(10, paged.size(), "Columnar size excludes removed rows");
+        assertEquals(bookedIds.subList(12, 20),
+                paged.listAll().stream().skip(2).map(Appointment::getId).toList(), "Compaction keeps row order");
+
+        boolean threw = false;
+        try {
+            service.listPage("not-a-cursor", 3);
+        } catch (InvalidDataException e) {
+            threw = true;
+        }
+        assertTrue(threw, "Malformed cursor should be rejected");
+
+        threw = false;
+        try {
+            service.view().clear();
+        } catch (UnsupportedOperationException e) {
+            threw = true;
+        }
+        assertTrue(threw, "View should be read-only");
+    }
+
+    private static void testVersionedSnapshots() throws InterruptedException {
+        VersionedDataStore<String> store = new VersionedDataStore<>();
+        for (int i = 0; i < 5_000; i++) {
+            store.upsert("K" + i, "V" + i);
+        }
+        // "Aa" and "BB" share a hash code and exercise collision nodes.
+        store.upsert("Aa", "x");
+        store.upsert("BB", "y");
+        StoreSnapshot<String> before = store.snapshot();
+
+        for (int i = 0; i < 5_000; i += 2) {
+            store.remove("K" + i);
+        }
+        store.upsert("K1", "changed");
+        store.remove("Aa");
+
+        assertEquals(5_002, before.size(), "Snapshot size should be frozen");
+        assertEquals(5_002, before.listAll().size(), "Snapshot iteration should be frozen");
+        assertEquals("V0", before.get("K0").orElseThrow(), "Removed entry should stay visible in snapshot");
+        assertEquals("V1", before.get("K1").orElseThrow(), "Snapshot should keep the old value");
+        assertEquals("x", before.get("Aa").orElseThrow(), "Snapshot should keep colliding entry");
+        assertEquals(2_501, store.size(), "Store size after writes");
+        assertEquals("changed", store.get("K1").orElseThrow(), "Store should see the new value");
+        assertEquals("y", store.get("BB").orElseThrow(), "Remaining colliding entry");
+        assertTrue(store.get("Aa").isEmpty(), "Removed colliding entry");
+        assertEquals(2_501, store.listAll().size(), "Store iteration after writes");
+
+        // Writers keep going while a report iterates a snapshot.
+        ConcurrentDataStore<String> failures = new ConcurrentDataStore<>();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                store.upsert("W" + i, "w");
+                store.remove("W" + (i - 1));
+            }
+        });
+        writer.start();
+        for (int round = 0; round < 50; round++) {
+            StoreSnapshot<String> report = store.snapshot();
+            long counted = report.stream().count();
+            if (counted != report.size()) {
+                failures.upsert("round" + round, counted + " != " + report.size());
+            }
+        }
+        writer.join();
+        assertEquals(0, failures.size(), "Snapshot iteration should match its size under concurrent writes");
+        assertEquals(2_502, store.size(), "Only the last concurrent write should remain");
+
+        DataStore<String> plain = new DataStore<>();
+        plain.upsert("A", "1");
+        StoreSnapshot<String> copy = plain.snapshot();
+        plain.upsert("B", "2");
+        assertEquals(1, copy.size(), "Default snapshot should be a stable copy");
+
+        // Status changes are written as new instances, so a snapshot keeps the old status.
+        VersionedDataStore<Appointment> appointments = new VersionedDataStore<>();
+        AppointmentService service = new AppointmentService(appointments);
+        Appointment booked = service.create(new Doctor("Doc", 40, "111", Specialization.ENT, new BigDecimal("500")),
+                new Patient("P", 30, "1", new PatientProfile("Addr")), LocalDateTime.of(2031, 5, 5, 9, 0));
+        StoreSnapshot<Appointment> beforeCancel = appointments.snapshot();
+        service.cancel(booked.getId());
+        assertEquals(AppointmentStatus.CONFIRMED, beforeCancel.get(booked.getId()).orElseThrow().getStatus(),
+                "Snapshot taken before a cancel keeps the confirmed status");
+        assertEquals(AppointmentStatus.CANCELLED, appointments.get(booked.getId()).orElseThrow().getStatus(),
+                "Store sees the cancel");
+    }
+
+    private static void testChangeFeed() throws InterruptedException {
+        DataStore<String> store = new DataStore<>();
+        store.upsert("before-feed", "ignored");
+        ChangeFeed<String> feed = store.enableChangeFeed(8);
+        List<ChangeEvent<String>> received = java.util.Collections.synchronizedList(new java.util.ArrayList<>());
+        ChangeFeed.Subscription<String> subscription = feed.subscribe(received::add);
+
+        store.upsert("A", "1");
+        store.upsert("A", "2");
+        store.remove("A");
+        store.remove("missing");
+        assertEquals(3L, feed.lastSequence(), "Only real mutations should be sequenced");
+        assertTrue(subscription.awaitDelivered(3, 5, TimeUnit.SECONDS), "Subscriber should catch up");
+        assertEquals(3, received.size(), "Subscriber should see every event");
+        ChangeEvent<String> update = received.get(1);
+        assertEquals(2L, update.getSequence(), "Sequence numbers start at 1");
+        assertEquals("1", update.getBefore().orElseThrow(), "Update should carry the before value");
+        assertEquals("2", update.getAfter().orElseThrow(), "Update should carry the after value");
+        assertTrue(received.get(0).isInsert(), "First upsert is an insert");
+        assertEquals(ChangeEvent.Type.REMOVE, received.get(2).getType(), "Remove event type");
+        assertTrue(received.get(2).getAfter().isEmpty(), "Remove has no after value");
+
+        subscription.close();
+        long resumeFrom = subscription.lastDelivered();
+        store.upsert("B", "1");
+        store.upsert("C", "1");
+        List<ChangeEvent<String>> missed = new java.util.ArrayList<>();
+        ChangeFeed.Subscription<String> resumed = feed.subscribe(resumeFrom, missed::add);
+        assertTrue(resumed.awaitDelivered(5, 5, TimeUnit.SECONDS), "Resumed subscriber should catch up");
+        resumed.close();
+        assertEquals(2, missed.size(), "Resume should replay exactly the missed events");
+        assertEquals("B", feed.read(3, 10).get(0).getId(), "Pull consumers read from a sequence");
+
+        for (int i = 0; i < 20; i++) {
+            store.upsert("X" + i, "x");
+        }
+        boolean threw = false;
+        try {
+            feed.read(resumeFrom, 10);
+        } catch (InvalidDataException e) {
+            threw = true;
+        }
+        assertTrue(threw, "Reading overwritten events should fail");
+        assertEquals(8, feed.read(feed.lastSequence() - 8, 100).size(), "Ring keeps the last capacity events");
+
+        DataStore<Appointment> appointments = new DataStore<>();
+        AppointmentService service = new AppointmentService(appointments);
+        Appointment booked = service.create(new Doctor("Doc", 40, "111", Specialization.ENT, new BigDecimal("500")),
+                new Patient("P", 30, "1", new PatientProfile("Addr")), LocalDateTime.of(2031, 5, 5, 9, 0));
+        ChangeFeed<Appointment> appointmentFeed = appointments.enableChangeFeed(8);
+        service.cancel(booked.getId());
+        ChangeEvent<Appointment> cancel = appointmentFeed.read(0, 10).get(0);
+        assertEquals(AppointmentStatus.CONFIRMED, cancel.getBefore().orElseThrow().getStatus(),
+                "Cancel event carries the old status");
+        assertEquals(AppointmentStatus.CANCELLED, cancel.getAfter().orElseThrow().getStatus(),
+                "Cancel event carries the new status");
+    }
+
+    private static void testTieredDataStore() throws IOException {
+        for (TieredDataStore.EvictionPolicy policy : TieredDataStore.EvictionPolicy.values()) {
+            Path dir = Files.createTempDirectory("meditrack-tiered");
+            List<String> ids = new java.util.ArrayList<>();
+            try (TieredDataStore<Patient> store = TieredDataStore.open(dir, "patients", EntityCodecs.PATIENT, 100, policy)) {
+                PatientService service = new PatientService(store);
+                for (int i = 0; i < 1_000; i++) {
+                    Patient p = new Patient("Patient " + i, 30, "9" + i, new PatientProfile("Addr " + i, List.of("Dust")));
+                    service.add(p);
+                    ids.add(p.getId());
+                }
+                TieredDataStore.Stats afterLoad = store.stats();
+                assertEquals(100, afterLoad.getHotSize(), policy + ": hot tier should stay bounded");
+                assertEquals(900, afterLoad.getColdSize(), policy + ": evicted patients should spill");
+                assertEquals(1_000, store.size(), policy + ": size spans both tiers");
+
+                Patient cold = service.getById(ids.get(0)).orElseThrow();
+                assertEquals("Patient 0", cold.getName(), policy + ": cold read should decode the patient");
+                assertEquals(List.of("Dust"), cold.getProfile().getAllergies(), policy + ": profile should round-trip");
+                assertEquals(1L, store.stats().getColdReads(), policy + ": first read is a cold read");
+
+                // A small working set read repeatedly should end up hot.
+                for (int round = 0; round < 20; round++) {
+                    for (int i = 0; i < 50; i++) {
+                        service.getById(ids.get(i)).orElseThrow();
+                    }
+                }
+                // A one-off scan three times the size of the hot tier.
+                for (int i = 50; i < 350; i++) {
+                    service.getById(ids.get(i)).orElseThrow();
+                }
+                long before = store.stats().getHits();
+                for (int i = 0; i < 50; i++) {
+                    service.getById(ids.get(i)).orElseThrow();
+                }
+                int workingSetHits = (int) (store.stats().getHits() - before);
+                if (policy == TieredDataStore.EvictionPolicy.W_TINY_LFU) {
+                    assertTrue(workingSetHits >= 45, "W-TinyLFU should keep the working set through a scan: " + workingSetHits);
+                }
+
+                service.removeById(ids.get(999));
+                assertEquals(999, store.size(), policy + ": delete from either tier");
+                assertEquals(999, store.listAll().size(), policy + ": iteration covers both tiers");
+                assertTrue(store.stats().getEvictions() > 0, policy + ": evictions are counted");
+            }
+            assertTrue(!Files.exists(dir.resolve("patients.cold")), policy + ": cold file removed on close");
+        }
+    }
+
+    private static void testNumericIds() throws Exception {
+        IdGenerator ids = IdGenerator.getInstance();
+        long id = ids.nextNumericId(IdType.PATIENT);
+        assertEquals(IdType.PATIENT, IdGenerator.typeOf(id), "Type tag should round-trip");
+        assertEquals(id, IdGenerator.toNumeric(IdGenerator.render(id)), "Rendering should round-trip");
+        assertTrue(IdGenerator.render(id).startsWith("PAT-"), "Rendered id keeps the PREFIX-n shape");
+
+        // Threads share the current block without handing out duplicates.
+        ConcurrentDataStore<Long> seen = new ConcurrentDataStore<>();
+        Thread[] workers = new Thread[4];
+        for (int t = 0; t < workers.length; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    long next = ids.nextNumericId(IdType.APPOINTMENT);
+                    seen.upsert(Long.toString(next), next);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        assertEquals(20_000, seen.size(), "Numeric ids should be unique across threads");
+
+        // A fresh (virtual) thread per call, as in AsyncAppointmentService, still gets dense ids.
+        long[] sequential = new long[3];
+        for (int i = 0; i < sequential.length; i++) {
+            int slot = i;
+            Thread.ofVirtual().start(() -> sequential[slot] = ids.nextNumericId(IdType.APPOINTMENT)).join();
+        }
+        assertEquals(IdGenerator.sequenceOf(sequential[0]) + 2, IdGenerator.sequenceOf(sequential[2]),
+                "Ids from short-lived threads are consecutive");
+
+        // A persisted high-water mark is resumed after, as on restart.
+        Path hwm = Files.createTempDirectory("meditrack-ids").resolve("ids.hwm");
+        Files.write(hwm, java.nio.ByteBuffer.allocate(Long.BYTES).putLong(0, 50_000_000L).array());
+        ids.persistHighWaterMark(hwm);
+        long resumed = ids.nextNumericId(IdType.DOCTOR);
+        assertTrue(IdGenerator.sequenceOf(resumed) >= 50_000_000L, "Allocation should resume after the stored mark");
+        long stored = java.nio.ByteBuffer.wrap(Files.readAllBytes(hwm)).getLong();
+        assertTrue(stored > IdGenerator.sequenceOf(resumed), "Reserved block should be persisted before use");
+
+        NumericKeyDataStore<Patient> store = new NumericKeyDataStore<>();
+        PatientService service = new PatientService(store);
+        List<Patient> patients = new java.util.ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            Patient p = new Patient("P" + i, 20 + i % 50, "9" + i, new PatientProfile("Addr"));
+            service.add(p);
+            patients.add(p);
+        }
+        for (int i = 0; i < 1_000; i += 3) {
+            service.removeById(patients.get(i).getId());
+        }
+        for (int i = 0; i < 1_000; i++) {
+            Patient p = patients.get(i);
+            assertEquals(i % 3 != 0, store.contains(IdGenerator.toNumeric(p.getId())), "Primitive lookup after removals");
+        }
+        assertEquals(666, store.size(), "Numeric store size");
+        assertEquals(666, service.listAll().size(), "Numeric store iteration");
+        assertEquals(13, service.searchPatient(21).size(), "Indexes work over numeric keys");
+        assertTrue(service.getById("not-an-id").isEmpty(), "Unparseable ids are simply absent");
+
+        // Suffixes past the int range are parsed, not ignored.
+        long big = Integer.MAX_VALUE + 10L;
+        assertEquals(big, IdGenerator.numericSuffix("APT-" + big), "Suffix parsed as a long");
+        ids.advancePast("APT-" + big);
+        assertTrue(IdGenerator.numericSuffix(ids.nextId("XYZ")) > big, "Ids resume after a long suffix");
+
+        // The long-keyed API round-trips with and without indexes.
+        NumericKeyDataStore<Patient> raw = new NumericKeyDataStore<>();
+        long rawId = ids.nextNumericId(IdType.PATIENT);
+        Patient first = patients.get(1);
+        raw.upsert(rawId, first);
+        assertTrue(raw.get(IdGenerator.render(rawId)).orElseThrow() == first, "Long key visible through the string API");
+        raw.addIndex("age", Patient::getAge);
+        long indexedId = ids.nextNumericId(IdType.PATIENT);
+        raw.upsert(indexedId, patients.get(2));
+        assertEquals(1, raw.findByIndex("age", patients.get(2).getAge()).size(), "Long-keyed upsert is indexed");
+        assertTrue(raw.remove(indexedId).isPresent(), "Long-keyed remove");
+        assertEquals(0, raw.findByIndex("age", patients.get(2).getAge()).size(), "Long-keyed remove unindexes");
+        assertEquals(1, raw.size(), "Numeric store size after long-keyed writes");
+        try {
+            raw.upsert(42L, first);
+            throw new AssertionError("Untagged ids should be rejected");
+        } catch (InvalidDataException expected) {
+            // ok
+        }
+    }
+
+    private static void testDoubleBookingDetection() throws InterruptedException {
+        AppointmentService service = new AppointmentService(new ConcurrentDataStore<>(), java.time.Duration.ofMinutes(30));
+        Doctor doctor = new Doctor("Doc", 40, "111", Specialization.ENT, new BigDecimal("500"));
+        Doctor other = new Doctor("Other", 40, "222", Specialization.ENT, new BigDecimal("500"));
+        Patient p1 = new Patient("P1", 30, "1", new PatientProfile("Addr"));
+        Patient p2 = new Patient("P2", 30, "2", new PatientProfile("Addr"));
+        LocalDateTime nine = LocalDateTime.of(2031, 1, 6, 9, 0);
+
+        Appointment first = service.create(doctor, p1, nine);
+        String clash = null;
+        try {
+            service.create(doctor, p2, nine.plusMinutes(15));
+        } catch (SchedulingConflictException e) {
+            clash = e.getConflictingAppointmentId();
+        }
+        assertEquals(first.getId(), clash, "Overlapping doctor booking should be rejected");
+        clash = null;
+        try {
+            service.create(other, p1, nine.minusMinutes(10));
+        } catch (SchedulingConflictException e) {
+            clash = e.getConflictingAppointmentId();
+        }
+        assertEquals(first.getId(), clash, "Overlapping patient booking should be rejected");
+        service.create(doctor, p2, nine.plusMinutes(30));
+        service.create(doctor, p2, nine.minusMinutes(30));
+        assertEquals(3, service.listByDoctorId(doctor.getId()).size(), "Back-to-back slots do not overlap");
+
+        service.cancel(first.getId());
+        service.create(doctor, p1, nine);
+        assertEquals(4, service.listByDoctorId(doctor.getId()).size(), "Cancelled slot should be bookable again");
+
+        // Many threads race for the same doctor's morning; only non-overlapping bookings win.
+        Doctor busy = new Doctor("Busy", 40, "333", Specialization.ENT, new BigDecimal("500"));
+        LocalDateTime morning = LocalDateTime.of(2031, 1, 7, 8, 0);
+        Thread[] workers = new Thread[8];
+        for (int t = 0; t < workers.length; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < 48; i++) {
+                    Patient p = new Patient("Racer", 30, "3", new PatientProfile("Addr"));
+                    try {
+                        service.create(busy, p, morning.plusMinutes(10L * i));
+                    } catch (SchedulingConflictException ignored) {
+                        // expected for most attempts
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        List<Appointment> booked = new java.util.ArrayList<>(service.listByDoctorId(busy.getId()));
+        booked.sort(java.util.Comparator.comparing(Appointment::getScheduledAt));
+        for (int i = 1; i < booked.size(); i++) {
+            assertTrue(!booked.get(i).getScheduledAt().isBefore(booked.get(i - 1).getScheduledAt().plusMinutes(30)),
+                    "Concurrent bookings must never overlap");
+        }
+        assertTrue(booked.size() >= 16, "At least every third 10-minute start should be booked: " + booked.size());
+
+        // Racing status changes: two cancels are both no-ops but one, cancel vs complete has one winner.
+        Doctor racer = new Doctor("Racer", 40, "444", Specialization.ENT, new BigDecimal("500"));
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(2);
+        int completedWins = 0;
+        try {
+            for (int round = 0; round < 200; round++) {
+                Appointment a = service.create(racer, new Patient("R", 30, "4", new PatientProfile("Addr")),
+                        morning.plusDays(1).plusMinutes(30L * round));
+                boolean cancelVsComplete = round % 2 == 1;
+                java.util.concurrent.CountDownLatch go = new java.util.concurrent.CountDownLatch(1);
+                java.util.concurrent.Callable<Boolean> cancel = () -> {
+                    go.await();
+                    try {
+                        service.cancel(a.getId());
+                        return true;
+                    } catch (InvalidDataException e) {
+                        return false;
+                    }
+                };
+                java.util.concurrent.Callable<Boolean> complete = () -> {
+                    go.await();
+                    try {
+                        service.complete(a.getId());
+                        return true;
+                    } catch (InvalidDataException e) {
+                        return false;
+                    }
+                };
+                java.util.concurrent.Future<Boolean> x = pool.submit(cancel);
+                java.util.concurrent.Future<Boolean> y = pool.submit(cancelVsComplete ? complete : cancel);
+                go.countDown();
+                boolean xWon = x.get(10, TimeUnit.SECONDS);
+                boolean yWon = y.get(10, TimeUnit.SECONDS);
+                if (cancelVsComplete) {
+                    assertTrue(xWon != yWon, "Exactly one of cancel and complete succeeds");
+                    if (yWon) completedWins++;
+                } else {
+                    assertTrue(xWon && yWon, "A second concurrent cancel is a no-op");
+                }
+            }
+        } catch (java.util.concurrent.ExecutionException | java.util.concurrent.TimeoutException e) {
+            throw new AssertionError("Racing status change failed", e);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals((long) completedWins, service.getAggregates().countByDoctor(racer.getId(), AppointmentStatus.COMPLETED),
+                "Each completion counted once");
+        assertEquals(200L - completedWins, service.getAggregates().countByDoctor(racer.getId(), AppointmentStatus.CANCELLED),
+                "Each cancellation counted once");
+
+        // A service over a store that already holds bookings loads them before the first check.
+        DataStore<Appointment> existing = new DataStore<>();
+        Appointment stored = new Appointment(doctor, p1, nine.plusDays(1));
+        stored.setStatus(AppointmentStatus.CONFIRMED);
+        existing.upsert(stored.getId(), stored);
+        boolean threw = false;
+        try {
+            new AppointmentService(existing).create(doctor, p2, nine.plusDays(1));
+        } catch (SchedulingConflictException e) {
+            threw = true;
+        }
+        assertTrue(threw, "Existing confirmed appointments should block their slot");
+    }
+
+    private static void testTimeRangeQueries() {
+        AppointmentService service = new AppointmentService(new ConcurrentDataStore<>(), java.time.Duration.ofMinutes(30));
+        Doctor a = new Doctor("A", 40, "111", Specialization.ENT, new BigDecimal("500"));
+        Doctor b = new Doctor("B", 40, "222", Specialization.ENT, new BigDecimal("500"));
+        LocalDateTime day = LocalDateTime.of(2031, 2, 3, 8, 0);
+        // Book out of order across two doctors: every half hour from 08:00 to 17:30.
+        for (int i = 19; i >= 0; i--) {
+            Patient p = new Patient("P" + i, 30, "1", new PatientProfile("Addr"));
+            service.create(i % 2 == 0 ? a : b, p, day.plusMinutes(30L * i));
+        }
+
+        LocalDateTime from = day.withHour(9);
+        LocalDateTime to = day.withHour(13);
+        List<Appointment> window = service.listBetween(from, to).toList();
+        assertEquals(8, window.size(), "09:00-13:00 holds eight half-hour slots");
+        assertEquals(from, window.get(0).getScheduledAt(), "Window is inclusive at the start");
+        for (int i = 1; i < window.size(); i++) {
+            assertTrue(window.get(i - 1).getScheduledAt().isBefore(window.get(i).getScheduledAt()),
+                    "Range results should come in time order");
+        }
+        assertTrue(window.stream().noneMatch(x -> x.getScheduledAt().equals(to)), "Window is exclusive at the end");
+
+        List<Appointment> forA = service.listByDoctorBetween(a.getId(), from, to).toList();
+        assertEquals(4, forA.size(), "Doctor A has every other slot");
+        assertTrue(forA.stream().allMatch(x -> x.getDoctor().getId().equals(a.getId())), "Only doctor A's slots");
+
+        service.cancel(window.get(1).getId());
+        service.cancel(window.get(2).getId());
+        assertEquals(6L, service.listByStatusBetween(AppointmentStatus.CONFIRMED, from, to).count(),
+                "Cancelled appointments leave the confirmed range");
+        List<Appointment> cancelled = service.listByStatusBetween(AppointmentStatus.CANCELLED, day, day.plusDays(1)).toList();
+        assertEquals(List.of(window.get(1), window.get(2)), cancelled, "Cancelled range in time order");
+        assertEquals(0L, service.listBetween(to, to).count(), "Empty window");
+
+        boolean threw = false;
+        try {
+            service.listBetween(to, from);
+        } catch (InvalidDataException e) {
+            threw = true;
+        }
+        assertTrue(threw, "Reversed window should be rejected");
+
+        // Works over a store loaded before the service existed, e.g. the columnar one.
+        ColumnarAppointmentStore columns = new ColumnarAppointmentStore();
+        for (Appointment x : service.listAll()) {
+            columns.upsert(x.getId(), x);
+        }
+        assertEquals(4L, new AppointmentService(columns).listByDoctorBetween(a.getId(), from, to).count(),
+                "Sorted index should back-fill existing entries");
+    }
+
+    private static void testAsyncAppointmentService() throws Exception {
+        // Store that records how many writes per doctor overlap; each write lingers briefly.
+        java.util.Map<String, java.util.concurrent.atomic.AtomicInteger> inFlight = new java.util.concurrent.ConcurrentHashMap<>();
+        java.util.concurrent.atomic.AtomicInteger maxPerDoctor = new java.util.concurrent.atomic.AtomicInteger();
+        java.util.concurrent.atomic.AtomicInteger running = new java.util.concurrent.atomic.AtomicInteger();
+        java.util.concurrent.atomic.AtomicInteger maxOverall = new java.util.concurrent.atomic.AtomicInteger();
+        DataStore<Appointment> store = new ConcurrentDataStore<>() {
+            @Override
+            protected Appointment putValue(String key, Appointment value) {
+                java.util.concurrent.atomic.AtomicInteger mine = inFlight.computeIfAbsent(value.getDoctor().getId(),
+                        k -> new java.util.concurrent.atomic.AtomicInteger());
+                maxPerDoctor.accumulateAndGet(mine.incrementAndGet(), Math::max);
+                maxOverall.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    java.util.concurrent.locks.LockSupport.parkNanos(200_000);
+                    return super.putValue(key, value);
+                } finally {
+                    running.decrementAndGet();
+                    mine.decrementAndGet();
+                }
+            }
+        };
+        Doctor[] doctors = new Doctor[8];
+        for (int i = 0; i < doctors.length; i++) {
+            doctors[i] = new Doctor("Doc" + i, 40, "1" + i, Specialization.ENT, new BigDecimal("500"));
+        }
+        LocalDateTime day = LocalDateTime.of(2031, 4, 1, 8, 0);
+        List<java.util.concurrent.CompletableFuture<Appointment>> created = new java.util.ArrayList<>();
+        try (AsyncAppointmentService async = new AsyncAppointmentService(new AppointmentService(store))) {
+            // Every doctor gets each 10-minute start three times over; only one per 30 minutes can win.
+            for (int i = 0; i < 60; i++) {
+                for (Doctor d : doctors) {
+                    Patient p = new Patient("P", 30, "1", new PatientProfile("Addr"));
+                    created.add(async.create(d, p, day.plusMinutes(10L * (i % 20))));
+                }
+            }
+            int booked = 0;
+            int conflicts = 0;
+            for (java.util.concurrent.CompletableFuture<Appointment> f : created) {
+                try {
+                    f.get(30, TimeUnit.SECONDS);
+                    booked++;
+                } catch (java.util.concurrent.ExecutionException e) {
+                    assertTrue(e.getCause() instanceof SchedulingConflictException, "Only conflicts may fail: " + e.getCause());
+                    conflicts++;
+                }
+            }
+            assertEquals(created.size(), booked + conflicts, "Every future completes");
+            assertEquals(doctors.length * 7, booked, "Each doctor fits seven 30-minute slots in 08:00-11:10");
+            assertEquals(1, maxPerDoctor.get(), "Operations on one doctor must not interleave");
+            assertTrue(maxOverall.get() > 1, "Different doctors should run in parallel: " + maxOverall.get());
+
+            Appointment first = async.getDelegate().listByDoctorId(doctors[0].getId()).get(0);
+            Bill bill = async.generateBill(first.getId()).get(30, TimeUnit.SECONDS);
+            assertEquals(first.getId(), bill.getAppointmentId(), "Bill generated asynchronously");
+            assertEquals(AppointmentStatus.CANCELLED, async.cancel(first.getId()).get(30, TimeUnit.SECONDS).getStatus(),
+                    "Cancel runs through the doctor's mailbox");
+            boolean notFound = false;
+            try {
+                async.cancel("APT-missing").get(30, TimeUnit.SECONDS);
+            } catch (java.util.concurrent.ExecutionException e) {
+                notFound = e.getCause() instanceof AppointmentNotFoundException;
+            }
+            assertTrue(notFound, "Unknown appointment fails the future");
+            // The mailbox is dropped just after the last result completes.
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (async.activeDoctors() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(0, async.activeDoctors(), "Drained mailboxes are dropped");
+        }
+    }
+
+    private static void testAvailabilityCalendar() {
+        // Default working day 10:00-16:30 in 30-minute slots: 13 slots, like the old fixed grid.
+        AppointmentService service = new AppointmentService(new ConcurrentDataStore<>(), java.time.Duration.ofMinutes(30));
+        Doctor derm1 = new Doctor("Derm1", 40, "111", Specialization.DERMATOLOGY, new BigDecimal("500"));
+        Doctor derm2 = new Doctor("Derm2", 40, "222", Specialization.DERMATOLOGY, new BigDecimal("500"));
+        Doctor ent = new Doctor("Ent", 40, "333", Specialization.ENT, new BigDecimal("500"));
+        LocalDate day = LocalDate.of(2031, 5, 5);
+        LocalDateTime ten = day.atTime(10, 0);
+        assertEquals(13, service.freeSlots(derm1.getId(), day).size(), "Unbooked day is all free");
+
+        Appointment a = service.create(derm1, new Patient("P1", 30, "1", new PatientProfile("Addr")), ten);
+        Appointment b = service.create(derm1, new Patient("P2", 30, "2", new PatientProfile("Addr")), ten.plusMinutes(40));
+        List<LocalDateTime> free = service.freeSlots(derm1.getId(), day);
+        assertEquals(10, free.size(), "10:00 and the 10:30/11:00 slots overlapped by 10:40 are busy");
+        assertEquals(ten.plusMinutes(90), free.get(0), "First free slot is 11:30");
+        assertTrue(!service.getAvailability().isFree(derm1.getId(), ten.plusMinutes(15)), "Inside a busy slot");
+        assertTrue(!AIHelper.suggestSlots(day, derm1, service.getAvailability()).contains(ten),
+                "Suggestions skip booked slots");
+
+        service.create(derm2, new Patient("P3", 30, "3", new PatientProfile("Addr")), ten);
+        List<Doctor> doctors = List.of(ent, derm1, derm2);
+        AvailableSlot earliest = AIHelper.suggestEarliestSlot(doctors, Specialization.DERMATOLOGY,
+                service.getAvailability(), ten).orElseThrow();
+        assertEquals(ten.plusMinutes(30), earliest.getStart(), "Both dermatologists are busy at 10:00");
+        assertEquals(derm2.getId(), earliest.getDoctor().getId(), "Only Derm2 is free at 10:30");
+
+        service.cancel(b.getId());
+        assertEquals(12, service.freeSlots(derm1.getId(), day).size(), "Cancel frees the slots it held");
+        service.cancel(a.getId());
+        assertEquals(13, service.freeSlots(derm1.getId(), day).size(), "Cancelling everything frees the day");
+
+        // Fully booked days roll the search over to the next working day.
+        for (int i = 0; i < 13; i++) {
+            service.create(ent, new Patient("P" + i, 30, "9", new PatientProfile("Addr")), ten.plusMinutes(30L * i));
+        }
+        AvailableSlot next = service.earliestFreeSlot(List.of(ent), ten, 3).orElseThrow();
+        assertEquals(day.plusDays(1).atTime(10, 0), next.getStart(), "Earliest slot moves to the next day");
+        assertTrue(service.earliestFreeSlot(List.of(ent), day.atTime(17, 0), 1).isEmpty(), "Nothing after hours");
+    }
+
+    private static void testAppointmentStatusLog() throws Exception {
+        Path dir = Files.createTempDirectory("meditrack-status");
+        Doctor doctor = new Doctor("Doc", 40, "111", Specialization.ENT, new BigDecimal("500"));
+        LocalDateTime nine = LocalDateTime.of(2031, 6, 2, 9, 0);
+        List<String> ids = new java.util.ArrayList<>();
+        try (AppointmentStatusLog log = AppointmentStatusLog.open(dir, "status", 16)) {
+            AppointmentService service = new AppointmentService(new DataStore<>(), java.time.Duration.ofMinutes(30), log);
+            for (int i = 0; i < 40; i++) {
+                Patient p = new Patient("P" + i, 30, "1", new PatientProfile("Addr"));
+                ids.add(service.create(doctor, p, nine.plusMinutes(30L * i)).getId());
+            }
+            for (int i = 0; i < 40; i += 2) {
+                service.complete(ids.get(i));
+            }
+            service.cancel(ids.get(1));
+            service.cancel(ids.get(1));
+            boolean threw = false;
+            try {
+                service.cancel(ids.get(0));
+            } catch (InvalidDataException e) {
+                threw = true;
+            }
+            assertTrue(threw, "Completed appointments cannot be cancelled");
+            threw = false;
+            try {
+                service.create(doctor, new Patient("Late", 30, "1", new PatientProfile("Addr")), nine);
+            } catch (SchedulingConflictException e) {
+                threw = true;
+            }
+            assertTrue(threw, "A rejected cancel keeps the completed appointment's slot");
+            assertTrue(!service.freeSlots(doctor.getId(), nine.toLocalDate()).contains(nine), "Calendar agrees");
+            Appointment booked = service.getById(ids.get(2)).orElseThrow();
+            com.airtribe.meditrack.scheduling.ScheduleIndex index =
+                    new com.airtribe.meditrack.scheduling.ScheduleIndex(java.time.Duration.ofMinutes(30));
+            index.load(booked);
+            try {
+                index.release(booked, () -> {
+                    throw new IllegalStateException("store write failed");
+                });
+            } catch (IllegalStateException expected) {
+                // expected
+            }
+            threw = false;
+            try {
+                index.reserve(new Appointment(doctor, booked.getPatient(), booked.getScheduledAt()), () -> { });
+            } catch (SchedulingConflictException e) {
+                threw = true;
+            }
+            assertTrue(threw, "A failed release keeps the slot reserved");
+
+            assertEquals(61L, log.eventCount(), "40 confirmations, 20 completions, one cancellation");
+            assertEquals(AppointmentStatus.COMPLETED, log.currentStatus(ids.get(0)).orElseThrow(), "Folded status");
+            assertEquals(AppointmentStatus.CANCELLED, log.replay(ids.get(1)).orElseThrow(), "Replayed from disk");
+            assertEquals(AppointmentStatus.CONFIRMED, log.replay(ids.get(3)).orElseThrow(), "Replay of an untouched booking");
+            List<StatusEvent> history = service.statusHistory(ids.get(0));
+            assertEquals(2, history.size(), "Full history is kept");
+            assertEquals(AppointmentStatus.PENDING, history.get(0).getFrom(), "History starts at PENDING");
+            assertEquals(AppointmentStatus.COMPLETED, history.get(1).getTo(), "History ends at COMPLETED");
+
+            // Background compaction has run at least once by now.
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (log.checkpointedEvents() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertTrue(log.checkpointedEvents() > 0, "Checkpoints are written in the background");
+            assertEquals(0L, log.backgroundFailures(), "Background syncs and checkpoints succeed");
+        }
+
+        // Reopen: checkpoint (written on close) plus any later events; then a torn append.
+        Files.write(dir.resolve("status.events"), new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+        try (AppointmentStatusLog log = AppointmentStatusLog.open(dir, "status", 16)) {
+            assertEquals(61L, log.eventCount(), "Torn tail is dropped");
+            assertEquals(61L, log.checkpointedEvents(), "Close wrote a final checkpoint");
+            assertEquals(AppointmentStatus.COMPLETED, log.currentStatus(ids.get(38)).orElseThrow(), "Recovered status");
+            assertEquals(AppointmentStatus.CONFIRMED, log.currentStatus(ids.get(39)).orElseThrow(), "Recovered status");
+            log.append(ids.get(39), AppointmentStatus.CONFIRMED, AppointmentStatus.COMPLETED);
+            assertEquals(AppointmentStatus.COMPLETED, log.replay(ids.get(39)).orElseThrow(), "Checkpoint plus tail");
+            boolean threw = false;
+            try {
+                log.append(ids.get(39), AppointmentStatus.CONFIRMED, AppointmentStatus.CANCELLED);
+            } catch (InvalidDataException e) {
+                threw = true;
+            }
+            assertTrue(threw, "Events must start from the current status");
+        }
+
+        // Without the checkpoint, a full replay of the log gives the same state.
+        Files.delete(dir.resolve("status.ckpt"));
+        try (AppointmentStatusLog log = AppointmentStatusLog.open(dir, "status", 1_000)) {
+            assertEquals(0L, log.checkpointedEvents(), "No checkpoint to start from");
+            assertEquals(AppointmentStatus.COMPLETED, log.currentStatus(ids.get(39)).orElseThrow(), "Full replay");
+            assertEquals(AppointmentStatus.CANCELLED, log.currentStatus(ids.get(1)).orElseThrow(), "Full replay");
+        }
+
+        // The store is written first: a failed store write leaves no event, and a log that fell
+        // behind the store (a crash between the two writes) is reconciled when the schedule loads.
+        Path laggingDir = Files.createTempDirectory("meditrack-status-lag");
+        Appointment ahead = new Appointment(doctor, new Patient("Ahead", 30, "1", new PatientProfile("Addr")), nine);
+        ahead.setStatus(AppointmentStatus.CONFIRMED);
+        ahead.setStatus(AppointmentStatus.CANCELLED);
+        try (AppointmentStatusLog log = AppointmentStatusLog.open(laggingDir, "status", 16,
+                new com.airtribe.meditrack.persistence.WalOptions(1, 0, 0))) {
+            boolean[] failWrites = {false};
+            DataStore<Appointment> store = new DataStore<>() {
+                @Override
+                public void upsert(String id, Appointment entity) {
+                    if (failWrites[0]) throw new IllegalStateException("disk full");
+                    super.upsert(id, entity);
+                }
+            };
+            store.upsert(ahead.getId(), ahead);
+            AppointmentService service = new AppointmentService(store, java.time.Duration.ofMinutes(30), log);
+            assertTrue(log.currentStatus(ahead.getId()).isEmpty(), "Log starts behind the store");
+            Appointment booked = service.create(doctor, new Patient("Booked", 30, "1", new PatientProfile("Addr")),
+                    nine.plusHours(1));
+            assertEquals(AppointmentStatus.CANCELLED, log.currentStatus(ahead.getId()).orElseThrow(),
+                    "Loading the schedule reconciles the log with the store");
+            List<StatusEvent> reconciled = log.history(ahead.getId());
+            assertEquals(1, reconciled.size(), "Reconciliation is a single event");
+            assertEquals(AppointmentStatus.PENDING, reconciled.get(0).getFrom(), "From the logged status");
+            failWrites[0] = true;
+            boolean threw = false;
+            try {
+                service.cancel(booked.getId());
+            } catch (IllegalStateException e) {
+                threw = true;
+            }
+            assertTrue(threw, "Store failure surfaces");
+            assertEquals(AppointmentStatus.CONFIRMED, log.currentStatus(booked.getId()).orElseThrow(),
+                    "No event for a transition the store did not take");
+            assertEquals(AppointmentStatus.CONFIRMED, service.getById(booked.getId()).orElseThrow().getStatus(),
+                    "Store keeps the old status");
+            failWrites[0] = false;
+            service.cancel(booked.getId());
+            assertEquals(AppointmentStatus.CANCELLED, log.replay(booked.getId()).orElseThrow(), "Event synced to disk");
+            assertEquals(0L, service.statusLogFailures(), "No log failures");
+        }
+    }
+
+    private static void testWaitlistBackfill() {
+        AppointmentService service = new AppointmentService(new DataStore<>());
+        Doctor ent = new Doctor("Ent", 40, "111", Specialization.ENT, new BigDecimal("500"));
+        Doctor otherEnt = new Doctor("Ent2", 45, "222", Specialization.ENT, new BigDecimal("500"));
+        Patient first = new Patient("First", 30, "1", new PatientProfile("Addr"));
+        Patient busy = new Patient("Busy", 31, "2", new PatientProfile("Addr"));
+        Patient anyEnt = new Patient("AnyEnt", 32, "3", new PatientProfile("Addr"));
+        Patient later = new Patient("Later", 33, "4", new PatientProfile("Addr"));
+        Patient cardio = new Patient("Cardio", 34, "5", new PatientProfile("Addr"));
+        LocalDateTime nine = LocalDateTime.of(2031, 7, 1, 9, 0);
+        Appointment freed = service.create(ent, first, nine);
+        service.create(otherEnt, busy, nine);
+
+        WaitlistEntry busyEntry = service.joinWaitlist(busy, ent, WaitlistEntry.MAX_URGENCY);
+        WaitlistEntry anyEntEntry = service.joinWaitlist(anyEnt, Specialization.ENT, 3);
+        WaitlistEntry laterEntry = service.joinWaitlist(later, ent, 3);
+        service.joinWaitlist(cardio, Specialization.CARDIOLOGY, WaitlistEntry.MAX_URGENCY);
+        assertEquals(4, service.getWaitlist().size(), "Four patients waiting");
+
+        // Most urgent is already booked at nine; of the equal-urgency rest, the earlier request wins.
+        service.cancel(freed.getId());
+        assertTrue(anyEntEntry.getBooking().isDone(), "Freed slot is backfilled on cancel");
+        Appointment backfilled = anyEntEntry.getBooking().join();
+        assertEquals(ent.getId(), backfilled.getDoctor().getId(), "Backfill keeps the doctor");
+        assertEquals(nine, backfilled.getScheduledAt(), "Backfill keeps the time");
+        assertTrue(busyEntry.isWaiting(), "Skipped patient keeps waiting");
+        assertEquals(3, service.getWaitlist().size(), "Booked patient leaves the waitlist");
+
+        assertTrue(service.leaveWaitlist(laterEntry), "Waiting entry can be withdrawn");
+        assertTrue(laterEntry.getBooking().isCompletedExceptionally(), "Withdrawn entry's booking fails");
+        assertTrue(!service.leaveWaitlist(laterEntry), "Withdrawing twice is a no-op");
+
+        // Nobody left who can take nine o'clock with this doctor.
+        service.cancel(backfilled.getId());
+        assertTrue(service.listByDoctorBetween(ent.getId(), nine, nine.plusHours(1))
+                .allMatch(a -> a.getStatus() == AppointmentStatus.CANCELLED), "Slot stays free");
+        assertEquals(2, service.getWaitlist().size(), "Busy and cardiology patients still waiting");
+
+        boolean threw = false;
+        try {
+            service.joinWaitlist(later, ent, WaitlistEntry.MAX_URGENCY + 1);
+        } catch (InvalidDataException e) {
+            threw = true;
+        }
+        assertTrue(threw, "Urgency is range-checked");
+
+        // A backfill booking that fails for another reason does not fail the cancellation.
+        DataStore<Appointment> failing = new DataStore<>() {
+            @Override
+            public void upsert(String id, Appointment entity) {
+                if (entity.getPatient().getName().equals("Broken")) {
+                    throw new IllegalStateException("disk full");
+                }
+                super.upsert(id, entity);
+            }
+        };
+        AppointmentService flaky = new AppointmentService(failing);
+        Appointment toCancel = flaky.create(ent, first, nine);
+        WaitlistEntry broken = flaky.joinWaitlist(new Patient("Broken", 35, "6", new PatientProfile("Addr")), ent, 3);
+        assertEquals(AppointmentStatus.CANCELLED, flaky.cancel(toCancel.getId()).getStatus(), "Cancel still succeeds");
+        assertEquals(1L, flaky.backfillFailures(), "Failed backfill is counted");
+        assertTrue(broken.isWaiting(), "Patient stays on the waitlist");
+    }
+
+    private static void testAppointmentAggregates() throws Exception {
+        DataStore<Appointment> store = new ConcurrentDataStore<>();
+        Doctor seeded = new Doctor("Seeded", 50, "000", Specialization.ENT, new BigDecimal("500"));
+        Patient seedPatient = new Patient("Seed", 40, "0", new PatientProfile("Addr"));
+        LocalDateTime start = LocalDateTime.of(2031, 8, 4, 10, 0);
+        Appointment legacy = new Appointment("APT-LEGACY", seeded, seedPatient, start, AppointmentStatus.CONFIRMED);
+        store.upsert(legacy.getId(), legacy);
+        AppointmentService service = new AppointmentService(store);
+
+        Doctor[] doctors = new Doctor[4];
+        for (int d = 0; d < doctors.length; d++) {
+            doctors[d] = new Doctor("Doc" + d, 40, "1" + d, Specialization.ENT, new BigDecimal("500"));
+        }
+        Thread[] writers = new Thread[doctors.length];
+        for (int d = 0; d < doctors.length; d++) {
+            Doctor doctor = doctors[d];
+            writers[d] = new Thread(() -> {
+                for (int i = 0; i < 60; i++) {
+                    Patient p = new Patient("P" + doctor.getName() + i, 30, "2", new PatientProfile("Addr"));
+                    Appointment a = service.create(doctor, p, start.plusDays(i % 3).plusMinutes(30L * (i / 3)));
+                    if (i % 5 == 0) service.cancel(a.getId());
+                    else if (i % 7 == 0) service.complete(a.getId());
+                }
+            });
+            writers[d].start();
+        }
+        for (Thread t : writers) {
+            t.join();
+        }
+        for (int i = 0; i < 10; i++) {
+            service.create(doctors[0], seedPatient, start.plusDays(5).plusMinutes(30L * i));
+        }
+
+        AppointmentAggregates agg = service.getAggregates();
+        assertEquals((long) store.size(), agg.total(), "Total matches the store");
+        for (AppointmentStatus status : AppointmentStatus.values()) {
+            assertEquals(store.stream().filter(a -> a.getStatus() == status).count(), agg.count(status),
+                    "Count by status matches a recount: " + status);
+        }
+        List<Doctor> all = new java.util.ArrayList<>(Arrays.asList(doctors));
+        all.add(seeded);
+        for (Doctor doctor : all) {
+            for (AppointmentStatus status : new AppointmentStatus[]{null, AppointmentStatus.CONFIRMED, AppointmentStatus.CANCELLED}) {
+                long recount = store.stream().filter(a -> a.getDoctor().getId().equals(doctor.getId())
+                        && (status == null || a.getStatus() == status)).count();
+                assertEquals(recount, agg.countByDoctor(doctor.getId(), status), "Count by doctor matches a recount");
+            }
+        }
+        for (int day = 0; day < 7; day++) {
+            LocalDate date = start.toLocalDate().plusDays(day);
+            long recount = store.stream().filter(a -> a.getScheduledAt().toLocalDate().equals(date)).count();
+            assertEquals(recount, agg.countByDay(date, null), "Count by day matches a recount");
+            long completed = store.stream().filter(a -> a.getScheduledAt().toLocalDate().equals(date)
+                    && a.getStatus() == AppointmentStatus.COMPLETED).count();
+            assertEquals(completed, agg.countByDay(date, AppointmentStatus.COMPLETED), "Count by day and status");
+        }
+        assertEquals(1L, agg.countByDoctor(seeded.getId(), AppointmentStatus.CONFIRMED), "Preloaded rows are counted");
+        assertEquals(0L, agg.countByDoctor("DOC-NONE", null), "Unknown doctor counts zero");
+        assertEquals(48, service.countByStatus(AppointmentStatus.CANCELLED), "Service counts use the aggregates");
+    }
+
+    private static void testBatchBilling() {
+        AppointmentService service = new AppointmentService(new ConcurrentDataStore<>());
+        Doctor doctor = new Doctor("Doc", 40, "111", Specialization.ENT, new BigDecimal("1000"));
+        LocalDateTime start = LocalDateTime.of(2031, 9, 1, 10, 0);
+        List<String> ids = new java.util.ArrayList<>();
+        int count = 20_000;
+        for (int i = 0; i < count; i++) {
+            Patient p = new Patient("P" + i, i % 4 == 0 ? 70 : 30, "1", new PatientProfile("Addr"));
+            String id = service.create(doctor, p, start.plusMinutes(30L * i)).getId();
+            ids.add(id);
+            if (i % 10 != 9) service.complete(id);
+        }
+
+        List<Bill> bills = new java.util.ArrayList<>();
+        BatchBillingEngine engine = new BatchBillingEngine(service);
+        BillingRunReport report = engine.billCompletedBetween(start, start.plusYears(5), bills::add);
+        assertEquals(18_000L, report.getBilled(), "Only completed appointments are billed");
+        assertEquals(0L, report.getFailed(), "Nothing fails");
+        assertEquals(5_000L, report.getBillsByStrategy().get("SeniorDiscountThenTaxStrategy"), "Seniors get the discount");
+        assertEquals(ids.get(0), bills.get(0).getAppointmentId(), "Bills come out in time order");
+        assertEquals(new BigDecimal("1062.00"), bills.get(0).amountDue(), "Senior: 10% off, then tax");
+        assertEquals(new BigDecimal("1180.00"), bills.get(1).amountDue(), "Others: flat tax");
+        assertEquals(service.generateBill(ids.get(1)).amountDue(), bills.get(1).amountDue(), "Same total as generateBill");
+        assertEquals(18_000L, bills.stream().map(Bill::getId).distinct().count(), "Bill ids are unique");
+        BigDecimal sum = bills.stream().map(Bill::amountDue).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(sum, report.getTotalAmount(), "Report total matches the bills");
+        assertTrue(report.billsPerSecond() > 0, "Throughput is reported");
+
+        List<String> some = new java.util.ArrayList<>(ids.subList(0, 3));
+        some.add("APT-MISSING");
+        List<String> summaries = new java.util.ArrayList<>();
+        BillingRunReport byId = engine.billAll(some, b -> summaries.add(b.toSummary().getAppointmentId()));
+        assertEquals(3L, byId.getBilled(), "Billing by id ignores status");
+        assertEquals(1L, byId.getFailed(), "Unknown ids fail");
+        assertEquals(ids.subList(0, 3), summaries, "Summaries in input order");
+        assertTrue(byId.getFailedSamples().get(0).startsWith("APT-MISSING"), "Failure names the id");
+    }
+
+    private static void testMoneyMatchesBigDecimal() {
+        assertEquals("12.05", Money.ofMinor(1205).toString(), "Money renders with two decimals");
+        assertEquals("-0.50", Money.ofMinor(-50).toString(), "Negative amounts render");
+        assertEquals(Money.ofMinor(3), Money.ofMinor(25).times(Rate.of("0.1")), "2.5 paise rounds half up");
+        assertEquals(Money.ofMinor(-3), Money.ofMinor(-25).times(Rate.of("0.1")), "Ties round away from zero");
+        boolean threw = false;
+        try {
+            Money.of(new BigDecimal("1.005"));
+        } catch (InvalidDataException e) {
+            threw = true;
+        }
+        assertTrue(threw, "Sub-paise amounts are rejected");
+
+        BillingStrategy[] strategies = {
+                new FlatTaxStrategy(), new SeniorDiscountThenTaxStrategy(),
+                new FlatTaxStrategy(new BigDecimal("0.175")),
+                new SeniorDiscountThenTaxStrategy(new BigDecimal("0.125"), new BigDecimal("0.05"))
+        };
+        java.util.Random random = new java.util.Random(20_31);
+        for (int i = 0; i < 200_000; i++) {
+            long paise = i < 10_000 ? i : random.nextLong(10_000_000_000L);
+            BigDecimal amount = BigDecimal.valueOf(paise, 2);
+            for (BillingStrategy strategy : strategies) {
+                BigDecimal expected = strategy.computeTotal(amount);
+                BigDecimal actual = strategy.computeTotal(Money.ofMinor(paise)).toBigDecimal();
+                if (!expected.equals(actual)) {
+                    throw new AssertionError(strategy.name() + " on " + amount + ": " + expected + " vs " + actual);
+                }
+            }
+            BigDecimal rate = i % 2 == 0 ? new BigDecimal("0.18") : new BigDecimal("0.075");
+            Bill bill = new Bill("BILL-M" + i, "APT-M" + i, amount, rate);
+            BigDecimal tax = amount.multiply(rate).setScale(2, java.math.RoundingMode.HALF_UP);
+            if (!tax.equals(bill.taxAmount())
+                    || !amount.add(tax).setScale(2, java.math.RoundingMode.HALF_UP).equals(bill.amountDue())) {
+                throw new AssertionError("Bill amounts differ for " + amount + " at " + rate);
+            }
+        }
+
+        Bill subPaise = new Bill("BILL-S", "APT-S", new BigDecimal("100.005"), new BigDecimal("0.18"));
+        assertEquals(new BigDecimal("118.01"), subPaise.amountDue(), "Sub-paise bases keep the BigDecimal path");
+        Bill bill = new Bill("BILL-X", "APT-X", new BigDecimal("999.99"), new BigDecimal("0.18"));
+        assertEquals(new BillSummary("BILL-X", "APT-X", new BigDecimal("999.99"), new BigDecimal("180.00"),
+                new BigDecimal("1179.99"), Constants.DEFAULT_CURRENCY), bill.toSummary(), "Summary is unchanged");
+        assertEquals(Money.ofMinor(117_999), bill.toSummary().getTotal(), "Summary exposes Money");
+        assertEquals(bill.totalDue(), Money.of(bill.amountDue()), "Payable total in Money");
+    }
+
+    private static void testBillingPipelines() throws IOException {
+        BillingPipeline seniorPipeline = BillFactory.createPipeline("senior", "discount:0.10, tax:0.18");
+        BillingStrategy classic = new SeniorDiscountThenTaxStrategy();
+        for (long paise = 0; paise < 50_000; paise += 7) {
+            BigDecimal amount = BigDecimal.valueOf(paise, 2);
+            assertEquals(classic.computeTotal(amount), seniorPipeline.computeTotal(Money.ofMinor(paise)).toBigDecimal(),
+                    "Fused discount+tax matches the classic strategy");
+        }
+        assertEquals(classic.computeTotal(new BigDecimal("123.456")), seniorPipeline.computeTotal(new BigDecimal("123.456")),
+                "BigDecimal path matches too");
+
+        // 20% copay, tax, then a fixed 50.00 surcharge: (1000 * 0.2 * 1.18) + 50.
+        BillingPipeline insured = BillFactory.createPipeline("insured", "copay:0.20,tax:0.18,surcharge:50.00");
+        assertEquals(Money.ofMinor(28_600), insured.computeTotal(Money.ofMinor(100_000)), "Copay, tax and surcharge compose");
+        assertEquals(new BigDecimal("286.00"), insured.computeTotal(new BigDecimal("1000")), "Same on BigDecimal");
+
+        Path file = Files.createTempFile("meditrack-billing", ".properties");
+        Files.writeString(file, String.join("\n",
+                "version=7",
+                "pipeline.STANDARD=tax:0.18",
+                "pipeline.SENIOR=discount:0.10,tax:0.18",
+                "pipeline.INSURED=copay:0.20,tax:0.18,surcharge:50.00"));
+        BillingPlan plan = BillFactory.loadPlan(file);
+        assertEquals(7, plan.getVersion(), "Version comes from the configuration");
+        Patient young = new Patient("Young", 30, "1", new PatientProfile("Addr"));
+        Patient old = new Patient("Old", 75, "2", new PatientProfile("Addr"));
+        assertEquals(PatientClass.SENIOR, plan.classify(old), "Default classifier is by age");
+        assertEquals("SENIOR@v7", plan.strategyFor(old).name(), "Pipelines are named by class and version");
+        assertEquals(Money.ofMinor(106_200), plan.total(old, Money.ofMinor(100_000)), "Senior total");
+
+        long misses = plan.cacheMisses();
+        long hits = plan.cacheHits();
+        for (int i = 0; i < 1_000; i++) {
+            plan.total(young, Money.ofMinor(50_000 + (i % 5) * 100));
+        }
+        assertTrue(plan.cacheMisses() - misses <= 5, "Each distinct fee is computed once");
+        assertTrue(plan.cacheHits() - hits >= 995, "Repeated fees come from the cache");
+        assertEquals(Money.ofMinor(59_000), plan.total(young, Money.ofMinor(50_000)), "Cached total is right");
+
+        Properties changed = new Properties();
+        changed.setProperty("version", "7");
+        changed.setProperty("pipeline.STANDARD", "tax:0.05");
+        BillingPlan other = BillFactory.createPlan(changed);
+        assertEquals(Money.ofMinor(52_500), other.total(young, Money.ofMinor(50_000)), "Another plan never sees cached totals");
+        assertEquals(Money.ofMinor(52_500), other.total(old, Money.ofMinor(50_000)), "Missing classes use STANDARD");
+
+        BatchBillingEngine engine = new BatchBillingEngine(new AppointmentService(new DataStore<>()),
+                java.util.concurrent.ForkJoinPool.commonPool(), plan::strategyFor);
+        assertEquals(0L, engine.billAll(List.of(), b -> { }).getBilled(), "Plans plug into batch billing");
+
+        boolean threw = false;
+        try {
+            BillFactory.createPipeline("bad", "discount:1.5");
+        } catch (InvalidDataException e) {
+            threw = true;
+        }
+        assertTrue(threw, "Discounts above 100% are rejected");
+    }
+
+    private static void testIdempotentBills() {
+        AppointmentService service = new AppointmentService(new DataStore<>());
+        Doctor doctor = new Doctor("Doc", 40, "111", Specialization.ENT, new BigDecimal("1000"));
+        Patient senior = new Patient("Senior", 70, "1", new PatientProfile("Addr"));
+        Appointment appt = service.create(doctor, senior, LocalDateTime.of(2031, 10, 1, 10, 0));
+        BillRepository bills = service.getBillRepository();
+
+        Bill first = service.generateBill(appt.getId());
+        Bill again = service.generateBill(appt.getId());
+        assertTrue(first == again, "Repeated generateBill returns the stored bill");
+        assertEquals(1L, bills.computations(), "Computed once");
+        assertEquals(1, bills.size(), "One bill per appointment");
+        assertTrue(bills.findByAppointmentId(appt.getId()).orElseThrow() == first, "Lookup by appointment id");
+
+        doctor.setConsultationFee(new BigDecimal("1200"));
+        Bill repriced = service.generateBill(appt.getId());
+        assertEquals(new BigDecimal("1416.00"), repriced.amountDue(), "Fee change recomputes");
+        assertEquals(first.getId(), repriced.getId(), "Recomputed bill keeps its id");
+        assertEquals(1, bills.size(), "Still one bill");
+
+        service.setBillingStrategy(BillFactory.defaultPlan()::strategyFor);
+        Bill discounted = service.generateBill(appt.getId());
+        assertEquals(new BigDecimal("1274.40"), discounted.amountDue(), "Strategy change recomputes");
+        service.generateBill(appt.getId());
+        assertEquals(3L, bills.computations(), "Unchanged inputs do not recompute");
+
+        // A bill store reopened without the repository's memory: kept if still correct.
+        DataStore<Bill> persisted = new DataStore<>();
+        persisted.upsert(discounted.getId(), discounted);
+        BillRepository reopened = new BillRepository(persisted);
+        AppointmentService restarted = new AppointmentService(copyOf(service),
+                java.time.Duration.ofMinutes(30), null, reopened);
+        restarted.setBillingStrategy(BillFactory.defaultPlan()::strategyFor);
+        assertEquals(discounted.getId(), restarted.generateBill(appt.getId()).getId(), "Stored bill is reused");
+        assertEquals(1, reopened.size(), "No duplicate after restart");
+
+        assertTrue(bills.invalidate(appt.getId()), "Bills can be invalidated");
+        assertTrue(bills.findByAppointmentId(appt.getId()).isEmpty(), "Invalidated bill is gone");
+        assertTrue(service.generateBill(appt.getId()) != discounted, "Next request recomputes");
+    }
+
+    private static void testRevenueAnalytics() {
+        AppointmentService service = new AppointmentService(new DataStore<>());
+        Doctor ent = new Doctor("Ent", 40, "111", Specialization.ENT, new BigDecimal("1000"));
+        Doctor heart = new Doctor("Heart", 50, "222", Specialization.CARDIOLOGY, new BigDecimal("500"));
+        Patient patient = new Patient("P", 30, "1", new PatientProfile("Addr"));
+        LocalDate start = LocalDate.of(2031, 6, 15);
+        List<Appointment> appts = new java.util.ArrayList<>();
+        // Spread over a year, starting mid-range, so the day series grow in both directions.
+        for (int i = 0; i < 60; i++) {
+            int offset = (i % 2 == 0 ? 1 : -1) * i * 3;
+            appts.add(service.create(i % 3 == 0 ? heart : ent, patient, start.plusDays(offset).atTime(10, 0)));
+        }
+        appts.forEach(a -> service.generateBill(a.getId()));
+        RevenueAnalytics revenue = service.getRevenue();
+        assertEquals(60, revenue.billsCounted(), "Every bill counted");
+
+        LocalDate from = start.minusDays(100);
+        LocalDate to = start.plusDays(40);
+        java.util.function.BiFunction<Doctor, Specialization, Money> expected = (doctor, spec) -> appts.stream()
+                .filter(a -> !a.getScheduledAt().toLocalDate().isBefore(from) && !a.getScheduledAt().toLocalDate().isAfter(to))
+                .filter(a -> doctor == null || a.getDoctor() == doctor)
+                .filter(a -> spec == null || a.getDoctor().getSpecialization() == spec)
+                .map(a -> service.getBillRepository().findByAppointmentId(a.getId()).orElseThrow().totalDue())
+                .reduce(Money.ZERO, Money::plus);
+        assertEquals(expected.apply(null, null), revenue.total(from, to), "Range total");
+        assertEquals(expected.apply(ent, null), revenue.doctorTotal(ent.getId(), from, to), "Doctor total");
+        assertEquals(expected.apply(null, Specialization.CARDIOLOGY),
+                revenue.specializationTotal(Specialization.CARDIOLOGY, from, to), "Specialization total");
+        assertEquals(Money.ZERO, revenue.specializationTotal(Specialization.NEUROLOGY, from, to), "No revenue");
+
+        java.util.SortedMap<LocalDate, Money> months = revenue.periodTotals(java.time.temporal.ChronoUnit.MONTHS,
+                LocalDate.of(2030, 1, 1), LocalDate.of(2032, 12, 31));
+        assertEquals(36, months.size(), "One bucket per month");
+        assertEquals(revenue.total(LocalDate.of(2030, 1, 1), LocalDate.of(2032, 12, 31)),
+                months.values().stream().reduce(Money.ZERO, Money::plus), "Months add up");
+        java.util.SortedMap<LocalDate, Money> weeks = revenue.periodTotals(java.time.temporal.ChronoUnit.WEEKS, start, start);
+        assertEquals(java.time.DayOfWeek.MONDAY, weeks.firstKey().getDayOfWeek(), "Weeks start on Monday");
+
+        Money before = revenue.total(start, start);
+        assertEquals(Money.of(new BigDecimal("590.00")), before, "First appointment is cardiology");
+        heart.setConsultationFee(new BigDecimal("1000"));
+        service.generateBill(appts.get(0).getId());
+        assertEquals(Money.of(new BigDecimal("1180.00")), revenue.total(start, start), "Repriced bill replaces the old amount");
+        service.generateBill(appts.get(0).getId());
+        assertEquals(Money.of(new BigDecimal("1180.00")), revenue.total(start, start), "Regenerating does not double count");
+        assertTrue(service.voidBill(appts.get(0).getId()), "Bill voided");
+        assertEquals(Money.ZERO, revenue.total(start, start), "Voided bill no longer counted");
+
+        Money year = revenue.total(LocalDate.of(2030, 1, 1), LocalDate.of(2032, 12, 31));
+        service.reconcileRevenue();
+        assertEquals(59, revenue.billsCounted(), "Reconciled count");
+        assertEquals(year, revenue.total(LocalDate.of(2030, 1, 1), LocalDate.of(2032, 12, 31)), "Reconciled total");
+        assertEquals(expected.apply(ent, null), revenue.doctorTotal(ent.getId(), from, to), "Reconciled doctor total");
+    }
+
+    private static void testSymptomMatcher() {
+        List<TriageRule> rules = AIHelper.defaultRules();
+        assertEquals(Specialization.ENT, AIHelper.recommendSpecialization(List.of("EARache and a Sore THROAT")),
+                "Case-insensitive match");
+        assertEquals(Specialization.ORTHOPEDICS, AIHelper.recommendSpecialization(List.of("\u212Anee swelling")),
+                "Kelvin sign lower-cases to k, as String.toLowerCase does");
+        assertEquals(Specialization.GENERAL_PHYSICIAN, AIHelper.recommendSpecialization(List.of("nothing specific")),
+                "No match falls back to general physician");
+        assertEquals(Specialization.DERMATOLOGY, AIHelper.recommendSpecialization(List.of("rash", "ear")),
+                "Ties go to the specialization declared first");
+        assertEquals(Specialization.GENERAL_PHYSICIAN,
+                AIHelper.recommendSpecialization(Arrays.asList(null, "fever fever cough", "cold", "rash")),
+                "A rule scores once per symptom");
+
+        String[] words = {"fever", "ear", "year", "bp", "knee", "joint pain", "child", "rash", "the", "and", "Itch",
+                "HEADACHE", "blood", "pressure", "sinus", "nosebleed", "stroke", "\u0130tch", "caf\u00e9", " ", "pain"};
+        java.util.Random random = new java.util.Random(7);
+        for (int i = 0; i < 2_000; i++) {
+            List<String> symptoms = new java.util.ArrayList<>();
+            for (int j = random.nextInt(4); j >= 0; j--) {
+                StringBuilder text = new StringBuilder();
+                for (int k = random.nextInt(6); k >= 0; k--) {
+                    text.append(words[random.nextInt(words.length)]).append(random.nextBoolean() ? " " : "");
+                }
+                symptoms.add(text.toString());
+            }
+            assertEquals(containsRecommendation(rules, symptoms), AIHelper.recommendSpecialization(symptoms),
+                    "Automaton agrees with substring search on " + symptoms);
+        }
+    }
+
+    private static void testTriageRuleReload() throws Exception {
+        Path dir = Files.createTempDirectory("meditrack-triage");
+        Path file = dir.resolve("triage.properties");
+        Files.writeString(file, "version=1\nrule.skin=DERMATOLOGY:3:rash,itch\n");
+        List<String> ear = List.of("ear pain");
+        try (TriageRules rules = new TriageRules(new SymptomMatcher(AIHelper.defaultRules()))) {
+            assertEquals(Specialization.ENT, rules.recommend(ear), "Built-in rules");
+            rules.watch(file);
+            assertEquals(1, rules.current().getVersion(), "File loaded on watch");
+            assertEquals(Specialization.GENERAL_PHYSICIAN, rules.recommend(ear), "File rules in force");
+
+            Files.writeString(file, "version=2\nrule.ent=ENT:3:ear\nrule.skin=DERMATOLOGY:3:rash\n");
+            assertTrue(awaitVersion(rules, 2), "Changed file is reloaded");
+            assertEquals(Specialization.ENT, rules.recommend(ear), "Reloaded rules in force");
+
+            long failures = rules.reloadFailures();
+            replaceAtomically(file, "version=3\nrule.ent=NOT_A_SPECIALIZATION:3:ear\n");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (rules.reloadFailures() == failures && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(rules.reloadFailures() > failures, "Invalid file is reported");
+            assertEquals(2, rules.current().getVersion(), "Invalid file keeps the rules in force");
+
+            Properties candidate = new Properties();
+            candidate.setProperty("version", "7");
+            candidate.setProperty("rule.ent", "NEUROLOGY:5:ear");
+            try {
+                rules.startExperiment(rules.current(), 50);
+                throw new AssertionError("Expected InvalidDataException for equal versions");
+            } catch (InvalidDataException expected) {
+                // expected
+            }
+            rules.startExperiment(TriageRules.parse(candidate), 100);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(Specialization.NEUROLOGY, rules.recommend(ear), "All calls go to the candidate");
+            }
+            failures = rules.reloadFailures();
+            replaceAtomically(file, "version=7\nrule.ent=ENT:3:ear\n");
+            deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (rules.reloadFailures() == failures && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(rules.reloadFailures() > failures, "Reload with the candidate's version is rejected");
+            assertEquals(2, rules.current().getVersion(), "Rules in force are kept");
+            assertEquals(7, rules.candidate().orElseThrow().getVersion(), "Candidate is kept");
+            rules.endExperiment();
+            assertEquals(Specialization.ENT, rules.recommend(ear), "Experiment ended");
+
+            List<TriageStats> stats = rules.stats();
+            assertEquals(List.of(0, 1, 2, 7), stats.stream().map(TriageStats::getVersion).toList(), "Stats per version");
+            TriageStats b = stats.get(3);
+            assertEquals(10L, b.getCalls(), "Candidate calls");
+            assertEquals(10L, b.getOutcomes().get(Specialization.NEUROLOGY), "Candidate outcomes");
+            assertTrue(b.getCallsPerSecond() > 0, "Candidate throughput");
+        }
+    }
+
+    /**
+     * Writes a sibling file and renames it over {@code file}, so a watcher sees only the complete file.
+     */
+    private static void replaceAtomically(Path file, String content) throws IOException {
+        Path staged = file.resolveSibling(file.getFileName() + ".staged");
+        Files.writeString(staged, content);
+        Files.move(staged, file, java.nio.file.StandardCopyOption.REPLACE_EXISTING,
+                java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static boolean awaitVersion(TriageRules rules, int version) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (rules.current().getVersion() != version) {
+            if (System.nanoTime() > deadline) return false;
+            Thread.sleep(20);
+        }
+        return true;
+    }
+
+    /**
+     * The original algorithm: every keyword checked with {@code String.contains}.
+     */
+    private static Specialization containsRecommendation(List<TriageRule> rules, List<String> symptoms) {
+        int[] score = new int[Specialization.values().length];
+        for (String symptom : symptoms) {
+            String s = symptom.trim().toLowerCase(java.util.Locale.ROOT);
+            for (TriageRule rule : rules) {
+                if (rule.getKeywords().stream().anyMatch(s::contains)) {
+                    score[rule.getSpecialization().ordinal()] += rule.getWeight();
+                }
+            }
+        }
+        int best = 0;
+        for (int i = 1; i < score.length; i++) {
+            if (score[i] > score[best]) best = i;
+        }
+        return Specialization.values()[best];
+    }
+
+    private static DataStore<Appointment> copyOf(AppointmentService service) {
+        DataStore<Appointment> copy = new DataStore<>();
+        service.view().forEach(a -> copy.upsert(a.getId(), a));
+        return copy;
+    }
+
     private static void assertTrue(boolean ok, String message) {
         if (!ok) throw new AssertionError(message);
     }
@@ -2,16 +2,15 @@ package com.airtribe.meditrack.util;
 
 import com.airtribe.meditrack.entity.Doctor;
 import com.airtribe.meditrack.entity.Specialization;
+import com.airtribe.meditrack.scheduling.AvailabilityCalendar;
+import com.airtribe.meditrack.scheduling.AvailableSlot;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -22,37 +21,43 @@ import java.util.Optional;
  * - appointment slot suggestions
  */
 public final class AIHelper {
+    /** Days searched ahead by {@link #suggestEarliestSlot}. */
+    private static final int SLOT_SEARCH_DAYS = 14;
+
+    private static final List<TriageRule> DEFAULT_RULES = List.of(
+            TriageRule.of(Specialization.GENERAL_PHYSICIAN, 2, "fever", "cold", "cough", "flu", "body ache"),
+            TriageRule.of(Specialization.DERMATOLOGY, 3, "rash", "acne", "itch", "eczema", "psoriasis"),
+            TriageRule.of(Specialization.CARDIOLOGY, 3, "chest pain", "palpitation", "bp", "blood pressure", "hypertension"),
+            TriageRule.of(Specialization.ORTHOPEDICS, 3, "joint pain", "knee", "back pain", "fracture", "sprain"),
+            TriageRule.of(Specialization.PEDIATRICS, 3, "child", "pediatric", "newborn", "vaccination"),
+            TriageRule.of(Specialization.NEUROLOGY, 3, "headache", "migraine", "seizure", "numbness", "stroke"),
+            TriageRule.of(Specialization.ENT, 3, "ear", "throat", "nose", "sinus", "tonsil"));
+    /** Starts with the built-in rules, compiled into one automaton; see {@link #triageRules()}. */
+    private static final TriageRules TRIAGE_RULES = new TriageRules(new SymptomMatcher(DEFAULT_RULES));
+
     private AIHelper() {}
 
     /**
-     * Recommend a specialization based on symptom keywords.
+     * Recommend a specialization based on symptom keywords; ties go to the specialization
+     * declared first.
      */
     public static Specialization recommendSpecialization(List<String> symptoms) {
-        Validator.requireNonNull(symptoms, "symptoms");
-
-        Map<Specialization, Integer> score = new HashMap<>();
-        for (Specialization s : Specialization.values()) {
-            score.put(s, 0);
-        }
+        return TRIAGE_RULES.recommend(symptoms);
+    }
 
-        for (String raw : symptoms) {
-            if (raw == null) continue;
-            String s = raw.trim().toLowerCase(Locale.ROOT);
-            if (s.isEmpty()) continue;
-
-            if (containsAny(s, "fever", "cold", "cough", "flu", "body ache")) bump(score, Specialization.GENERAL_PHYSICIAN, 2);
-            if (containsAny(s, "rash", "acne", "itch", "eczema", "psoriasis")) bump(score, Specialization.DERMATOLOGY, 3);
-            if (containsAny(s, "chest pain", "palpitation", "bp", "blood pressure", "hypertension")) bump(score, Specialization.CARDIOLOGY, 3);
-            if (containsAny(s, "joint pain", "knee", "back pain", "fracture", "sprain")) bump(score, Specialization.ORTHOPEDICS, 3);
-            if (containsAny(s, "child", "pediatric", "newborn", "vaccination")) bump(score, Specialization.PEDIATRICS, 3);
-            if (containsAny(s, "headache", "migraine", "seizure", "numbness", "stroke")) bump(score, Specialization.NEUROLOGY, 3);
-            if (containsAny(s, "ear", "throat", "nose", "sinus", "tonsil")) bump(score, Specialization.ENT, 3);
-        }
+    /**
+     * The rules {@link #recommendSpecialization} uses: the built-in ones (version 0) until a
+     * rules file is watched or an experiment started.
+     */
+    public static TriageRules triageRules() {
+        return TRIAGE_RULES;
+    }
 
-        return score.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(Specialization.GENERAL_PHYSICIAN);
+    /**
+     * The built-in keyword rules.
+     */
+    public static List<TriageRule> defaultRules() {
+        return DEFAULT_RULES;
     }
 
     /**
@@ -87,16 +92,28 @@ public final class AIHelper {
         return slots;
     }
 
-    private static boolean containsAny(String s, String... needles) {
-        for (String n : needles) {
-            if (s.contains(n)) return true;
-        }
-        return false;
+    /**
+     * Suggest the doctor's free slots on a date, skipping slots already booked.
+     */
+    public static List<LocalDateTime> suggestSlots(LocalDate date, Doctor doctor, AvailabilityCalendar calendar) {
+        Validator.requireNonNull(date, "date");
+        Validator.requireNonNull(doctor, "doctor");
+        Validator.requireNonNull(calendar, "calendar");
+        return calendar.freeSlots(doctor.getId(), date);
     }
 
-    private static void bump(Map<Specialization, Integer> score, Specialization s, int inc) {
-        score.put(s, score.getOrDefault(s, 0) + inc);
+    /**
+     * Suggest the earliest free slot at or after {@code from} with any doctor of the specialization.
+     */
+    public static Optional<AvailableSlot> suggestEarliestSlot(List<Doctor> doctors, Specialization specialization,
+                                                              AvailabilityCalendar calendar, LocalDateTime from) {
+        Validator.requireNonNull(doctors, "doctors");
+        Validator.requireNonNull(specialization, "specialization");
+        Validator.requireNonNull(calendar, "calendar");
+        List<Doctor> matching = doctors.stream()
+                .filter(Objects::nonNull)
+                .filter(d -> d.getSpecialization() == specialization)
+                .toList();
+        return calendar.earliestFree(matching, from, SLOT_SEARCH_DAYS);
     }
 }
-
-
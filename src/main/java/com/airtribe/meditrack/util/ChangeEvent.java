@@ -0,0 +1,68 @@
+package com.airtribe.meditrack.util;
+
+import java.util.Optional;
+
+/**
+ * One mutation recorded by a {@link ChangeFeed}.
+ *
+ * <p>{@code before} is the instance that was stored before the change and {@code after} the
+ * one stored by it.</p>
+ */
+public final class ChangeEvent<T> {
+    public enum Type {
+        UPSERT,
+        REMOVE
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final String id;
+    private final T before;
+    private final T after;
+
+    ChangeEvent(long sequence, Type type, String id, T before, T after) {
+        this.sequence = sequence;
+        this.type = type;
+        this.id = id;
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * Position in the feed; strictly increasing, starting at 1.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Value before the change; empty for inserts.
+     */
+    public Optional<T> getBefore() {
+        return Optional.ofNullable(before);
+    }
+
+    /**
+     * Value after the change; empty for removals.
+     */
+    public Optional<T> getAfter() {
+        return Optional.ofNullable(after);
+    }
+
+    public boolean isInsert() {
+        return type == Type.UPSERT && before == null;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{" + sequence + " " + type + " " + id + "}";
+    }
+}
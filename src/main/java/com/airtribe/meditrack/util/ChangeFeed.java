@@ -0,0 +1,230 @@
+package com.airtribe.meditrack.util;
+
+import com.airtribe.meditrack.exception.InvalidDataException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Change-data-capture feed of a {@link DataStore}: every upsert and remove becomes a
+ * {@link ChangeEvent} with a strictly increasing sequence number.
+ *
+ * <p>Events live in a fixed-size ring buffer shared by all consumers, so memory is bounded
+ * and publishing allocates nothing but the event: no queue nodes, no per-subscriber copies.
+ * Consumers either pull with {@link #read} or {@link #subscribe} a handler that runs on its
+ * own daemon thread. Both resume from any sequence still in the ring; a consumer that falls
+ * more than {@code capacity} events behind is lapped and must resync from the store.</p>
+ *
+ * <p>Concurrent writers to the same id on a {@link ConcurrentDataStore} may be sequenced in
+ * either order; writes to an id from a single thread are always in order.</p>
+ */
+public final class ChangeFeed<T> {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final AtomicInteger SUBSCRIBER_IDS = new AtomicInteger();
+
+    private final AtomicReferenceArray<ChangeEvent<T>> ring;
+    private final int mask;
+    private final AtomicLong lastSequence = new AtomicLong();
+    private volatile Subscription<?>[] subscriptions = new Subscription<?>[0];
+
+    /**
+     * @param capacity events retained for lagging consumers; rounded up to a power of two
+     */
+    public ChangeFeed(int capacity) {
+        Validator.requirePositive(capacity, "capacity");
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Sequence of the most recently published event (0 before the first one).
+     */
+    public long lastSequence() {
+        return lastSequence.get();
+    }
+
+    void publish(ChangeEvent.Type type, String id, T before, T after) {
+        long sequence = lastSequence.incrementAndGet();
+        ring.setRelease(slot(sequence), new ChangeEvent<>(sequence, type, id, before, after));
+        Subscription<?>[] subs = subscriptions;
+        for (int i = 0; i < subs.length; i++) {
+            subs[i].wake();
+        }
+    }
+
+    /**
+     * Up to {@code max} published events after {@code afterSequence}, oldest first. Stops
+     * early at a sequence whose writer has not finished publishing yet.
+     *
+     * @throws InvalidDataException if events after {@code afterSequence} were already overwritten
+     */
+    public List<ChangeEvent<T>> read(long afterSequence, int max) {
+        Validator.requirePositive(max, "max");
+        requireRetained(afterSequence);
+        List<ChangeEvent<T>> out = new ArrayList<>(Math.min(max, capacity()));
+        for (long next = afterSequence + 1; out.size() < max; next++) {
+            ChangeEvent<T> event = ring.getAcquire(slot(next));
+            if (event == null || event.getSequence() < next) break;
+            if (event.getSequence() > next) {
+                throw lapped(afterSequence);
+            }
+            out.add(event);
+        }
+        return out;
+    }
+
+    /**
+     * Delivers every event after the current last sequence to {@code handler} on a daemon thread.
+     */
+    public Subscription<T> subscribe(Consumer<? super ChangeEvent<T>> handler) {
+        return subscribe(lastSequence(), handler);
+    }
+
+    /**
+     * Delivers every event after {@code afterSequence} to {@code handler} on a daemon thread,
+     * e.g. resuming from {@link Subscription#lastDelivered()} of an earlier subscription.
+     *
+     * @throws InvalidDataException if events after {@code afterSequence} were already overwritten
+     */
+    public Subscription<T> subscribe(long afterSequence, Consumer<? super ChangeEvent<T>> handler) {
+        Validator.requireNonNull(handler, "handler");
+        requireRetained(afterSequence);
+        Subscription<T> subscription = new Subscription<>(this, afterSequence, handler);
+        synchronized (this) {
+            Subscription<?>[] subs = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+            subs[subs.length - 1] = subscription;
+            subscriptions = subs;
+        }
+        subscription.thread.start();
+        return subscription;
+    }
+
+    private synchronized void unregister(Subscription<?> subscription) {
+        subscriptions = Arrays.stream(subscriptions)
+                .filter(s -> s != subscription)
+                .toArray(Subscription<?>[]::new);
+    }
+
+    private void requireRetained(long afterSequence) {
+        long last = lastSequence();
+        if (afterSequence < 0 || afterSequence > last) {
+            throw new InvalidDataException("Sequence " + afterSequence + " is outside 0.." + last);
+        }
+        if (last - afterSequence > capacity()) {
+            throw lapped(afterSequence);
+        }
+    }
+
+    private InvalidDataException lapped(long afterSequence) {
+        return new InvalidDataException("Change feed no longer retains events after sequence "
+                + afterSequence + " (capacity " + capacity() + ")");
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence & mask);
+    }
+
+    /**
+     * Handle of an asynchronous consumer; {@link #close()} stops it.
+     */
+    public static final class Subscription<T> implements AutoCloseable {
+        private final ChangeFeed<T> feed;
+        private final Consumer<? super ChangeEvent<T>> handler;
+        private final Thread thread;
+        private volatile long lastDelivered;
+        private volatile boolean waiting;
+        private volatile boolean closed;
+        private volatile Throwable failure;
+
+        private Subscription(ChangeFeed<T> feed, long afterSequence, Consumer<? super ChangeEvent<T>> handler) {
+            this.feed = feed;
+            this.handler = handler;
+            this.lastDelivered = afterSequence;
+            this.thread = new Thread(this::run, "change-feed-" + SUBSCRIBER_IDS.incrementAndGet());
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Sequence of the last event handed to the handler; pass it to
+         * {@link ChangeFeed#subscribe(long, Consumer)} to resume.
+         */
+        public long lastDelivered() {
+            return lastDelivered;
+        }
+
+        public boolean isActive() {
+            return !closed;
+        }
+
+        /**
+         * Why the subscription stopped on its own: the handler threw, or it was lapped
+         * ({@link InvalidDataException}).
+         */
+        public Optional<Throwable> failure() {
+            return Optional.ofNullable(failure);
+        }
+
+        /**
+         * Blocks until every event up to {@code sequence} was handled or the subscription stopped.
+         */
+        public boolean awaitDelivered(long sequence, long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (lastDelivered < sequence && !closed) {
+                if (System.nanoTime() >= deadline) return false;
+                Thread.sleep(1);
+            }
+            return lastDelivered >= sequence;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            feed.unregister(this);
+            LockSupport.unpark(thread);
+        }
+
+        private void wake() {
+            if (waiting) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        private void run() {
+            long next = lastDelivered + 1;
+            try {
+                while (!closed) {
+                    ChangeEvent<T> event = feed.ring.getAcquire(feed.slot(next));
+                    if (event != null && event.getSequence() == next) {
+                        handler.accept(event);
+                        lastDelivered = next++;
+                    } else if (event != null && event.getSequence() > next) {
+                        throw feed.lapped(next - 1);
+                    } else {
+                        waiting = true;
+                        event = feed.ring.getAcquire(feed.slot(next));
+                        if (event == null || event.getSequence() < next) {
+                            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                        }
+                        waiting = false;
+                    }
+                }
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                close();
+            }
+        }
+    }
+}
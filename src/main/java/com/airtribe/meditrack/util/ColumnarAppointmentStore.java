@@ -0,0 +1,339 @@
+package com.airtribe.meditrack.util;
+
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.AppointmentStatus;
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.MedicalEntity;
+import com.airtribe.meditrack.entity.Patient;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Column-oriented {@link DataStore} for appointments.
+ *
+ * <p>Instead of one {@link Appointment} object graph per booking, each row is spread over
+ * fixed-width columns: doctor and patient ordinals ({@code int}), scheduled time in epoch
+ * minutes ({@code long}), creation time in epoch nanos ({@code long}) and a status code
+ * ({@code byte}) - 25 bytes per row plus the id. Columns are {@link ByteBuffer}s, either on
+ * the heap or off-heap ({@code offHeap = true}) so a year of history does not weigh on GC.</p>
+ *
+ * <p>{@link #get} materializes a fresh {@link Appointment} copy on every call (as do iteration
+ * and the index lookups): changes to a copy are invisible to the store and to other callers
+ * until it is {@link #upsert upserted} back. The {@code count...} methods run directly over
+ * the columns without materializing anything; {@link
+ * com.airtribe.meditrack.service.AppointmentService#countBetween} uses them.</p>
+ *
+ * <p>Scheduled times are stored with minute precision. Rows stay in insertion order: removal
+ * leaves a hole that is compacted away, order preserved, once holes make up half the rows.
+ * Not thread-safe, like {@link DataStore}.</p>
+ */
+public class ColumnarAppointmentStore extends DataStore<Appointment> {
+    private static final int INITIAL_ROWS = 1024;
+    private static final AppointmentStatus[] STATUSES = AppointmentStatus.values();
+
+    private final boolean offHeap;
+
+    private ByteBuffer doctorCol;
+    private ByteBuffer patientCol;
+    private ByteBuffer scheduledCol;
+    private ByteBuffer createdCol;
+    private ByteBuffer statusCol;
+    private long[] seqs;
+    private String[] ids;
+    /** Rows in use, holes included; removed rows have a {@code null} id until compacted. */
+    private int rows;
+    private int holes;
+    private long nextSeq = 1;
+
+    private final Map<String, Integer> rowById = new HashMap<>();
+    private final List<Doctor> doctors = new ArrayList<>();
+    private final Map<String, Integer> doctorOrdinals = new HashMap<>();
+    private final List<Patient> patients = new ArrayList<>();
+    private final Map<String, Integer> patientOrdinals = new HashMap<>();
+
+    public ColumnarAppointmentStore() {
+        this(false);
+    }
+
+    public ColumnarAppointmentStore(boolean offHeap) {
+        this.offHeap = offHeap;
+        allocate(INITIAL_ROWS);
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    // ---- column queries ----
+
+    /**
+     * Number of appointments scheduled in {@code [from, to)}, scanning only the time column.
+     */
+    public int countScheduledBetween(LocalDateTime from, LocalDateTime to) {
+        return countScheduledBetween(null, from, to);
+    }
+
+    /**
+     * Number of appointments in {@code status} ({@code null} = any) scheduled in {@code [from, to)},
+     * scanning only the time and status columns.
+     */
+    public int countScheduledBetween(AppointmentStatus status, LocalDateTime from, LocalDateTime to) {
+        // Stored times are whole minutes, so rounding the bounds up keeps the window exact.
+        long lo = ceilEpochMinute(Validator.requireNonNull(from, "from"));
+        long hi = ceilEpochMinute(Validator.requireNonNull(to, "to"));
+        int code = status == null ? -1 : status.ordinal();
+        int n = 0;
+        for (int row = 0; row < rows; row++) {
+            long t = scheduledCol.getLong(row * Long.BYTES);
+            if (t >= lo && t < hi && (code < 0 || statusCol.get(row) == code) && ids[row] != null) n++;
+        }
+        return n;
+    }
+
+    // ---- storage primitives ----
+
+    @Override
+    protected Appointment putValue(String key, Appointment value) {
+        Integer existing = rowById.get(key);
+        Appointment previous = existing == null ? null : materialize(existing);
+        int row;
+        if (existing == null) {
+            ensureCapacity(rows + 1);
+            row = rows++;
+            ids[row] = key;
+            seqs[row] = nextSeq++;
+            rowById.put(key, row);
+        } else {
+            row = existing;
+        }
+        doctorCol.putInt(row * Integer.BYTES, ordinal(value.getDoctor(), doctors, doctorOrdinals));
+        patientCol.putInt(row * Integer.BYTES, ordinal(value.getPatient(), patients, patientOrdinals));
+        scheduledCol.putLong(row * Long.BYTES, toEpochMinute(value.getScheduledAt()));
+        createdCol.putLong(row * Long.BYTES, toEpochNanos(value.getCreatedAt()));
+        statusCol.put(row, (byte) value.getStatus().ordinal());
+        return previous;
+    }
+
+    @Override
+    protected Appointment getValue(String key) {
+        Integer row = rowById.get(key);
+        return row == null ? null : materialize(row);
+    }
+
+    @Override
+    protected Appointment removeValue(String key) {
+        Integer row = rowById.remove(key);
+        if (row == null) return null;
+        Appointment removed = materialize(row);
+        ids[row] = null;
+        holes++;
+        if (holes * 2 >= rows) {
+            compact();
+        }
+        return removed;
+    }
+
+    @Override
+    protected void forEachEntry(BiConsumer<String, Appointment> action) {
+        for (int row = 0; row < rows; row++) {
+            if (ids[row] != null) {
+                action.accept(ids[row], materialize(row));
+            }
+        }
+    }
+
+    @Override
+    protected int count() {
+        return rows - holes;
+    }
+
+    /**
+     * The cursor holds the id and insertion sequence of the last row returned. Seeking is O(1)
+     * while that row exists and a binary search over the (ascending) sequences otherwise.
+     */
+    @Override
+    protected Page<Appointment> pageFrom(Page.Cursor cursor, int pageSize) {
+        int row = nextLive(startRow(cursor));
+        List<Appointment> items = new ArrayList<>(Math.min(pageSize, count()));
+        int last = -1;
+        while (items.size() < pageSize && row < rows) {
+            items.add(materialize(row));
+            last = row;
+            row = nextLive(row + 1);
+        }
+        return new Page<>(items, row < rows ? Page.encodeCursor(seqs[last], ids[last]) : null);
+    }
+
+    private int startRow(Page.Cursor cursor) {
+        if (cursor.key() == null) {
+            return 0;
+        }
+        Integer previous = rowById.get(cursor.key());
+        if (previous != null && seqs[previous] == cursor.position()) {
+            return previous + 1;
+        }
+        int lo = 0, hi = rows;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (seqs[mid] <= cursor.position()) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private int nextLive(int row) {
+        while (row < rows && ids[row] == null) row++;
+        return row;
+    }
+
+    @Override
+    protected Collection<Appointment> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Appointment> iterator() {
+                return new Iterator<>() {
+                    private int row = nextLive(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return row < rows;
+                    }
+
+                    @Override
+                    public Appointment next() {
+                        if (row >= rows) throw new NoSuchElementException();
+                        Appointment a = materialize(row);
+                        row = nextLive(row + 1);
+                        return a;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return count();
+            }
+        };
+    }
+
+    private Appointment materialize(int row) {
+        return new Appointment(
+                ids[row],
+                fromEpochNanos(createdCol.getLong(row * Long.BYTES)),
+                doctors.get(doctorCol.getInt(row * Integer.BYTES)),
+                patients.get(patientCol.getInt(row * Integer.BYTES)),
+                fromEpochMinute(scheduledCol.getLong(row * Long.BYTES)),
+                STATUSES[statusCol.get(row)]);
+    }
+
+    /**
+     * Ordinal of a doctor/patient; the latest instance seen for an id wins.
+     */
+    private static <E extends MedicalEntity> int ordinal(
+            E entity, List<E> byOrdinal, Map<String, Integer> ordinals) {
+        Integer ord = ordinals.get(entity.getId());
+        if (ord == null) {
+            ord = byOrdinal.size();
+            byOrdinal.add(entity);
+            ordinals.put(entity.getId(), ord);
+        } else if (byOrdinal.get(ord) != entity) {
+            byOrdinal.set(ord, entity);
+        }
+        return ord;
+    }
+
+    private void moveRow(int from, int to) {
+        doctorCol.putInt(to * Integer.BYTES, doctorCol.getInt(from * Integer.BYTES));
+        patientCol.putInt(to * Integer.BYTES, patientCol.getInt(from * Integer.BYTES));
+        scheduledCol.putLong(to * Long.BYTES, scheduledCol.getLong(from * Long.BYTES));
+        createdCol.putLong(to * Long.BYTES, createdCol.getLong(from * Long.BYTES));
+        statusCol.put(to, statusCol.get(from));
+        seqs[to] = seqs[from];
+        ids[to] = ids[from];
+    }
+
+    /**
+     * Closes the holes left by removals, keeping the remaining rows in order.
+     */
+    private void compact() {
+        int live = 0;
+        for (int row = 0; row < rows; row++) {
+            if (ids[row] == null) continue;
+            if (row != live) {
+                moveRow(row, live);
+                rowById.put(ids[live], live);
+            }
+            live++;
+        }
+        Arrays.fill(ids, live, rows, null);
+        rows = live;
+        holes = 0;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= ids.length) return;
+        int capacity = Math.max(needed, ids.length * 2);
+        ByteBuffer d = doctorCol, p = patientCol, s = scheduledCol, c = createdCol, st = statusCol;
+        long[] oldSeqs = seqs;
+        String[] oldIds = ids;
+        allocate(capacity);
+        copy(d, doctorCol, rows * Integer.BYTES);
+        copy(p, patientCol, rows * Integer.BYTES);
+        copy(s, scheduledCol, rows * Long.BYTES);
+        copy(c, createdCol, rows * Long.BYTES);
+        copy(st, statusCol, rows);
+        System.arraycopy(oldSeqs, 0, seqs, 0, rows);
+        System.arraycopy(oldIds, 0, ids, 0, rows);
+    }
+
+    private void allocate(int capacity) {
+        doctorCol = column(capacity * Integer.BYTES);
+        patientCol = column(capacity * Integer.BYTES);
+        scheduledCol = column(capacity * Long.BYTES);
+        createdCol = column(capacity * Long.BYTES);
+        statusCol = column(capacity);
+        seqs = new long[capacity];
+        ids = new String[capacity];
+    }
+
+    private ByteBuffer column(int bytes) {
+        return offHeap ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+    }
+
+    private static void copy(ByteBuffer from, ByteBuffer to, int bytes) {
+        to.put(0, from, 0, bytes);
+    }
+
+    private static long toEpochMinute(LocalDateTime t) {
+        return Math.floorDiv(t.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static long ceilEpochMinute(LocalDateTime t) {
+        return toEpochMinute(t) + (t.getSecond() != 0 || t.getNano() != 0 ? 1 : 0);
+    }
+
+    private static LocalDateTime fromEpochMinute(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+
+    private static long toEpochNanos(LocalDateTime t) {
+        return t.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + t.getNano();
+    }
+
+    private static LocalDateTime fromEpochNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,150 @@
+package com.airtribe.meditrack.util;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Thread-safe {@link DataStore} that can be shared between request threads.
+ *
+ * <p>Backed by a {@link ConcurrentHashMap}: reads never block and writes only lock the bin
+ * of the id being written, so writers to different ids proceed in parallel. Iteration is
+ * weakly consistent and never throws {@link java.util.ConcurrentModificationException}.</p>
+ *
+ * <p>With {@code insertionOrdered = true} iteration follows first-insertion order, like the
+ * {@link LinkedIdMap} behind the default store: each id is stamped with a
+ * sequence number on first insert and the entries are additionally kept in a
+ * {@link ConcurrentSkipListMap} keyed by that sequence. Everything that walks the store
+ * (iteration, paging, snapshots and index builds) follows that order.</p>
+ */
+public class ConcurrentDataStore<T> extends DataStore<T> {
+    private final ConcurrentMap<String, T> byId;
+    private final boolean insertionOrdered;
+
+    // Only used when insertionOrdered; the seq map doubles as the per-id write lock.
+    private final ConcurrentMap<String, Long> seqById = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Map.Entry<String, T>> byInsertion = new ConcurrentSkipListMap<>();
+    private final AtomicLong nextSeq = new AtomicLong();
+
+    public ConcurrentDataStore() {
+        this(false);
+    }
+
+    public ConcurrentDataStore(boolean insertionOrdered) {
+        this(new ConcurrentHashMap<>(), insertionOrdered);
+    }
+
+    private ConcurrentDataStore(ConcurrentMap<String, T> byId, boolean insertionOrdered) {
+        super(byId);
+        this.byId = byId;
+        this.insertionOrdered = insertionOrdered;
+    }
+
+    public boolean isInsertionOrdered() {
+        return insertionOrdered;
+    }
+
+    @Override
+    protected T putValue(String key, T value) {
+        if (!insertionOrdered) {
+            return byId.put(key, value);
+        }
+        Object[] previous = new Object[1];
+        seqById.compute(key, (k, seq) -> {
+            long s = seq == null ? nextSeq.incrementAndGet() : seq;
+            byInsertion.put(s, new AbstractMap.SimpleImmutableEntry<>(k, value));
+            previous[0] = byId.put(k, value);
+            return s;
+        });
+        @SuppressWarnings("unchecked")
+        T prev = (T) previous[0];
+        return prev;
+    }
+
+    @Override
+    protected T removeValue(String key) {
+        if (!insertionOrdered) {
+            return byId.remove(key);
+        }
+        Object[] removed = new Object[1];
+        seqById.computeIfPresent(key, (k, seq) -> {
+            byInsertion.remove(seq);
+            removed[0] = byId.remove(k);
+            return null;
+        });
+        @SuppressWarnings("unchecked")
+        T prev = (T) removed[0];
+        return prev;
+    }
+
+    /**
+     * In insertion-ordered mode the cursor is the last sequence number returned, so each
+     * page seeks in O(log n) and is not shifted by concurrent removals. Unordered stores have
+     * no stable order to resume in and page by offset, O(offset) per page.
+     */
+    @Override
+    protected Page<T> pageFrom(Page.Cursor cursor, int pageSize) {
+        if (!insertionOrdered) {
+            return super.pageFrom(cursor, pageSize);
+        }
+        long position = cursor.position();
+        List<T> items = new ArrayList<>(pageSize);
+        long last = position;
+        Iterator<Map.Entry<Long, Map.Entry<String, T>>> it = byInsertion.tailMap(position, false).entrySet().iterator();
+        while (items.size() < pageSize && it.hasNext()) {
+            Map.Entry<Long, Map.Entry<String, T>> e = it.next();
+            items.add(e.getValue().getValue());
+            last = e.getKey();
+        }
+        return new Page<>(items, it.hasNext() ? Page.encodeCursor(last) : null);
+    }
+
+    @Override
+    protected void forEachEntry(BiConsumer<String, T> action) {
+        if (!insertionOrdered) {
+            super.forEachEntry(action);
+            return;
+        }
+        for (Map.Entry<String, T> e : byInsertion.values()) {
+            action.accept(e.getKey(), e.getValue());
+        }
+    }
+
+    @Override
+    protected Collection<T> values() {
+        if (!insertionOrdered) {
+            return byId.values();
+        }
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<T> iterator() {
+                Iterator<Map.Entry<String, T>> entries = byInsertion.values().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public T next() {
+                        return entries.next().getValue();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return byInsertion.size();
+            }
+        };
+    }
+}
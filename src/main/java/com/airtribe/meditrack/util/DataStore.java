@@ -1,12 +1,20 @@
 package com.airtribe.meditrack.util;
 
+import com.airtribe.meditrack.constants.Constants;
+import com.airtribe.meditrack.exception.InvalidDataException;
+
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -14,47 +22,163 @@ import java.util.stream.Stream;
  * Generic in-memory data store.
  *
  * <p>Backed by a {@link Map} for O(1) lookups by id.</p>
+ *
+ * <p>Template Method: the public API validates input and delegates to a small set of
+ * protected storage primitives, so variants (see {@link ConcurrentDataStore}) only swap
+ * the backing structure.</p>
+ *
+ * <p>{@link #snapshot()} gives reports a point-in-time view; {@link VersionedDataStore}
+ * makes that O(1) for stores that are read while being written.</p>
+ *
+ * <p>{@link #changeFeed()} publishes every mutation to downstream consumers.</p>
+ *
+ * <p>Named secondary indexes ({@link #addIndex}, {@link #addUniqueIndex}) are kept in sync on
+ * every {@link #upsert}/{@link #remove} and answer {@link #findByIndex} without a scan.
+ * Sorted indexes ({@link #addSortedIndex}) answer key-range queries in key order via
+ * {@link #rangeByIndex}.</p>
  */
 public class DataStore<T> implements Iterable<T> {
-    private final Map<String, T> byId = new LinkedHashMap<>();
+    private final Map<String, T> byId;
+    private final Map<String, SecondaryIndex<T>> indexes = new ConcurrentHashMap<>();
+    private final Map<String, SortedIndex<T>> sortedIndexes = new ConcurrentHashMap<>();
+    private volatile ChangeFeed<T> changeFeed;
+
+    public DataStore() {
+        this(new LinkedIdMap<>());
+    }
+
+    protected DataStore(Map<String, T> byId) {
+        this.byId = Validator.requireNonNull(byId, "byId");
+    }
 
     public void upsert(String id, T entity) {
         String key = Validator.requireNonBlank(id, "id");
         T value = Validator.requireNonNull(entity, "entity");
-        byId.put(key, value);
+        T previous;
+        if (indexes.isEmpty() && sortedIndexes.isEmpty()) {
+            previous = putValue(key, value);
+        } else {
+            // Allocated on the first claim only: most stores have no unique index.
+            List<SecondaryIndex<T>> claimedIn = null;
+            List<Object> claimedKeys = null;
+            try {
+                for (SecondaryIndex<T> index : indexes.values()) {
+                    if (index.isUnique()) {
+                        Object claimed = ensureBuilt(index).claim(key, value);
+                        if (claimed != null) {
+                            if (claimedIn == null) {
+                                claimedIn = new ArrayList<>(2);
+                                claimedKeys = new ArrayList<>(2);
+                            }
+                            claimedIn.add(index);
+                            claimedKeys.add(claimed);
+                        }
+                    }
+                }
+                previous = putValue(key, value);
+            } catch (RuntimeException e) {
+                for (int i = 0; claimedIn != null && i < claimedIn.size(); i++) {
+                    claimedIn.get(i).release(claimedKeys.get(i), key);
+                }
+                throw e;
+            }
+            for (SecondaryIndex<T> index : indexes.values()) {
+                index.put(key, value);
+            }
+            for (SortedIndex<T> index : sortedIndexes.values()) {
+                index.put(key, value);
+            }
+        }
+        ChangeFeed<T> feed = changeFeed;
+        if (feed != null) {
+            feed.publish(ChangeEvent.Type.UPSERT, key, previous, value);
+        }
     }
 
+    /**
+     * The stored entity. Most stores return the instance that was upserted, but some return
+     * a copy (e.g. {@link ColumnarAppointmentStore}), so callers must {@link #upsert} any change
+     * they make rather than rely on mutating it in place.
+     */
     public Optional<T> get(String id) {
         String key = Validator.requireNonBlank(id, "id");
-        return Optional.ofNullable(byId.get(key));
+        return Optional.ofNullable(getValue(key));
     }
 
     public boolean contains(String id) {
         String key = Validator.requireNonBlank(id, "id");
-        return byId.containsKey(key);
+        return getValue(key) != null;
     }
 
     public Optional<T> remove(String id) {
         String key = Validator.requireNonBlank(id, "id");
-        return Optional.ofNullable(byId.remove(key));
+        T removed = removeValue(key);
+        if (removed != null) {
+            for (SecondaryIndex<T> index : indexes.values()) {
+                index.remove(key);
+            }
+            for (SortedIndex<T> index : sortedIndexes.values()) {
+                index.remove(key);
+            }
+            ChangeFeed<T> feed = changeFeed;
+            if (feed != null) {
+                feed.publish(ChangeEvent.Type.REMOVE, key, removed, null);
+            }
+        }
+        return Optional.ofNullable(removed);
     }
 
     public int size() {
-        return byId.size();
+        return count();
     }
 
     public List<T> listAll() {
-        return Collections.unmodifiableList(new ArrayList<>(byId.values()));
+        return Collections.unmodifiableList(new ArrayList<>(values()));
     }
 
     public Stream<T> stream() {
-        return byId.values().stream();
+        return values().stream();
+    }
+
+    /**
+     * Read-only live view of the values; nothing is copied, so it reflects later writes.
+     */
+    public Collection<T> view() {
+        return Collections.unmodifiableCollection(values());
+    }
+
+    /**
+     * Returns up to {@code pageSize} entries starting at {@code cursor} ({@code null} = first page).
+     *
+     * <p>Only one page is ever buffered, so listing a large store uses constant memory. Stores
+     * that keep insertion order (this one, the durable, tiered and columnar stores and an
+     * ordered {@link ConcurrentDataStore}) put the last entry returned in the cursor, so each
+     * page costs O(pageSize) however deep it is and entries that stay in the store are never
+     * skipped or repeated. Stores that iterate in hash order have no such position and page by
+     * offset: an entry added or removed between calls can shift the entries after it.</p>
+     */
+    public Page<T> page(String cursor, int pageSize) {
+        Validator.requirePositive(pageSize, "pageSize");
+        return pageFrom(cursor == null ? Page.Cursor.START : Page.decodeCursor(cursor), pageSize);
+    }
+
+    /**
+     * Stable read view of the store as of now, for reports that iterate while writes go on.
+     *
+     * <p>The default takes a full copy (O(n)); {@link VersionedDataStore} takes one in O(1).
+     * On a {@link ConcurrentDataStore} the copy is only as consistent as its weakly
+     * consistent iteration.</p>
+     */
+    public StoreSnapshot<T> snapshot() {
+        Map<String, T> copy = new LinkedHashMap<>();
+        forEachEntry(copy::put);
+        return StoreSnapshot.of(copy);
     }
 
     public List<T> findAll(Predicate<T> predicate) {
         Validator.requireNonNull(predicate, "predicate");
         List<T> out = new ArrayList<>();
-        for (T t : byId.values()) {
+        for (T t : values()) {
             if (predicate.test(t)) {
                 out.add(t);
             }
@@ -64,8 +188,207 @@ public class DataStore<T> implements Iterable<T> {
 
     @Override
     public Iterator<T> iterator() {
-        return byId.values().iterator();
+        return values().iterator();
+    }
+
+    // ---- change feed ----
+
+    /**
+     * Feed of all later upserts and removes, created on first call with
+     * {@link Constants#CHANGE_FEED_CAPACITY} slots. Stores nobody subscribes to pay nothing.
+     */
+    public ChangeFeed<T> changeFeed() {
+        ChangeFeed<T> feed = changeFeed;
+        return feed != null ? feed : enableChangeFeed(Constants.CHANGE_FEED_CAPACITY);
+    }
+
+    /**
+     * Starts the change feed with {@code capacity} retained events; returns the existing
+     * feed unchanged if it is already running.
+     */
+    public ChangeFeed<T> enableChangeFeed(int capacity) {
+        synchronized (indexes) {
+            if (changeFeed == null) {
+                changeFeed = new ChangeFeed<>(capacity);
+            }
+            return changeFeed;
+        }
+    }
+
+    // ---- secondary indexes ----
+
+    /**
+     * Registers a non-unique index. Existing entries are indexed on first use, so declaring
+     * an index never forces a lazily loaded store to materialize at startup.
+     *
+     * <p>Registering a name that already exists is a no-op, so several services may safely
+     * declare the same index on a shared store. Entities whose key is {@code null} are not indexed.</p>
+     */
+    public DataStore<T> addIndex(String name, Function<? super T, ?> keyExtractor) {
+        return register(new SecondaryIndex<>(name, keyExtractor, false));
+    }
+
+    /**
+     * Registers an index whose keys may belong to at most one id; violating upserts throw
+     * {@link InvalidDataException} before the store is modified. The key is claimed atomically
+     * before the write (and released if the write fails), so concurrent writers on a
+     * {@link ConcurrentDataStore} cannot both take it.
+     */
+    public DataStore<T> addUniqueIndex(String name, Function<? super T, ?> keyExtractor) {
+        return register(new SecondaryIndex<>(name, keyExtractor, true));
+    }
+
+    /**
+     * Registers an ordered index over a {@link Comparable} key (use a record for composite
+     * keys). Built lazily and shared by name, like {@link #addIndex}; {@code null} keys are not indexed.
+     */
+    public DataStore<T> addSortedIndex(String name, Function<? super T, ? extends Comparable<?>> keyExtractor) {
+        SortedIndex<T> index = new SortedIndex<>(name, keyExtractor);
+        sortedIndexes.putIfAbsent(index.name(), index);
+        return this;
+    }
+
+    public boolean hasIndex(String name) {
+        String key = Validator.requireNonBlank(name, "name");
+        return indexes.containsKey(key) || sortedIndexes.containsKey(key);
+    }
+
+    /**
+     * Entities whose key in the named sorted index is in {@code [from, to)}, lazily in key
+     * order (ties by id): O(log n) to find the range plus O(1) per result. Keys must be
+     * mutually comparable with the indexed ones. The stream is weakly consistent with
+     * concurrent writes.
+     */
+    public <K extends Comparable<? super K>> Stream<T> rangeByIndex(String name, K from, K to) {
+        Validator.requireNonNull(from, "from");
+        Validator.requireNonNull(to, "to");
+        SortedIndex<T> index = sortedIndexes.get(Validator.requireNonBlank(name, "name"));
+        if (index == null) {
+            throw new InvalidDataException("Unknown index: " + name);
+        }
+        if (from.compareTo(to) >= 0) {
+            return Stream.empty();
+        }
+        if (!index.isBuilt()) {
+            synchronized (index) {
+                if (!index.isBuilt()) {
+                    forEachEntry(index::put);
+                    index.markBuilt();
+                }
+            }
+        }
+        return index.idsBetween(from, to).map(this::getValue).filter(Objects::nonNull);
+    }
+
+    /**
+     * Entities filed under {@code key} in the named index, in O(k) for k matches, in the order
+     * they were first stored.
+     */
+    public List<T> findByIndex(String name, Object key) {
+        Collection<String> ids = requireIndex(name).idsFor(Validator.requireNonNull(key, "key"));
+        List<T> out = new ArrayList<>();
+        for (String id : ids) {
+            T value = getValue(id);
+            if (value != null) {
+                out.add(value);
+            }
+        }
+        return out;
     }
-}
 
+    public Optional<T> findUniqueByIndex(String name, Object key) {
+        List<T> matches = findByIndex(name, key);
+        if (matches.size() > 1) {
+            throw new IllegalStateException("Index " + name + " has " + matches.size() + " entries for " + key);
+        }
+        return matches.stream().findFirst();
+    }
+
+    private DataStore<T> register(SecondaryIndex<T> index) {
+        indexes.putIfAbsent(index.name(), index);
+        return this;
+    }
+
+    private SecondaryIndex<T> ensureBuilt(SecondaryIndex<T> index) {
+        if (!index.isBuilt()) {
+            synchronized (index) {
+                if (!index.isBuilt()) {
+                    forEachEntry(index::backfill);
+                    index.markBuilt();
+                }
+            }
+        }
+        return index;
+    }
+
+    private SecondaryIndex<T> requireIndex(String name) {
+        SecondaryIndex<T> index = indexes.get(Validator.requireNonBlank(name, "name"));
+        if (index == null) {
+            throw new InvalidDataException("Unknown index: " + name);
+        }
+        return ensureBuilt(index);
+    }
 
+    /**
+     * Whether writes must also reach indexes or the change feed, which work with string ids.
+     */
+    protected boolean isObserved() {
+        return !indexes.isEmpty() || !sortedIndexes.isEmpty() || changeFeed != null;
+    }
+
+    // ---- storage primitives (keys are already validated) ----
+
+    /**
+     * Stores the value and returns the previous one (or {@code null}).
+     */
+    protected T putValue(String key, T value) {
+        return byId.put(key, value);
+    }
+
+    protected T getValue(String key) {
+        return byId.get(key);
+    }
+
+    /**
+     * Removes the value and returns it (or {@code null} when absent).
+     */
+    protected T removeValue(String key) {
+        return byId.remove(key);
+    }
+
+    protected void forEachEntry(BiConsumer<String, T> action) {
+        byId.forEach(action);
+    }
+
+    protected int count() {
+        return byId.size();
+    }
+
+    /**
+     * Page following {@code cursor}. The default store resumes after the cursor's id in its
+     * {@link LinkedIdMap}; stores backed by another map fall back to treating the position as
+     * an offset into {@link #values()} (O(offset)) unless they override this.
+     */
+    protected Page<T> pageFrom(Page.Cursor cursor, int pageSize) {
+        if (byId instanceof LinkedIdMap<T> linked) {
+            return linked.page(cursor, pageSize, (id, value) -> value);
+        }
+        long position = cursor.position();
+        Iterator<T> it = values().iterator();
+        for (long skipped = 0; skipped < position && it.hasNext(); skipped++) {
+            it.next();
+        }
+        List<T> items = new ArrayList<>(pageSize);
+        while (items.size() < pageSize && it.hasNext()) {
+            items.add(it.next());
+        }
+        return new Page<>(items, it.hasNext() ? Page.encodeCursor(position + items.size()) : null);
+    }
+
+    /**
+     * Live view of the stored values in iteration order.
+     */
+    protected Collection<T> values() {
+        return byId.values();
+    }
+}
@@ -0,0 +1,333 @@
+package com.airtribe.meditrack.util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable hash array mapped trie from {@code String} ids to values.
+ *
+ * <p>Every update returns a new trie that shares all untouched nodes with the old one, so
+ * an update copies at most one 32-way node per level (~log32 n) and old versions stay valid
+ * for as long as someone references them.</p>
+ */
+final class HashTrie<T> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final HashTrie<?> EMPTY = new HashTrie<>(new Branch<>(0, new Object[0]), 0);
+
+    private final Branch<T> root;
+    private final int size;
+
+    private HashTrie(Branch<T> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> HashTrie<T> empty() {
+        return (HashTrie<T>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    T get(String key) {
+        int hash = key.hashCode();
+        Object node = root;
+        for (int shift = 0; ; shift += BITS) {
+            if (node instanceof Branch<?> branch) {
+                int bit = bit(hash, shift);
+                if ((branch.bitmap & bit) == 0) return null;
+                node = branch.slots[branch.index(bit)];
+            } else if (node instanceof Entry<?> entry) {
+                @SuppressWarnings("unchecked")
+                T value = entry.key.equals(key) ? (T) entry.value : null;
+                return value;
+            } else {
+                @SuppressWarnings("unchecked")
+                Collision<T> collision = (Collision<T>) node;
+                return collision.get(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the trie with {@code key} mapped to {@code value}; the replaced value, if any,
+     * is written to {@code previous[0]}.
+     */
+    HashTrie<T> put(String key, T value, Object[] previous) {
+        previous[0] = null;
+        @SuppressWarnings("unchecked")
+        Branch<T> newRoot = (Branch<T>) put(root, new Entry<>(key, key.hashCode(), value), 0, previous);
+        if (newRoot == root) return this;
+        return new HashTrie<>(newRoot, previous[0] == null ? size + 1 : size);
+    }
+
+    /**
+     * Returns the trie without {@code key}; the removed value, if any, is written to {@code removed[0]}.
+     */
+    HashTrie<T> remove(String key, Object[] removed) {
+        removed[0] = null;
+        Object newRoot = remove(root, key, key.hashCode(), 0, removed);
+        if (newRoot == root) return this;
+        return newRoot == null ? empty() : new HashTrie<>(asBranch(newRoot, 0), size - 1);
+    }
+
+    void forEach(BiConsumer<String, T> action) {
+        forEach(root, action);
+    }
+
+    Iterator<T> values() {
+        return new Iterator<>() {
+            private final Deque<Object[]> slots = new ArrayDeque<>();
+            private final Deque<Integer> positions = new ArrayDeque<>();
+            private Entry<T> next;
+
+            {
+                push(root.slots);
+                advance();
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (next == null) throw new NoSuchElementException();
+                T value = next.value;
+                advance();
+                return value;
+            }
+
+            private void push(Object[] s) {
+                slots.push(s);
+                positions.push(0);
+            }
+
+            @SuppressWarnings("unchecked")
+            private void advance() {
+                next = null;
+                while (!slots.isEmpty()) {
+                    Object[] s = slots.peek();
+                    int pos = positions.pop();
+                    if (pos == s.length) {
+                        slots.pop();
+                        continue;
+                    }
+                    positions.push(pos + 1);
+                    Object slot = s[pos];
+                    if (slot instanceof Entry<?> entry) {
+                        next = (Entry<T>) entry;
+                        return;
+                    }
+                    push(slot instanceof Branch<?> branch ? branch.slots : ((Collision<?>) slot).entries);
+                }
+            }
+        };
+    }
+
+    // ---- node operations; a slot holds an Entry, a Branch or a Collision ----
+
+    @SuppressWarnings("unchecked")
+    private static <T> Object put(Object node, Entry<T> entry, int shift, Object[] previous) {
+        if (node instanceof Collision<?> c) {
+            Collision<T> collision = (Collision<T>) c;
+            return collision.hash == entry.hash
+                    ? collision.put(entry, previous)
+                    : split(collision, collision.hash, entry, shift);
+        }
+        Branch<T> branch = (Branch<T>) node;
+        int bit = bit(entry.hash, shift);
+        int index = branch.index(bit);
+        if ((branch.bitmap & bit) == 0) {
+            return branch.insert(bit, index, entry);
+        }
+        Object slot = branch.slots[index];
+        Object replacement;
+        if (slot instanceof Entry<?> e) {
+            Entry<T> existing = (Entry<T>) e;
+            if (existing.key.equals(entry.key)) {
+                previous[0] = existing.value;
+                if (existing.value == entry.value) return branch;
+                replacement = entry;
+            } else {
+                replacement = existing.hash == entry.hash
+                        ? new Collision<>(entry.hash, new Object[]{existing, entry})
+                        : split(existing, existing.hash, entry, shift + BITS);
+            }
+        } else {
+            replacement = put(slot, entry, shift + BITS, previous);
+            if (replacement == slot) return branch;
+        }
+        return branch.replace(index, replacement);
+    }
+
+    /**
+     * Builds the smallest subtree holding {@code existing} (an entry or collision with hash
+     * {@code existingHash}) and {@code entry}, whose hash differs.
+     */
+    private static Branch<Object> split(Object existing, int existingHash, Entry<?> entry, int shift) {
+        int bit1 = bit(existingHash, shift);
+        int bit2 = bit(entry.hash, shift);
+        if (bit1 == bit2) {
+            return new Branch<>(bit1, new Object[]{split(existing, existingHash, entry, shift + BITS)});
+        }
+        Object[] slots = Integer.compareUnsigned(bit1, bit2) < 0
+                ? new Object[]{existing, entry}
+                : new Object[]{entry, existing};
+        return new Branch<>(bit1 | bit2, slots);
+    }
+
+    /**
+     * Returns the node without {@code key}: the same node when absent, {@code null} when it
+     * became empty, or a bare entry when only one entry is left so parents stay compact.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Object remove(Object node, String key, int hash, int shift, Object[] removed) {
+        if (node instanceof Collision<?> c) {
+            return ((Collision<T>) c).remove(key, removed);
+        }
+        Branch<T> branch = (Branch<T>) node;
+        int bit = bit(hash, shift);
+        if ((branch.bitmap & bit) == 0) return branch;
+        int index = branch.index(bit);
+        Object slot = branch.slots[index];
+        Object replacement;
+        if (slot instanceof Entry<?> e) {
+            if (!e.key.equals(key)) return branch;
+            removed[0] = e.value;
+            replacement = null;
+        } else {
+            replacement = remove(slot, key, hash, shift + BITS, removed);
+            if (replacement == slot) return branch;
+        }
+        if (replacement == null) {
+            if (branch.slots.length == 1) return null;
+            if (branch.slots.length == 2 && branch.slots[1 - index] instanceof Entry<?> last) return last;
+            return branch.delete(bit, index);
+        }
+        if (branch.slots.length == 1 && replacement instanceof Entry<?>) return replacement;
+        return branch.replace(index, replacement);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Branch<T> asBranch(Object node, int shift) {
+        if (node instanceof Branch<?> branch) return (Branch<T>) branch;
+        int hash = node instanceof Entry<?> e ? e.hash : ((Collision<?>) node).hash;
+        return new Branch<>(bit(hash, shift), new Object[]{node});
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void forEach(Object node, BiConsumer<String, T> action) {
+        Object[] slots = node instanceof Branch<?> b ? b.slots : ((Collision<?>) node).entries;
+        for (Object slot : slots) {
+            if (slot instanceof Entry<?> e) {
+                action.accept(e.key, (T) e.value);
+            } else {
+                forEach(slot, action);
+            }
+        }
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private record Entry<T>(String key, int hash, T value) {}
+
+    private static final class Branch<T> {
+        final int bitmap;
+        final Object[] slots;
+
+        Branch(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        Branch<T> insert(int bit, int index, Object slot) {
+            Object[] copy = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, copy, 0, index);
+            copy[index] = slot;
+            System.arraycopy(slots, index, copy, index + 1, slots.length - index);
+            return new Branch<>(bitmap | bit, copy);
+        }
+
+        Branch<T> replace(int index, Object slot) {
+            Object[] copy = slots.clone();
+            copy[index] = slot;
+            return new Branch<>(bitmap, copy);
+        }
+
+        Branch<T> delete(int bit, int index) {
+            Object[] copy = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, copy, 0, index);
+            System.arraycopy(slots, index + 1, copy, index, copy.length - index);
+            return new Branch<>(bitmap & ~bit, copy);
+        }
+    }
+
+    /**
+     * Entries whose full 32-bit hashes are equal.
+     */
+    private static final class Collision<T> {
+        final int hash;
+        final Object[] entries;
+
+        Collision(int hash, Object[] entries) {
+            this.hash = hash;
+            this.entries = entries;
+        }
+
+        @SuppressWarnings("unchecked")
+        T get(String key) {
+            for (Object o : entries) {
+                Entry<T> e = (Entry<T>) o;
+                if (e.key.equals(key)) return e.value;
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        Collision<T> put(Entry<T> entry, Object[] previous) {
+            for (int i = 0; i < entries.length; i++) {
+                Entry<T> e = (Entry<T>) entries[i];
+                if (e.key.equals(entry.key)) {
+                    previous[0] = e.value;
+                    if (e.value == entry.value) return this;
+                    Object[] copy = entries.clone();
+                    copy[i] = entry;
+                    return new Collision<>(hash, copy);
+                }
+            }
+            Object[] copy = Arrays.copyOf(entries, entries.length + 1);
+            copy[entries.length] = entry;
+            return new Collision<>(hash, copy);
+        }
+
+        Object remove(String key, Object[] removed) {
+            for (int i = 0; i < entries.length; i++) {
+                Entry<?> e = (Entry<?>) entries[i];
+                if (e.key.equals(key)) {
+                    removed[0] = e.value;
+                    if (entries.length == 2) return entries[1 - i];
+                    Object[] copy = new Object[entries.length - 1];
+                    System.arraycopy(entries, 0, copy, 0, i);
+                    System.arraycopy(entries, i + 1, copy, i, copy.length - i);
+                    return new Collision<T>(hash, copy);
+                }
+            }
+            return this;
+        }
+    }
+}
@@ -1,14 +1,44 @@
 package com.airtribe.meditrack.util;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.exception.PersistenceException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Singleton ID generator backed by an {@link AtomicInteger}.
+ * Singleton ID generator backed by an {@link AtomicLong}.
+ *
+ * <p>Demonstrates: Singleton (lazy), static initialization, AtomicLong.</p>
  *
- * <p>Demonstrates: Singleton (lazy), static initialization, AtomicInteger.</p>
+ * <p>Numeric mode ({@code -Dmeditrack.id.numeric=true}) hands out 64-bit ids instead: an
+ * {@link IdType} tag in the top byte and a 56-bit sequence below it. Ids are taken from a
+ * shared block of {@code meditrack.id.blockSize} sequences with one atomic increment; only
+ * refilling the block synchronizes, so ids stay dense however many (e.g. virtual) threads
+ * allocate, apart from the odd sequence skipped by a thread that raced a refill. With
+ * {@link #persistHighWaterMark(Path)} every reservation is recorded on disk first, so a
+ * restart continues after the last reserved block and never reuses an id.
+ * Code that keys by id should keep the {@code long} from {@link #nextNumericId(IdType)} (see
+ * {@link NumericKeyDataStore#upsert(long, Object)}); {@link #nextId(String)} renders it as
+ * {@code PREFIX-sequence}, the same shape as before, for display, and
+ * {@link #toNumeric(String)} parses that back.</p>
  */
 public final class IdGenerator {
     private static final int INITIAL_VALUE;
+    private static final boolean NUMERIC_MODE = Boolean.getBoolean("meditrack.id.numeric");
+    private static final int BLOCK_SIZE = Math.max(1, Integer.getInteger("meditrack.id.blockSize", 1024));
+    /** Blocks reserved per high-water mark write, so the file is synced once per this many blocks. */
+    private static final int BLOCKS_PER_SYNC = 16;
+    private static final IdType[] TYPES = IdType.values();
+
+    public static final int TAG_SHIFT = 56;
+    public static final long SEQUENCE_MASK = (1L << TAG_SHIFT) - 1;
 
     static {
         String configured = System.getProperty("meditrack.id.start", "1000");
@@ -21,7 +51,15 @@ public final class IdGenerator {
         INITIAL_VALUE = parsed;
     }
 
-    private final AtomicInteger counter = new AtomicInteger(INITIAL_VALUE);
+    private final AtomicLong counter = new AtomicLong(INITIAL_VALUE);
+
+    // Numeric mode: the current block is [cursor, blockEnd). Refills set the cursor before
+    // publishing the new end; an exhausted cursor (see advanceNumeric) forces a refill.
+    private final AtomicLong cursor = new AtomicLong();
+    private volatile long blockEnd;
+    private long nextBlockStart = Math.max(0, INITIAL_VALUE);
+    private Path highWaterFile;
+    private long persistedHighWater;
 
     private static volatile IdGenerator instance;
 
@@ -43,8 +81,218 @@ public final class IdGenerator {
 
     public String nextId(String prefix) {
         String p = Validator.requireNonBlank(prefix, "prefix").toUpperCase();
+        IdType type = NUMERIC_MODE ? IdType.ofPrefix(p) : null;
+        if (type != null) {
+            return render(nextNumericId(type));
+        }
         return p + "-" + counter.getAndIncrement();
     }
-}
 
+    /**
+     * {@code count} ids of one prefix reserved with a single atomic step, in ascending order;
+     * used by batch inserts instead of {@code count} calls to {@link #nextId(String)}.
+     */
+    public String[] nextIds(String prefix, int count) {
+        String p = Validator.requireNonBlank(prefix, "prefix").toUpperCase();
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+        String[] ids = new String[count];
+        if (count == 0) return ids;
+        IdType type = NUMERIC_MODE ? IdType.ofPrefix(p) : null;
+        if (type != null) {
+            long start;
+            synchronized (this) {
+                start = reserveRange(count);
+            }
+            for (int i = 0; i < count; i++) {
+                ids[i] = type.prefix() + "-" + (start + i);
+            }
+            return ids;
+        }
+        long start = counter.getAndAdd(count);
+        for (int i = 0; i < count; i++) {
+            ids[i] = p + "-" + (start + i);
+        }
+        return ids;
+    }
+
+    /**
+     * Next 64-bit id of {@code type}; unique across threads and, with a persisted high-water
+     * mark, across restarts.
+     */
+    public long nextNumericId(IdType type) {
+        Validator.requireNonNull(type, "type");
+        while (true) {
+            long end = blockEnd;
+            long sequence = cursor.getAndIncrement();
+            if (sequence < end) {
+                return ((long) type.tag() << TAG_SHIFT) | sequence;
+            }
+            refill(end);
+        }
+    }
 
+    /**
+     * Makes numeric allocation durable: resumes after the mark stored in {@code file} (if any)
+     * and records every later block reservation there before handing the block out.
+     */
+    public synchronized void persistHighWaterMark(Path file) throws IOException {
+        Validator.requireNonNull(file, "file");
+        if (Files.exists(file)) {
+            long stored = ByteBuffer.wrap(Files.readAllBytes(file)).getLong();
+            advanceNumeric(stored);
+        }
+        highWaterFile = file;
+        persistedHighWater = nextBlockStart;
+    }
+
+    /**
+     * Ensures ids handed out from now on sort after {@code existingId} (e.g. one loaded from disk).
+     * Ids without a numeric {@code PREFIX-n} suffix are ignored.
+     */
+    public void advancePast(String existingId) {
+        advancePast(numericSuffix(Validator.requireNonBlank(existingId, "existingId")));
+    }
+
+    /**
+     * Ensures the next generated numeric suffix is greater than {@code numericSuffix}.
+     */
+    public void advancePast(long numericSuffix) {
+        if (numericSuffix < 0 || numericSuffix == Long.MAX_VALUE) return;
+        counter.accumulateAndGet(numericSuffix + 1, Math::max);
+        if (NUMERIC_MODE) {
+            synchronized (this) {
+                advanceNumeric(numericSuffix + 1);
+            }
+        }
+    }
+
+    /**
+     * The {@code n} of a {@code PREFIX-n} id, or {@code -1} if the id has no numeric suffix.
+     */
+    public static long numericSuffix(String id) {
+        int dash = id.lastIndexOf('-');
+        if (dash < 0 || dash == id.length() - 1) return -1;
+        try {
+            return Long.parseLong(id, dash + 1, id.length(), 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // ---- numeric id encoding ----
+
+    public static IdType typeOf(long id) {
+        return IdType.ofTag((int) (id >>> TAG_SHIFT));
+    }
+
+    public static long sequenceOf(long id) {
+        return id & SEQUENCE_MASK;
+    }
+
+    /**
+     * Display form of a numeric id, e.g. {@code PAT-1042}.
+     */
+    public static String render(long id) {
+        IdType type = typeOf(id);
+        if (type == null) {
+            throw new InvalidDataException("Unknown id tag in " + Long.toHexString(id));
+        }
+        return type.prefix() + "-" + sequenceOf(id);
+    }
+
+    /**
+     * Parses a {@code PREFIX-sequence} id of a known {@link IdType} into its numeric form.
+     */
+    public static long toNumeric(String id) {
+        long numeric = parseNumeric(Validator.requireNonBlank(id, "id"));
+        if (numeric == 0) {
+            throw new InvalidDataException("Not a numeric id: " + id);
+        }
+        return numeric;
+    }
+
+    /**
+     * Like {@link #toNumeric(String)} but returns {@code 0} (never a valid id) instead of throwing.
+     */
+    static long parseNumeric(String id) {
+        int dash = id.lastIndexOf('-');
+        if (dash <= 0 || dash == id.length() - 1) {
+            return 0;
+        }
+        // Matched in place: this runs on every string-keyed access to a NumericKeyDataStore.
+        IdType type = null;
+        for (IdType t : TYPES) {
+            if (t.prefix().length() == dash && id.regionMatches(true, 0, t.prefix(), 0, dash)) {
+                type = t;
+                break;
+            }
+        }
+        if (type == null) {
+            return 0;
+        }
+        long sequence = 0;
+        for (int i = dash + 1; i < id.length(); i++) {
+            int digit = id.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || sequence > (SEQUENCE_MASK - digit) / 10) {
+                return 0;
+            }
+            sequence = sequence * 10 + digit;
+        }
+        return ((long) type.tag() << TAG_SHIFT) | sequence;
+    }
+
+    /**
+     * Starts a new block unless another thread already replaced the one ending at {@code exhaustedEnd}.
+     */
+    private synchronized void refill(long exhaustedEnd) {
+        if (blockEnd != exhaustedEnd && cursor.get() < blockEnd) return;
+        long start = reserveRange(BLOCK_SIZE);
+        cursor.set(start);
+        blockEnd = start + BLOCK_SIZE;
+    }
+
+    /**
+     * Claims {@code size} sequences and returns the first; the caller holds the monitor.
+     */
+    private long reserveRange(long size) {
+        long start = nextBlockStart;
+        long end = start + size;
+        if (end > SEQUENCE_MASK) {
+            throw new IllegalStateException("Numeric id space exhausted");
+        }
+        if (highWaterFile != null && end > persistedHighWater) {
+            long mark = Math.min(SEQUENCE_MASK, Math.max(end, start + (long) BLOCK_SIZE * BLOCKS_PER_SYNC));
+            writeHighWater(mark);
+            persistedHighWater = mark;
+        }
+        nextBlockStart = end;
+        return start;
+    }
+
+    private void advanceNumeric(long next) {
+        if (next > nextBlockStart) {
+            nextBlockStart = next;
+            // Past every possible end, so the rest of the current block is never handed out.
+            cursor.set(SEQUENCE_MASK + 1);
+        }
+    }
+
+    private void writeHighWater(long mark) {
+        Path tmp = highWaterFile.resolveSibling(highWaterFile.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buf = ByteBuffer.allocate(Long.BYTES).putLong(0, mark);
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+                channel.force(true);
+            }
+            Files.move(tmp, highWaterFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to record id high-water mark in " + highWaterFile, e);
+        }
+    }
+}
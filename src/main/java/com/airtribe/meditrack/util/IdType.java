@@ -0,0 +1,49 @@
+package com.airtribe.meditrack.util;
+
+/**
+ * Entity kinds encoded in the top byte of a numeric id (see {@link IdGenerator#nextNumericId}).
+ *
+ * <p>Tags are persisted inside ids, so existing tags must never change; append new types.</p>
+ */
+public enum IdType {
+    PATIENT("PAT", 1),
+    DOCTOR("DOC", 2),
+    APPOINTMENT("APT", 3),
+    BILL("BILL", 4);
+
+    private final String prefix;
+    private final int tag;
+
+    IdType(String prefix, int tag) {
+        this.prefix = prefix;
+        this.tag = tag;
+    }
+
+    public String prefix() {
+        return prefix;
+    }
+
+    public int tag() {
+        return tag;
+    }
+
+    /**
+     * Type for a display prefix such as {@code "PAT"}, or {@code null} if unknown.
+     */
+    public static IdType ofPrefix(String prefix) {
+        for (IdType type : values()) {
+            if (type.prefix.equalsIgnoreCase(prefix)) return type;
+        }
+        return null;
+    }
+
+    /**
+     * Type for a tag byte, or {@code null} if unknown.
+     */
+    public static IdType ofTag(int tag) {
+        for (IdType type : values()) {
+            if (type.tag == tag) return type;
+        }
+        return null;
+    }
+}
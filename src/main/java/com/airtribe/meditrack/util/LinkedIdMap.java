@@ -0,0 +1,198 @@
+package com.airtribe.meditrack.util;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Insertion-ordered map from ids to values that can resume iteration after any id in O(1).
+ *
+ * <p>Like {@link java.util.LinkedHashMap}, entries form a doubly linked list in first-insertion
+ * order (re-inserting an id keeps its place), but each entry also carries an insertion
+ * sequence number, and {@link #page} continues from the entry a cursor names via a hash
+ * lookup instead of skipping from the start. If that entry was removed in the meantime, the
+ * page resumes at the first later entry by sequence (a walk from the start, only in that case),
+ * so paging never skips or repeats entries that stay in the map.</p>
+ *
+ * <p>Not thread-safe, like {@link DataStore}.</p>
+ */
+public final class LinkedIdMap<V> extends AbstractMap<String, V> {
+    private final Map<String, Node<V>> nodes = new HashMap<>();
+    private Node<V> head;
+    private Node<V> tail;
+    private long nextSeq = 1;
+
+    @Override
+    public V get(Object key) {
+        Node<V> node = nodes.get(key);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return nodes.containsKey(key);
+    }
+
+    @Override
+    public V put(String key, V value) {
+        Node<V> node = nodes.get(key);
+        if (node != null) {
+            V previous = node.value;
+            node.value = value;
+            return previous;
+        }
+        node = new Node<>(key, nextSeq++, value);
+        nodes.put(key, node);
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+            node.prev = tail;
+        }
+        tail = node;
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        Node<V> node = nodes.remove(key);
+        if (node == null) {
+            return null;
+        }
+        if (node.prev == null) head = node.next; else node.prev.next = node.next;
+        if (node.next == null) tail = node.prev; else node.next.prev = node.prev;
+        return node.value;
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    @Override
+    public void clear() {
+        nodes.clear();
+        head = null;
+        tail = null;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super V> action) {
+        for (Node<V> n = head; n != null; n = n.next) {
+            action.accept(n.key, n.value);
+        }
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new NodeIterator<>(head, n -> n.value);
+            }
+
+            @Override
+            public int size() {
+                return nodes.size();
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, V>> iterator() {
+                return new NodeIterator<>(head, n -> new SimpleImmutableEntry<>(n.key, n.value));
+            }
+
+            @Override
+            public int size() {
+                return nodes.size();
+            }
+        };
+    }
+
+    /**
+     * Up to {@code limit} entries after {@code cursor} ({@link Page.Cursor#START} = from the
+     * first), mapped through {@code read}; entries it maps to {@code null} are left out of the
+     * page but still count towards the limit. O(limit) when the cursor's entry still exists.
+     */
+    public <R> Page<R> page(Page.Cursor cursor, int limit, BiFunction<String, V, R> read) {
+        Node<V> n = start(cursor);
+        List<R> items = new ArrayList<>(limit);
+        Node<V> last = null;
+        for (int i = 0; i < limit && n != null; i++, n = n.next) {
+            R item = read.apply(n.key, n.value);
+            if (item != null) {
+                items.add(item);
+            }
+            last = n;
+        }
+        return new Page<>(items, n != null ? Page.encodeCursor(last.seq, last.key) : null);
+    }
+
+    private Node<V> start(Page.Cursor cursor) {
+        String key = cursor.key();
+        if (key == null) {
+            return head;
+        }
+        Node<V> previous = nodes.get(key);
+        if (previous != null && previous.seq == cursor.position()) {
+            return previous.next;
+        }
+        Node<V> n = head;
+        while (n != null && n.seq <= cursor.position()) {
+            n = n.next;
+        }
+        return n;
+    }
+
+    private static final class Node<V> {
+        final String key;
+        final long seq;
+        V value;
+        Node<V> prev;
+        Node<V> next;
+
+        Node(String key, long seq, V value) {
+            this.key = key;
+            this.seq = seq;
+            this.value = value;
+        }
+    }
+
+    private static final class NodeIterator<V, E> implements Iterator<E> {
+        private final Function<Node<V>, E> view;
+        private Node<V> next;
+
+        NodeIterator(Node<V> head, Function<Node<V>, E> view) {
+            this.next = head;
+            this.view = view;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public E next() {
+            if (next == null) throw new NoSuchElementException();
+            Node<V> n = next;
+            next = n.next;
+            return view.apply(n);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.airtribe.meditrack.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Open-addressing hash map from primitive {@code long} keys to values: parallel key/value
+ * arrays, linear probing and backward-shift deletion, so lookups neither box the key nor
+ * chase entry objects.
+ *
+ * <p>Key {@code 0} marks an empty slot and cannot be stored (lookups of it find nothing);
+ * numeric ids always carry a non-zero {@link IdType} tag. Not thread-safe.</p>
+ */
+final class LongObjectMap<T> {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    LongObjectMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long k = keys[slot];
+            if (k == key) return (T) values[slot];
+            if (k == 0) return null;
+        }
+    }
+
+    /**
+     * Stores the value and returns the previous one (or {@code null}).
+     */
+    @SuppressWarnings("unchecked")
+    T put(long key, T value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        int slot = slot(key);
+        for (; keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                T previous = (T) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length * 2);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    T remove(long key) {
+        if (key == 0) return null;
+        int slot = slot(key);
+        for (; keys[slot] != key; slot = (slot + 1) & mask) {
+            if (keys[slot] == 0) return null;
+        }
+        T removed = (T) values[slot];
+        // Shift later entries of the probe run back so lookups never hit a false gap.
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = null;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Iterates live entries; {@link Cursor#key()}/{@link Cursor#value()} describe the current one.
+     */
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    Iterator<T> values() {
+        Cursor cursor = cursor();
+        return new Iterator<>() {
+            private boolean ready = cursor.advance();
+
+            @Override
+            public boolean hasNext() {
+                return ready;
+            }
+
+            @Override
+            public T next() {
+                if (!ready) throw new NoSuchElementException();
+                T value = cursor.value();
+                ready = cursor.advance();
+                return value;
+            }
+        };
+    }
+
+    final class Cursor {
+        private int slot = -1;
+
+        boolean advance() {
+            while (++slot < keys.length) {
+                if (keys[slot] != 0) return true;
+            }
+            return false;
+        }
+
+        long key() {
+            return keys[slot];
+        }
+
+        @SuppressWarnings("unchecked")
+        T value() {
+            return (T) values[slot];
+        }
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity / 4 * 3;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int slot = slot(key);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
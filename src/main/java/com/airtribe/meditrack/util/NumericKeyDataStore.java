@@ -0,0 +1,126 @@
+package com.airtribe.meditrack.util;
+
+import com.airtribe.meditrack.exception.InvalidDataException;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link DataStore} keyed internally by 64-bit numeric ids ({@link IdGenerator#toNumeric}).
+ *
+ * <p>Entries live in a primitive {@link LongObjectMap}, so lookups hash a {@code long} instead
+ * of a {@code String}. The {@code long} API ({@link #upsert(long, Object)}, {@link #get(long)},
+ * {@link #contains(long)}, {@link #remove(long)}) never parses or builds a string unless an
+ * index or the change feed needs the display form; the {@code String} API parses the id once
+ * at the boundary, and ids are only rendered back to strings when iterating with keys (e.g.
+ * to build an index).</p>
+ *
+ * <p>Only {@code PREFIX-n} ids of a known {@link IdType} can be stored; looking up any other
+ * id finds nothing. Iteration order is by hash slot, not insertion order. Not thread-safe,
+ * like {@link DataStore}.</p>
+ */
+public class NumericKeyDataStore<T> extends DataStore<T> {
+    private final LongObjectMap<T> entries = new LongObjectMap<>();
+    /** Id of the {@code long}-keyed write in progress, so the primitives need not parse it back. */
+    private long pendingId;
+
+    public NumericKeyDataStore() {
+        // Entries live in the fields below; the base map is never used.
+        super(Map.of());
+    }
+
+    /**
+     * Stores {@code entity} under a numeric id from {@link IdGenerator#nextNumericId}.
+     *
+     * @throws InvalidDataException if the id has no known {@link IdType} tag
+     */
+    public void upsert(long id, T entity) {
+        requireKnownType(id);
+        if (!isObserved()) {
+            entries.put(id, Validator.requireNonNull(entity, "entity"));
+            return;
+        }
+        pendingId = id;
+        try {
+            upsert(IdGenerator.render(id), entity);
+        } finally {
+            pendingId = 0;
+        }
+    }
+
+    public Optional<T> remove(long id) {
+        if (!isObserved()) {
+            return Optional.ofNullable(entries.remove(id));
+        }
+        if (IdGenerator.typeOf(id) == null) {
+            return Optional.empty();
+        }
+        pendingId = id;
+        try {
+            return remove(IdGenerator.render(id));
+        } finally {
+            pendingId = 0;
+        }
+    }
+
+    public Optional<T> get(long id) {
+        return Optional.ofNullable(entries.get(id));
+    }
+
+    public boolean contains(long id) {
+        return entries.get(id) != null;
+    }
+
+    @Override
+    protected T putValue(String key, T value) {
+        return entries.put(pendingId != 0 ? pendingId : IdGenerator.toNumeric(key), value);
+    }
+
+    @Override
+    protected T getValue(String key) {
+        return entries.get(IdGenerator.parseNumeric(key));
+    }
+
+    @Override
+    protected T removeValue(String key) {
+        return entries.remove(pendingId != 0 ? pendingId : IdGenerator.parseNumeric(key));
+    }
+
+    @Override
+    protected void forEachEntry(BiConsumer<String, T> action) {
+        LongObjectMap<T>.Cursor cursor = entries.cursor();
+        while (cursor.advance()) {
+            action.accept(IdGenerator.render(cursor.key()), cursor.value());
+        }
+    }
+
+    @Override
+    protected int count() {
+        return entries.size();
+    }
+
+    @Override
+    protected Collection<T> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<T> iterator() {
+                return entries.values();
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    private static void requireKnownType(long id) {
+        if (IdGenerator.typeOf(id) == null) {
+            throw new InvalidDataException("Not a numeric id: " + Long.toHexString(id));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.airtribe.meditrack.util;
+
+import com.airtribe.meditrack.exception.InvalidDataException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * One page of results plus an opaque cursor for the next page.
+ *
+ * <p>Cursors are only meaningful to the store that produced them; {@link DataStore#page}
+ * describes what they guarantee.</p>
+ */
+public final class Page<T> {
+    /** First byte of every cursor, followed by the position and optionally the last id. */
+    private static final byte CURSOR_TAG = 'P';
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = Collections.unmodifiableList(Validator.requireNonNull(items, "items"));
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Cursor for the following page, empty on the last page.
+     */
+    public Optional<String> getNextCursor() {
+        return Optional.ofNullable(nextCursor);
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    static String encodeCursor(long position) {
+        return encodeCursor(position, null);
+    }
+
+    static String encodeCursor(long position, String key) {
+        byte[] keyBytes = key == null ? new byte[0] : key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(9 + keyBytes.length).put(CURSOR_TAG).putLong(position).put(keyBytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buf.array());
+    }
+
+    static Cursor decodeCursor(String cursor) {
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(Base64.getUrlDecoder().decode(cursor));
+            if (buf.remaining() >= 9 && buf.get() == CURSOR_TAG) {
+                long position = buf.getLong();
+                String key = buf.hasRemaining()
+                        ? new String(buf.array(), buf.position(), buf.remaining(), StandardCharsets.UTF_8) : null;
+                if (position >= 0) return new Cursor(position, key);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new InvalidDataException("Invalid page cursor: " + cursor, e);
+        }
+        throw new InvalidDataException("Invalid page cursor: " + cursor);
+    }
+
+    /**
+     * A decoded cursor: a store-specific {@code position} and, for stores that resume after
+     * a key (see {@link LinkedIdMap#page}), the id the previous page ended with.
+     */
+    public static final class Cursor {
+        /** Cursor of the first page. */
+        public static final Cursor START = new Cursor(0, null);
+
+        private final long position;
+        private final String key;
+
+        Cursor(long position, String key) {
+            this.position = position;
+            this.key = key;
+        }
+
+        long position() {
+            return position;
+        }
+
+        String key() {
+            return key;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.airtribe.meditrack.util;
+
+import com.airtribe.meditrack.exception.InvalidDataException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Named secondary index for a {@link DataStore}: maps an extracted key to the ids of the
+ * entities that currently produce it.
+ *
+ * <p>Entities are mutable and are usually updated in place before being upserted again,
+ * so the index remembers the key each id was last filed under instead of recomputing it
+ * from the (already mutated) old value.</p>
+ *
+ * <p>Each id also keeps the sequence number it was first indexed with, and the ids under a
+ * key are ordered by it, so lookups list entities in the order they were first stored (as a
+ * scan of an insertion-ordered store would), even after they move between keys. Writes made
+ * before the index is built are skipped: the build files every entry in store order.</p>
+ *
+ * <p>A unique index also keeps an owner per key. {@link #claim} takes ownership with one
+ * atomic {@code putIfAbsent} before the store is written, so two concurrent writers can
+ * never both take the same key; the store releases the claim if its write fails.</p>
+ */
+final class SecondaryIndex<T> {
+    private final String name;
+    private final Function<? super T, ?> keyExtractor;
+    private final boolean unique;
+    private volatile boolean built;
+
+    private final ConcurrentHashMap<String, Filed> filedById = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Object, ConcurrentSkipListMap<Long, String>> idsByKey = new ConcurrentHashMap<>();
+    /** Unique indexes only: the id owning each key. */
+    private final ConcurrentHashMap<Object, String> ownerByKey = new ConcurrentHashMap<>();
+    private final AtomicLong nextSeq = new AtomicLong();
+
+    SecondaryIndex(String name, Function<? super T, ?> keyExtractor, boolean unique) {
+        this.name = Validator.requireNonBlank(name, "name");
+        this.keyExtractor = Validator.requireNonNull(keyExtractor, "keyExtractor");
+        this.unique = unique;
+    }
+
+    String name() {
+        return name;
+    }
+
+    boolean isUnique() {
+        return unique;
+    }
+
+    /**
+     * Whether existing store entries have been back-filled; until then writes are not indexed.
+     */
+    boolean isBuilt() {
+        return built;
+    }
+
+    void markBuilt() {
+        built = true;
+    }
+
+    /**
+     * Makes {@code id} the owner of {@code value}'s unique key, before the store is written.
+     *
+     * @return the key if this call claimed it (to be passed to {@link #release} should the
+     *         write fail), or {@code null} if there was nothing to claim
+     * @throws InvalidDataException if the key is owned by a different id
+     */
+    Object claim(String id, T value) {
+        if (!unique) return null;
+        Object key = keyExtractor.apply(value);
+        if (key == null) return null;
+        String owner = ownerByKey.putIfAbsent(key, id);
+        if (owner == null) return key;
+        if (owner.equals(id)) return null;
+        throw new InvalidDataException(name + " must be unique: " + key + " is already used by " + owner);
+    }
+
+    /**
+     * Gives up a key claimed by {@code id}, e.g. after a failed store write.
+     */
+    void release(Object key, String id) {
+        ownerByKey.remove(key, id);
+    }
+
+    void put(String id, T value) {
+        if (awaitBuilt()) {
+            file(id, value);
+        }
+    }
+
+    /**
+     * Files an entry found in the store while building the index (under the index monitor).
+     */
+    void backfill(String id, T value) {
+        file(id, value);
+    }
+
+    void remove(String id) {
+        if (!awaitBuilt()) return;
+        filedById.computeIfPresent(id, (k, filed) -> {
+            unlink(filed, k);
+            return null;
+        });
+    }
+
+    /**
+     * Ids currently filed under {@code key}, in the order they were first indexed.
+     */
+    Collection<String> idsFor(Object key) {
+        ConcurrentSkipListMap<Long, String> ids = idsByKey.get(key);
+        return ids == null ? Collections.emptyList() : Collections.unmodifiableCollection(ids.values());
+    }
+
+    /**
+     * Whether writes must be indexed now. While a build is running this waits for it, as the
+     * build may already have passed the entry being written; before a build starts it returns
+     * {@code false}, as the build will find the write in the store.
+     */
+    private boolean awaitBuilt() {
+        if (built) return true;
+        synchronized (this) {
+            return built;
+        }
+    }
+
+    private void file(String id, T value) {
+        Object newKey = keyExtractor.apply(value);
+        filedById.compute(id, (k, old) -> {
+            if (old != null && Objects.equals(old.key, newKey)) {
+                return old;
+            }
+            if (old != null) {
+                unlink(old, k);
+            }
+            long seq = old != null ? old.seq : nextSeq.getAndIncrement();
+            if (newKey != null) {
+                idsByKey.compute(newKey, (nk, ids) -> {
+                    ConcurrentSkipListMap<Long, String> out = ids == null ? new ConcurrentSkipListMap<>() : ids;
+                    out.put(seq, k);
+                    return out;
+                });
+                if (unique) {
+                    ownerByKey.putIfAbsent(newKey, k);
+                }
+            }
+            return new Filed(newKey, seq);
+        });
+    }
+
+    private void unlink(Filed filed, String id) {
+        if (filed.key == null) return;
+        idsByKey.computeIfPresent(filed.key, (k, ids) -> {
+            ids.remove(filed.seq, id);
+            return ids.isEmpty() ? null : ids;
+        });
+        if (unique) {
+            ownerByKey.remove(filed.key, id);
+        }
+    }
+
+    /**
+     * Key an id is filed under ({@code null} = none) and its position among the ids of that key.
+     */
+    private record Filed(Object key, long seq) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.airtribe.meditrack.util;
+
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Named ordered index for a {@link DataStore}: ids sorted by an extracted {@link Comparable}
+ * key in a {@link ConcurrentSkipListSet}, so a key range is found in O(log n) and then walked
+ * in order without touching entries outside it.
+ *
+ * <p>Like {@link SecondaryIndex}, it remembers the key each id was last filed under because
+ * entities are mutated in place before being upserted again.</p>
+ */
+final class SortedIndex<T> {
+    private final String name;
+    private final Function<? super T, ? extends Comparable<?>> keyExtractor;
+    private volatile boolean built;
+
+    private final ConcurrentHashMap<String, Comparable<?>> keyById = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Slot> slots = new ConcurrentSkipListSet<>();
+
+    SortedIndex(String name, Function<? super T, ? extends Comparable<?>> keyExtractor) {
+        this.name = Validator.requireNonBlank(name, "name");
+        this.keyExtractor = Validator.requireNonNull(keyExtractor, "keyExtractor");
+    }
+
+    String name() {
+        return name;
+    }
+
+    boolean isBuilt() {
+        return built;
+    }
+
+    void markBuilt() {
+        built = true;
+    }
+
+    void put(String id, T value) {
+        Comparable<?> newKey = keyExtractor.apply(value);
+        keyById.compute(id, (k, oldKey) -> {
+            if (oldKey != null && !oldKey.equals(newKey)) {
+                slots.remove(new Slot(oldKey, k));
+            }
+            if (newKey != null) {
+                slots.add(new Slot(newKey, k));
+            }
+            return newKey;
+        });
+    }
+
+    void remove(String id) {
+        keyById.computeIfPresent(id, (k, oldKey) -> {
+            slots.remove(new Slot(oldKey, k));
+            return null;
+        });
+    }
+
+    /**
+     * Ids with {@code from <= key < to}, in key order (ties by id). Weakly consistent:
+     * concurrent writes may or may not be seen.
+     */
+    Stream<String> idsBetween(Comparable<?> from, Comparable<?> to) {
+        // Ids are never blank, so "" sorts before every real id with the same key.
+        NavigableSet<Slot> range = slots.subSet(new Slot(from, ""), true, new Slot(to, ""), false);
+        return range.stream().map(Slot::id);
+    }
+
+    private record Slot(Comparable<?> key, String id) implements Comparable<Slot> {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public int compareTo(Slot o) {
+            int c = ((Comparable) key).compareTo(o.key);
+            return c != 0 ? c : id.compareTo(o.id);
+        }
+    }
+}
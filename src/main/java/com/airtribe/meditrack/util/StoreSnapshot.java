@@ -0,0 +1,82 @@
+package com.airtribe.meditrack.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Read-only, point-in-time view of a {@link DataStore}, obtained from {@link DataStore#snapshot()}.
+ *
+ * <p>Later writes to the store are never visible through a snapshot, and iterating one never
+ * throws {@link java.util.ConcurrentModificationException}. Entities are shared, not copied, so
+ * this relies on stored entities being replaced rather than changed in place, as the services do. Holding a snapshot keeps its
+ * version reachable; drop the reference when done.</p>
+ */
+public final class StoreSnapshot<T> implements Iterable<T> {
+    private final Function<String, T> lookup;
+    private final Supplier<Iterator<T>> iteratorSupplier;
+    private final int size;
+
+    StoreSnapshot(Function<String, T> lookup, Supplier<Iterator<T>> iteratorSupplier, int size) {
+        this.lookup = lookup;
+        this.iteratorSupplier = iteratorSupplier;
+        this.size = size;
+    }
+
+    /**
+     * Snapshot over a private copy that nobody else mutates.
+     */
+    static <T> StoreSnapshot<T> of(Map<String, T> copy) {
+        Map<String, T> entries = Collections.unmodifiableMap(copy);
+        return new StoreSnapshot<>(entries::get, () -> entries.values().iterator(), entries.size());
+    }
+
+    public Optional<T> get(String id) {
+        return Optional.ofNullable(lookup.apply(Validator.requireNonBlank(id, "id")));
+    }
+
+    public boolean contains(String id) {
+        return get(id).isPresent();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public List<T> listAll() {
+        List<T> out = new ArrayList<>(size);
+        forEach(out::add);
+        return Collections.unmodifiableList(out);
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliterator(iterator(), size,
+                Spliterator.IMMUTABLE | Spliterator.NONNULL), false);
+    }
+
+    public List<T> findAll(Predicate<T> predicate) {
+        Validator.requireNonNull(predicate, "predicate");
+        List<T> out = new ArrayList<>();
+        for (T t : this) {
+            if (predicate.test(t)) {
+                out.add(t);
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return iteratorSupplier.get();
+    }
+}
@@ -0,0 +1,237 @@
+package com.airtribe.meditrack.util;
+
+import com.airtribe.meditrack.entity.Specialization;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable matcher that scores symptoms against a list of {@link TriageRule}s.
+ *
+ * <p>All keywords are compiled into one Aho-Corasick automaton (a complete DFA over the
+ * characters that occur in keywords; any other character leads back to the start), so a
+ * symptom is scanned once, whatever the number of rules, instead of once per keyword. Scores
+ * are accumulated in an {@code int} array indexed by specialization ordinal.</p>
+ *
+ * <p>Results are those of checking every rule with {@code symptom.toLowerCase(Locale.ROOT)
+ * .contains(keyword)}: ASCII text is case-folded on the fly, and text with other characters
+ * is lower-cased first, since their lower case may be ASCII. Ties go to the specialization
+ * declared first; with no match at all the result is {@link Specialization#GENERAL_PHYSICIAN}.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public final class SymptomMatcher {
+    private static final Specialization[] SPECIALIZATIONS = Specialization.values();
+
+    private final int version;
+    private final List<TriageRule> rules;
+    /** Rule index to specialization ordinal and weight. */
+    private final int[] ruleSpecialization;
+    private final int[] ruleWeight;
+    /** ASCII character to alphabet class, upper case folded; class 0 is "in no keyword". */
+    private final int[] asciiClass = new int[128];
+    private final Map<Character, Integer> otherClass = new HashMap<>();
+    private final int classes;
+    /**
+     * Transitions, indexed by {@code row + class}. A state's row is {@code state * classes};
+     * entries hold the target's row shifted left by one, with the low bit set if a keyword
+     * ends there, so the scan loop needs no multiplication and no lookup on most characters.
+     * State 0 is the start.
+     */
+    private final int[] next;
+    /** Rules with a keyword ending at each state, directly or through a failure link. */
+    private final int[][] matches;
+
+    /**
+     * Version 0, as used for the built-in rules.
+     */
+    public SymptomMatcher(List<TriageRule> rules) {
+        this(0, rules);
+    }
+
+    /**
+     * @param version identifies the rule set, e.g. in {@link TriageRules#stats()}
+     */
+    public SymptomMatcher(int version, List<TriageRule> rules) {
+        this.version = version;
+        this.rules = List.copyOf(Validator.requireNonNull(rules, "rules"));
+        int n = this.rules.size();
+        ruleSpecialization = new int[n];
+        ruleWeight = new int[n];
+        int alphabet = 1;
+        for (int r = 0; r < n; r++) {
+            TriageRule rule = this.rules.get(r);
+            ruleSpecialization[r] = rule.getSpecialization().ordinal();
+            ruleWeight[r] = rule.getWeight();
+            for (String keyword : rule.getKeywords()) {
+                for (int i = 0; i < keyword.length(); i++) {
+                    char c = keyword.charAt(i);
+                    if (c < 128 ? asciiClass[c] == 0 : !otherClass.containsKey(c)) {
+                        if (c < 128) asciiClass[c] = alphabet++;
+                        else otherClass.put(c, alphabet++);
+                    }
+                }
+            }
+        }
+        classes = alphabet;
+        // Keywords are lower case, and so is any text that was lower-cased: folding ASCII
+        // upper case in the table is always safe and saves a branch per character.
+        for (char c = 'A'; c <= 'Z'; c++) {
+            asciiClass[c] = asciiClass[c + ('a' - 'A')];
+        }
+
+        // Trie of all keywords.
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        trie.add(new int[classes]);
+        ends.add(new ArrayList<>());
+        for (int r = 0; r < n; r++) {
+            for (String keyword : this.rules.get(r).getKeywords()) {
+                int state = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    int c = classOf(keyword.charAt(i));
+                    if (trie.get(state)[c] == 0) {
+                        trie.get(state)[c] = trie.size();
+                        trie.add(new int[classes]);
+                        ends.add(new ArrayList<>());
+                    }
+                    state = trie.get(state)[c];
+                }
+                if (!ends.get(state).contains(r)) ends.get(state).add(r);
+            }
+        }
+
+        // Breadth-first: failure links, completed transitions and inherited matches.
+        int states = trie.size();
+        next = new int[states * classes];
+        matches = new int[states][];
+        int[] fail = new int[states];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        matches[0] = new int[0];
+        for (int c = 0; c < classes; c++) {
+            int child = trie.get(0)[c];
+            next[c] = child;
+            if (child != 0) queue[tail++] = child;
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            List<Integer> own = ends.get(state);
+            for (int inherited : matches[fail[state]]) {
+                if (!own.contains(inherited)) own.add(inherited);
+            }
+            matches[state] = own.stream().mapToInt(Integer::intValue).toArray();
+            for (int c = 0; c < classes; c++) {
+                int child = trie.get(state)[c];
+                if (child != 0) {
+                    fail[child] = next[fail[state] * classes + c];
+                    next[state * classes + c] = child;
+                    queue[tail++] = child;
+                } else {
+                    next[state * classes + c] = next[fail[state] * classes + c];
+                }
+            }
+        }
+        for (int i = 0; i < next.length; i++) {
+            int target = next[i];
+            next[i] = target * classes << 1 | (matches[target].length > 0 ? 1 : 0);
+        }
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public List<TriageRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * The highest-scoring specialization for the symptoms (see the class comment for ties).
+     */
+    public Specialization recommend(List<String> symptoms) {
+        int[] score = score(symptoms);
+        int best = 0;
+        for (int s = 1; s < score.length; s++) {
+            if (score[s] > score[best]) best = s;
+        }
+        return SPECIALIZATIONS[best];
+    }
+
+    /**
+     * Scores indexed by {@link Specialization#ordinal()}; {@code null} symptoms are skipped.
+     */
+    public int[] score(List<String> symptoms) {
+        Validator.requireNonNull(symptoms, "symptoms");
+        int[] score = new int[SPECIALIZATIONS.length];
+        // firedIn[r] = (1-based) index of the last symptom rule r has scored for.
+        int[] firedIn = new int[rules.size()];
+        int index = 0;
+        for (String symptom : symptoms) {
+            index++;
+            if (symptom == null) continue;
+            if (!scan(symptom, true, score, firedIn, index)) {
+                scan(symptom.toLowerCase(Locale.ROOT), false, score, firedIn, index);
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Runs the automaton over {@code text}. Unless the text is already lower-cased
+     * ({@code !asciiOnly}), gives up at the first non-ASCII character.
+     *
+     * @return {@code false} if it gave up (nothing was scored then)
+     */
+    private boolean scan(String text, boolean asciiOnly, int[] score, int[] firedIn, int index) {
+        int entry = 0;
+        int fired = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int cls;
+            if (c < 128) {
+                cls = asciiClass[c];
+            } else if (asciiOnly) {
+                // Undo what was scored for this symptom so far; the caller rescans it lower-cased.
+                if (fired > 0) unscore(score, firedIn, index);
+                return false;
+            } else {
+                cls = classOf(c);
+            }
+            entry = next[(entry >>> 1) + cls];
+            if ((entry & 1) == 0) continue;
+            for (int r : matches[(entry >>> 1) / classes]) {
+                if (firedIn[r] != index) {
+                    firedIn[r] = index;
+                    score[ruleSpecialization[r]] += ruleWeight[r];
+                    fired++;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void unscore(int[] score, int[] firedIn, int index) {
+        for (int r = 0; r < firedIn.length; r++) {
+            if (firedIn[r] == index) {
+                firedIn[r] = 0;
+                score[ruleSpecialization[r]] -= ruleWeight[r];
+            }
+        }
+    }
+
+    private int classOf(char c) {
+        if (c < 128) return asciiClass[c];
+        Integer cls = otherClass.get(c);
+        return cls == null ? 0 : cls;
+    }
+
+    @Override
+    public String toString() {
+        return "SymptomMatcher{version=" + version + ", rules=" + rules.size() + ", states=" + matches.length + "}";
+    }
+}
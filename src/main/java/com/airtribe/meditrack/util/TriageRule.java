@@ -0,0 +1,53 @@
+package com.airtribe.meditrack.util;
+
+import com.airtribe.meditrack.entity.Specialization;
+import com.airtribe.meditrack.exception.InvalidDataException;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One triage rule: a symptom mentioning any of the keywords adds {@code weight} to the
+ * specialization's score (once per symptom, however many keywords it mentions).
+ */
+public final class TriageRule {
+    private final Specialization specialization;
+    private final int weight;
+    private final List<String> keywords;
+
+    /**
+     * @param keywords matched as substrings of the lower-cased symptom; stored lower-cased
+     */
+    public TriageRule(Specialization specialization, int weight, List<String> keywords) {
+        this.specialization = Validator.requireNonNull(specialization, "specialization");
+        this.weight = Validator.requirePositive(weight, "weight");
+        Validator.requireNonNull(keywords, "keywords");
+        if (keywords.isEmpty()) {
+            throw new InvalidDataException("A triage rule needs at least one keyword");
+        }
+        this.keywords = keywords.stream()
+                .map(k -> Validator.requireNonBlank(k, "keyword").toLowerCase(Locale.ROOT))
+                .toList();
+    }
+
+    public static TriageRule of(Specialization specialization, int weight, String... keywords) {
+        return new TriageRule(specialization, weight, List.of(keywords));
+    }
+
+    public Specialization getSpecialization() {
+        return specialization;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public List<String> getKeywords() {
+        return keywords;
+    }
+
+    @Override
+    public String toString() {
+        return specialization + "+" + weight + keywords;
+    }
+}
@@ -0,0 +1,368 @@
+package com.airtribe.meditrack.util;
+
+import com.airtribe.meditrack.entity.Specialization;
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.exception.PersistenceException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The triage rules in force: a compiled {@link SymptomMatcher}, optionally loaded from a rules
+ * file that is watched and reloaded when it changes, and optionally an A/B experiment that
+ * sends a share of the calls to a candidate rule set.
+ *
+ * <p>Rules files are properties files:</p>
+ * <pre>
+ * version=3
+ * rule.ent=ENT:3:ear,throat,nose,sinus,tonsil
+ * rule.fever=GENERAL_PHYSICIAN:2:fever,cold,cough,flu,body ache
+ * </pre>
+ * <p>Each {@code rule.<name>} is {@code SPECIALIZATION:weight:keyword[,keyword...]}. The
+ * version tells rule sets apart in {@link #stats()}, so bump it with every change.</p>
+ *
+ * <p>A reload compiles the new file on the watcher thread and then swaps it in with a single
+ * atomic reference update; {@link #recommend} never waits for it, and calls already running
+ * finish on the matcher they started with. A file that fails to parse (e.g. caught half
+ * written), or whose version is the other experiment arm's, is counted in
+ * {@link #reloadFailures()} and the rules in force are kept until the next change.</p>
+ */
+public final class TriageRules implements Closeable {
+    private static final String VERSION = "version";
+    private static final String RULE_PREFIX = "rule.";
+
+    private final AtomicReference<Routing> routing;
+    private final ConcurrentMap<Integer, Counters> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Path, Slot> watched = new ConcurrentHashMap<>();
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder reloadFailures = new LongAdder();
+    private final ReentrantLock watchLock = new ReentrantLock();
+    private final Set<Path> watchedDirs = new HashSet<>();
+    private WatchService watchService;
+    private boolean closed;
+
+    public TriageRules(SymptomMatcher rules) {
+        Validator.requireNonNull(rules, "rules");
+        this.routing = new AtomicReference<>(new Routing(rules, countersFor(rules), null, null, 0));
+    }
+
+    /**
+     * Compiles rules from properties (see the class comment for the format).
+     */
+    public static SymptomMatcher parse(Properties config) {
+        Validator.requireNonNull(config, "config");
+        String version = Validator.requireNonBlank(config.getProperty(VERSION), VERSION).trim();
+        List<TriageRule> rules = new ArrayList<>();
+        config.stringPropertyNames().stream()
+                .filter(key -> key.startsWith(RULE_PREFIX))
+                .sorted()
+                .forEach(key -> rules.add(parseRule(key, config.getProperty(key))));
+        if (rules.isEmpty()) {
+            throw new InvalidDataException("Triage rules need at least one " + RULE_PREFIX + "* entry");
+        }
+        try {
+            return new SymptomMatcher(Integer.parseInt(version), rules);
+        } catch (NumberFormatException e) {
+            throw new InvalidDataException("Invalid triage rules version: " + version);
+        }
+    }
+
+    /**
+     * Reads and compiles a rules file.
+     */
+    public static SymptomMatcher load(Path file) {
+        Validator.requireNonNull(file, "file");
+        Properties config = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            config.load(reader);
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to read triage rules " + file, e);
+        }
+        return parse(config);
+    }
+
+    private static TriageRule parseRule(String key, String spec) {
+        String[] parts = spec.split(":", 3);
+        if (parts.length != 3) {
+            throw new InvalidDataException("Triage rule " + key + " must be SPECIALIZATION:weight:keywords");
+        }
+        Specialization specialization;
+        int weight;
+        try {
+            specialization = Specialization.valueOf(parts[0].trim());
+            weight = Integer.parseInt(parts[1].trim());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidDataException("Invalid triage rule " + key + ": " + spec);
+        }
+        List<String> keywords = new ArrayList<>();
+        for (String keyword : parts[2].split(",")) {
+            if (!keyword.isBlank()) keywords.add(keyword.trim());
+        }
+        return new TriageRule(specialization, weight, keywords);
+    }
+
+    /**
+     * Recommends a specialization with the rules in force, or with the experiment's candidate
+     * rules for its share of the calls.
+     */
+    public Specialization recommend(List<String> symptoms) {
+        Routing r = routing.get();
+        boolean candidate = r.candidate != null && ThreadLocalRandom.current().nextInt(100) < r.percent;
+        SymptomMatcher matcher = candidate ? r.candidate : r.rules;
+        long start = System.nanoTime();
+        Specialization result = matcher.recommend(symptoms);
+        (candidate ? r.candidateCounters : r.rulesCounters).record(result, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * The rules in force (not the experiment's candidate).
+     */
+    public SymptomMatcher current() {
+        return routing.get().rules;
+    }
+
+    public Optional<SymptomMatcher> candidate() {
+        return Optional.ofNullable(routing.get().candidate);
+    }
+
+    /**
+     * Puts {@code rules} in force; a watched file replaces them again on its next change.
+     *
+     * @throws InvalidDataException if an experiment is running with a candidate of the same version
+     */
+    public void replace(SymptomMatcher rules) {
+        Validator.requireNonNull(rules, "rules");
+        routing.updateAndGet(r -> {
+            if (r.candidate != null) requireOtherVersion(rules, r.candidate);
+            return new Routing(rules, countersFor(rules), r.candidate, r.candidateCounters, r.percent);
+        });
+    }
+
+    /**
+     * Loads the rules file, puts it in force and reloads it whenever it changes, until
+     * {@link #close}. Watching another file stops watching this one.
+     *
+     * @throws InvalidDataException if the file is not valid now (nothing changes then)
+     */
+    public void watch(Path file) {
+        Path path = file.toAbsolutePath().normalize();
+        replace(load(path));
+        watch(path, Slot.RULES);
+    }
+
+    /**
+     * Sends about {@code percent}% of the calls to {@code candidate}, until {@link #endExperiment}.
+     *
+     * @throws InvalidDataException if the candidate has the same version as the rules in force
+     */
+    public void startExperiment(SymptomMatcher candidate, int percent) {
+        Validator.requireNonNull(candidate, "candidate");
+        Validator.requireRangeInclusive(percent, 0, 100, "percent");
+        routing.updateAndGet(r -> {
+            requireOtherVersion(candidate, r.rules);
+            return new Routing(r.rules, r.rulesCounters, candidate, countersFor(candidate), percent);
+        });
+    }
+
+    /**
+     * Like {@link #startExperiment(SymptomMatcher, int)} with rules from a file, which is then
+     * watched like the file of {@link #watch}.
+     */
+    public void startExperiment(Path file, int percent) {
+        Path path = file.toAbsolutePath().normalize();
+        startExperiment(load(path), percent);
+        watch(path, Slot.CANDIDATE);
+    }
+
+    /**
+     * Sends all calls to the rules in force again; their statistics are kept.
+     */
+    public void endExperiment() {
+        watched.values().remove(Slot.CANDIDATE);
+        routing.updateAndGet(r -> new Routing(r.rules, r.rulesCounters, null, null, 0));
+    }
+
+    /**
+     * Calls, timing and outcomes per rules version seen so far, by version.
+     */
+    public List<TriageStats> stats() {
+        return counters.entrySet().stream()
+                .map(e -> e.getValue().snapshot(e.getKey()))
+                .sorted(Comparator.comparingInt(TriageStats::getVersion))
+                .toList();
+    }
+
+    /**
+     * Successful reloads of watched files.
+     */
+    public long reloads() {
+        return reloads.sum();
+    }
+
+    public long reloadFailures() {
+        return reloadFailures.sum();
+    }
+
+    /**
+     * Stops watching files; the rules in force stay in force.
+     */
+    @Override
+    public void close() throws IOException {
+        watchLock.lock();
+        try {
+            closed = true;
+            watched.clear();
+            if (watchService != null) {
+                watchService.close();
+            }
+        } finally {
+            watchLock.unlock();
+        }
+    }
+
+    private Counters countersFor(SymptomMatcher rules) {
+        return counters.computeIfAbsent(rules.getVersion(), v -> new Counters());
+    }
+
+    private void watch(Path path, Slot slot) {
+        watchLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Triage rules are closed");
+            }
+            watched.values().remove(slot);
+            watched.put(path, slot);
+            if (watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+                WatchService service = watchService;
+                Thread t = new Thread(() -> watchLoop(service), "triage-rules-watcher");
+                t.setDaemon(true);
+                t.start();
+            }
+            if (watchedDirs.add(path.getParent())) {
+                path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to watch triage rules " + path, e);
+        } finally {
+            watchLock.unlock();
+        }
+    }
+
+    private void watchLoop(WatchService service) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // Events were lost: reload everything watched in this directory.
+                    watched.forEach((file, slot) -> {
+                        if (file.getParent().equals(dir)) reload(file, slot);
+                    });
+                } else {
+                    Path file = dir.resolve((Path) event.context());
+                    Slot slot = watched.get(file);
+                    if (slot != null) reload(file, slot);
+                }
+            }
+            key.reset();
+        }
+    }
+
+    /**
+     * Swaps in the changed file, unless it does not parse or has the other arm's version (which
+     * would mix both arms' statistics); either way the failure is counted.
+     */
+    private void reload(Path file, Slot slot) {
+        try {
+            SymptomMatcher rules = load(file);
+            if (slot == Slot.RULES) {
+                replace(rules);
+            } else {
+                routing.updateAndGet(r -> {
+                    if (r.candidate == null) return r;
+                    requireOtherVersion(rules, r.rules);
+                    return new Routing(r.rules, r.rulesCounters, rules, countersFor(rules), r.percent);
+                });
+            }
+        } catch (RuntimeException e) {
+            reloadFailures.increment();
+            return;
+        }
+        reloads.increment();
+    }
+
+    private static void requireOtherVersion(SymptomMatcher rules, SymptomMatcher otherArm) {
+        if (rules.getVersion() == otherArm.getVersion()) {
+            throw new InvalidDataException("Rules version " + rules.getVersion()
+                    + " is already used by the other arm of the experiment");
+        }
+    }
+
+    private enum Slot { RULES, CANDIDATE }
+
+    /**
+     * What {@link #recommend} uses, swapped as a whole.
+     */
+    private record Routing(SymptomMatcher rules, Counters rulesCounters,
+                           SymptomMatcher candidate, Counters candidateCounters, int percent) {
+    }
+
+    private static final class Counters {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder[] outcomes = new LongAdder[Specialization.values().length];
+
+        Counters() {
+            for (int i = 0; i < outcomes.length; i++) {
+                outcomes[i] = new LongAdder();
+            }
+        }
+
+        void record(Specialization outcome, long elapsed) {
+            calls.increment();
+            nanos.add(elapsed);
+            outcomes[outcome.ordinal()].increment();
+        }
+
+        TriageStats snapshot(int version) {
+            Map<Specialization, Long> byOutcome = new EnumMap<>(Specialization.class);
+            for (Specialization s : Specialization.values()) {
+                long n = outcomes[s.ordinal()].sum();
+                if (n > 0) byOutcome.put(s, n);
+            }
+            return new TriageStats(version, calls.sum(), nanos.sum(), byOutcome);
+        }
+    }
+}
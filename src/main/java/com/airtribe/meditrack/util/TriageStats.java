@@ -0,0 +1,60 @@
+package com.airtribe.meditrack.util;
+
+import com.airtribe.meditrack.entity.Specialization;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Calls served and recommendations made by one version of the triage rules; see
+ * {@link TriageRules#stats()}.
+ */
+public final class TriageStats {
+    private final int version;
+    private final long calls;
+    private final long totalNanos;
+    private final Map<Specialization, Long> outcomes;
+
+    TriageStats(int version, long calls, long totalNanos, Map<Specialization, Long> outcomes) {
+        this.version = version;
+        this.calls = calls;
+        this.totalNanos = totalNanos;
+        this.outcomes = Collections.unmodifiableMap(new EnumMap<>(outcomes));
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    /**
+     * Mean time per recommendation, in nanoseconds.
+     */
+    public double getMeanNanos() {
+        return calls == 0 ? 0 : (double) totalNanos / calls;
+    }
+
+    /**
+     * Recommendations per second of matching time (single thread).
+     */
+    public double getCallsPerSecond() {
+        return totalNanos == 0 ? 0 : calls * 1e9 / totalNanos;
+    }
+
+    /**
+     * How often each specialization was recommended; specializations never recommended are absent.
+     */
+    public Map<Specialization, Long> getOutcomes() {
+        return outcomes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TriageStats{version=%d, calls=%d, meanNanos=%.0f, outcomes=%s}",
+                version, calls, getMeanNanos(), outcomes);
+    }
+}
@@ -1,5 +1,6 @@
 package com.airtribe.meditrack.util;
 
+import com.airtribe.meditrack.entity.Money;
 import com.airtribe.meditrack.exception.InvalidDataException;
 
 import java.math.BigDecimal;
@@ -47,6 +48,14 @@ public final class Validator {
         return value;
     }
 
+    public static Money requireNonNegative(Money value, String fieldName) {
+        requireNonNull(value, fieldName);
+        if (value.isNegative()) {
+            throw new InvalidDataException(fieldName + " must be >= 0");
+        }
+        return value;
+    }
+
     public static void requireEquals(Object a, Object b, String message) {
         if (!Objects.equals(a, b)) {
             throw new InvalidDataException(message);
@@ -0,0 +1,92 @@
+package com.airtribe.meditrack.util;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Multi-version {@link DataStore}: every write publishes a new immutable version, so
+ * {@link #snapshot()} is O(1) and readers never block writers.
+ *
+ * <p>Versions are persistent hash tries ({@link HashTrie}) sharing structure with their
+ * predecessors; a write copies ~log32 n small nodes and swaps the current version with a CAS,
+ * retrying on contention. Old versions are reclaimed by the GC once no snapshot or iterator
+ * references them.</p>
+ *
+ * <p>Thread-safe. Iteration order is by id hash, not insertion order; {@link #iterator()} and
+ * {@link #stream()} walk the version current when they start.</p>
+ */
+public class VersionedDataStore<T> extends DataStore<T> {
+    private final AtomicReference<HashTrie<T>> current = new AtomicReference<>(HashTrie.empty());
+
+    public VersionedDataStore() {
+        // Entries live in the fields below; the base map is never used.
+        super(Map.of());
+    }
+
+    /**
+     * Point-in-time view of the current version, in O(1).
+     */
+    @Override
+    public StoreSnapshot<T> snapshot() {
+        HashTrie<T> version = current.get();
+        return new StoreSnapshot<>(version::get, version::values, version.size());
+    }
+
+    @Override
+    protected T putValue(String key, T value) {
+        Object[] previous = new Object[1];
+        HashTrie<T> version;
+        do {
+            version = current.get();
+        } while (!current.compareAndSet(version, version.put(key, value, previous)));
+        @SuppressWarnings("unchecked")
+        T prev = (T) previous[0];
+        return prev;
+    }
+
+    @Override
+    protected T getValue(String key) {
+        return current.get().get(key);
+    }
+
+    @Override
+    protected T removeValue(String key) {
+        Object[] removed = new Object[1];
+        HashTrie<T> version;
+        do {
+            version = current.get();
+        } while (!current.compareAndSet(version, version.remove(key, removed)));
+        @SuppressWarnings("unchecked")
+        T prev = (T) removed[0];
+        return prev;
+    }
+
+    @Override
+    protected void forEachEntry(BiConsumer<String, T> action) {
+        current.get().forEach(action);
+    }
+
+    @Override
+    protected int count() {
+        return current.get().size();
+    }
+
+    @Override
+    protected Collection<T> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<T> iterator() {
+                return current.get().values();
+            }
+
+            @Override
+            public int size() {
+                return current.get().size();
+            }
+        };
+    }
+}